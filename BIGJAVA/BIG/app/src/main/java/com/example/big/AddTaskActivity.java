@@ -17,7 +17,6 @@ import androidx.core.view.WindowInsetsCompat;
 
 import java.util.Calendar;
 import java.util.Date;
-import java.util.Random;
 
 
 public class AddTaskActivity extends AppCompatActivity {
@@ -143,8 +142,8 @@ public class AddTaskActivity extends AppCompatActivity {
             return;
         }
 
-        // 生成8位随机ID
-        int id = generateRandomId();
+        // 生成不重复的任务ID
+        long id = TaskIdGenerator.get(this).nextId();
 
         // 获取日期
         Calendar calendar = Calendar.getInstance();
@@ -181,12 +180,7 @@ public class AddTaskActivity extends AppCompatActivity {
         int endMinute = endMinuteIndex * 5;
 
         // 格式化时间范围
-        @SuppressLint("DefaultLocale") String startHourStr = String.format("%02d", startHour);
-        @SuppressLint("DefaultLocale") String startMinuteStr = String.format("%02d", startMinute);
-        @SuppressLint("DefaultLocale") String endHourStr = String.format("%02d", endHour);
-        @SuppressLint("DefaultLocale") String endMinuteStr = String.format("%02d", endMinute);
-
-        String timeRange = startHourStr + " : " + startMinuteStr + " -- " + endHourStr + " : " + endMinuteStr;
+        String timeRange = TimeRangeCodec.format(startHour * 60 + startMinute, endHour * 60 + endMinute);
 
         // 计算持续时间（分钟）
         int durationMinutes = (endHour - startHour) * 60 + (endMinute - startMinute);
@@ -206,15 +200,16 @@ public class AddTaskActivity extends AppCompatActivity {
         // 由于Task类中没有setDelayed方法，我们不能设置延期状态
         // 您需要在Task类中添加这个方法
 
-        // 这里可以添加保存任务到数据库或传递回上一个Activity的代码
-
-        Toast.makeText(this, "任务已添加: " + title, Toast.LENGTH_SHORT).show();
-        finish(); // 返回上一个Activity
-    }
-
-    private int generateRandomId() {
-        Random random = new Random();
-        // 生成8位随机数（10000000-99999999）
-        return 10000000 + random.nextInt(90000000);
+        // 保存到任务日志，写入磁盘后才提示成功并返回；保存期间禁用按钮，避免重复添加
+        addButton.setEnabled(false);
+        TaskRepository.getInstance().put(newTask, saved -> {
+            if (!saved) {
+                addButton.setEnabled(true);
+                Toast.makeText(this, "保存失败，请稍后重试", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            Toast.makeText(this, "任务已添加: " + title, Toast.LENGTH_SHORT).show();
+            finish(); // 返回上一个Activity
+        });
     }
 }
\ No newline at end of file
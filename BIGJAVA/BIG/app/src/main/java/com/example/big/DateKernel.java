@@ -0,0 +1,291 @@
+package com.example.big;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * 日期计算内核：把时间点换算成本地时区下的天数（自1970-01-01起）和当天的分钟数
+ *
+ * 1900 ~ 2100 年按约十年分段，每段在第一次用到时一次性找出段内全部的偏移切换时刻（夏令时等），
+ * 之后每次换算只在该段的切换时刻数组上二分查找，不创建任何对象，
+ * 可以在列表绑定、日志回放等热点路径上逐个任务调用。
+ * 没有任何切换的固定偏移时区整条时间线只有一个偏移；
+ * 范围之外的时间点，不再使用夏令时的时区沿用最后的偏移，其余直接询问 TimeZone
+ */
+public final class DateKernel {
+    // 日期为空时的天数
+    public static final int NO_DAY = Integer.MIN_VALUE;
+
+    public static final long MINUTE_MILLIS = 60 * 1000L;
+    public static final long DAY_MILLIS = 24 * 60 * MINUTE_MILLIS;
+
+    // 预先计算偏移切换的范围：1900-01-01 ~ 2100-01-01（天数）
+    private static final int TABLE_FROM_DAY = -25567;
+    private static final int TABLE_TO_DAY = 47482;
+    // 每段的天数（约十年）
+    private static final int CHUNK_DAYS = 3653;
+    // 查找切换时的探测步长（天）；相隔不到一周又切换回原偏移的两次切换会被忽略
+    private static final int PROBE_STEP_DAYS = 7;
+    // 各时区的偏移与 UTC 相差不超过 18 小时
+    private static final long MAX_OFFSET_MILLIS = 18 * 60 * MINUTE_MILLIS;
+
+    private static volatile Zone zone = new Zone(TimeZone.getDefault());
+
+    private DateKernel() {
+    }
+
+    /**
+     * 系统时区可能已改变时调用（如页面恢复时），时区未变时保留已缓存的偏移
+     */
+    public static void refreshTimeZone() {
+        TimeZone current = TimeZone.getDefault();
+        if (!current.getID().equals(zone.timeZone.getID())) {
+            zone = new Zone(current);
+        }
+    }
+
+    /**
+     * 时间点在本地时区下的天数
+     *
+     * @param millis 时间戳（毫秒）
+     * @return 天数
+     */
+    public static int epochDay(long millis) {
+        return (int) Math.floorDiv(millis + zone.offsetAt(millis), DAY_MILLIS);
+    }
+
+    /**
+     * 日期在本地时区下的天数
+     *
+     * @param date 日期
+     * @return 天数，日期为空时返回 {@link #NO_DAY}
+     */
+    public static int epochDay(Date date) {
+        return date == null ? NO_DAY : epochDay(date.getTime());
+    }
+
+    /**
+     * 时间点在本地时区下是当天的第几分钟
+     *
+     * @param millis 时间戳（毫秒）
+     * @return 0 ~ 1439
+     */
+    public static int minuteOfDay(long millis) {
+        return (int) (Math.floorMod(millis + zone.offsetAt(millis), DAY_MILLIS) / MINUTE_MILLIS);
+    }
+
+    /**
+     * 判断两个日期是否是本地时区下的同一天
+     *
+     * @param date1 日期1
+     * @param date2 日期2
+     * @return 是否同一天，任一日期为空时返回 false
+     */
+    public static boolean isSameDay(Date date1, Date date2) {
+        if (date1 == null || date2 == null) {
+            return false;
+        }
+        return epochDay(date1.getTime()) == epochDay(date2.getTime());
+    }
+
+    /**
+     * 今天的天数
+     *
+     * @return 天数
+     */
+    public static int today() {
+        return epochDay(System.currentTimeMillis());
+    }
+
+    /**
+     * 本地时区下某天开始的时间点，即当地日期为这一天的最早时刻
+     * 一般是当天零点；零点落在夏令时跳过的时间段内时是切换后的第一个时刻；
+     * 回拨使零点出现两次时是第一个零点；整天被跳过时是下一天的开始
+     *
+     * @param epochDay 天数
+     * @return 时间戳（毫秒）
+     */
+    public static long startOfDay(int epochDay) {
+        return zone.startOfDay(epochDay * DAY_MILLIS);
+    }
+
+    /**
+     * 本地时区下某天开始时刻的日期对象
+     *
+     * @param epochDay 天数
+     * @return 日期，天数为 {@link #NO_DAY} 时返回 null
+     */
+    public static Date toDate(int epochDay) {
+        return epochDay == NO_DAY ? null : new Date(startOfDay(epochDay));
+    }
+
+    // 一段时间内的偏移切换，创建后不可变
+    private static final class Chunk {
+        final long start;
+        final long end;
+        // 切换时刻（升序）；offsets[i] 是 transitions[i - 1] 到 transitions[i] 之间的偏移
+        final long[] transitions;
+        final int[] offsets;
+
+        Chunk(long start, long end, long[] transitions, int[] offsets) {
+            this.start = start;
+            this.end = end;
+            this.transitions = transitions;
+            this.offsets = offsets;
+        }
+
+        // 包含该时刻的时间段：段内之前的切换个数
+        int segmentIndex(long millis) {
+            int low = 0;
+            int high = transitions.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (transitions[mid] <= millis) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    // 某个时区的偏移切换表；各段按需生成，Chunk 不可变，多线程下最坏只是重复生成
+    private static final class Zone {
+        final TimeZone timeZone;
+        private final long tableFrom;
+        private final long tableTo;
+        private final Chunk[] chunks;
+        // 固定偏移的时区整条时间线只有一个偏移 fixedOffset
+        private final boolean fixed;
+        private final int fixedOffset;
+        // 不再使用夏令时，表之后沿用最后的偏移
+        private final boolean fixedAfter;
+
+        Zone(TimeZone timeZone) {
+            this.timeZone = timeZone;
+            this.tableFrom = TABLE_FROM_DAY * DAY_MILLIS;
+            this.tableTo = TABLE_TO_DAY * DAY_MILLIS;
+            this.chunks = new Chunk[(TABLE_TO_DAY - TABLE_FROM_DAY + CHUNK_DAYS - 1) / CHUNK_DAYS];
+            this.fixedAfter = !timeZone.useDaylightTime();
+            // 没有夏令时、历史上也从未改变偏移的时区（如 UTC、GMT+08:00）
+            boolean fixed = fixedAfter && timeZone.getRawOffset() == timeZone.getOffset(tableFrom)
+                    && timeZone.getRawOffset() == timeZone.getOffset(tableTo);
+            if (fixed) {
+                for (int i = 0; i < chunks.length && fixed; i++) {
+                    fixed = chunkAt(i).transitions.length == 0;
+                }
+            }
+            this.fixed = fixed;
+            this.fixedOffset = timeZone.getRawOffset();
+        }
+
+        int offsetAt(long millis) {
+            if (fixed) {
+                return fixedOffset;
+            }
+            if (millis < tableFrom || (millis >= tableTo && !fixedAfter)) {
+                return timeZone.getOffset(millis);
+            }
+            Chunk chunk = chunkFor(Math.min(millis, tableTo - 1));
+            return chunk.offsets[chunk.segmentIndex(millis)];
+        }
+
+        // 当地时间为 local 所在这一天的最早时刻：在可能包含它的各时间段中取最早的
+        long startOfDay(long local) {
+            if (fixed) {
+                return local - fixedOffset;
+            }
+            long from = local - MAX_OFFSET_MILLIS;
+            long to = local + MAX_OFFSET_MILLIS;
+            if (from < tableFrom || to >= tableTo) {
+                // 表之外，按附近的偏移估算
+                return local - timeZone.getOffset(local - timeZone.getOffset(local));
+            }
+            long best = Long.MAX_VALUE;
+            // 整天被跳过（如切换日期变更线）时没有这一天的时刻，取之后的第一个时刻
+            long after = Long.MAX_VALUE;
+            for (int c = chunkIndex(from); c <= chunkIndex(to); c++) {
+                Chunk chunk = chunkAt(c);
+                for (int i = c == chunkIndex(from) ? chunk.segmentIndex(from) : 0; i <= chunk.transitions.length; i++) {
+                    long segmentStart = i == 0 ? chunk.start : chunk.transitions[i - 1];
+                    if (segmentStart > to) {
+                        break;
+                    }
+                    long segmentEnd = i == chunk.transitions.length ? chunk.end : chunk.transitions[i];
+                    int offset = chunk.offsets[i];
+                    // 该时间段中当地时间不早于 local 的第一个时刻
+                    long candidate = Math.max(segmentStart, local - offset);
+                    if (candidate >= segmentEnd) {
+                        continue;
+                    }
+                    if (candidate + offset < local + DAY_MILLIS) {
+                        best = Math.min(best, candidate);
+                    } else {
+                        after = Math.min(after, candidate);
+                    }
+                }
+            }
+            return best != Long.MAX_VALUE ? best : after;
+        }
+
+        private int chunkIndex(long millis) {
+            return (int) ((millis - tableFrom) / (CHUNK_DAYS * DAY_MILLIS));
+        }
+
+        private Chunk chunkFor(long millis) {
+            return chunkAt(chunkIndex(millis));
+        }
+
+        private Chunk chunkAt(int index) {
+            Chunk chunk = chunks[index];
+            if (chunk == null) {
+                chunk = scan(index);
+                chunks[index] = chunk;
+            }
+            return chunk;
+        }
+
+        // 以 PROBE_STEP_DAYS 为步长探测偏移变化，再二分出精确的切换时刻
+        private Chunk scan(int index) {
+            long start = tableFrom + index * CHUNK_DAYS * DAY_MILLIS;
+            long end = Math.min(start + CHUNK_DAYS * DAY_MILLIS, tableTo);
+            long[] found = new long[8];
+            int[] foundOffsets = new int[9];
+            int count = 0;
+            int offset = timeZone.getOffset(start);
+            foundOffsets[0] = offset;
+            long step = PROBE_STEP_DAYS * DAY_MILLIS;
+            for (long low = start; low < end; low += step) {
+                long high = Math.min(low + step, end - 1);
+                // 一个步长内可能有多次切换，逐个二分出来
+                while (timeZone.getOffset(high) != offset) {
+                    long change = firstChange(low, high, offset);
+                    offset = timeZone.getOffset(change);
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, count * 2);
+                        foundOffsets = Arrays.copyOf(foundOffsets, count * 2 + 1);
+                    }
+                    found[count++] = change;
+                    foundOffsets[count] = offset;
+                    low = change;
+                }
+            }
+            return new Chunk(start, end, Arrays.copyOf(found, count), Arrays.copyOf(foundOffsets, count + 1));
+        }
+
+        // 二分查找 (low, high] 中偏移不再等于 offset 的第一个时刻（low 处的偏移为 offset）
+        private long firstChange(long low, long high, int offset) {
+            while (high - low > 1) {
+                long mid = low + (high - low) / 2;
+                if (timeZone.getOffset(mid) == offset) {
+                    low = mid;
+                } else {
+                    high = mid;
+                }
+            }
+            return high;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.big;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 某一天按小时分桶的时间轴模型，供 TodayTimelineAdapter 绑定
+ *
+ * 每个小时对应在这个小时开始或跨过这个小时的任务片段（片段记录在该小时内的起点和分钟数），
+ * 生成时每个任务只看一次，绑定某一行时只读取这一行的片段，与任务总数无关。
+ * 生成可能较慢，应在后台线程进行；生成后不可变，可以交给主线程使用
+ */
+public final class DayTimeline {
+    public static final int HOURS = 24;
+    private static final Segment[] NO_SEGMENTS = new Segment[0];
+
+    private final int epochDay;
+    private final Segment[][] segmentsByHour;
+
+    /**
+     * 任务在某个小时内的一段
+     */
+    public static final class Segment {
+        public final Task task;
+        // 是否是任务开始的那个小时
+        public final boolean starts;
+        // 在这个小时内开始的分钟（0 - 59）和持续的分钟数
+        public final int minuteInHour;
+        public final int minutes;
+
+        Segment(Task task, boolean starts, int minuteInHour, int minutes) {
+            this.task = task;
+            this.starts = starts;
+            this.minuteInHour = minuteInHour;
+            this.minutes = minutes;
+        }
+    }
+
+    private DayTimeline(int epochDay, Segment[][] segmentsByHour) {
+        this.epochDay = epochDay;
+        this.segmentsByHour = segmentsByHour;
+    }
+
+    /**
+     * 没有任务的时间轴（生成完成前显示）
+     *
+     * @param epochDay 天数
+     * @return 时间轴
+     */
+    public static DayTimeline empty(int epochDay) {
+        Segment[][] segments = new Segment[HOURS][];
+        for (int hour = 0; hour < HOURS; hour++) {
+            segments[hour] = NO_SEGMENTS;
+        }
+        return new DayTimeline(epochDay, segments);
+    }
+
+    /**
+     * 生成某一天的时间轴，不在这一天或没有时间的任务不显示
+     *
+     * @param tasks    任务（同一小时内按此顺序排列）
+     * @param epochDay 天数
+     * @return 时间轴
+     */
+    public static DayTimeline build(List<Task> tasks, int epochDay) {
+        List<List<Segment>> buckets = new ArrayList<>(HOURS);
+        for (int hour = 0; hour < HOURS; hour++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (Task task : tasks) {
+            if (!task.hasTimeRange() || DateKernel.epochDay(task.getDate()) != epochDay) {
+                continue;
+            }
+            int start = task.getStartMinuteOfDay();
+            int end = task.getEndMinuteOfDay();
+            int startHour = start / 60;
+            // 开始的小时总是显示，之后的小时在任务结束前都显示
+            for (int hour = startHour; hour < HOURS && (hour == startHour || end > hour * 60); hour++) {
+                int from = Math.max(start, hour * 60);
+                int to = Math.min(end, hour * 60 + 60);
+                buckets.get(hour).add(new Segment(task, hour == startHour, from - hour * 60, Math.max(0, to - from)));
+            }
+        }
+
+        Segment[][] segments = new Segment[HOURS][];
+        for (int hour = 0; hour < HOURS; hour++) {
+            List<Segment> bucket = buckets.get(hour);
+            segments[hour] = bucket.isEmpty() ? NO_SEGMENTS : bucket.toArray(new Segment[0]);
+        }
+        return new DayTimeline(epochDay, segments);
+    }
+
+    public int getEpochDay() {
+        return epochDay;
+    }
+
+    /**
+     * 某个小时内的片段
+     *
+     * @param hour 小时（0 - 23）
+     * @return 片段（不要修改）
+     */
+    public Segment[] segmentsAt(int hour) {
+        return hour >= 0 && hour < HOURS ? segmentsByHour[hour] : NO_SEGMENTS;
+    }
+}
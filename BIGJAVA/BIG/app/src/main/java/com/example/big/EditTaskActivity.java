@@ -21,7 +21,6 @@ import androidx.core.view.WindowInsetsCompat;
 
 import java.util.Calendar;
 import java.util.Date;
-import java.util.Map;
 
 public class EditTaskActivity extends AppCompatActivity {
     private EditText titleEditText;
@@ -47,7 +46,9 @@ public class EditTaskActivity extends AppCompatActivity {
     private Button otherButton;
 
     private Task currentTask;
-    private int taskId;
+    private long taskId;
+    // 上次提示时冲突的任务数
+    private int lastConflictCount;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -61,22 +62,13 @@ public class EditTaskActivity extends AppCompatActivity {
         });
 
         // 获取当前编辑的任务ID
-        taskId = getIntent().getIntExtra("task_id", -1);
+        taskId = getIntent().getLongExtra("task_id", -1);
         if (taskId == -1) {
             Toast.makeText(this, "任务ID无效", Toast.LENGTH_SHORT).show();
             finish();
             return;
         }
 
-        // 从数据库或其他存储中获取任务对象
-        // 这里示例使用，实际应用中应该从数据库获取
-        currentTask = getTaskById(taskId);
-        if (currentTask == null) {
-            Toast.makeText(this, "无法找到任务", Toast.LENGTH_SHORT).show();
-            finish();
-            return;
-        }
-
         // 初始化控件
         initViews();
         setupTimePickers();
@@ -84,14 +76,36 @@ public class EditTaskActivity extends AppCompatActivity {
         setupStatusCheckBoxes();
         setupCategoryButtons();
 
-        // 填充现有任务数据
-        populateTaskData();
+        // 仓库在后台打开（第一次时重放日志），读取到任务后再填充，在此之前不能保存或删除
+        editButton.setEnabled(false);
+        deleteButton.setEnabled(false);
+        TaskRepository.open(repository -> {
+            if (isDestroyed()) {
+                return;
+            }
+            currentTask = getTaskById(taskId);
+            if (currentTask == null) {
+                Toast.makeText(this, "无法找到任务", Toast.LENGTH_SHORT).show();
+                finish();
+                return;
+            }
+
+            // 填充现有任务数据
+            populateTaskData();
+            editButton.setEnabled(true);
+            deleteButton.setEnabled(true);
+        });
 
         findViewById(R.id.back_button).setOnClickListener(v -> finish());
     }
 
-    // 示例方法，实际应用中应从数据库获取
-    private Task getTaskById(int id) {
+    // 从任务日志中读取，日志中没有（如演示数据）时返回示例任务
+    private Task getTaskById(long id) {
+        TaskVersion saved = TaskRepository.getInstance().get(id);
+        if (saved != null) {
+            return saved.toTask();
+        }
+
         // 模拟数据，实际应用中应该从数据库获取
         // 这里暂时返回一个假的Task对象用于演示
         Calendar cal = Calendar.getInstance();
@@ -100,8 +114,7 @@ public class EditTaskActivity extends AppCompatActivity {
         Task task = new Task(id, "示例任务", "09 : 00 -- 10 : 30", date, 90, true, "这是一个示例任务描述", "示例地点", date);
         task.setCategory("学习");
         task.setFinished(false);
-        // 由于Task类中没有setDelayed方法，我们不能在这里设置延期状态
-        // 需要在Task类中添加这个方法
+        task.setDelayed(false);
         return task;
     }
 
@@ -172,6 +185,25 @@ public class EditTaskActivity extends AppCompatActivity {
             }
             Toast.makeText(this, "结束时间必须晚于开始时间", Toast.LENGTH_SHORT).show();
         }
+        checkConflicts();
+    }
+
+    // 调整时间时检查与已保存任务的冲突，冲突的任务数变化时才提示
+    private void checkConflicts() {
+        if (currentTask == null) {
+            // 任务尚未读取，仓库可能还没有打开
+            return;
+        }
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(datePicker.getYear(), datePicker.getMonth(), datePicker.getDayOfMonth(), 0, 0, 0);
+        int startMinute = startHourPicker.getValue() * 60 + startMinutePicker.getValue() * 5;
+        int endMinute = endHourPicker.getValue() * 60 + endMinutePicker.getValue() * 5;
+        long[] conflicts = TaskRepository.getInstance().overlapIndex()
+                .conflictsWith(taskId, DateKernel.epochDay(calendar.getTime()), startMinute, endMinute);
+        if (conflicts.length > 0 && conflicts.length != lastConflictCount) {
+            Toast.makeText(this, "与 " + conflicts.length + " 个任务时间冲突", Toast.LENGTH_SHORT).show();
+        }
+        lastConflictCount = conflicts.length;
     }
 
     private void setupButtons() {
@@ -193,81 +225,75 @@ public class EditTaskActivity extends AppCompatActivity {
     }
 
     private void populateTaskData() {
-        // 使用当前任务的数据填充界面
-        Map<String, Object> taskData = currentTask.getAll();
-
-        // 填充标题
-        titleEditText.setText((String) taskData.get("title"));
-
-        // 填充描述
-        if (taskData.get("description") != null) {
-            descriptionEditText.setText((String) taskData.get("description"));
-        }
-
-        // 填充日期选择器
-        Date date = (Date) taskData.get("date");
-        if (date != null) {
-            Calendar cal = Calendar.getInstance();
-            cal.setTime(date);
-            datePicker.updateDate(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH), cal.get(Calendar.DAY_OF_MONTH));
-        }
-
-        // 填充时间范围
-        String timeRange = (String) taskData.get("timeRange");
-        if (timeRange != null && !timeRange.equals("未设定时间")) {
-            try {
-                // 解析时间范围，格式: "HH : MM -- HH : MM"
-                String[] parts = timeRange.split(" -- ");
-                String[] startParts = parts[0].split(" : ");
-                String[] endParts = parts[1].split(" : ");
-
-                int startHour = Integer.parseInt(startParts[0]);
-                int startMinute = Integer.parseInt(startParts[1]);
-                int startMinuteIndex = startMinute / 5; // 计算分钟索引
-
-                int endHour = Integer.parseInt(endParts[0]);
-                int endMinute = Integer.parseInt(endParts[1]);
-                int endMinuteIndex = endMinute / 5; // 计算分钟索引
-
-                startHourPicker.setValue(startHour);
-                startMinutePicker.setValue(startMinuteIndex);
-                endHourPicker.setValue(endHour);
-                endMinutePicker.setValue(endMinuteIndex);
-            } catch (Exception e) {
-                // 解析错误，使用默认值
-                startHourPicker.setValue(9);
-                startMinutePicker.setValue(0);
-                endHourPicker.setValue(10);
-                endMinutePicker.setValue(0);
+        // 使用当前任务的数据填充界面（按字段类型访问，不创建 Map）
+        currentTask.accept(new Task.FieldVisitor() {
+            @Override
+            public void visitString(Task.Field field, String value) {
+                if (value == null) {
+                    return;
+                }
+                switch (field) {
+                    case TITLE:
+                        titleEditText.setText(value);
+                        break;
+                    case DESCRIPTION:
+                        descriptionEditText.setText(value);
+                        break;
+                    case PLACE:
+                        placeEditText.setText(value);
+                        break;
+                    case CATEGORY:
+                        categoryEditText.setText(value);
+                        break;
+                    default:
+                        break;
+                }
             }
-        }
 
-        // 填充地点
-        if (taskData.get("place") != null) {
-            placeEditText.setText((String) taskData.get("place"));
-        }
-
-        // 设置重要性
-        importantSwitch.setChecked((Boolean) taskData.get("important"));
-
-        // 设置完成状态
-        if (taskData.get("finished") != null) {
-            boolean finished = (Boolean) taskData.get("finished");
-            finishedCheckBox.setChecked(finished);
-            finishedStatusText.setText(finished ? "已完成" : "未完成");
-        }
+            @Override
+            public void visitDate(Task.Field field, Date value) {
+                // 填充日期选择器
+                if (field == Task.Field.DATE && value != null) {
+                    Calendar cal = Calendar.getInstance();
+                    cal.setTime(value);
+                    datePicker.updateDate(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH), cal.get(Calendar.DAY_OF_MONTH));
+                }
+            }
 
-        // 设置延期状态
-        if (taskData.get("delayed") != null) {
-            boolean delayed = (Boolean) taskData.get("delayed");
-            delayedCheckBox.setChecked(delayed);
-            delayedStatusText.setText(delayed ? "已延期" : "按时完成");
-        }
+            @Override
+            public void visitBoolean(Task.Field field, boolean value) {
+                switch (field) {
+                    case IMPORTANT:
+                        importantSwitch.setChecked(value);
+                        break;
+                    case FINISHED:
+                        finishedCheckBox.setChecked(value);
+                        finishedStatusText.setText(value ? "已完成" : "未完成");
+                        break;
+                    case DELAYED:
+                        delayedCheckBox.setChecked(value);
+                        delayedStatusText.setText(value ? "已延期" : "按时完成");
+                        break;
+                    default:
+                        break;
+                }
+            }
+        });
 
-        // 设置分类标签
-        if (taskData.get("category") != null) {
-            String category = (String) taskData.get("category");
-            categoryEditText.setText(category);
+        // 填充时间范围（使用 Task 中预先解析好的分钟数）
+        if (currentTask.hasTimeRange()) {
+            int startMinuteOfDay = currentTask.getStartMinuteOfDay();
+            int endMinuteOfDay = Math.min(currentTask.getEndMinuteOfDay(), 23 * 60 + 55);
+            startHourPicker.setValue(startMinuteOfDay / 60);
+            startMinutePicker.setValue(startMinuteOfDay % 60 / 5); // 计算分钟索引
+            endHourPicker.setValue(endMinuteOfDay / 60);
+            endMinutePicker.setValue(endMinuteOfDay % 60 / 5); // 计算分钟索引
+        } else if (currentTask.isTimeRangeMalformed()) {
+            // 解析错误，使用默认值
+            startHourPicker.setValue(9);
+            startMinutePicker.setValue(0);
+            endHourPicker.setValue(10);
+            endMinutePicker.setValue(0);
         }
     }
 
@@ -309,12 +335,7 @@ public class EditTaskActivity extends AppCompatActivity {
         int endMinute = endMinuteIndex * 5;
 
         // 格式化时间范围
-        @SuppressLint("DefaultLocale") String startHourStr = String.format("%02d", startHour);
-        @SuppressLint("DefaultLocale") String startMinuteStr = String.format("%02d", startMinute);
-        @SuppressLint("DefaultLocale") String endHourStr = String.format("%02d", endHour);
-        @SuppressLint("DefaultLocale") String endMinuteStr = String.format("%02d", endMinute);
-
-        String timeRange = startHourStr + " : " + startMinuteStr + " -- " + endHourStr + " : " + endMinuteStr;
+        String timeRange = TimeRangeCodec.format(startHour * 60 + startMinute, endHour * 60 + endMinute);
 
         // 计算持续时间（分钟）
         int durationMinutes = (endHour - startHour) * 60 + (endMinute - startMinute);
@@ -335,26 +356,27 @@ public class EditTaskActivity extends AppCompatActivity {
             category = "其他"; // 默认标签
         }
 
-        // 更新任务
-        currentTask.edit(title, timeRange, date, durationMinutes, important, description, place, dueDate);
+        // 更新任务（edit 会保存到任务日志，因此先设置其他字段），写入磁盘后才提示成功并返回
         currentTask.setFinished(finished);
-        currentTask.setPlace(place);
+        currentTask.setDelayed(delayedCheckBox.isChecked());
         currentTask.setCategory(category);
+        editButton.setEnabled(false);
+        currentTask.edit(title, timeRange, date, durationMinutes, important, description, place, dueDate, saved -> {
+            editButton.setEnabled(true);
+            if (!saved) {
+                Toast.makeText(this, "保存失败，请稍后重试", Toast.LENGTH_SHORT).show();
+                return;
+            }
 
-        // 由于Task类中没有setDelayed方法，我们不能设置延期状态
-        // 您需要在Task类中添加这个方法：
-        // public void setDelayed(boolean delayed) {
-        //     this.delayed = delayed;
-        // }
-
-        Toast.makeText(this, "任务已更新: " + title, Toast.LENGTH_SHORT).show();
+            Toast.makeText(this, "任务已更新: " + title, Toast.LENGTH_SHORT).show();
 
-        // 返回上一个Activity
-        Intent resultIntent = new Intent();
-        resultIntent.putExtra("task_id", taskId);
-        resultIntent.putExtra("action", "edit");
-        setResult(RESULT_OK, resultIntent);
-        finish();
+            // 返回上一个Activity
+            Intent resultIntent = new Intent();
+            resultIntent.putExtra("task_id", taskId);
+            resultIntent.putExtra("action", "edit");
+            setResult(RESULT_OK, resultIntent);
+            finish();
+        });
     }
 
     private void confirmDelete() {
@@ -367,19 +389,21 @@ public class EditTaskActivity extends AppCompatActivity {
     }
 
     private void deleteTask() {
-        boolean success = currentTask.delete();
-
-        if (success) {
-            Toast.makeText(this, "事项已删除", Toast.LENGTH_SHORT).show();
-
-            // 返回上一个Activity并传递删除结果
-            Intent resultIntent = new Intent();
-            resultIntent.putExtra("task_id", taskId);
-            resultIntent.putExtra("action", "delete");
-            setResult(RESULT_OK, resultIntent);
-            finish();
-        } else {
-            Toast.makeText(this, "删除失败，请稍后重试", Toast.LENGTH_SHORT).show();
-        }
+        deleteButton.setEnabled(false);
+        currentTask.delete(success -> {
+            deleteButton.setEnabled(true);
+            if (success) {
+                Toast.makeText(this, "事项已删除", Toast.LENGTH_SHORT).show();
+
+                // 返回上一个Activity并传递删除结果
+                Intent resultIntent = new Intent();
+                resultIntent.putExtra("task_id", taskId);
+                resultIntent.putExtra("action", "delete");
+                setResult(RESULT_OK, resultIntent);
+                finish();
+            } else {
+                Toast.makeText(this, "删除失败，请稍后重试", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,499 @@
+package com.example.big;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+/**
+ * 任务标题、简介、地点的全文索引，按 BM25 排序
+ *
+ * 分词：汉字没有词边界，连续的汉字拆成单字和相邻两字，字母和数字按连续的一段作为一个词。
+ * 查询时多字的汉字只取相邻两字，单个汉字取单字。
+ * 评分采用 BM25F：每个字段的词频按字段长度归一化后乘以字段权重（标题 > 地点 > 简介）再求和，
+ * 然后与逆文档频率一起代入 BM25 公式；结果用固定大小的堆保留得分最高的若干个。
+ *
+ * 倒排表按段存放：新加入的文档先放在内存缓冲区，满 FLUSH_DOCS 个后生成一个只读段，
+ * 段中每个词的倒排表是文档号差值和各字段词频的 varint 序列；
+ * 同一层的段达到 MERGE_FACTOR 个时合并为上一层的一个段，合并时丢弃已删除的文档。
+ * 修改任务相当于删除旧文档再加入新文档，只影响缓冲区和删除标记，不重建整个索引
+ *
+ * 所有方法都是同步的，可以在写入线程更新、在后台线程查询
+ */
+public class FullTextIndex {
+    // 字段依次为标题、简介、地点
+    private static final int FIELDS = 3;
+    private static final float[] BOOSTS = {3f, 1f, 2f};
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private static final int FLUSH_DOCS = 256;
+    private static final int MERGE_FACTOR = 4;
+
+    // 词 -> 词编号，及每个词出现在多少个未删除的文档中
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private int[] docFreqs = new int[256];
+
+    // 文档号按加入顺序递增，不重用；删除后只保留任务ID和字段长度两个数组中的位置
+    private long[] taskIds = new long[64];
+    private int[] fieldLengths = new int[64 * FIELDS];
+    // 文档包含的词编号（升序），删除时据此更新文档频率
+    private int[][] docTerms = new int[64][];
+    private int docCount;
+    private final OrdinalBitmap liveDocs = new OrdinalBitmap();
+    private final LongIntHashMap docsByTaskId = new LongIntHashMap(64);
+    private final long[] fieldLengthSums = new long[FIELDS];
+
+    // 缓冲区中的文档及其各字段词频（与 docTerms 对应，每个词 FIELDS 个）
+    private int[] bufferDocs = new int[FLUSH_DOCS];
+    private int[][] bufferFreqs = new int[FLUSH_DOCS][];
+    private int bufferCount;
+    // 只读段，按文档号从小到大排列
+    private final List<Segment> segments = new ArrayList<>();
+
+    // 查询时累加得分
+    private float[] scores = new float[64];
+    private int[] touched = new int[64];
+
+    /**
+     * 添加或更新任务
+     *
+     * @param taskId      任务ID
+     * @param title       标题
+     * @param description 简介
+     * @param place       地点
+     */
+    public synchronized void put(long taskId, String title, String description, String place) {
+        remove(taskId);
+        String[] texts = {title, description, place};
+        // 词编号 -> 各字段词频
+        Map<Integer, int[]> freqs = new HashMap<>();
+        int doc = allocateDoc(taskId);
+        for (int field = 0; field < FIELDS; field++) {
+            List<String> tokens = tokenize(texts[field], false);
+            fieldLengths[doc * FIELDS + field] = tokens.size();
+            fieldLengthSums[field] += tokens.size();
+            for (String token : tokens) {
+                int term = termIdOf(token);
+                int[] termFreqs = freqs.get(term);
+                if (termFreqs == null) {
+                    termFreqs = new int[FIELDS];
+                    freqs.put(term, termFreqs);
+                }
+                termFreqs[field]++;
+            }
+        }
+
+        int[] terms = new int[freqs.size()];
+        int count = 0;
+        for (int term : freqs.keySet()) {
+            terms[count++] = term;
+        }
+        Arrays.sort(terms);
+        int[] termFreqs = new int[terms.length * FIELDS];
+        for (int i = 0; i < terms.length; i++) {
+            System.arraycopy(freqs.get(terms[i]), 0, termFreqs, i * FIELDS, FIELDS);
+            docFreqs[terms[i]]++;
+        }
+        docTerms[doc] = terms;
+        bufferDocs[bufferCount] = doc;
+        bufferFreqs[bufferCount++] = termFreqs;
+        if (bufferCount == FLUSH_DOCS) {
+            flush();
+        }
+    }
+
+    /**
+     * 删除任务
+     *
+     * @param taskId 任务ID
+     */
+    public synchronized void remove(long taskId) {
+        int doc = docsByTaskId.remove(taskId);
+        if (doc == LongIntHashMap.MISSING) {
+            return;
+        }
+        liveDocs.remove(doc);
+        for (int term : docTerms[doc]) {
+            docFreqs[term]--;
+        }
+        docTerms[doc] = null;
+        for (int field = 0; field < FIELDS; field++) {
+            fieldLengthSums[field] -= fieldLengths[doc * FIELDS + field];
+        }
+    }
+
+    /**
+     * 按相关程度查找任务
+     *
+     * @param query  查询文字
+     * @param limit  最多返回的个数
+     * @param accept 只返回满足条件的任务ID，为 null 时不限制
+     * @return 任务ID，按得分从高到低排列；没有匹配的词时返回空数组
+     */
+    public synchronized long[] search(String query, int limit, LongPredicate accept) {
+        int liveCount = docsByTaskId.size();
+        List<String> tokens = tokenize(query, true);
+        List<Integer> terms = new ArrayList<>();
+        for (String token : tokens) {
+            Integer term = termIds.get(token);
+            if (term != null && docFreqs[term] > 0 && !terms.contains(term)) {
+                terms.add(term);
+            }
+        }
+        if (terms.isEmpty() || limit <= 0) {
+            return new long[0];
+        }
+
+        float[] weights = new float[terms.size()];
+        for (int i = 0; i < weights.length; i++) {
+            int docFreq = docFreqs[terms.get(i)];
+            weights[i] = (float) Math.log(1 + (liveCount - docFreq + 0.5) / (docFreq + 0.5));
+        }
+        float[] averageLengths = new float[FIELDS];
+        for (int field = 0; field < FIELDS; field++) {
+            averageLengths[field] = Math.max(1f, (float) fieldLengthSums[field] / liveCount);
+        }
+
+        int touchedCount = 0;
+        int[] freqs = new int[FIELDS];
+        int[] end = new int[1];
+        for (Segment segment : segments) {
+            for (int i = 0; i < weights.length; i++) {
+                ByteBuffer posting = segment.posting(terms.get(i));
+                if (posting == null) {
+                    continue;
+                }
+                int position = 0;
+                int doc = 0;
+                while (position < posting.limit()) {
+                    doc += (int) TaskRecordCodec.readVarint(posting, position, posting.limit(), end);
+                    position = end[0];
+                    for (int field = 0; field < FIELDS; field++) {
+                        freqs[field] = (int) TaskRecordCodec.readVarint(posting, position, posting.limit(), end);
+                        position = end[0];
+                    }
+                    if (liveDocs.contains(doc)) {
+                        touchedCount = accumulate(doc, weights[i], freqs, averageLengths, touchedCount);
+                    }
+                }
+            }
+        }
+        for (int b = 0; b < bufferCount; b++) {
+            int doc = bufferDocs[b];
+            if (!liveDocs.contains(doc)) {
+                continue;
+            }
+            for (int i = 0; i < weights.length; i++) {
+                int index = Arrays.binarySearch(docTerms[doc], terms.get(i));
+                if (index >= 0) {
+                    System.arraycopy(bufferFreqs[b], index * FIELDS, freqs, 0, FIELDS);
+                    touchedCount = accumulate(doc, weights[i], freqs, averageLengths, touchedCount);
+                }
+            }
+        }
+        return topDocs(touchedCount, limit, accept);
+    }
+
+    public synchronized int size() {
+        return docsByTaskId.size();
+    }
+
+    /**
+     * 分词
+     *
+     * @param text  文字
+     * @param query 是否为查询：查询中多字的汉字只取相邻两字
+     * @return 词（可能重复）
+     */
+    static List<String> tokenize(String text, boolean query) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String lower = text.toLowerCase();
+        int i = 0;
+        while (i < lower.length()) {
+            char c = lower.charAt(i);
+            int start = i;
+            if (Pinyin.isHan(c)) {
+                while (i < lower.length() && Pinyin.isHan(lower.charAt(i))) {
+                    i++;
+                }
+                int length = i - start;
+                for (int j = start; j < i; j++) {
+                    if (!query || length == 1) {
+                        tokens.add(lower.substring(j, j + 1));
+                    }
+                    if (j + 1 < i) {
+                        tokens.add(lower.substring(j, j + 2));
+                    }
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                while (i < lower.length() && Character.isLetterOrDigit(lower.charAt(i))
+                        && !Pinyin.isHan(lower.charAt(i))) {
+                    i++;
+                }
+                tokens.add(lower.substring(start, i));
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    // BM25F：各字段词频归一化后加权求和，再做饱和
+    private int accumulate(int doc, float weight, int[] freqs, float[] averageLengths, int touchedCount) {
+        float frequency = 0;
+        for (int field = 0; field < FIELDS; field++) {
+            if (freqs[field] > 0) {
+                float norm = 1 - B + B * fieldLengths[doc * FIELDS + field] / averageLengths[field];
+                frequency += BOOSTS[field] * freqs[field] / norm;
+            }
+        }
+        if (frequency == 0) {
+            return touchedCount;
+        }
+        if (doc >= scores.length) {
+            scores = Arrays.copyOf(scores, Math.max(doc + 1, scores.length * 2));
+        }
+        if (scores[doc] == 0) {
+            if (touchedCount == touched.length) {
+                touched = Arrays.copyOf(touched, touchedCount * 2);
+            }
+            touched[touchedCount++] = doc;
+        }
+        scores[doc] += weight * frequency / (K1 + frequency);
+        return touchedCount;
+    }
+
+    // 取得分最高的 limit 个，并清零累加数组
+    private long[] topDocs(int touchedCount, int limit, LongPredicate accept) {
+        // 最小堆，键的高位为得分（正数的浮点位模式与大小顺序一致），低位为文档号取反（得分相同时先加入的在前）
+        long[] heap = new long[Math.min(limit, touchedCount)];
+        int heapSize = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            int doc = touched[i];
+            long key = (long) Float.floatToIntBits(scores[doc]) << 32 | (~doc & 0xFFFFFFFFL);
+            scores[doc] = 0;
+            if (heapSize == heap.length && key <= heap[0]) {
+                continue;
+            }
+            if (accept != null && !accept.test(taskIds[doc])) {
+                continue;
+            }
+            if (heapSize < heap.length) {
+                heap[heapSize] = key;
+                siftUp(heap, heapSize++);
+            } else {
+                heap[0] = key;
+                siftDown(heap, heapSize);
+            }
+        }
+        Arrays.sort(heap, 0, heapSize);
+        long[] result = new long[heapSize];
+        for (int i = 0; i < heapSize; i++) {
+            result[i] = taskIds[~(int) heap[heapSize - 1 - i]];
+        }
+        return result;
+    }
+
+    private int allocateDoc(long taskId) {
+        if (docCount == taskIds.length) {
+            taskIds = Arrays.copyOf(taskIds, docCount * 2);
+            fieldLengths = Arrays.copyOf(fieldLengths, docCount * 2 * FIELDS);
+            docTerms = Arrays.copyOf(docTerms, docCount * 2);
+        }
+        int doc = docCount++;
+        taskIds[doc] = taskId;
+        docsByTaskId.put(taskId, doc);
+        liveDocs.add(doc);
+        return doc;
+    }
+
+    private int termIdOf(String token) {
+        Integer term = termIds.get(token);
+        if (term == null) {
+            term = termIds.size();
+            termIds.put(token, term);
+            if (term == docFreqs.length) {
+                docFreqs = Arrays.copyOf(docFreqs, term * 2);
+            }
+        }
+        return term;
+    }
+
+    // 缓冲区写成只读段，然后按层合并
+    private void flush() {
+        Map<Integer, PostingWriter> writers = new HashMap<>();
+        for (int b = 0; b < bufferCount; b++) {
+            int doc = bufferDocs[b];
+            if (!liveDocs.contains(doc)) {
+                continue;
+            }
+            int[] terms = docTerms[doc];
+            for (int i = 0; i < terms.length; i++) {
+                PostingWriter writer = writers.get(terms[i]);
+                if (writer == null) {
+                    writer = new PostingWriter();
+                    writers.put(terms[i], writer);
+                }
+                writer.add(doc, bufferFreqs[b], i * FIELDS);
+            }
+            bufferFreqs[b] = null;
+        }
+        bufferCount = 0;
+        if (!writers.isEmpty()) {
+            segments.add(Segment.of(writers, 0));
+        }
+        mergeSegments();
+    }
+
+    // 末尾同一层的段达到 MERGE_FACTOR 个时合并，合并结果可能继续与上一层合并
+    private void mergeSegments() {
+        while (segments.size() >= MERGE_FACTOR) {
+            int last = segments.size() - 1;
+            int level = segments.get(last).level;
+            for (int i = last - MERGE_FACTOR + 1; i < last; i++) {
+                if (segments.get(i).level != level) {
+                    return;
+                }
+            }
+            List<Segment> merging = new ArrayList<>(segments.subList(last - MERGE_FACTOR + 1, last + 1));
+            segments.subList(last - MERGE_FACTOR + 1, last + 1).clear();
+            Segment merged = merge(merging, level + 1);
+            if (merged != null) {
+                segments.add(merged);
+            }
+        }
+    }
+
+    // 段按文档号排列，同一个词的倒排表依次接上即保持有序
+    private Segment merge(List<Segment> merging, int level) {
+        Map<Integer, PostingWriter> writers = new HashMap<>();
+        int[] freqs = new int[FIELDS];
+        int[] end = new int[1];
+        for (Segment segment : merging) {
+            for (int t = 0; t < segment.terms.length; t++) {
+                ByteBuffer posting = ByteBuffer.wrap(segment.postings[t]);
+                int position = 0;
+                int doc = 0;
+                while (position < posting.limit()) {
+                    doc += (int) TaskRecordCodec.readVarint(posting, position, posting.limit(), end);
+                    position = end[0];
+                    for (int field = 0; field < FIELDS; field++) {
+                        freqs[field] = (int) TaskRecordCodec.readVarint(posting, position, posting.limit(), end);
+                        position = end[0];
+                    }
+                    if (!liveDocs.contains(doc)) {
+                        continue;
+                    }
+                    PostingWriter writer = writers.get(segment.terms[t]);
+                    if (writer == null) {
+                        writer = new PostingWriter();
+                        writers.put(segment.terms[t], writer);
+                    }
+                    writer.add(doc, freqs, 0);
+                }
+            }
+        }
+        return writers.isEmpty() ? null : Segment.of(writers, level);
+    }
+
+    private static void siftUp(long[] heap, int index) {
+        long key = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >> 1;
+            if (heap[parent] <= key) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = key;
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        long key = heap[0];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (heap[child] >= key) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = key;
+    }
+
+    // 一个词的倒排表编码：文档号差值、各字段词频，都写成 varint
+    private static final class PostingWriter {
+        private int[] values = new int[(1 + FIELDS) * 4];
+        private int count;
+        private int lastDoc;
+        private int size;
+
+        void add(int doc, int[] freqs, int offset) {
+            if (count + 1 + FIELDS > values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[count++] = doc - lastDoc;
+            size += TaskRecordCodec.varintSize(doc - lastDoc);
+            lastDoc = doc;
+            for (int field = 0; field < FIELDS; field++) {
+                values[count++] = freqs[offset + field];
+                size += TaskRecordCodec.varintSize(freqs[offset + field]);
+            }
+        }
+
+        byte[] toBytes() {
+            ByteBuffer out = ByteBuffer.allocate(size);
+            for (int i = 0; i < count; i++) {
+                TaskRecordCodec.writeVarint(out, values[i]);
+            }
+            return out.array();
+        }
+    }
+
+    // 只读段：按词编号排序的词表和压缩后的倒排表
+    private static final class Segment {
+        final int level;
+        final int[] terms;
+        final byte[][] postings;
+
+        private Segment(int level, int[] terms, byte[][] postings) {
+            this.level = level;
+            this.terms = terms;
+            this.postings = postings;
+        }
+
+        static Segment of(Map<Integer, PostingWriter> writers, int level) {
+            int[] terms = new int[writers.size()];
+            int count = 0;
+            for (int term : writers.keySet()) {
+                terms[count++] = term;
+            }
+            Arrays.sort(terms);
+            byte[][] postings = new byte[terms.length][];
+            for (int i = 0; i < terms.length; i++) {
+                postings[i] = writers.get(terms[i]).toBytes();
+            }
+            return new Segment(level, terms, postings);
+        }
+
+        ByteBuffer posting(int term) {
+            int index = Arrays.binarySearch(terms, term);
+            return index >= 0 ? ByteBuffer.wrap(postings[index]) : null;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.big;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * 任务标题的拼音与模糊搜索索引
+ *
+ * 添加标题时预先生成三种形式：去掉空白的小写标题、全拼（如“kehuhuiyi”）、拼音首字母（如“khhy”），
+ * 并为每种形式记录一个 64 位的字符签名。查询时不做拼音转换，直接与三种形式比较，得分越小越靠前：
+ * 标题包含查询为 0，全拼或首字母包含查询为 1，否则为 2 加上查询与某种形式中最接近的子串的编辑距离
+ * （允许的距离随查询长度增加，最多 MAX_DISTANCE）。
+ * 编辑距离用位并行算法计算，每个字符只需几次位运算；签名中缺少的字符比允许的距离还多时直接跳过。
+ * 结果用固定大小的堆保留得分最小的 limit 个，不对全部匹配排序；堆满后允许的距离随堆顶的得分减小
+ *
+ * 所有方法都是同步的，可以在写入线程更新、在后台线程查询
+ */
+public class FuzzyTitleIndex {
+    private static final int MAX_DISTANCE = 2;
+    // 位并行算法一次处理的查询长度
+    private static final int MAX_PATTERN = 64;
+    private static final int FORMS = 3;
+
+    // 文档号 -> 任务ID / 各种形式及签名（下标为 文档号 * FORMS + 形式）；删除后的文档号放入空闲表重用
+    private long[] taskIds = new long[64];
+    private String[] forms = new String[64 * FORMS];
+    private long[] signatures = new long[64 * FORMS];
+    private int docCount;
+    private int[] freeDocs = new int[16];
+    private int freeCount;
+    private final LongIntHashMap docsByTaskId = new LongIntHashMap(64);
+
+    /**
+     * 添加或更新任务标题
+     *
+     * @param taskId 任务ID
+     * @param title  标题
+     */
+    public synchronized void put(long taskId, String title) {
+        String normalized = normalize(title);
+        int doc = docsByTaskId.get(taskId);
+        if (doc == LongIntHashMap.MISSING) {
+            doc = allocateDoc();
+            taskIds[doc] = taskId;
+            docsByTaskId.put(taskId, doc);
+        } else if (normalized.equals(forms[doc * FORMS])) {
+            return;
+        }
+        StringBuilder full = new StringBuilder(normalized.length() * 4);
+        StringBuilder initials = new StringBuilder(normalized.length());
+        for (int i = 0; i < normalized.length(); i++) {
+            String syllable = Pinyin.of(normalized.charAt(i));
+            if (!syllable.isEmpty()) {
+                full.append(syllable);
+                // 英文和数字原样保留，汉字取拼音的第一个字母
+                initials.append(Pinyin.isHan(normalized.charAt(i)) ? syllable.substring(0, 1) : syllable);
+            }
+        }
+        setForm(doc, 0, normalized);
+        setForm(doc, 1, full.toString());
+        setForm(doc, 2, initials.toString());
+    }
+
+    /**
+     * 删除任务
+     *
+     * @param taskId 任务ID
+     */
+    public synchronized void remove(long taskId) {
+        int doc = docsByTaskId.remove(taskId);
+        if (doc == LongIntHashMap.MISSING) {
+            return;
+        }
+        for (int form = 0; form < FORMS; form++) {
+            forms[doc * FORMS + form] = null;
+        }
+        if (freeCount == freeDocs.length) {
+            freeDocs = Arrays.copyOf(freeDocs, freeCount * 2);
+        }
+        freeDocs[freeCount++] = doc;
+    }
+
+    /**
+     * 按匹配程度查找任务
+     *
+     * @param query  查询串（汉字、拼音或拼音首字母，忽略大小写和空白）
+     * @param limit  最多返回的个数
+     * @param accept 只返回满足条件的任务ID，为 null 时不限制
+     * @return 任务ID，按得分从小到大排列；query 为空时返回空数组
+     */
+    public synchronized long[] search(String query, int limit, LongPredicate accept) {
+        String pattern = normalize(query);
+        if (pattern.isEmpty() || limit <= 0) {
+            return new long[0];
+        }
+        Matcher matcher = new Matcher(pattern);
+        long patternSignature = signature(matcher.pattern);
+        int maxDistance = maxDistance(pattern.length());
+
+        // 最大堆，堆顶是已保留结果中最差的；键的高位为得分，低位为文档号
+        long[] heap = new long[Math.min(limit, docsByTaskId.size() + 1)];
+        int heapSize = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (forms[doc * FORMS] == null) {
+                continue;
+            }
+            // 堆满后只有得分更小的才能进入（得分相同时先加入的文档在前），允许的距离随之减小
+            int distance = maxDistance;
+            if (heapSize == heap.length) {
+                distance = Math.min(distance, (int) (heap[0] >>> 32) - 3);
+            }
+            int score = score(doc, pattern, matcher, patternSignature, distance);
+            if (score < 0) {
+                continue;
+            }
+            long key = (long) score << 32 | doc;
+            if (heapSize == heap.length && key >= heap[0]) {
+                continue;
+            }
+            if (accept != null && !accept.test(taskIds[doc])) {
+                continue;
+            }
+            if (heapSize < heap.length) {
+                heap[heapSize] = key;
+                siftUp(heap, heapSize++);
+            } else {
+                heap[0] = key;
+                siftDown(heap, heapSize);
+            }
+        }
+
+        Arrays.sort(heap, 0, heapSize);
+        long[] result = new long[heapSize];
+        for (int i = 0; i < heapSize; i++) {
+            result[i] = taskIds[(int) heap[i]];
+        }
+        return result;
+    }
+
+    public synchronized int size() {
+        return docsByTaskId.size();
+    }
+
+    // 文档的得分，不匹配时返回 -1；maxDistance 小于 0 时只检查包含
+    private int score(int doc, String pattern, Matcher matcher, long patternSignature, int maxDistance) {
+        int base = doc * FORMS;
+        if (forms[base].contains(pattern)) {
+            return 0;
+        }
+        if (forms[base + 1].contains(pattern) || forms[base + 2].contains(pattern)) {
+            return 1;
+        }
+        int best = maxDistance + 1;
+        for (int form = 0; form < FORMS && best > 1; form++) {
+            // 查询中有多少种字符在这种形式中一定不存在，每种至少需要一次编辑
+            if (Long.bitCount(patternSignature & ~signatures[base + form]) >= best) {
+                continue;
+            }
+            best = Math.min(best, matcher.distance(forms[base + form], best));
+        }
+        return best <= maxDistance ? 2 + best : -1;
+    }
+
+    private void setForm(int doc, int form, String text) {
+        forms[doc * FORMS + form] = text;
+        signatures[doc * FORMS + form] = signature(text);
+    }
+
+    private int allocateDoc() {
+        if (freeCount > 0) {
+            return freeDocs[--freeCount];
+        }
+        if (docCount == taskIds.length) {
+            taskIds = Arrays.copyOf(taskIds, docCount * 2);
+            forms = Arrays.copyOf(forms, docCount * 2 * FORMS);
+            signatures = Arrays.copyOf(signatures, docCount * 2 * FORMS);
+        }
+        return docCount++;
+    }
+
+    // 查询越长允许的错误越多，两个字以内只接受包含
+    private static int maxDistance(int length) {
+        if (length <= 2) {
+            return 0;
+        }
+        return length <= 5 ? 1 : MAX_DISTANCE;
+    }
+
+    // 每个字符对应 64 位中的一位
+    private static long signature(String text) {
+        long signature = 0;
+        for (int i = 0; i < text.length(); i++) {
+            signature |= 1L << (text.charAt(i) & 63);
+        }
+        return signature;
+    }
+
+    private static void siftUp(long[] heap, int index) {
+        long key = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >> 1;
+            if (heap[parent] >= key) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = key;
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        long key = heap[0];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1] > heap[child]) {
+                child++;
+            }
+            if (heap[child] <= key) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = key;
+    }
+
+    // 去掉空白并转小写
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * 查询串与文本中最接近的子串的编辑距离（Myers 位并行算法），查询最多取前 MAX_PATTERN 个字符
+     */
+    private static final class Matcher {
+        final String pattern;
+        // ASCII 字符直接查表，其他字符在不重复字符表中查找
+        private final long[] asciiMasks = new long[128];
+        private final char[] otherChars;
+        private final long[] otherMasks;
+        private int otherCount;
+        private final long lastBit;
+
+        Matcher(String query) {
+            pattern = query.length() > MAX_PATTERN ? query.substring(0, MAX_PATTERN) : query;
+            otherChars = new char[pattern.length()];
+            otherMasks = new long[pattern.length()];
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (c < 128) {
+                    asciiMasks[c] |= 1L << i;
+                    continue;
+                }
+                int slot = 0;
+                while (slot < otherCount && otherChars[slot] != c) {
+                    slot++;
+                }
+                if (slot == otherCount) {
+                    otherChars[otherCount++] = c;
+                }
+                otherMasks[slot] |= 1L << i;
+            }
+            lastBit = 1L << (pattern.length() - 1);
+        }
+
+        /**
+         * 计算编辑距离，结果不小于 bound 时可能提前返回 bound
+         *
+         * @param text  文本
+         * @param bound 只关心小于它的距离
+         * @return 编辑距离
+         */
+        int distance(String text, int bound) {
+            int length = pattern.length();
+            // 文本太短时至少需要补上缺少的字符
+            if (length - text.length() >= bound) {
+                return bound;
+            }
+            long positive = -1L;
+            long negative = 0;
+            int score = length;
+            int best = score;
+            for (int j = 0; j < text.length(); j++) {
+                long equal = maskOf(text.charAt(j));
+                long vertical = equal | negative;
+                long horizontal = (((equal & positive) + positive) ^ positive) | equal;
+                long horizontalPositive = negative | ~(horizontal | positive);
+                long horizontalNegative = positive & horizontal;
+                if ((horizontalPositive & lastBit) != 0) {
+                    score++;
+                } else if ((horizontalNegative & lastBit) != 0) {
+                    score--;
+                }
+                // 子串可以从文本任意位置开始，第 0 行不累加，移位时不补 1
+                horizontalPositive <<= 1;
+                horizontalNegative <<= 1;
+                positive = horizontalNegative | ~(vertical | horizontalPositive);
+                negative = horizontalPositive & vertical;
+                if (score < best) {
+                    best = score;
+                    if (best == 0) {
+                        break;
+                    }
+                }
+            }
+            return Math.min(best, bound);
+        }
+
+        private long maskOf(char c) {
+            if (c < 128) {
+                return asciiMasks[c];
+            }
+            for (int i = 0; i < otherCount; i++) {
+                if (otherChars[i] == c) {
+                    return otherMasks[i];
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.big;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.AttributeSet;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 看板的多日时间网格，整个网格（小时线、日期列、任务块和文字）由这一个 View 自己绘制
+ *
+ * 原来每个小时一行、每个任务在每行都填充一张卡片，一周任务多时层级中有几百个 View，
+ * 滑动时测量和布局开销很大。这里每个任务只对应一个矩形，位置在设置任务或尺寸变化时算好，
+ * 标题和时间也预先按宽度截断，onDraw 只画矩形和文字，不分配对象。
+ * 点击按坐标找到最上面的任务块，回调 OnTaskClickListener。
+ * 高度固定为全部小时行，放在 ScrollView 中上下滚动；只在主线程使用
+ */
+public class KanbanGridView extends View {
+    // 小时范围（7 AM 到 23 PM，最后一行到 24 点）
+    private static final int START_HOUR = 7;
+    private static final int END_HOUR = 23;
+    private static final int DEFAULT_NUM_DAYS = 5;
+
+    // 每5分钟的高度（dp）
+    private static final float FIVE_MIN_HEIGHT_DP = 6.0f;
+    // 最小任务高度，保证至少能显示一行标题
+    private static final float MIN_TASK_HEIGHT_DP = 24.0f;
+    // 左侧小时标签的宽度
+    private static final float HOUR_LABEL_WIDTH_DP = 48.0f;
+    private static final float TASK_MARGIN_DP = 2.0f;
+    private static final float TASK_PADDING_DP = 6.0f;
+    private static final float CORNER_RADIUS_DP = 4.0f;
+    private static final float INDICATOR_HEIGHT_DP = 3.0f;
+
+    private static final int GRID_LINE_COLOR = 0xFFDDDDDD;
+    private static final int HOUR_TEXT_COLOR = 0xFF888888;
+    private static final int TIME_TEXT_COLOR = 0xFF666666;
+    private static final int EVEN_COLUMN_COLOR = 0xFFF5F5F5;
+    private static final int ODD_COLUMN_COLOR = 0xFFF8F8F8;
+
+    private final float density;
+    private final float hourHeight;
+    private final Paint fillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint linePaint = new Paint();
+    private final TextPaint hourPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint titlePaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint timePaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final int importantBackground;
+    private final int importantIndicator;
+    private final int normalBackground;
+    private final int normalIndicator;
+    private final String[] hourLabels = new String[END_HOUR - START_HOUR + 1];
+    private final GestureDetector gestureDetector;
+
+    private int numDays = DEFAULT_NUM_DAYS;
+    // 按绘制顺序排列的任务块，后面的画在上面
+    private final List<Block> blocks = new ArrayList<>();
+    private OnTaskClickListener listener;
+
+    public interface OnTaskClickListener {
+        void onTaskClick(Task task);
+    }
+
+    /**
+     * 一个任务在网格中的矩形和截断后的文字
+     */
+    private static final class Block {
+        final Task task;
+        final int dayIndex;
+        final int startMinute;
+        final int endMinute;
+        final RectF rect = new RectF();
+        String title;
+        String time;
+
+        Block(Task task, int dayIndex, int startMinute, int endMinute) {
+            this.task = task;
+            this.dayIndex = dayIndex;
+            this.startMinute = startMinute;
+            this.endMinute = endMinute;
+        }
+    }
+
+    public KanbanGridView(Context context) {
+        this(context, null);
+    }
+
+    public KanbanGridView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        density = context.getResources().getDisplayMetrics().density;
+        float scaledDensity = context.getResources().getDisplayMetrics().scaledDensity;
+        hourHeight = 12 * dp(FIVE_MIN_HEIGHT_DP);
+
+        linePaint.setColor(GRID_LINE_COLOR);
+        linePaint.setStrokeWidth(dp(1));
+        hourPaint.setColor(HOUR_TEXT_COLOR);
+        hourPaint.setTextSize(16 * scaledDensity);
+        hourPaint.setTextAlign(Paint.Align.CENTER);
+        titlePaint.setColor(ContextCompat.getColor(context, R.color.black));
+        titlePaint.setTextSize(12 * scaledDensity);
+        titlePaint.setTypeface(Typeface.DEFAULT_BOLD);
+        timePaint.setColor(TIME_TEXT_COLOR);
+        timePaint.setTextSize(10 * scaledDensity);
+
+        importantBackground = ContextCompat.getColor(context, R.color.important_task_bg);
+        importantIndicator = ContextCompat.getColor(context, R.color.important_task_indicator);
+        normalBackground = ContextCompat.getColor(context, R.color.normal_task_bg);
+        normalIndicator = ContextCompat.getColor(context, R.color.normal_task_indicator);
+
+        for (int hour = START_HOUR; hour <= END_HOUR; hour++) {
+            hourLabels[hour - START_HOUR] = String.format(Locale.getDefault(), "%02d", hour);
+        }
+
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) {
+                return true;
+            }
+
+            @Override
+            public boolean onSingleTapUp(MotionEvent e) {
+                Block block = blockAt(e.getX(), e.getY());
+                if (block == null || listener == null) {
+                    return false;
+                }
+                playSoundEffect(SoundEffectConstants.CLICK);
+                listener.onTaskClick(block.task);
+                return true;
+            }
+        });
+    }
+
+    public void setOnTaskClickListener(OnTaskClickListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 设置要显示的任务，不在显示范围内或没有时间的任务忽略
+     *
+     * @param tasks         任务（先出现的画在下面）
+     * @param firstEpochDay 第一列对应的天数
+     * @param numDays       显示的天数
+     */
+    public void setTasks(List<Task> tasks, int firstEpochDay, int numDays) {
+        this.numDays = numDays;
+        blocks.clear();
+        int gridStart = START_HOUR * 60;
+        int gridEnd = (END_HOUR + 1) * 60;
+        for (Task task : tasks) {
+            if (!task.hasTimeRange()) {
+                continue;
+            }
+            int dayIndex = DateKernel.epochDay(task.getDate()) - firstEpochDay;
+            if (dayIndex < 0 || dayIndex >= numDays) {
+                continue;
+            }
+            int start = task.getStartMinuteOfDay();
+            int end = task.getEndMinuteOfDay();
+            // 在网格开始前结束或在网格之后开始的任务不显示，超出网格的部分截掉
+            if (start >= gridEnd || (start < gridStart && end <= gridStart)) {
+                continue;
+            }
+            blocks.add(new Block(task, dayIndex, Math.max(start, gridStart), Math.min(Math.max(end, start), gridEnd)));
+        }
+        layoutBlocks();
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int height = Math.round(hourLabels.length * hourHeight);
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        layoutBlocks();
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas) {
+        float labelWidth = dp(HOUR_LABEL_WIDTH_DP);
+        float columnWidth = columnWidth();
+        float height = hourLabels.length * hourHeight;
+
+        // 日期列背景
+        for (int day = 0; day < numDays; day++) {
+            float left = labelWidth + day * columnWidth;
+            fillPaint.setColor(day % 2 == 0 ? EVEN_COLUMN_COLOR : ODD_COLUMN_COLOR);
+            canvas.drawRect(left, 0, left + columnWidth, height, fillPaint);
+        }
+
+        // 小时标签和小时线
+        float hourTextOffset = dp(4) - hourPaint.ascent();
+        for (int row = 0; row < hourLabels.length; row++) {
+            float top = row * hourHeight;
+            canvas.drawText(hourLabels[row], labelWidth / 2, top + hourTextOffset, hourPaint);
+            canvas.drawLine(labelWidth, top, getWidth(), top, linePaint);
+        }
+        canvas.drawLine(labelWidth, 0, labelWidth, height, linePaint);
+
+        // 任务块
+        float radius = dp(CORNER_RADIUS_DP);
+        float padding = dp(TASK_PADDING_DP);
+        float indicatorHeight = dp(INDICATOR_HEIGHT_DP);
+        for (Block block : blocks) {
+            RectF rect = block.rect;
+            boolean important = block.task.isImportant();
+            fillPaint.setColor(important ? importantBackground : normalBackground);
+            canvas.drawRoundRect(rect, radius, radius, fillPaint);
+
+            canvas.save();
+            canvas.clipRect(rect);
+            fillPaint.setColor(important ? importantIndicator : normalIndicator);
+            float indicatorTop = rect.top + padding;
+            canvas.drawRect(rect.left + padding, indicatorTop, rect.right - padding, indicatorTop + indicatorHeight, fillPaint);
+
+            float baseline = indicatorTop + indicatorHeight + dp(4) - titlePaint.ascent();
+            canvas.drawText(block.title, rect.left + padding, baseline, titlePaint);
+            if (block.time != null) {
+                baseline += titlePaint.descent() + dp(2) - timePaint.ascent();
+                canvas.drawText(block.time, rect.left + padding, baseline, timePaint);
+            }
+            canvas.restore();
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        return gestureDetector.onTouchEvent(event) || super.onTouchEvent(event);
+    }
+
+    // 按当前宽度计算各任务块的矩形并截断文字
+    private void layoutBlocks() {
+        if (getWidth() == 0) {
+            return;
+        }
+        float labelWidth = dp(HOUR_LABEL_WIDTH_DP);
+        float columnWidth = columnWidth();
+        float margin = dp(TASK_MARGIN_DP);
+        float padding = dp(TASK_PADDING_DP);
+        float minHeight = dp(MIN_TASK_HEIGHT_DP);
+        float minuteHeight = hourHeight / 60;
+        // 除标题外还能放下时间的高度
+        float timeHeight = 2 * padding + dp(INDICATOR_HEIGHT_DP) + dp(4)
+                + titlePaint.descent() - titlePaint.ascent() + dp(2) + timePaint.descent() - timePaint.ascent();
+        for (Block block : blocks) {
+            float left = labelWidth + block.dayIndex * columnWidth + margin;
+            float top = (block.startMinute - START_HOUR * 60) * minuteHeight;
+            float height = Math.max((block.endMinute - block.startMinute) * minuteHeight, minHeight);
+            block.rect.set(left, top, left + columnWidth - 2 * margin, top + height);
+
+            float textWidth = Math.max(0, block.rect.width() - 2 * padding);
+            block.title = TextUtils.ellipsize(block.task.getTitle(), titlePaint, textWidth, TextUtils.TruncateAt.END).toString();
+            block.time = height >= timeHeight
+                    ? TextUtils.ellipsize(block.task.getTimeRange(), timePaint, textWidth, TextUtils.TruncateAt.END).toString()
+                    : null;
+        }
+    }
+
+    // 最上面（最后绘制）的包含该点的任务块
+    private Block blockAt(float x, float y) {
+        for (int i = blocks.size() - 1; i >= 0; i--) {
+            Block block = blocks.get(i);
+            if (block.rect.contains(x, y)) {
+                return block;
+            }
+        }
+        return null;
+    }
+
+    private float columnWidth() {
+        return numDays > 0 ? (getWidth() - dp(HOUR_LABEL_WIDTH_DP)) / numDays : 0;
+    }
+
+    private float dp(float value) {
+        return value * density;
+    }
+}
@@ -14,7 +14,6 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
@@ -28,7 +27,7 @@ import java.util.Locale;
 public class KanbanViewActivity extends AppCompatActivity {
 
     private LinearLayout dateContainer;
-    private RecyclerView timelineRecyclerView;
+    private KanbanGridView kanbanGridView;
     private List<Task> taskList;
     private Calendar currentDate;
     private GestureDetector gestureDetector;
@@ -39,8 +38,9 @@ public class KanbanViewActivity extends AppCompatActivity {
         setContentView(R.layout.activity_kanban_view);
 
         dateContainer = findViewById(R.id.date_container);
-        timelineRecyclerView = findViewById(R.id.timeline_recycler_view);
+        kanbanGridView = findViewById(R.id.kanban_grid_view);
 
+        DateKernel.refreshTimeZone();
         currentDate = Calendar.getInstance();
 
         // Initialize demo tasks
@@ -72,11 +72,7 @@ public class KanbanViewActivity extends AppCompatActivity {
         dateContainer.removeAllViews();
 
         // 获取今天的日期（用于高亮判断）
-        Calendar today = Calendar.getInstance();
-        today.set(Calendar.HOUR_OF_DAY, 0);
-        today.set(Calendar.MINUTE, 0);
-        today.set(Calendar.SECOND, 0);
-        today.set(Calendar.MILLISECOND, 0);
+        int today = DateKernel.today();
 
         // 添加5天 (-2, -1, today, +1, +2)
         Calendar temp = (Calendar) currentDate.clone();
@@ -94,7 +90,7 @@ public class KanbanViewActivity extends AppCompatActivity {
             dateText.setText(dateFormat.format(temp.getTime()));
 
             // 高亮今天（如果今天在当前显示的日期范围内）
-            if (isSameDay(temp.getTime(), today.getTime())) {
+            if (DateKernel.epochDay(temp.getTime()) == today) {
                 dateView.setBackgroundResource(R.drawable.current_date_background);
                 dayText.setTextColor(getResources().getColor(R.color.white));
                 dateText.setTextColor(getResources().getColor(R.color.white));
@@ -113,21 +109,15 @@ public class KanbanViewActivity extends AppCompatActivity {
         }
     }
 
-    // 判断两个日期是否是同一天
-    private boolean isSameDay(Date date1, Date date2) {
-        Calendar cal1 = Calendar.getInstance();
-        Calendar cal2 = Calendar.getInstance();
-        cal1.setTime(date1);
-        cal2.setTime(date2);
-        return cal1.get(Calendar.YEAR) == cal2.get(Calendar.YEAR) &&
-                cal1.get(Calendar.DAY_OF_YEAR) == cal2.get(Calendar.DAY_OF_YEAR);
-    }
-
     private void setupTimelineView() {
-        KanbanTimelineAdapter adapter = new KanbanTimelineAdapter(this, taskList, currentDate.getTime());
-        timelineRecyclerView.setAdapter(adapter);
+        // 演示任务加上当前显示的5天中保存的任务
+        List<Task> visibleTasks = new ArrayList<>(taskList);
+        int firstDay = DateKernel.epochDay(currentDate.getTime()) - 2;
+        visibleTasks.addAll(TaskRepository.tasksBetween(firstDay, firstDay + 4));
+
+        kanbanGridView.setTasks(visibleTasks, firstDay, 5);
 
-        adapter.setOnTaskClickListener(task -> {
+        kanbanGridView.setOnTaskClickListener(task -> {
             Intent intent = new Intent(KanbanViewActivity.this, EditTaskActivity.class);
             intent.putExtra("task_id", task.getId());
             startActivity(intent);
@@ -1,11 +1,13 @@
 package com.example.big;
 
-import android.annotation.SuppressLint;
 import android.app.Dialog;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.Editable;
 import android.text.TextWatcher;
+import android.view.Menu;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
@@ -16,6 +18,7 @@ import android.widget.PopupMenu;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
@@ -26,12 +29,58 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongPredicate;
 
 public class ListViewActivity extends AppCompatActivity {
+    // 搜索最多显示的任务数
+    private static final int MAX_SEARCH_RESULTS = 50;
+    // 筛选菜单中动态添加的项：保存当前筛选、各个智能列表
+    private static final int MENU_THIS_WEEK = 999;
+    private static final int MENU_SAVE_SMART_LIST = 1000;
+    private static final int MENU_SMART_LIST_BASE = 1001;
 
     private RecyclerView allTasksRecyclerView;
-    private List<Task> allTasks;
+    // 不筛选时显示的列表，按时间顺序分页读取，不生成全部任务
+    private TaskFeed taskFeed;
+    // 正在显示的分页列表（不筛选时的列表或智能列表），仓库中有修改时刷新
+    private TaskFeed displayedFeed;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // 尚未保存过的示例任务（按时间排列），已保存的任务直接读取仓库中的索引
+    private TaskOrderIndex sampleTasks;
+    // 同样的示例任务，供筛选和搜索按ID查找；已保存的任务在仓库共享的列式存储中筛选
+    private volatile TaskSnapshot sampleVersions;
+    // 标题、简介、地点的全文索引，搜索结果按相关程度排列
+    private FullTextIndex fullTextIndex;
+    // 标题的拼音和模糊搜索索引，全文索引中没有匹配时使用
+    // 两个搜索索引在第一次搜索时由搜索线程生成，之后也只在搜索线程上读写，不需要加锁
+    private FuzzyTitleIndex fuzzyIndex;
+    // 开始生成搜索索引后，仓库中的修改（修改前、修改后）先放入这个队列，搜索线程在每次搜索前应用
+    private final ConcurrentLinkedQueue<TaskVersion[]> pendingIndexChanges = new ConcurrentLinkedQueue<>();
+    private volatile boolean searchIndexesRequested;
+    // 页面存在期间随仓库中的修改更新示例任务，并记录搜索索引需要的修改；在写入线程上调用，不等待索引生成
+    private final TaskRepository.Listener taskIndexUpdater = (before, after) -> {
+        // 示例任务保存后以仓库中的版本为准
+        long id = after != null ? after.getId() : before.getId();
+        sampleTasks.remove(id);
+        sampleVersions = sampleVersions.without(id);
+        if (searchIndexesRequested) {
+            pendingIndexChanges.add(new TaskVersion[]{before, after});
+        }
+        // 分页列表在刷新前一直读取上次刷新时的视图；在主线程写入时立即刷新，其他线程写入时在主线程刷新
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            refreshDisplayedFeed();
+        } else {
+            mainHandler.post(this::refreshDisplayedFeed);
+        }
+    };
     private TaskAdapter taskAdapter;
+    // 当前的筛选条件（不含搜索文字），菜单中的筛选依次叠加，选择“全部”时清除
+    private TaskQuery activeFilter = TaskQuery.all();
+    // 当前打开的智能列表，筛选条件改变后不再使用
+    private SmartLists.SmartList activeSmartList;
+    // 搜索框输入的防抖与后台搜索
+    private SearchPipeline<List<Task>> searchPipeline;
 
     private LinearLayout searchBar;
     private EditText searchEditText;
@@ -73,7 +122,7 @@ public class ListViewActivity extends AppCompatActivity {
         ImageButton clearSearchButton = findViewById(R.id.clear_search_button);
         clearSearchButton.setOnClickListener(v -> {
             searchEditText.setText("");
-            refreshTaskList(allTasks);
+            applyFilter(activeFilter);
         });
 
         // 设置菜单按钮
@@ -87,14 +136,27 @@ public class ListViewActivity extends AppCompatActivity {
             startActivity(intent);
         });
 
-        // 初始化任务数据
-        initTaskData();
-
-        // 设置任务列表
-        setupTaskList();
-
         // 设置搜索监听
         setupSearchListener();
+
+        // 仓库在后台打开（第一次时重放日志），打开后再读取任务；期间选择的筛选和输入的搜索在打开后应用
+        TaskRepository.open(repository -> {
+            if (isDestroyed()) {
+                return;
+            }
+            // 初始化任务数据
+            loadSampleTasks();
+            initTaskData();
+
+            // 设置任务列表
+            setupTaskList();
+            onSearchTextChanged(searchEditText.getText().toString().toLowerCase().trim());
+        });
+    }
+
+    // 仓库是否已打开、任务列表是否已设置
+    private boolean isLoaded() {
+        return taskAdapter != null;
     }
 
     private void initViews() {
@@ -114,11 +176,12 @@ public class ListViewActivity extends AppCompatActivity {
             searchEditText.requestFocus();
         } else {
             searchEditText.setText("");
-            refreshTaskList(allTasks);
+            applyFilter(activeFilter);
         }
     }
 
     private void setupSearchListener() {
+        searchPipeline = new SearchPipeline<>(this::refreshTaskList);
         searchEditText.addTextChangedListener(new TextWatcher() {
             @Override
             public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
@@ -128,33 +191,143 @@ public class ListViewActivity extends AppCompatActivity {
 
             @Override
             public void afterTextChanged(Editable s) {
-                String searchText = s.toString().toLowerCase().trim();
-                if (searchText.isEmpty()) {
-                    refreshTaskList(allTasks);
-                } else {
-                    filterTasksByTitle(searchText);
-                }
+                onSearchTextChanged(s.toString().toLowerCase().trim());
             }
         });
     }
 
-    private void filterTasksByTitle(String searchText) {
-        List<Task> filteredTasks = new ArrayList<>();
-        for (Task task : allTasks) {
-            if (task.getTitle().toLowerCase().contains(searchText)) {
-                filteredTasks.add(task);
+    private void onSearchTextChanged(String searchText) {
+        if (!isLoaded()) {
+            // 仓库打开后会重新读取搜索框
+            return;
+        }
+        if (searchText.isEmpty()) {
+            searchPipeline.cancel();
+            applyFilter(activeFilter);
+        } else {
+            // 搜索只读取提交时的条件，之后改变筛选不影响进行中的搜索
+            TaskQuery filter = activeFilter;
+            searchPipeline.submit(() -> search(filter, searchText));
+        }
+    }
+
+    /**
+     * 搜索标题、简介和地点，在后台线程执行
+     * 候选任务从开始搜索时的仓库快照和示例任务中按ID查找，逐个检查筛选条件，不读取共享存储
+     *
+     * @param filter 当前的筛选条件，只返回满足它的任务
+     * @param text   搜索文字
+     * @return 任务列表（按相关程度排列）
+     */
+    private List<Task> search(TaskQuery filter, String text) {
+        buildSearchIndexes();
+        applyPendingIndexChanges();
+        TaskSnapshot saved = TaskRepository.getInstance().snapshot();
+        TaskSnapshot samples = sampleVersions;
+        LongPredicate accept = id -> {
+            TaskVersion version = versionOf(saved, samples, id);
+            return version != null && filter.matches(version);
+        };
+        long[] ids = fullTextIndex.search(text, MAX_SEARCH_RESULTS, accept);
+        if (ids.length == 0) {
+            // 没有匹配的词时，按拼音、拼音首字母和相近的写法查找标题
+            ids = fuzzyIndex.search(text, MAX_SEARCH_RESULTS, accept);
+        }
+        List<Task> tasks = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            tasks.add(versionOf(saved, samples, id).toTask());
+        }
+        return tasks;
+    }
+
+    private static TaskVersion versionOf(TaskSnapshot saved, TaskSnapshot samples, long id) {
+        TaskVersion version = saved.get(id);
+        return version != null ? version : samples.get(id);
+    }
+
+    // 第一次搜索时在搜索线程生成搜索索引。先让监听者开始记录修改再读取任务，
+    // 生成期间的修改会在之后重新应用一次；每条修改带有完整的新版本，重复应用结果不变
+    private void buildSearchIndexes() {
+        if (fullTextIndex != null) {
+            return;
+        }
+        searchIndexesRequested = true;
+        FullTextIndex fullText = new FullTextIndex();
+        FuzzyTitleIndex fuzzy = new FuzzyTitleIndex();
+        for (TaskVersion version : TaskFeed.allOf(TaskRepository.getInstance().orderIndex(), sampleTasks)) {
+            fullText.put(version.getId(), version.getTitle(), version.getDescription(), version.getPlace());
+            fuzzy.put(version.getId(), version.getTitle());
+        }
+        fullTextIndex = fullText;
+        fuzzyIndex = fuzzy;
+    }
+
+    // 在搜索线程上按顺序应用监听者记录的修改
+    private void applyPendingIndexChanges() {
+        TaskVersion[] change;
+        while ((change = pendingIndexChanges.poll()) != null) {
+            TaskVersion before = change[0];
+            TaskVersion after = change[1];
+            if (after != null) {
+                fullTextIndex.put(after.getId(), after.getTitle(), after.getDescription(), after.getPlace());
+                fuzzyIndex.put(after.getId(), after.getTitle());
+            } else {
+                fullTextIndex.remove(before.getId());
+                fuzzyIndex.remove(before.getId());
+            }
+        }
+    }
+
+    private void loadSampleTasks() {
+        sampleTasks = new TaskOrderIndex();
+        TaskSnapshot samples = TaskSnapshot.empty();
+        // 修改过的示例任务以仓库中保存的版本为准
+        TaskSnapshot saved = TaskRepository.getInstance().snapshot();
+        for (Task task : createSampleTasks()) {
+            if (saved.get(task.getId()) == null) {
+                TaskVersion version = TaskVersion.of(task);
+                sampleTasks.put(version);
+                samples = samples.with(version);
             }
         }
-        refreshTaskList(filteredTasks);
+        sampleVersions = samples;
+        // 智能列表先于本页面的监听者更新，刷新智能列表的分页列表时其中的任务已是最新
+        SmartLists.get(this);
+        TaskRepository.getInstance().addListener(taskIndexUpdater);
     }
 
     private void showFilterMenu(View view) {
+        if (!isLoaded()) {
+            // 智能列表和各项计数需要已打开的仓库
+            return;
+        }
         PopupMenu popup = new PopupMenu(this, view);
         popup.getMenuInflater().inflate(R.menu.filter_menu, popup.getMenu());
+        // 本周的事项，保存为智能列表后每周对应新的一周
+        popup.getMenu().add(Menu.NONE, MENU_THIS_WEEK, Menu.NONE, "本周事项");
+        // 已保存的智能列表，名称后显示任务数
+        List<SmartLists.SmartList> smartLists = SmartLists.get(this).all();
+        for (int i = 0; i < smartLists.size(); i++) {
+            SmartLists.SmartList list = smartLists.get(i);
+            popup.getMenu().add(Menu.NONE, MENU_SMART_LIST_BASE + i, Menu.NONE,
+                    list.getName() + " (" + list.count() + ")");
+        }
+        if (!activeFilter.isEmpty()) {
+            popup.getMenu().add(Menu.NONE, MENU_SAVE_SMART_LIST, Menu.NONE, "保存当前筛选");
+        }
 
         popup.setOnMenuItemClickListener(item -> {
             int itemId = item.getItemId();
-            if (itemId == R.id.menu_unfinished) {
+            if (itemId >= MENU_SMART_LIST_BASE && itemId < MENU_SMART_LIST_BASE + smartLists.size()) {
+                openSmartList(smartLists.get(itemId - MENU_SMART_LIST_BASE));
+                return true;
+            } else if (itemId == MENU_THIS_WEEK) {
+                applyFilter(activeFilter.thisWeek());
+                return true;
+            } else if (itemId == MENU_SAVE_SMART_LIST) {
+                showSaveSmartListDialog();
+                return true;
+            } else if (itemId == R.id.menu_unfinished) {
                 filterUnfinishedTasks();
                 return true;
             } else if (itemId == R.id.menu_important) {
@@ -167,7 +340,7 @@ public class ListViewActivity extends AppCompatActivity {
                 showCategoryFilterDialog();
                 return true;
             } else if (itemId == R.id.menu_all) {
-                refreshTaskList(allTasks);
+                applyFilter(TaskQuery.all());
                 return true;
             }
             return false;
@@ -176,9 +349,58 @@ public class ListViewActivity extends AppCompatActivity {
         popup.show();
     }
 
+    // 打开智能列表：直接读取维护好的结果，之后的筛选在它的条件上叠加
+    private void openSmartList(SmartLists.SmartList list) {
+        activeSmartList = list;
+        applyFilter(list.getQuery());
+    }
+
+    private void showSaveSmartListDialog() {
+        EditText nameEditText = new EditText(this);
+        nameEditText.setSingleLine(true);
+        nameEditText.setHint("列表名称");
+        TaskQuery filter = activeFilter;
+        new AlertDialog.Builder(this)
+                .setTitle("保存为智能列表")
+                .setView(nameEditText)
+                .setPositiveButton("保存", (dialog, which) -> {
+                    String name = nameEditText.getText().toString().trim();
+                    if (name.isEmpty()) {
+                        Toast.makeText(this, "列表名称不能为空", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    activeSmartList = SmartLists.get(this).save(name, filter);
+                    Toast.makeText(this, "已保存智能列表 " + name, Toast.LENGTH_SHORT).show();
+                })
+                .setNegativeButton("取消", null)
+                .show();
+    }
+
     private void initTaskData() {
-        // 创建一些示例任务数据
-        allTasks = new ArrayList<>();
+        taskFeed = new TaskFeed(TaskRepository.getInstance().orderIndex(), sampleTasks);
+    }
+
+    // 在示例任务和仓库共享的列式存储上执行筛选，示例任务在前
+    private List<Task> runFilter(TaskQuery filter) {
+        List<Task> tasks = filter.run(sampleVersions.toList());
+        tasks.addAll(TaskRepository.getInstance().readStore(filter::run));
+        return tasks;
+    }
+
+    // 示例任务和已保存任务按类别分面计数之和
+    private int[] countByCategory(TaskQuery filter) {
+        int[] samples = filter.countByCategory(sampleVersions.toList());
+        // 类别字典只增不减，后取的计数不会更短
+        int[] counts = TaskRepository.getInstance().readStore(filter::countByCategory);
+        for (int code = 0; code < samples.length; code++) {
+            counts[code] += samples[code];
+        }
+        return counts;
+    }
+
+    // 创建一些示例任务数据
+    private List<Task> createSampleTasks() {
+        List<Task> tasks = new ArrayList<>();
 
         Calendar cal = Calendar.getInstance();
         cal.set(Calendar.HOUR_OF_DAY, 0);
@@ -225,60 +447,70 @@ public class ListViewActivity extends AppCompatActivity {
         task10.setCategory("工作");
 
         // 添加到列表
-        allTasks.add(task1);
-        allTasks.add(task2);
-        allTasks.add(task3);
-        allTasks.add(task4);
-        allTasks.add(task5);
-        allTasks.add(task6);
-        allTasks.add(task7);
-        allTasks.add(task8);
-        allTasks.add(task9);
-        allTasks.add(task10);
-
-        // 按时间排序
-        sortTasksByTime();
-    }
-
-    private void sortTasksByTime() {
-        allTasks.sort((t1, t2) -> {
-            if (t1.getTimeRange() == null || t2.getTimeRange() == null) {
-                return 0;
-            }
-            return t1.getTimeRange().compareTo(t2.getTimeRange());
-        });
+        tasks.add(task1);
+        tasks.add(task2);
+        tasks.add(task3);
+        tasks.add(task4);
+        tasks.add(task5);
+        tasks.add(task6);
+        tasks.add(task7);
+        tasks.add(task8);
+        tasks.add(task9);
+        tasks.add(task10);
+        return tasks;
     }
 
     private void setupTaskList() {
-        taskAdapter = new TaskAdapter(allTasks, this);
+        taskAdapter = new TaskAdapter(taskFeed, this);
         allTasksRecyclerView.setAdapter(taskAdapter);
     }
 
     private void refreshTaskList(List<Task> tasks) {
-        taskAdapter = new TaskAdapter(tasks, this);
-        allTasksRecyclerView.setAdapter(taskAdapter);
+        displayedFeed = tasks instanceof TaskFeed ? (TaskFeed) tasks : null;
+        // 保留适配器，只刷新变化的行
+        taskAdapter.submitList(tasks);
+    }
+
+    // 仓库中有修改后重新提交分页列表，适配器刷新它并只通知变化的行
+    private void refreshDisplayedFeed() {
+        if (displayedFeed != null) {
+            taskAdapter.submitList(displayedFeed);
+        }
+    }
+
+    /**
+     * 设置筛选条件并显示结果
+     *
+     * @param filter 筛选条件
+     * @return 筛选出的任务
+     */
+    private List<Task> applyFilter(TaskQuery filter) {
+        activeFilter = filter;
+        if (!isLoaded()) {
+            // 仓库打开后按 activeFilter 显示
+            return new ArrayList<>();
+        }
+        List<Task> tasks;
+        if (filter.isEmpty()) {
+            tasks = taskFeed;
+        } else if (activeSmartList != null && activeSmartList.getQuery() == filter) {
+            tasks = activeSmartList.feed();
+        } else {
+            activeSmartList = null;
+            tasks = runFilter(filter);
+        }
+        refreshTaskList(tasks);
+        return tasks;
     }
 
     // 筛选未完成的任务
     private void filterUnfinishedTasks() {
-        List<Task> unfinishedTasks = new ArrayList<>();
-        for (Task task : allTasks) {
-            if (!task.isFinished()) {
-                unfinishedTasks.add(task);
-            }
-        }
-        refreshTaskList(unfinishedTasks);
+        applyFilter(activeFilter.unfinished());
     }
 
     // 筛选重要任务
     private void filterImportantTasks() {
-        List<Task> filteredTasks = new ArrayList<>();
-        for (Task task : allTasks) {
-            if (task.isImportant()) {
-                filteredTasks.add(task);
-            }
-        }
-        refreshTaskList(filteredTasks);
+        applyFilter(activeFilter.important());
     }
 
     // 显示时间筛选对话框
@@ -443,53 +675,19 @@ public class ListViewActivity extends AppCompatActivity {
         int endMinuteIndex = endMinutePicker.getValue();
         int endMinute = endMinuteIndex * 5;
 
-        // 格式化时间范围
-        @SuppressLint("DefaultLocale") String startTimeStr = String.format("%02d : %02d", startHour, startMinute);
-        @SuppressLint("DefaultLocale") String endTimeStr = String.format("%02d : %02d", endHour, endMinute);
-        String timeRange = startTimeStr + " -- " + endTimeStr;
+        // 筛选时间范围（当天分钟数）
+        int filterStart = startHour * 60 + startMinute;
+        int filterEnd = endHour * 60 + endMinute;
 
         // 创建日期对象
         Calendar cal = Calendar.getInstance();
         cal.set(year, month, day, 0, 0, 0);
         cal.set(Calendar.MILLISECOND, 0);
-        Date filterDate = cal.getTime();
-
-        // 筛选任务
-        List<Task> filteredTasks = new ArrayList<>();
-        for (Task task : allTasks) {
-            // 检查日期匹配
-            boolean dateMatches = true;
-            if (task.getDate() != null) {
-                Calendar taskCal = Calendar.getInstance();
-                taskCal.setTime(task.getDate());
-
-                int taskYear = taskCal.get(Calendar.YEAR);
-                int taskMonth = taskCal.get(Calendar.MONTH);
-                int taskDay = taskCal.get(Calendar.DAY_OF_MONTH);
-
-                dateMatches = (taskYear == year && taskMonth == month && taskDay == day);
-            }
-
-            // 检查时间范围匹配
-            boolean timeMatches = true;
-            if (task.getTimeRange() != null && !task.getTimeRange().isEmpty() && !task.getTimeRange().equals("未设定时间")) {
-                // 简单字符串比较（实际应用中可能需要更复杂的时间解析）
-                String taskStart = task.getTimeRange().split(" -- ")[0].trim();
-                String taskEnd = task.getTimeRange().split(" -- ")[1].trim();
-
-                // 时间重叠检查
-                boolean isOverlap = !(taskEnd.compareTo(startTimeStr) < 0 || taskStart.compareTo(endTimeStr) > 0);
-                timeMatches = isOverlap;
-            }
-
-            // 只有两个条件都匹配才添加到结果中
-            if (dateMatches && timeMatches) {
-                filteredTasks.add(task);
-            }
-        }
+        int filterDay = DateKernel.epochDay(cal.getTime());
 
-        // 更新列表
-        refreshTaskList(filteredTasks);
+        // 筛选任务：日期相同（或未设定日期）且时间范围重叠
+        List<Task> filteredTasks = applyFilter(activeFilter.overlapping(
+                TaskIntervalIndex.minuteOf(filterDay, filterStart), TaskIntervalIndex.minuteOf(filterDay, filterEnd)));
 
         // 反馈筛选结果
         if (filteredTasks.isEmpty()) {
@@ -514,6 +712,13 @@ public class ListViewActivity extends AppCompatActivity {
         Button resetButton = dialog.findViewById(R.id.reset_button);
         Button confirmButton = dialog.findViewById(R.id.confirm_button);
 
+        // 按钮上显示当前筛选条件下各类别的事项数
+        int[] counts = countByCategory(activeFilter);
+        studyButton.setText(categoryLabel("学习", counts));
+        workButton.setText(categoryLabel("工作", counts));
+        lifeButton.setText(categoryLabel("生活", counts));
+        otherButton.setText(categoryLabel("其他", counts));
+
         // 设置类别按钮点击事件
         studyButton.setOnClickListener(v -> categoryEditText.setText("学习"));
         workButton.setOnClickListener(v -> categoryEditText.setText("工作"));
@@ -536,15 +741,12 @@ public class ListViewActivity extends AppCompatActivity {
         dialog.show();
     }
 
-    private void filterTasksByCategory(String category) {
-        List<Task> filteredTasks = new ArrayList<>();
-        for (Task task : allTasks) {
-            if (task.getCategory() != null && task.getCategory().equals(category)) {
-                filteredTasks.add(task);
-            }
-        }
+    private String categoryLabel(String category, int[] counts) {
+        return category + " (" + counts[StringDictionary.CATEGORIES.codeOf(category)] + ")";
+    }
 
-        refreshTaskList(filteredTasks);
+    private void filterTasksByCategory(String category) {
+        List<Task> filteredTasks = applyFilter(activeFilter.inCategory(category));
 
         // 反馈筛选结果
         if (filteredTasks.isEmpty()) {
@@ -557,8 +759,17 @@ public class ListViewActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
-        // 刷新数据（实际应用中，这里应该从数据库重新加载数据）
-        initTaskData();
-        setupTaskList();
+        DateKernel.refreshTimeZone();
+        // 分页列表已由监听者随修改刷新，这里重新执行筛选（日期可能已改变）
+        applyFilter(activeFilter);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        searchPipeline.shutdown();
+        if (isLoaded()) {
+            TaskRepository.getInstance().removeListener(taskIndexUpdater);
+        }
     }
 }
\ No newline at end of file
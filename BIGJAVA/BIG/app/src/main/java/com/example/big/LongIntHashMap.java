@@ -0,0 +1,119 @@
+package com.example.big;
+
+import java.util.Arrays;
+
+/**
+ * long 到 int 的开放寻址哈希表，避免 HashMap&lt;Long, Integer&gt; 的装箱
+ * 用于任务ID到存储位置的映射
+ */
+class LongIntHashMap {
+    // 查不到时的返回值
+    static final int MISSING = -1;
+
+    private static final int EMPTY = 0;
+    private static final int FILLED = 1;
+    private static final int REMOVED = 2;
+
+    private long[] keys;
+    private int[] values;
+    private byte[] states;
+    private int size;
+    private int used; // 包含已删除的槽位
+
+    LongIntHashMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity * 3 < expectedSize * 4) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    int get(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (states[slot] != EMPTY) {
+            if (states[slot] == FILLED && keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    void put(long key, int value) {
+        if ((used + 1) * 4 > keys.length * 3) {
+            rehash(size * 2 > keys.length / 2 ? keys.length * 2 : keys.length);
+        }
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        int firstRemoved = -1;
+        while (states[slot] != EMPTY) {
+            if (states[slot] == FILLED && keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            if (states[slot] == REMOVED && firstRemoved < 0) {
+                firstRemoved = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (firstRemoved >= 0) {
+            slot = firstRemoved;
+        } else {
+            used++;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        states[slot] = FILLED;
+        size++;
+    }
+
+    int remove(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (states[slot] != EMPTY) {
+            if (states[slot] == FILLED && keys[slot] == key) {
+                states[slot] = REMOVED;
+                size--;
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(states, (byte) EMPTY);
+        size = 0;
+        used = 0;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        states = new byte[capacity];
+        size = 0;
+        used = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        byte[] oldStates = states;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldStates[i] == FILLED) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -11,6 +11,7 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.List;
 
 public class MainActivity extends AppCompatActivity {
@@ -53,7 +54,17 @@ public class MainActivity extends AppCompatActivity {
         int taskId = 12345678; // 8位数ID
 
         // 使用正确的时间范围格式: "HH : MM -- HH : MM"
-        importantTasks.add(new Task(taskId, "上课", "19 : 00 -- 21 : 00", cal.getTime(), 120, false, "这是一个任务的简介"));
+        Task sample = new Task(taskId, "上课", "19 : 00 -- 21 : 00", cal.getTime(), 120, false, "这是一个任务的简介");
+
+        // 今天保存的重要任务（只读取按天索引中今天的部分，已按开始时间排列）
+        for (Task task : TaskRepository.tasksOn(DateKernel.today())) {
+            if (task.isImportant()) {
+                importantTasks.add(task);
+            }
+        }
+        // 示例任务按时间插入，列表不需要再排序
+        int position = Collections.binarySearch(importantTasks, sample, TaskDayIndex.DAY_ORDER);
+        importantTasks.add(position >= 0 ? position : -position - 1, sample);
 
         // 设置RecyclerView
         TaskAdapter taskAdapter = new TaskAdapter(importantTasks, this);
@@ -107,6 +118,8 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
+        // 系统时区可能在离开期间改变
+        DateKernel.refreshTimeZone();
         // 如果从ProfileActivity返回，可能需要刷新头像
         // 这里可以添加从SharedPreferences或其他存储加载用户头像的代码
     }
@@ -0,0 +1,547 @@
+package com.example.big;
+
+import java.util.Arrays;
+
+/**
+ * 压缩的非负整数集合（Roaring 位图），用于保存满足某个条件的任务存储位置
+ *
+ * 按高16位把整数分成若干块，每块只保存低16位：
+ * 元素不超过 ARRAY_MAX 个时用有序 char 数组，否则用 65536 位的位图（1024 个 long）。
+ * 稀疏的条件（如某个类别）只占元素个数的两倍字节，稠密的条件每个元素只占一位；
+ * 交、并、差按块进行，没有公共块的部分直接跳过
+ */
+public final class OrdinalBitmap {
+    // 数组块的最大元素数，超过后数组比位图更大
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    // 一块：values 不为 null 时是数组块，否则是位图块
+    private static final class Container {
+        char[] values;
+        long[] words;
+        int cardinality;
+
+        static Container ofArray(char[] values, int cardinality) {
+            Container container = new Container();
+            container.values = values;
+            container.cardinality = cardinality;
+            return container;
+        }
+
+        static Container ofWords(long[] words, int cardinality) {
+            Container container = new Container();
+            container.words = words;
+            container.cardinality = cardinality;
+            return container;
+        }
+
+        boolean contains(char value) {
+            if (values != null) {
+                return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+            }
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        boolean add(char value) {
+            if (values != null) {
+                int position = Arrays.binarySearch(values, 0, cardinality, value);
+                if (position >= 0) {
+                    return false;
+                }
+                if (cardinality == ARRAY_MAX) {
+                    toWords();
+                    return add(value);
+                }
+                position = -position - 1;
+                if (cardinality == values.length) {
+                    values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, cardinality * 2)));
+                }
+                System.arraycopy(values, position, values, position + 1, cardinality - position);
+                values[position] = value;
+                cardinality++;
+                return true;
+            }
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) != 0) {
+                return false;
+            }
+            words[value >>> 6] |= bit;
+            cardinality++;
+            return true;
+        }
+
+        boolean remove(char value) {
+            if (values != null) {
+                int position = Arrays.binarySearch(values, 0, cardinality, value);
+                if (position < 0) {
+                    return false;
+                }
+                System.arraycopy(values, position + 1, values, position, cardinality - position - 1);
+                cardinality--;
+                return true;
+            }
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) == 0) {
+                return false;
+            }
+            words[value >>> 6] &= ~bit;
+            cardinality--;
+            if (cardinality <= ARRAY_MAX / 2) {
+                toValues();
+            }
+            return true;
+        }
+
+        private void toWords() {
+            long[] bits = new long[BITMAP_WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                bits[values[i] >>> 6] |= 1L << values[i];
+            }
+            words = bits;
+            values = null;
+        }
+
+        private void toValues() {
+            values = wordsToValues(words, cardinality);
+            words = null;
+        }
+
+        Container copy() {
+            return values != null
+                    ? ofArray(Arrays.copyOf(values, Math.max(cardinality, 1)), cardinality)
+                    : ofWords(words.clone(), cardinality);
+        }
+    }
+
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int containerCount;
+
+    public OrdinalBitmap() {
+    }
+
+    /**
+     * 由升序的位置数组构建
+     *
+     * @param sorted 升序且不重复的非负整数
+     * @return 新的位图
+     */
+    public static OrdinalBitmap of(int[] sorted) {
+        OrdinalBitmap bitmap = new OrdinalBitmap();
+        for (int value : sorted) {
+            bitmap.add(value);
+        }
+        return bitmap;
+    }
+
+    /**
+     * 包含 [0, size) 中全部整数的位图
+     *
+     * @param size 上界（不含）
+     * @return 新的位图
+     */
+    public static OrdinalBitmap range(int size) {
+        OrdinalBitmap bitmap = new OrdinalBitmap();
+        for (int start = 0; start < size; start += 1 << 16) {
+            int count = Math.min(size - start, 1 << 16);
+            long[] words = new long[BITMAP_WORDS];
+            Arrays.fill(words, 0, count >>> 6, -1L);
+            if ((count & 63) != 0) {
+                words[count >>> 6] = (1L << count) - 1;
+            }
+            Container container = Container.ofWords(words, count);
+            if (count <= ARRAY_MAX) {
+                container.toValues();
+            }
+            bitmap.append((char) (start >>> 16), container);
+        }
+        return bitmap;
+    }
+
+    public boolean add(int value) {
+        char key = (char) (value >>> 16);
+        int index = indexOf(key);
+        if (index < 0) {
+            index = -index - 1;
+            insert(index, key, Container.ofArray(new char[4], 0));
+        }
+        return containers[index].add((char) value);
+    }
+
+    public boolean remove(int value) {
+        int index = indexOf((char) (value >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        Container container = containers[index];
+        if (!container.remove((char) value)) {
+            return false;
+        }
+        if (container.cardinality == 0) {
+            System.arraycopy(keys, index + 1, keys, index, containerCount - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, containerCount - index - 1);
+            containers[--containerCount] = null;
+        }
+        return true;
+    }
+
+    public boolean contains(int value) {
+        int index = indexOf((char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    /**
+     * 设置或清除某个整数
+     *
+     * @param value 整数
+     * @param present 是否包含
+     */
+    public void set(int value, boolean present) {
+        if (present) {
+            add(value);
+        } else {
+            remove(value);
+        }
+    }
+
+    public int cardinality() {
+        int total = 0;
+        for (int i = 0; i < containerCount; i++) {
+            total += containers[i].cardinality;
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return containerCount == 0;
+    }
+
+    /**
+     * 按升序输出全部整数
+     *
+     * @return 新的数组
+     */
+    public int[] toArray() {
+        int[] result = new int[cardinality()];
+        int count = 0;
+        for (int i = 0; i < containerCount; i++) {
+            int high = keys[i] << 16;
+            Container container = containers[i];
+            if (container.values != null) {
+                for (int j = 0; j < container.cardinality; j++) {
+                    result[count++] = high | container.values[j];
+                }
+            } else {
+                long[] words = container.words;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    long word = words[w];
+                    while (word != 0) {
+                        result[count++] = high | ((w << 6) + Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    public OrdinalBitmap copy() {
+        OrdinalBitmap bitmap = new OrdinalBitmap();
+        for (int i = 0; i < containerCount; i++) {
+            bitmap.append(keys[i], containers[i].copy());
+        }
+        return bitmap;
+    }
+
+    /**
+     * 交集
+     *
+     * @param a 位图
+     * @param b 位图
+     * @return 新的位图
+     */
+    public static OrdinalBitmap and(OrdinalBitmap a, OrdinalBitmap b) {
+        OrdinalBitmap result = new OrdinalBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.containerCount && j < b.containerCount) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                Container container = and(a.containers[i], b.containers[j]);
+                if (container.cardinality > 0) {
+                    result.append(a.keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 并集
+     *
+     * @param a 位图
+     * @param b 位图
+     * @return 新的位图
+     */
+    public static OrdinalBitmap or(OrdinalBitmap a, OrdinalBitmap b) {
+        OrdinalBitmap result = new OrdinalBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.containerCount || j < b.containerCount) {
+            if (j == b.containerCount || (i < a.containerCount && a.keys[i] < b.keys[j])) {
+                result.append(a.keys[i], a.containers[i].copy());
+                i++;
+            } else if (i == a.containerCount || a.keys[i] > b.keys[j]) {
+                result.append(b.keys[j], b.containers[j].copy());
+                j++;
+            } else {
+                result.append(a.keys[i], or(a.containers[i], b.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 差集 a - b
+     *
+     * @param a 位图
+     * @param b 要排除的位图
+     * @return 新的位图
+     */
+    public static OrdinalBitmap andNot(OrdinalBitmap a, OrdinalBitmap b) {
+        OrdinalBitmap result = new OrdinalBitmap();
+        int j = 0;
+        for (int i = 0; i < a.containerCount; i++) {
+            while (j < b.containerCount && b.keys[j] < a.keys[i]) {
+                j++;
+            }
+            Container container = j < b.containerCount && b.keys[j] == a.keys[i]
+                    ? andNot(a.containers[i], b.containers[j])
+                    : a.containers[i].copy();
+            if (container.cardinality > 0) {
+                result.append(a.keys[i], container);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 交集的元素个数，不生成交集
+     *
+     * @param a 位图
+     * @param b 位图
+     * @return 元素个数
+     */
+    public static int andCardinality(OrdinalBitmap a, OrdinalBitmap b) {
+        int total = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.containerCount && j < b.containerCount) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                total += andCardinality(a.containers[i], b.containers[j]);
+                i++;
+                j++;
+            }
+        }
+        return total;
+    }
+
+    private static Container and(Container a, Container b) {
+        if (a.values != null && b.values != null) {
+            char[] values = new char[Math.min(a.cardinality, b.cardinality)];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < a.cardinality && j < b.cardinality) {
+                if (a.values[i] < b.values[j]) {
+                    i++;
+                } else if (a.values[i] > b.values[j]) {
+                    j++;
+                } else {
+                    values[count++] = a.values[i];
+                    i++;
+                    j++;
+                }
+            }
+            return Container.ofArray(values, count);
+        }
+        if (a.values != null || b.values != null) {
+            Container array = a.values != null ? a : b;
+            Container bitmap = a.values != null ? b : a;
+            char[] values = new char[array.cardinality];
+            int count = 0;
+            for (int i = 0; i < array.cardinality; i++) {
+                if (bitmap.contains(array.values[i])) {
+                    values[count++] = array.values[i];
+                }
+            }
+            return Container.ofArray(values, count);
+        }
+        long[] words = new long[BITMAP_WORDS];
+        int cardinality = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            words[w] = a.words[w] & b.words[w];
+            cardinality += Long.bitCount(words[w]);
+        }
+        return wordsContainer(words, cardinality);
+    }
+
+    private static Container or(Container a, Container b) {
+        if (a.values != null && b.values != null && a.cardinality + b.cardinality <= ARRAY_MAX) {
+            char[] values = new char[a.cardinality + b.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < a.cardinality || j < b.cardinality) {
+                if (j == b.cardinality || (i < a.cardinality && a.values[i] < b.values[j])) {
+                    values[count++] = a.values[i++];
+                } else if (i == a.cardinality || a.values[i] > b.values[j]) {
+                    values[count++] = b.values[j++];
+                } else {
+                    values[count++] = a.values[i];
+                    i++;
+                    j++;
+                }
+            }
+            return Container.ofArray(values, count);
+        }
+        long[] words = toWords(a);
+        if (b.values != null) {
+            for (int i = 0; i < b.cardinality; i++) {
+                words[b.values[i] >>> 6] |= 1L << b.values[i];
+            }
+        } else {
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                words[w] |= b.words[w];
+            }
+        }
+        int cardinality = 0;
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+        }
+        return wordsContainer(words, cardinality);
+    }
+
+    private static Container andNot(Container a, Container b) {
+        if (a.values != null) {
+            char[] values = new char[a.cardinality];
+            int count = 0;
+            for (int i = 0; i < a.cardinality; i++) {
+                if (!b.contains(a.values[i])) {
+                    values[count++] = a.values[i];
+                }
+            }
+            return Container.ofArray(values, count);
+        }
+        long[] words = a.words.clone();
+        if (b.values != null) {
+            for (int i = 0; i < b.cardinality; i++) {
+                words[b.values[i] >>> 6] &= ~(1L << b.values[i]);
+            }
+        } else {
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                words[w] &= ~b.words[w];
+            }
+        }
+        int cardinality = 0;
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+        }
+        return wordsContainer(words, cardinality);
+    }
+
+    private static int andCardinality(Container a, Container b) {
+        if (a.values == null && b.values == null) {
+            int cardinality = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                cardinality += Long.bitCount(a.words[w] & b.words[w]);
+            }
+            return cardinality;
+        }
+        Container array = a.values != null ? a : b;
+        Container other = a.values != null ? b : a;
+        int cardinality = 0;
+        for (int i = 0; i < array.cardinality; i++) {
+            if (other.contains(array.values[i])) {
+                cardinality++;
+            }
+        }
+        return cardinality;
+    }
+
+    private static long[] toWords(Container container) {
+        if (container.words != null) {
+            return container.words.clone();
+        }
+        long[] words = new long[BITMAP_WORDS];
+        for (int i = 0; i < container.cardinality; i++) {
+            words[container.values[i] >>> 6] |= 1L << container.values[i];
+        }
+        return words;
+    }
+
+    // 结果较少时转为数组块
+    private static Container wordsContainer(long[] words, int cardinality) {
+        if (cardinality <= ARRAY_MAX) {
+            return Container.ofArray(wordsToValues(words, cardinality), cardinality);
+        }
+        return Container.ofWords(words, cardinality);
+    }
+
+    private static char[] wordsToValues(long[] words, int cardinality) {
+        char[] values = new char[Math.max(cardinality, 4)];
+        int count = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            long word = words[w];
+            while (word != 0) {
+                values[count++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return values;
+    }
+
+    private int indexOf(char key) {
+        int low = 0;
+        int high = containerCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) {
+                low = mid + 1;
+            } else if (keys[mid] > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void insert(int index, char key, Container container) {
+        if (containerCount == keys.length) {
+            keys = Arrays.copyOf(keys, containerCount * 2);
+            containers = Arrays.copyOf(containers, containerCount * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, containerCount - index);
+        System.arraycopy(containers, index, containers, index + 1, containerCount - index);
+        keys[index] = key;
+        containers[index] = container;
+        containerCount++;
+    }
+
+    // 追加键更大的块
+    private void append(char key, Container container) {
+        insert(containerCount, key, container);
+    }
+}
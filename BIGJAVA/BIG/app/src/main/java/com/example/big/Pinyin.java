@@ -0,0 +1,58 @@
+package com.example.big;
+
+import android.icu.text.Transliterator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 汉字转拼音（不带声调），使用系统自带的 ICU 转写（API 24 起可用），不需要额外的拼音库
+ *
+ * 逐字转换并缓存每个汉字的结果，多音字取 ICU 的默认读音。
+ * 只在建立搜索索引时调用，查询时不做转换
+ */
+final class Pinyin {
+    private static final Map<Character, String> syllables = new HashMap<>();
+    private static Transliterator transliterator;
+
+    private Pinyin() {
+    }
+
+    /**
+     * 一个字的拼音
+     *
+     * @param c 字符
+     * @return 汉字返回小写拼音，字母和数字返回小写的字符本身，其他字符返回空串
+     */
+    static synchronized String of(char c) {
+        if (!isHan(c)) {
+            return Character.isLetterOrDigit(c) ? String.valueOf(Character.toLowerCase(c)) : "";
+        }
+        String syllable = syllables.get(c);
+        if (syllable == null) {
+            if (transliterator == null) {
+                transliterator = Transliterator.getInstance("Han-Latin; Latin-ASCII");
+            }
+            syllable = lettersOf(transliterator.transliterate(String.valueOf(c)));
+            syllables.put(c, syllable);
+        }
+        return syllable;
+    }
+
+    // 常用汉字及扩展 A 区
+    static boolean isHan(char c) {
+        return (c >= 0x4E00 && c <= 0x9FFF) || (c >= 0x3400 && c <= 0x4DBF);
+    }
+
+    // 只保留小写字母（去掉转写结果中的空格等）
+    private static String lettersOf(String text) {
+        StringBuilder letters = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (c >= 'a' && c <= 'z') {
+                letters.append(c);
+            }
+        }
+        return letters.toString();
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.big;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 搜索框的后台搜索流水线
+ *
+ * 输入停顿 DEBOUNCE_MILLIS 后才开始搜索，连续输入只搜索最后一次；
+ * 搜索在后台线程执行，新的搜索提交时取消尚未完成的旧搜索；
+ * 每次提交有一个递增的编号，结果回到主线程时编号不是最新的就丢弃，因此结果不会乱序
+ *
+ * submit、cancel、shutdown 都应在主线程调用
+ *
+ * @param <R> 搜索结果类型
+ */
+public class SearchPipeline<R> {
+    private static final long DEBOUNCE_MILLIS = 150;
+
+    // 在主线程接收最新的搜索结果
+    public interface Callback<R> {
+        void onResult(R result);
+    }
+
+    private final Callback<R> callback;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SearchPipeline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 最近一次提交的编号，只在主线程读写
+    private int generation;
+    private Runnable scheduled;
+    private Future<?> running;
+
+    public SearchPipeline(Callback<R> callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * 提交新的搜索，之前未完成的搜索会被取消
+     *
+     * @param search 在后台线程执行的搜索，应只读取提交时已确定的数据
+     */
+    public void submit(Callable<R> search) {
+        cancel();
+        int current = generation;
+        scheduled = () -> {
+            scheduled = null;
+            running = executor.submit(() -> run(search, current));
+        };
+        mainHandler.postDelayed(scheduled, DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * 取消等待中和执行中的搜索，之后不会再收到它们的结果
+     */
+    public void cancel() {
+        generation++;
+        if (scheduled != null) {
+            mainHandler.removeCallbacks(scheduled);
+            scheduled = null;
+        }
+        if (running != null) {
+            running.cancel(true);
+            running = null;
+        }
+    }
+
+    /**
+     * 取消搜索并停止后台线程，在页面销毁时调用
+     */
+    public void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    private void run(Callable<R> search, int submitted) {
+        R result;
+        try {
+            result = search.call();
+        } catch (Exception e) {
+            // 被取消或搜索出错，不更新界面
+            return;
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            return;
+        }
+        mainHandler.post(() -> {
+            if (submitted == generation) {
+                running = null;
+                callback.onResult(result);
+            }
+        });
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.big;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 已保存的智能列表（按筛选条件定义的物化视图）
+ *
+ * 每个列表保存一个 TaskQuery，并在内存中保留满足条件的任务（按时间排列的 TaskOrderIndex）。
+ * 仓库中每次新增、修改、删除任务时，只用修改前后的版本判断该任务是否进出列表，
+ * 不重新筛选全部任务；打开列表直接分页读取，任务数即索引大小，都不需要扫描。
+ * 列表第一次被读取时才用当时的快照生成，生成和增量更新在同一个锁内进行，期间的修改不会丢失。
+ * 含有相对今天的日期条件（如本周）的列表，日期改变后第一次读取时重新生成。
+ * 读取保存的条件前先打开仓库（重放日志），条件中的类别编码在执行时查找。
+ *
+ * 列表的名称和条件保存在 SharedPreferences 中；只包含仓库中已保存的任务
+ */
+public final class SmartLists {
+    private static final String PREFS_NAME = "SmartListPrefs";
+    private static final String KEY_NAMES = "names";
+    private static final String KEY_QUERY_PREFIX = "query.";
+
+    private static volatile SmartLists instance;
+
+    private final SharedPreferences prefs;
+    // 名称 -> 列表，按添加顺序
+    private final Map<String, SmartList> lists = new LinkedHashMap<>();
+
+    /**
+     * 一个智能列表
+     */
+    public static final class SmartList {
+        private final String name;
+        private final TaskQuery query;
+        private TaskOrderIndex members = new TaskOrderIndex();
+        private boolean materialized;
+        // 生成列表时的日期，只用于与今天有关的条件
+        private int materializedDay;
+
+        SmartList(String name, TaskQuery query) {
+            this.name = name;
+            this.query = query;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public TaskQuery getQuery() {
+            return query;
+        }
+
+        /**
+         * 列表中的任务数
+         *
+         * @return 任务数
+         */
+        public int count() {
+            return materialize().size();
+        }
+
+        /**
+         * 列表中的任务（按时间顺序分页读取）
+         *
+         * @return 新的分页列表
+         */
+        public TaskFeed feed() {
+            return new TaskFeed(materialize());
+        }
+
+        private synchronized TaskOrderIndex materialize() {
+            int today = DateKernel.today();
+            if (materialized && query.dependsOnToday() && today != materializedDay) {
+                // 跨过零点后条件对应的日期已经改变
+                members = new TaskOrderIndex();
+                materialized = false;
+            }
+            if (!materialized) {
+                TaskOrderIndex matching = members;
+                TaskRepository.getInstance().snapshot().forEach(version -> {
+                    if (query.matches(version)) {
+                        matching.put(version);
+                    }
+                });
+                materialized = true;
+                materializedDay = today;
+            }
+            return members;
+        }
+
+        // 根据修改前后的版本更新列表，尚未生成时不需要处理
+        synchronized void apply(TaskVersion before, TaskVersion after) {
+            if (!materialized) {
+                return;
+            }
+            if (after != null && query.matches(after)) {
+                members.put(after);
+            } else if (before != null) {
+                members.remove(before.getId());
+            }
+        }
+    }
+
+    private SmartLists(Context context) {
+        // 先打开仓库，之后生成列表时任务和字典都已从日志中恢复
+        TaskRepository repository = TaskRepository.getInstance();
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String names = prefs.getString(KEY_NAMES, "");
+        for (String name : names.split("\n")) {
+            if (name.isEmpty()) {
+                continue;
+            }
+            try {
+                TaskQuery query = TaskQuery.fromSpec(prefs.getString(KEY_QUERY_PREFIX + name, ""));
+                lists.put(name, new SmartList(name, query));
+            } catch (IllegalArgumentException e) {
+                // 条件无法解析（如旧版本保存的格式），跳过该列表
+            }
+        }
+        repository.addListener((before, after) -> {
+            for (SmartList list : all()) {
+                list.apply(before, after);
+            }
+        });
+    }
+
+    /**
+     * 获取智能列表管理器，第一次使用时读取已保存的列表。
+     * 第一次使用会打开仓库，主线程上应在 TaskRepository.open 的回调中使用
+     *
+     * @param context 上下文
+     * @return 管理器
+     */
+    public static SmartLists get(Context context) {
+        SmartLists smartLists = instance;
+        if (smartLists == null) {
+            synchronized (SmartLists.class) {
+                smartLists = instance;
+                if (smartLists == null) {
+                    smartLists = new SmartLists(context.getApplicationContext());
+                    instance = smartLists;
+                }
+            }
+        }
+        return smartLists;
+    }
+
+    /**
+     * 全部列表
+     *
+     * @return 新的列表（按添加顺序）
+     */
+    public synchronized List<SmartList> all() {
+        return new ArrayList<>(lists.values());
+    }
+
+    /**
+     * 保存智能列表，同名的列表会被替换
+     *
+     * @param name  名称（不能包含换行）
+     * @param query 条件
+     * @return 新的列表
+     */
+    public synchronized SmartList save(String name, TaskQuery query) {
+        if (name.isEmpty() || name.contains("\n")) {
+            throw new IllegalArgumentException("列表名称不能为空或包含换行");
+        }
+        SmartList list = new SmartList(name, query);
+        lists.put(name, list);
+        prefs.edit()
+                .putString(KEY_NAMES, String.join("\n", lists.keySet()))
+                .putString(KEY_QUERY_PREFIX + name, query.toSpec())
+                .apply();
+        return list;
+    }
+
+    /**
+     * 删除智能列表
+     *
+     * @param name 名称
+     */
+    public synchronized void delete(String name) {
+        if (lists.remove(name) == null) {
+            return;
+        }
+        prefs.edit()
+                .putString(KEY_NAMES, String.join("\n", lists.keySet()))
+                .remove(KEY_QUERY_PREFIX + name)
+                .apply();
+    }
+}
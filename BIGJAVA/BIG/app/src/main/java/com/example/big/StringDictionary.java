@@ -0,0 +1,92 @@
+package com.example.big;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 字符串字典，为重复出现的字符串（类别、地点）分配小整数编码
+ * 编码从 0 开始连续分配，一经分配不再改变；null 固定编码为 {@link #NULL_CODE}
+ */
+public class StringDictionary {
+    // null 对应的编码
+    public static final int NULL_CODE = -1;
+
+    // 全局类别字典，预置的四个类别编码固定为 0 - 3
+    public static final StringDictionary CATEGORIES = new StringDictionary("学习", "工作", "生活", "其他");
+    // 全局地点字典
+    public static final StringDictionary PLACES = new StringDictionary();
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private volatile String[] values = new String[8];
+    private volatile int size;
+
+    /**
+     * 创建字典并按顺序预置编码
+     *
+     * @param initialValues 预置的字符串
+     */
+    public StringDictionary(String... initialValues) {
+        for (String value : initialValues) {
+            encode(value);
+        }
+    }
+
+    /**
+     * 获取字符串的编码，不存在时分配新编码
+     *
+     * @param value 字符串
+     * @return 编码
+     */
+    public synchronized int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        int newCode = size;
+        String[] current = values;
+        if (newCode == current.length) {
+            current = Arrays.copyOf(current, newCode * 2);
+        }
+        current[newCode] = value;
+        values = current;
+        codes.put(value, newCode);
+        size = newCode + 1;
+        return newCode;
+    }
+
+    /**
+     * 查询字符串的编码，不分配新编码
+     *
+     * @param value 字符串
+     * @return 编码，不存在时返回 {@link #NULL_CODE}
+     */
+    public synchronized int codeOf(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        return code != null ? code : NULL_CODE;
+    }
+
+    /**
+     * 根据编码取回字符串
+     *
+     * @param code 编码
+     * @return 字符串，编码无效时返回 null
+     */
+    public String decode(int code) {
+        // 先读 size 再读 values：encode 中 values 先于 size 发布
+        if (code < 0 || code >= size) {
+            return null;
+        }
+        return values[code];
+    }
+
+    public int size() {
+        return size;
+    }
+}
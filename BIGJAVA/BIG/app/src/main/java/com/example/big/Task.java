@@ -5,7 +5,50 @@ import java.util.HashMap;
 import java.util.Map;
 
 public class Task {
-    private int id;
+    // 任务字段，key 与 getAll() 中的键一致
+    public enum Field {
+        // 64 位（见 TaskIdGenerator），getAll() 中为 Long
+        ID("id"),
+        TITLE("title"),
+        TIME_RANGE("timeRange"),
+        DATE("date"),
+        DURATION_MINUTES("durationMinutes"),
+        IMPORTANT("important"),
+        DESCRIPTION("description"),
+        USER_ID("user_id"),
+        DUE_DATE("due_date"),
+        PLACE("place"),
+        FINISHED("finished"),
+        DELAYED("delayed"),
+        LAYERS("layers"),
+        CATEGORY("category");
+
+        public final String key;
+
+        Field(String key) {
+            this.key = key;
+        }
+    }
+
+    // 按类型访问任务字段，不创建 Map 也不装箱
+    public interface FieldVisitor {
+        default void visitLong(Field field, long value) {
+        }
+
+        default void visitInt(Field field, int value) {
+        }
+
+        default void visitBoolean(Field field, boolean value) {
+        }
+
+        default void visitString(Field field, String value) {
+        }
+
+        default void visitDate(Field field, Date value) {
+        }
+    }
+
+    private long id;
     private String title;
     private String timeRange;
     private Date date;
@@ -16,28 +59,34 @@ public class Task {
     private int user_id;
     //倒计时
     private Date due_date;
-    //地点
-    private String place;
+    //地点（全局地点字典中的编码）
+    private int placeCode = StringDictionary.NULL_CODE;
     //是否完成
     private boolean finished;
     //是否拖延
     private boolean delayed;
     //与别的任务存在时间重叠的个数
     private int layers;
-    //从属的类别（如果有）
-    private String category;
+    //从属的类别（全局类别字典中的编码，如果有）
+    private int categoryCode = StringDictionary.NULL_CODE;
+    //由 timeRange 解析出的开始/结束时间（当天分钟数），未设定或格式错误时为 -1
+    private int startMinuteOfDay = -1;
+    private int endMinuteOfDay = -1;
+    //timeRange 是否格式错误
+    private boolean timeRangeMalformed;
 
-    public Task(int id, String title, String timeRange, Date date, int durationMinutes, boolean important) {
+    public Task(long id, String title, String timeRange, Date date, int durationMinutes, boolean important) {
         this.id = id;
         this.title = title;
         this.timeRange = timeRange;
         this.date = date;
         this.durationMinutes = durationMinutes;
         this.important = important;
+        parseTimeRange();
     }
 
     // （1）包含 description 的构造函数
-    public Task(int id, String title, String timeRange, Date date, int durationMinutes, boolean important, String description) {
+    public Task(long id, String title, String timeRange, Date date, int durationMinutes, boolean important, String description) {
         this.id = id;
         this.title = title;
         this.timeRange = timeRange;
@@ -45,21 +94,23 @@ public class Task {
         this.durationMinutes = durationMinutes;
         this.important = important;
         this.description = description;
+        parseTimeRange();
     }
 
     // （2）允许 timeRange 和 durationMinutes 使用默认值的构造函数
-    public Task(int id, String title, Date date, boolean important, String description) {
+    public Task(long id, String title, Date date, boolean important, String description) {
         this.id = id;
         this.title = title;
         this.date = date;
         this.important = important;
-        this.timeRange = "未设定时间"; // 或者你可以用 null / ""
+        this.timeRange = TimeRangeCodec.UNSET_TEXT; // 或者你可以用 null / ""
         this.durationMinutes = 0;
         this.description = description;
+        parseTimeRange();
     }
 
     // （3）添加包含 place 参数的构造函数
-    public Task(int id, String title, String timeRange, Date date, int durationMinutes, boolean important, String description, String place) {
+    public Task(long id, String title, String timeRange, Date date, int durationMinutes, boolean important, String description, String place) {
         this.id = id;
         this.title = title;
         this.timeRange = timeRange;
@@ -67,11 +118,12 @@ public class Task {
         this.durationMinutes = durationMinutes;
         this.important = important;
         this.description = description;
-        this.place = place;
+        this.placeCode = StringDictionary.PLACES.encode(place);
+        parseTimeRange();
     }
 
     // （4）添加包含 place 和 due_date 参数的构造函数
-    public Task(int id, String title, String timeRange, Date date, int durationMinutes, boolean important, String description, String place, Date due_date) {
+    public Task(long id, String title, String timeRange, Date date, int durationMinutes, boolean important, String description, String place, Date due_date) {
         this.id = id;
         this.title = title;
         this.timeRange = timeRange;
@@ -79,11 +131,12 @@ public class Task {
         this.durationMinutes = durationMinutes;
         this.important = important;
         this.description = description;
-        this.place = place;
+        this.placeCode = StringDictionary.PLACES.encode(place);
         this.due_date = due_date;
+        parseTimeRange();
     }
 
-    public int getId() {
+    public long getId() {
         return id;
     }
 
@@ -99,6 +152,23 @@ public class Task {
         return date;
     }
 
+    public int getStartMinuteOfDay() {
+        return startMinuteOfDay;
+    }
+
+    public int getEndMinuteOfDay() {
+        return endMinuteOfDay;
+    }
+
+    // 是否有可用的开始/结束时间
+    public boolean hasTimeRange() {
+        return startMinuteOfDay >= 0;
+    }
+
+    public boolean isTimeRangeMalformed() {
+        return timeRangeMalformed;
+    }
+
     public int getDurationMinutes() {
         return durationMinutes;
     }
@@ -116,69 +186,213 @@ public class Task {
     }
 
     public String getPlace() {
-        return place;
+        return StringDictionary.PLACES.decode(placeCode);
+    }
+
+    public int getPlaceCode() {
+        return placeCode;
+    }
+
+    public void setPlaceCode(int placeCode) {
+        this.placeCode = placeCode;
+    }
+
+    public int getUserId() {
+        return user_id;
+    }
+
+    public void setUserId(int user_id) {
+        this.user_id = user_id;
     }
 
     public void setDueDate(Date due_date) {
         this.due_date = due_date;
     }
 
-    public void setCategory(String category){ this.category = category; }
+    public void setCategory(String category){ this.categoryCode = StringDictionary.CATEGORIES.encode(category); }
 
     public boolean isFinished() { return finished; }
 
     public void setFinished(boolean finished) {this.finished = finished; }
 
-    public void setPlace(String place) {this.place = place; }
+    public void setPlace(String place) {this.placeCode = StringDictionary.PLACES.encode(place); }
 
     public void setDelayed(boolean delayed) {
         this.delayed = delayed;
     }
 
+    // 由 TaskOverlapIndex 计算，不保存
+    public int getLayers() {
+        return layers;
+    }
+
+    public void setLayers(int layers) {
+        this.layers = layers;
+    }
+
     public boolean isDelayed() {
         return delayed;
     }
 
-    public String getCategory() { return category; }
-    // 获取所有属性的方法
+    public String getCategory() { return StringDictionary.CATEGORIES.decode(categoryCode); }
+
+    public int getCategoryCode() { return categoryCode; }
+
+    public void setCategoryCode(int categoryCode) { this.categoryCode = categoryCode; }
+    /**
+     * 按 Field 的声明顺序依次访问所有字段
+     *
+     * @param visitor 访问者
+     */
+    public void accept(FieldVisitor visitor) {
+        visitor.visitLong(Field.ID, id);
+        visitor.visitString(Field.TITLE, title);
+        visitor.visitString(Field.TIME_RANGE, timeRange);
+        visitor.visitDate(Field.DATE, date);
+        visitor.visitInt(Field.DURATION_MINUTES, durationMinutes);
+        visitor.visitBoolean(Field.IMPORTANT, important);
+        visitor.visitString(Field.DESCRIPTION, description);
+        visitor.visitInt(Field.USER_ID, user_id);
+        visitor.visitDate(Field.DUE_DATE, due_date);
+        visitor.visitString(Field.PLACE, getPlace());
+        visitor.visitBoolean(Field.FINISHED, finished);
+        visitor.visitBoolean(Field.DELAYED, delayed);
+        visitor.visitInt(Field.LAYERS, layers);
+        visitor.visitString(Field.CATEGORY, getCategory());
+    }
+
+    // 按字段读取（类型不匹配时抛出 IllegalArgumentException）
+    public long getLong(Field field) {
+        if (field == Field.ID) {
+            return id;
+        }
+        throw new IllegalArgumentException(field.key + " 不是长整数字段");
+    }
+
+    public int getInt(Field field) {
+        switch (field) {
+            case DURATION_MINUTES:
+                return durationMinutes;
+            case USER_ID:
+                return user_id;
+            case LAYERS:
+                return layers;
+            default:
+                throw new IllegalArgumentException(field.key + " 不是整数字段");
+        }
+    }
+
+    public boolean getBoolean(Field field) {
+        switch (field) {
+            case IMPORTANT:
+                return important;
+            case FINISHED:
+                return finished;
+            case DELAYED:
+                return delayed;
+            default:
+                throw new IllegalArgumentException(field.key + " 不是布尔字段");
+        }
+    }
+
+    public String getString(Field field) {
+        switch (field) {
+            case TITLE:
+                return title;
+            case TIME_RANGE:
+                return timeRange;
+            case DESCRIPTION:
+                return description;
+            case PLACE:
+                return getPlace();
+            case CATEGORY:
+                return getCategory();
+            default:
+                throw new IllegalArgumentException(field.key + " 不是字符串字段");
+        }
+    }
+
+    public Date getDate(Field field) {
+        switch (field) {
+            case DATE:
+                return date;
+            case DUE_DATE:
+                return due_date;
+            default:
+                throw new IllegalArgumentException(field.key + " 不是日期字段");
+        }
+    }
+
+    /**
+     * 获取所有属性的方法（会创建 Map 并装箱，批量处理时请使用 accept）
+     * 值的类型与 accept 中的访问方法对应："id" 为 Long（任务ID已是 64 位，超出 Integer 的范围，
+     * 读取时请用 ((Number) map.get("id")).longValue()），其余整数字段为 Integer
+     *
+     * @return 字段键到值的 Map
+     */
     public Map<String, Object> getAll() {
         Map<String, Object> taskData = new HashMap<>();
-        taskData.put("id", id);
-        taskData.put("title", title);
-        taskData.put("timeRange", timeRange);
-        taskData.put("date", date);
-        taskData.put("durationMinutes", durationMinutes);
-        taskData.put("important", important);
-        taskData.put("description", description);
-        taskData.put("user_id", user_id);
-        taskData.put("due_date", due_date);
-        taskData.put("place", place);
-        taskData.put("finished", finished);
-        taskData.put("delayed", delayed);
-        taskData.put("layers", layers);
-        taskData.put("category", category);
+        accept(new FieldVisitor() {
+            @Override
+            public void visitLong(Field field, long value) {
+                taskData.put(field.key, value);
+            }
+
+            @Override
+            public void visitInt(Field field, int value) {
+                taskData.put(field.key, value);
+            }
+
+            @Override
+            public void visitBoolean(Field field, boolean value) {
+                taskData.put(field.key, value);
+            }
+
+            @Override
+            public void visitString(Field field, String value) {
+                taskData.put(field.key, value);
+            }
+
+            @Override
+            public void visitDate(Field field, Date value) {
+                taskData.put(field.key, value);
+            }
+        });
         return taskData;
     }
 
-    // 编辑任务的方法
+    // 编辑任务的方法，保存到任务日志，写入磁盘后在主线程回调
     public void edit(String title, String timeRange, Date date, int durationMinutes,
-                     boolean important, String description, String place, Date due_date) {
+                     boolean important, String description, String place, Date due_date,
+                     TaskRepository.SaveCallback callback) {
         this.title = title;
         this.timeRange = timeRange;
         this.date = date;
         this.durationMinutes = durationMinutes;
         this.important = important;
         this.description = description;
-        this.place = place;
+        this.placeCode = StringDictionary.PLACES.encode(place);
         this.due_date = due_date;
+        parseTimeRange();
+
+        TaskRepository.getInstance().put(this, callback);
+    }
 
-        // 这里可以添加保存到数据库的代码
+    // 将 timeRange 解析为当天分钟数，只在赋值时解析一次
+    private void parseTimeRange() {
+        int packed = TimeRangeCodec.parse(timeRange);
+        if (TimeRangeCodec.isValid(packed)) {
+            startMinuteOfDay = TimeRangeCodec.startOf(packed);
+            endMinuteOfDay = TimeRangeCodec.endOf(packed);
+        } else {
+            startMinuteOfDay = -1;
+            endMinuteOfDay = -1;
+        }
+        timeRangeMalformed = packed == TimeRangeCodec.MALFORMED;
     }
 
-    // 删除任务的方法
-    public boolean delete() {
-        // 这里添加从数据库中删除该任务的代码
-        // 成功删除返回true，失败返回false
-        return true;
+    // 删除任务的方法，写入磁盘后在主线程回调是否成功
+    public void delete(TaskRepository.SaveCallback callback) {
+        TaskRepository.getInstance().remove(id, callback);
     }
 }
\ No newline at end of file
@@ -2,6 +2,8 @@ package com.example.big;
 
 import android.content.Context;
 import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -9,21 +11,111 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.cardview.widget.CardView;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * 任务列表的适配器
+ *
+ * 使用任务 ID 作为稳定 ID。筛选、同步后用 submitList 更换列表，不重新创建适配器：
+ * 新旧列表的差异在后台线程计算，回到主线程后只通知插入、删除、内容变化的行，
+ * 其余的行保留原来的 ViewHolder 和滚动位置。
+ * 再次提交显示中的 TaskFeed 时由它比较刷新前后的视图，同样只通知变化的行；
+ * 换成另一个 TaskFeed 或很长的列表时不做比较（需要读取全部任务），直接整体刷新，稳定 ID 仍可保留未变的行
+ */
 public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder> {
+    // 新旧列表合计超过该数量时不做比较
+    private static final int MAX_DIFF_SIZE = 20000;
+
+    // 分页列表一次刷新中超过该数量的修改不逐行通知
+    private static final int MAX_FEED_CHANGES = 500;
+
+    // 所有适配器共用的比较线程
+    private static final ExecutorService DIFF_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TaskAdapterDiff");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private List<Task> taskList;
     private Context context;
     private SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy/MM/dd", Locale.getDefault());
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // 最近一次 submitList 的编号，结果回到主线程时不是最新的就丢弃；只在主线程读写
+    private int generation;
+    // 分页列表刷新时逐行通知
+    private final TaskFeed.Updates feedUpdates = new TaskFeed.Updates() {
+        @Override
+        public void removed(int position) {
+            notifyItemRemoved(position);
+        }
+
+        @Override
+        public void inserted(int position) {
+            notifyItemInserted(position);
+        }
+
+        @Override
+        public void changed(int position) {
+            notifyItemChanged(position);
+        }
+    };
 
     public TaskAdapter(List<Task> taskList, Context context) {
-        this.taskList = taskList;
+        this.taskList = copyOf(taskList);
         this.context = context;
+        setHasStableIds(true);
+    }
+
+    /**
+     * 更换显示的任务，只刷新变化的行，在主线程调用
+     *
+     * @param tasks 新的任务
+     */
+    public void submitList(List<Task> tasks) {
+        int current = ++generation;
+        List<Task> oldList = taskList;
+        List<Task> newList = copyOf(tasks);
+        if (newList == oldList && newList instanceof TaskFeed) {
+            // 再次提交显示中的分页列表：刷新后按键比较前后的视图，只通知变化的行
+            if (!((TaskFeed) newList).refresh(MAX_FEED_CHANGES, feedUpdates)) {
+                notifyDataSetChanged();
+            }
+            return;
+        }
+        if (newList instanceof TaskFeed) {
+            // 不显示期间的修改没有刷新过
+            ((TaskFeed) newList).refresh();
+        }
+        if (oldList instanceof TaskFeed || newList instanceof TaskFeed
+                || oldList.size() + newList.size() > MAX_DIFF_SIZE) {
+            taskList = newList;
+            notifyDataSetChanged();
+            return;
+        }
+        DIFF_EXECUTOR.execute(() -> {
+            DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new TaskDiff(oldList, newList), false);
+            mainHandler.post(() -> {
+                if (current != generation) {
+                    return;
+                }
+                taskList = newList;
+                diff.dispatchUpdatesTo(this);
+            });
+        });
+    }
+
+    // 普通列表复制一份，比较和显示都不受调用方之后修改的影响；TaskFeed 只在主线程读取，不复制
+    private static List<Task> copyOf(List<Task> tasks) {
+        return tasks instanceof TaskFeed ? tasks : new ArrayList<>(tasks);
     }
 
     @NonNull
@@ -69,6 +161,49 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
         return taskList.size();
     }
 
+    @Override
+    public long getItemId(int position) {
+        return taskList.get(position).getId();
+    }
+
+    /**
+     * 按任务 ID 比较是否同一行，按显示的内容比较是否需要重新绑定
+     */
+    private static final class TaskDiff extends DiffUtil.Callback {
+        private final List<Task> oldList;
+        private final List<Task> newList;
+
+        TaskDiff(List<Task> oldList, List<Task> newList) {
+            this.oldList = oldList;
+            this.newList = newList;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldList.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldList.get(oldItemPosition).getId() == newList.get(newItemPosition).getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            Task oldTask = oldList.get(oldItemPosition);
+            Task newTask = newList.get(newItemPosition);
+            return Objects.equals(oldTask.getTitle(), newTask.getTitle())
+                    && Objects.equals(oldTask.getTimeRange(), newTask.getTimeRange())
+                    && Objects.equals(oldTask.getDate(), newTask.getDate())
+                    && Objects.equals(oldTask.getDescription(), newTask.getDescription());
+        }
+    }
+
     public static class TaskViewHolder extends RecyclerView.ViewHolder {
         CardView taskCardView;
         TextView titleText;
@@ -0,0 +1,12 @@
+package com.example.big;
+
+import android.app.Application;
+
+public class TaskApplication extends Application {
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // 任务日志在第一次使用时才打开
+        TaskRepository.init(this);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.big;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import java.util.ArrayDeque;
+
+/**
+ * 时间轴任务卡片的复用池，由同一个时间轴的所有小时行共用
+ *
+ * 每次绑定小时行时先把上次放入的卡片归还到池中，再从池中取出卡片填入新的任务，
+ * 池为空时才填充布局。卡片按类型（重要、普通）分开保存，背景在填充时设置一次，
+ * 取出后只需要更新文字和点击的任务；滚动稳定后不再填充新的卡片。
+ * 每种类型最多保留 MAX_IDLE 张空闲卡片；只在主线程使用
+ */
+public final class TaskCardPool {
+    public static final int TYPE_NORMAL = 0;
+    public static final int TYPE_IMPORTANT = 1;
+    private static final int MAX_IDLE = 32;
+
+    private final Context context;
+    private final View.OnClickListener clickListener;
+    // 按类型保存的空闲卡片
+    private final ArrayDeque<View>[] idle;
+
+    /**
+     * 一张卡片中的控件和当前显示的任务，保存在卡片的 tag 中
+     */
+    public static final class Card {
+        public final int type;
+        public final TextView title;
+        public final TextView time;
+        public Task task;
+
+        Card(int type, View view) {
+            this.type = type;
+            this.title = view.findViewById(R.id.task_title);
+            this.time = view.findViewById(R.id.task_time);
+        }
+    }
+
+    /**
+     * 创建复用池
+     *
+     * @param context       上下文
+     * @param clickListener 卡片的点击监听器（所有卡片共用，通过 cardOf 得到点击的任务）
+     */
+    @SuppressWarnings("unchecked")
+    public TaskCardPool(Context context, View.OnClickListener clickListener) {
+        this.context = context;
+        this.clickListener = clickListener;
+        this.idle = new ArrayDeque[]{new ArrayDeque<View>(), new ArrayDeque<View>()};
+    }
+
+    /**
+     * 任务对应的卡片类型
+     *
+     * @param task 任务
+     * @return 类型
+     */
+    public static int typeOf(Task task) {
+        return task.isImportant() ? TYPE_IMPORTANT : TYPE_NORMAL;
+    }
+
+    /**
+     * 取出一张显示该任务的卡片，没有空闲卡片时填充新的
+     *
+     * @param task 任务
+     * @return 卡片（没有父控件）
+     */
+    public View acquire(Task task) {
+        int type = typeOf(task);
+        View view = idle[type].poll();
+        if (view == null) {
+            view = LayoutInflater.from(context).inflate(R.layout.item_today_task, null);
+            view.setBackgroundResource(type == TYPE_IMPORTANT
+                    ? R.drawable.important_task_background
+                    : R.drawable.normal_task_background);
+            view.setTag(new Card(type, view));
+            view.setOnClickListener(clickListener);
+        }
+        Card card = cardOf(view);
+        card.task = task;
+        card.title.setText(task.getTitle());
+        card.time.setText(task.getTimeRange());
+        return view;
+    }
+
+    /**
+     * 归还一行中的全部卡片并从该行移除
+     *
+     * @param parent 放置卡片的控件
+     */
+    public void releaseAll(ViewGroup parent) {
+        for (int i = parent.getChildCount() - 1; i >= 0; i--) {
+            release(parent.getChildAt(i));
+        }
+        parent.removeAllViews();
+    }
+
+    /**
+     * 卡片中的控件和任务
+     *
+     * @param view 卡片
+     * @return 控件和任务
+     */
+    public static Card cardOf(View view) {
+        return (Card) view.getTag();
+    }
+
+    private void release(View view) {
+        Card card = cardOf(view);
+        if (card == null) {
+            return;
+        }
+        card.task = null;
+        if (idle[card.type].size() < MAX_IDLE) {
+            idle[card.type].push(view);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.big;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 按天排列的任务索引文件（只读内存映射）
+ *
+ * 文件结构：文件头 + 天目录 + 记录区。
+ * 记录区中的任务记录（TaskRecordCodec 格式）按天、开始时间排序，同一天的记录连续存放；
+ * 天目录记录每天第一条记录的位置（共 dayCount + 2 项，最后一段是没有日期的任务）。
+ * 查询某天或某几天时只访问目录中的两项和对应的一段记录，其余部分由系统按需换入，
+ * 因此启动时读取今天的任务与历史记录的多少无关
+ *
+ * 文件头中保存生成索引时任务日志的标记（TaskLog.Stamp：长度、各条目 CRC 的累计校验和、
+ * 最后一个条目的位置和 CRC），与当前日志的标记不一致说明索引已过期。
+ * 仅比较长度不可靠：压缩后或截掉损坏条目后再追加的日志可能恰好与原来一样长
+ */
+final class TaskDayIndex {
+    private static final int MAGIC = 0x54444958; // "TDIX"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 36;
+    // 文件头中各字段的位置
+    private static final int LOG_LENGTH_OFFSET = 8;
+    private static final int LOG_CHECKSUM_OFFSET = 16;
+    private static final int LAST_ENTRY_OFFSET_OFFSET = 20;
+    private static final int LAST_ENTRY_CRC_OFFSET = 24;
+    private static final int FIRST_DAY_OFFSET = 28;
+    private static final int DAY_COUNT_OFFSET = 32;
+
+    // 索引中同一天的任务顺序：有时间的按开始时间，没有时间的排在最后
+    static final Comparator<Task> DAY_ORDER = (a, b) -> {
+        int dayA = DateKernel.epochDay(a.getDate());
+        int dayB = DateKernel.epochDay(b.getDate());
+        if (dayA != dayB) {
+            // NO_DAY 为最小值，没有日期的任务排在最后
+            if (dayA == DateKernel.NO_DAY || dayB == DateKernel.NO_DAY) {
+                return dayA == DateKernel.NO_DAY ? 1 : -1;
+            }
+            return Integer.compare(dayA, dayB);
+        }
+        int startA = a.hasTimeRange() ? a.getStartMinuteOfDay() : Integer.MAX_VALUE;
+        int startB = b.hasTimeRange() ? b.getStartMinuteOfDay() : Integer.MAX_VALUE;
+        if (startA != startB) {
+            return Integer.compare(startA, startB);
+        }
+        return Long.compare(a.getId(), b.getId());
+    };
+
+    private final ByteBuffer buffer;
+    private final int firstDay;
+    private final int dayCount;
+    private final TaskLog.Stamp logStamp;
+
+    private TaskDayIndex(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.firstDay = buffer.getInt(FIRST_DAY_OFFSET);
+        this.dayCount = buffer.getInt(DAY_COUNT_OFFSET);
+        this.logStamp = new TaskLog.Stamp(buffer.getLong(LOG_LENGTH_OFFSET), buffer.getInt(LOG_CHECKSUM_OFFSET),
+                buffer.getInt(LAST_ENTRY_OFFSET_OFFSET), buffer.getInt(LAST_ENTRY_CRC_OFFSET));
+    }
+
+    /**
+     * 映射索引文件，且只在与日志一致时使用
+     *
+     * @param file  索引文件
+     * @param stamp 当前任务日志的标记
+     * @return 索引；文件不存在、损坏或与日志不一致时返回 null
+     */
+    static TaskDayIndex openIfFresh(File file, TaskLog.Stamp stamp) {
+        TaskDayIndex index = open(file);
+        return index != null && index.getLogStamp().equals(stamp) ? index : null;
+    }
+
+    /**
+     * 映射索引文件，不检查是否与日志一致（调用方用 getLogStamp 检查）
+     *
+     * @param file 索引文件
+     * @return 索引；文件不存在或损坏时返回 null
+     */
+    static TaskDayIndex open(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long size = raf.length();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            // 关闭文件后映射仍然有效
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                return null;
+            }
+            int dayCount = buffer.getInt(DAY_COUNT_OFFSET);
+            if (dayCount < 0 || HEADER_SIZE + (dayCount + 2) * 4L > size
+                    || buffer.getInt(HEADER_SIZE + (dayCount + 1) * 4) > size) {
+                return null;
+            }
+            return new TaskDayIndex(buffer);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 由快照生成索引文件（先写临时文件再替换）
+     *
+     * @param file     索引文件
+     * @param snapshot 全部任务
+     * @param stamp    与快照对应的任务日志标记
+     * @throws IOException 写入失败时
+     */
+    static void write(File file, TaskSnapshot snapshot, TaskLog.Stamp stamp) throws IOException {
+        List<Task> tasks = new ArrayList<>(snapshot.size());
+        snapshot.forEach(version -> tasks.add(version.toTask()));
+        Collections.sort(tasks, DAY_ORDER);
+
+        int firstDay = 0;
+        int dayCount = 0;
+        int dated = 0;
+        while (dated < tasks.size() && tasks.get(dated).getDate() != null) {
+            dated++;
+        }
+        if (dated > 0) {
+            firstDay = DateKernel.epochDay(tasks.get(0).getDate());
+            dayCount = DateKernel.epochDay(tasks.get(dated - 1).getDate()) - firstDay + 1;
+        }
+
+        byte[][] records = new byte[tasks.size()][];
+        int recordsSize = 0;
+        for (int i = 0; i < records.length; i++) {
+            records[i] = TaskRecordCodec.encode(tasks.get(i));
+            recordsSize += records[i].length;
+        }
+        int recordsStart = HEADER_SIZE + (dayCount + 2) * 4;
+        ByteBuffer out = ByteBuffer.allocate(recordsStart + recordsSize);
+        out.putInt(MAGIC).putInt(VERSION).putLong(stamp.length).putInt(stamp.checksum)
+                .putInt(stamp.lastEntryOffset).putInt(stamp.lastEntryCrc).putInt(firstDay).putInt(dayCount);
+
+        // 天目录：第 i 项为第 i 天第一条记录的位置，第 dayCount 项为没有日期的任务的开始位置
+        int position = recordsStart;
+        int next = 0;
+        for (int day = 0; day <= dayCount; day++) {
+            out.putInt(position);
+            while (next < dated && DateKernel.epochDay(tasks.get(next).getDate()) - firstDay == day) {
+                position += records[next++].length;
+            }
+        }
+        while (next < records.length) {
+            position += records[next++].length;
+        }
+        out.putInt(position);
+        for (byte[] record : records) {
+            out.put(record);
+        }
+        out.flip();
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw")) {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("无法替换任务索引: " + file);
+        }
+    }
+
+    // 生成索引时的任务日志标记
+    TaskLog.Stamp getLogStamp() {
+        return logStamp;
+    }
+
+    /**
+     * 读取若干天内的任务（按天、开始时间排序）
+     *
+     * @param fromDay 开始天数（含）
+     * @param toDay   结束天数（含）
+     * @return 新的任务列表
+     * @throws IOException 索引中的记录损坏时
+     */
+    List<Task> tasksBetween(int fromDay, int toDay) throws IOException {
+        List<Task> result = new ArrayList<>();
+        int from = Math.max(fromDay - firstDay, 0);
+        int to = Math.min(toDay - firstDay, dayCount - 1);
+        if (from > to) {
+            return result;
+        }
+        int position = directory(from);
+        int end = directory(to + 1);
+        TaskRecord record = new TaskRecord();
+        while (position < end) {
+            if (!record.wrap(buffer, position)) {
+                throw new IOException("任务索引中的记录格式不支持");
+            }
+            result.add(record.toTask());
+            position += record.length();
+        }
+        return result;
+    }
+
+    private int directory(int day) {
+        return buffer.getInt(HEADER_SIZE + day * 4);
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.big;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按时间顺序分页读取任务的列表，直接交给 TaskAdapter 显示
+ *
+ * 不一次生成全部任务，而是在 RecyclerView 绑定某个位置时才读取它所在的页（PAGE_SIZE 个）。
+ * 分页按键集进行：第 p 页从第 p - 1 页最后一个任务的键（日期, 开始时间, ID）之后开始读，
+ * 在平衡树中是一次查找加顺序遍历，与前面有多少任务无关。
+ * 绑定位置离页边界不到 PREFETCH_DISTANCE 时预先读取相邻的页；
+ * 最多保留 MAX_PAGES 页，超出时淘汰离当前页最远的页，各页的游标仍保留，再次读取时不需要从头找。
+ *
+ * 可以合并多个索引（如仓库中的任务和页面的示例任务），各索引中不应有相同的任务。
+ * 创建和 refresh 时取各索引的只读视图（TaskOrderIndex.frozen），任务数和各页都从视图读取，
+ * 其他线程之后修改索引也不影响已显示的内容，绑定时不会读到不一致的页；
+ * 需要显示修改时在主线程调用 refresh 并通知适配器（如在仓库的监听者中），
+ * refresh(maxChanges, updates) 同时给出前后两个视图之间变化的行，适配器只通知这些行。只在主线程使用
+ */
+public class TaskFeed extends AbstractList<Task> {
+    static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_DISTANCE = 10;
+    private static final int MAX_PAGES = 8;
+
+    private final TaskOrderIndex[] sources;
+    // 创建或上次 refresh 时各索引的只读视图
+    private final TaskOrderIndex[] views;
+    private int size;
+    // 已加载的页
+    private final Map<Integer, List<Task>> pages = new HashMap<>();
+    // 每页最后一个任务，作为下一页的游标
+    private final Map<Integer, TaskVersion> pageEnds = new HashMap<>();
+
+    public TaskFeed(TaskOrderIndex... sources) {
+        this.sources = sources;
+        this.views = new TaskOrderIndex[sources.length];
+        freeze();
+    }
+
+    /**
+     * 刷新时逐行报告的变化，位置按 RecyclerView 的通知顺序给出
+     */
+    public interface Updates {
+        void removed(int position);
+
+        void inserted(int position);
+
+        void changed(int position);
+    }
+
+    /**
+     * 索引中有新增、删除或修改后重新取各索引的视图，并丢弃已读取的页和游标
+     */
+    public void refresh() {
+        freeze();
+        pages.clear();
+        pageEnds.clear();
+    }
+
+    /**
+     * 刷新，并按键比较刷新前后的视图，报告变化的行：
+     * 先按旧位置从后往前报告删除，再按新位置从前往后报告插入，最后报告内容变化的行（新位置）。
+     * 时间改变的任务报告为一次删除和一次插入
+     *
+     * @param maxChanges 最多逐行报告的修改数
+     * @param updates    接收变化
+     * @return 是否已逐行报告；修改多于 maxChanges 时不报告，返回 false，调用方应整体刷新
+     */
+    public boolean refresh(int maxChanges, Updates updates) {
+        TaskOrderIndex[] oldViews = views.clone();
+        refresh();
+        List<TaskVersion[]> changes = new ArrayList<>();
+        for (int i = 0; i < views.length; i++) {
+            List<TaskVersion[]> diff = TaskOrderIndex.diff(oldViews[i], views[i], maxChanges - changes.size());
+            if (diff == null) {
+                return false;
+            }
+            changes.addAll(diff);
+        }
+        List<Integer> removed = new ArrayList<>();
+        List<Integer> inserted = new ArrayList<>();
+        List<Integer> changed = new ArrayList<>();
+        for (TaskVersion[] change : changes) {
+            if (change[1] == null) {
+                removed.add(positionOf(oldViews, change[0]));
+            } else if (change[0] == null) {
+                inserted.add(positionOf(views, change[1]));
+            } else {
+                changed.add(positionOf(views, change[1]));
+            }
+        }
+        Collections.sort(removed, Collections.reverseOrder());
+        Collections.sort(inserted);
+        for (int position : removed) {
+            updates.removed(position);
+        }
+        for (int position : inserted) {
+            updates.inserted(position);
+        }
+        for (int position : changed) {
+            updates.changed(position);
+        }
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Task get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("position " + position + ", size " + size);
+        }
+        int page = position / PAGE_SIZE;
+        int offset = position % PAGE_SIZE;
+        List<Task> tasks = page(page);
+        if (offset >= PAGE_SIZE - PREFETCH_DISTANCE && (page + 1) * PAGE_SIZE < size) {
+            page(page + 1);
+        } else if (offset < PREFETCH_DISTANCE && page > 0) {
+            page(page - 1);
+        }
+        return tasks.get(offset);
+    }
+
+    /**
+     * 合并各索引中的全部任务（按时间顺序），供筛选和搜索使用
+     *
+     * @param sources 索引
+     * @return 新的列表
+     */
+    public static List<TaskVersion> allOf(TaskOrderIndex... sources) {
+        List<TaskVersion> all = null;
+        for (TaskOrderIndex source : sources) {
+            all = all == null ? source.toList() : merge(all, source.toList(), Integer.MAX_VALUE);
+        }
+        return all != null ? all : new ArrayList<>();
+    }
+
+    private void freeze() {
+        int total = 0;
+        for (int i = 0; i < sources.length; i++) {
+            views[i] = sources[i].frozen();
+            total += views[i].size();
+        }
+        size = total;
+    }
+
+    // 任务在合并后的位置：各视图中排在它之前的任务数之和
+    private static int positionOf(TaskOrderIndex[] views, TaskVersion version) {
+        int position = 0;
+        for (TaskOrderIndex view : views) {
+            position += view.rank(version);
+        }
+        return position;
+    }
+
+    private List<Task> page(int page) {
+        List<Task> tasks = pages.get(page);
+        if (tasks != null) {
+            return tasks;
+        }
+        TaskVersion cursor = cursorOf(page);
+        List<TaskVersion> versions = read(cursor);
+        if (!versions.isEmpty()) {
+            pageEnds.put(page, versions.get(versions.size() - 1));
+        }
+        tasks = TaskOrderIndex.toTasks(versions);
+        pages.put(page, tasks);
+        evict(page);
+        return tasks;
+    }
+
+    // 第 page 页之前的最后一个任务；没有记录时从最近的已知游标向后逐页找（不保留这些页）
+    private TaskVersion cursorOf(int page) {
+        if (page == 0) {
+            return null;
+        }
+        TaskVersion cursor = pageEnds.get(page - 1);
+        if (cursor != null) {
+            return cursor;
+        }
+        int known = page - 1;
+        while (known >= 0 && !pageEnds.containsKey(known)) {
+            known--;
+        }
+        cursor = known >= 0 ? pageEnds.get(known) : null;
+        for (int skipped = known + 1; skipped < page; skipped++) {
+            List<TaskVersion> versions = read(cursor);
+            if (versions.isEmpty()) {
+                break;
+            }
+            cursor = versions.get(versions.size() - 1);
+            pageEnds.put(skipped, cursor);
+        }
+        return cursor;
+    }
+
+    // 从各索引的视图读取游标之后的一页并归并
+    private List<TaskVersion> read(TaskVersion cursor) {
+        List<TaskVersion> result = null;
+        for (TaskOrderIndex view : views) {
+            List<TaskVersion> next = view.after(cursor, PAGE_SIZE);
+            result = result == null ? next : merge(result, next, PAGE_SIZE);
+        }
+        return result != null ? result : new ArrayList<>();
+    }
+
+    // 淘汰离当前页最远的页
+    private void evict(int current) {
+        while (pages.size() > MAX_PAGES) {
+            int farthest = current;
+            for (int page : pages.keySet()) {
+                if (Math.abs(page - current) > Math.abs(farthest - current)) {
+                    farthest = page;
+                }
+            }
+            pages.remove(farthest);
+        }
+    }
+
+    private static List<TaskVersion> merge(List<TaskVersion> a, List<TaskVersion> b, int limit) {
+        List<TaskVersion> merged = new ArrayList<>(Math.min(a.size() + b.size(), limit));
+        Iterator<TaskVersion> left = a.iterator();
+        Iterator<TaskVersion> right = b.iterator();
+        TaskVersion x = left.hasNext() ? left.next() : null;
+        TaskVersion y = right.hasNext() ? right.next() : null;
+        while ((x != null || y != null) && merged.size() < limit) {
+            if (y == null || (x != null && TaskOrderIndex.ORDER.compare(x, y) <= 0)) {
+                merged.add(x);
+                x = left.hasNext() ? left.next() : null;
+            } else {
+                merged.add(y);
+                y = right.hasNext() ? right.next() : null;
+            }
+        }
+        return merged;
+    }
+}
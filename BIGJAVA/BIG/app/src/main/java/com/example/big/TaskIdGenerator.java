@@ -0,0 +1,116 @@
+package com.example.big;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 任务ID生成器（Snowflake 风格，64位）
+ *
+ * ID 结构：毫秒时间(41位，自2024-01-01起) | 安装节点号(10位) | 序号(12位)
+ * 时间和序号合在一个 AtomicLong 中按 CAS 递增，多线程并发生成无需加锁，
+ * 同一毫秒内序号用完时借用下一毫秒，因此同一安装内生成的ID严格递增、不会重复。
+ * 每次启动后从已保存任务中最大的ID之后继续，两次运行之间时钟回拨也不会重新生成已用过的ID
+ */
+public final class TaskIdGenerator {
+    // 时间起点：2024-01-01 00:00:00 UTC
+    private static final long EPOCH_MILLIS = 1704067200000L;
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int NODE_MASK = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final String PREFS_NAME = "TaskIdPrefs";
+    private static final String KEY_NODE = "node";
+
+    private static volatile TaskIdGenerator instance;
+
+    private final long nodeBits;
+    // 上一次生成的 (毫秒时间 << SEQUENCE_BITS | 序号)
+    private final AtomicLong lastState = new AtomicLong();
+
+    TaskIdGenerator(int node) {
+        this.nodeBits = (long) (node & NODE_MASK) << SEQUENCE_BITS;
+    }
+
+    /**
+     * 获取本安装的生成器，节点号第一次使用时随机生成并保存
+     *
+     * @param context 上下文
+     * @return 生成器
+     */
+    public static TaskIdGenerator get(Context context) {
+        TaskIdGenerator generator = instance;
+        if (generator == null) {
+            synchronized (TaskIdGenerator.class) {
+                generator = instance;
+                if (generator == null) {
+                    generator = new TaskIdGenerator(loadNode(context.getApplicationContext()));
+                    long[] maxId = {0};
+                    TaskRepository.getInstance().snapshot().forEach(
+                            version -> maxId[0] = Math.max(maxId[0], version.getId()));
+                    generator.advancePast(maxId[0]);
+                    instance = generator;
+                }
+            }
+        }
+        return generator;
+    }
+
+    /**
+     * 生成新的任务ID
+     *
+     * @return 正的 long 型ID
+     */
+    public long nextId() {
+        long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        while (true) {
+            long last = lastState.get();
+            long next = Math.max(last + 1, now);
+            if (lastState.compareAndSet(last, next)) {
+                return toId(next);
+            }
+        }
+    }
+
+    /**
+     * 之后生成的ID的时间和序号都在 id 之后，不会与它重复
+     *
+     * @param id 已使用的ID，不是本类生成的正数ID时（如旧的示例ID）只是时间较早，不影响生成
+     */
+    void advancePast(long id) {
+        if (id <= 0) {
+            return;
+        }
+        long state = (id >>> (NODE_BITS + SEQUENCE_BITS)) << SEQUENCE_BITS | (id & SEQUENCE_MASK);
+        lastState.accumulateAndGet(state, Math::max);
+    }
+
+    /**
+     * ID 中的生成时间
+     *
+     * @param id 由本类生成的ID
+     * @return 时间戳（毫秒）
+     */
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    private long toId(long state) {
+        long millis = state >>> SEQUENCE_BITS;
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | (state & SEQUENCE_MASK);
+    }
+
+    private static int loadNode(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        int node = prefs.getInt(KEY_NODE, -1);
+        if (node < 0) {
+            node = new SecureRandom().nextInt(NODE_MASK + 1);
+            prefs.edit().putInt(KEY_NODE, node).apply();
+        }
+        return node;
+    }
+}
@@ -0,0 +1,322 @@
+package com.example.big;
+
+import java.util.Arrays;
+
+/**
+ * 任务时间段的区间索引，区间用绝对分钟数表示（天数 * 1440 + 当天分钟数，两端都包含）
+ *
+ * 有日期的任务按开始时间排序后存放在数组中，并把数组看成一棵隐式的平衡二叉树
+ * （位置 i 的层数为 i 末尾连续 1 的个数），每个节点记录子树中最大的结束时间。
+ * 查询重叠时跳过最大结束时间早于查询开始、或开始时间晚于查询结束的子树，
+ * 重叠和时间点查询为 O(log n + k)；包含查询和按开始时间查询直接二分开始时间数组。
+ *
+ * 有日期没有时间的任务视为占满当天；没有日期的任务不属于任何一天，
+ * 单独存放：没有时间的与任何区间重叠，有时间的与任何一天的对应时间段重叠
+ * （与 TaskStore.selectOverlapping 原来的规则一致）
+ *
+ * 索引由 TaskStore.intervalIndex 生成，任务的日期、时间或存储位置改变后重新生成
+ */
+public final class TaskIntervalIndex {
+    public static final int MINUTES_PER_DAY = 1440;
+    // 子树不超过这个层数时直接顺序扫描
+    private static final int SCAN_LEVEL = 3;
+
+    // 按开始时间排序的有日期任务
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] ordinals;
+    // 隐式树中每个节点子树的最大结束时间
+    private final int[] maxEnds;
+    private final int maxLevel;
+
+    // 没有日期的任务，没有时间时开始为 -1
+    private final int[] floatingOrdinals;
+    private final int[] floatingStarts;
+    private final int[] floatingEnds;
+
+    private TaskIntervalIndex(int[] starts, int[] ends, int[] ordinals,
+                              int[] floatingOrdinals, int[] floatingStarts, int[] floatingEnds) {
+        this.starts = starts;
+        this.ends = ends;
+        this.ordinals = ordinals;
+        this.floatingOrdinals = floatingOrdinals;
+        this.floatingStarts = floatingStarts;
+        this.floatingEnds = floatingEnds;
+        this.maxEnds = new int[starts.length];
+        this.maxLevel = buildMaxEnds();
+    }
+
+    /**
+     * 为存储中的全部任务生成索引
+     *
+     * @param store 任务存储
+     * @return 新的索引
+     */
+    static TaskIntervalIndex of(TaskStore store) {
+        int size = store.size();
+        long[] keyed = new long[size];
+        int dated = 0;
+        int floating = 0;
+        for (int i = 0; i < size; i++) {
+            if (store.getEpochDay(i) != DateKernel.NO_DAY) {
+                // 高位为开始时间，低位为存储位置，排序后即按开始时间排列
+                keyed[dated++] = (long) startOf(store, i) << 32 | i;
+            } else {
+                floating++;
+            }
+        }
+        Arrays.sort(keyed, 0, dated);
+
+        int[] starts = new int[dated];
+        int[] ends = new int[dated];
+        int[] ordinals = new int[dated];
+        for (int i = 0; i < dated; i++) {
+            int ordinal = (int) keyed[i];
+            starts[i] = (int) (keyed[i] >> 32);
+            ends[i] = endOf(store, ordinal);
+            ordinals[i] = ordinal;
+        }
+        int[] floatingOrdinals = new int[floating];
+        int[] floatingStarts = new int[floating];
+        int[] floatingEnds = new int[floating];
+        int next = 0;
+        for (int i = 0; i < size && next < floating; i++) {
+            if (store.getEpochDay(i) == DateKernel.NO_DAY) {
+                floatingOrdinals[next] = i;
+                floatingStarts[next] = store.getStartMinute(i);
+                floatingEnds[next] = store.getEndMinute(i);
+                next++;
+            }
+        }
+        return new TaskIntervalIndex(starts, ends, ordinals, floatingOrdinals, floatingStarts, floatingEnds);
+    }
+
+    /**
+     * 某天某一分钟的绝对分钟数
+     *
+     * @param epochDay    天数
+     * @param minuteOfDay 当天分钟数
+     * @return 绝对分钟数
+     */
+    public static int minuteOf(int epochDay, int minuteOfDay) {
+        return epochDay * MINUTES_PER_DAY + minuteOfDay;
+    }
+
+    /**
+     * 判断存储中的一个任务是否与区间重叠，规则与索引相同
+     *
+     * @param store      任务存储
+     * @param ordinal    存储位置
+     * @param fromMinute 区间开始（绝对分钟数，含）
+     * @param toMinute   区间结束（绝对分钟数，含）
+     * @return 是否重叠
+     */
+    public static boolean overlaps(TaskStore store, int ordinal, int fromMinute, int toMinute) {
+        return overlaps(store.getEpochDay(ordinal), store.getStartMinute(ordinal), store.getEndMinute(ordinal),
+                fromMinute, toMinute);
+    }
+
+    /**
+     * 判断一个任务是否与区间重叠，规则与索引相同
+     *
+     * @param epochDay    任务的天数，没有日期时为 DateKernel.NO_DAY
+     * @param startMinute 当天开始分钟数，没有时间时为负数
+     * @param endMinute   当天结束分钟数
+     * @param fromMinute  区间开始（绝对分钟数，含）
+     * @param toMinute    区间结束（绝对分钟数，含）
+     * @return 是否重叠
+     */
+    public static boolean overlaps(int epochDay, int startMinute, int endMinute, int fromMinute, int toMinute) {
+        if (epochDay == DateKernel.NO_DAY) {
+            return floatingOverlaps(startMinute, endMinute, fromMinute, toMinute);
+        }
+        return startOf(epochDay, startMinute) <= toMinute && endOf(epochDay, startMinute, endMinute) >= fromMinute;
+    }
+
+    /**
+     * 与区间重叠的任务
+     *
+     * @param fromMinute 区间开始（绝对分钟数，含）
+     * @param toMinute   区间结束（绝对分钟数，含）
+     * @return 存储位置（升序）
+     */
+    public int[] overlapping(int fromMinute, int toMinute) {
+        int[] result = new int[16];
+        int count = 0;
+        if (starts.length > 0) {
+            // 栈中每项为 位置、层数、左子树是否已处理
+            int[] stack = new int[3 * (maxLevel + 2) * 2];
+            int top = 0;
+            stack[top++] = (1 << maxLevel) - 1;
+            stack[top++] = maxLevel;
+            stack[top++] = 0;
+            while (top > 0) {
+                int leftDone = stack[--top];
+                int level = stack[--top];
+                int node = stack[--top];
+                if (level <= SCAN_LEVEL) {
+                    int from = node >> level << level;
+                    int to = Math.min(from + (1 << (level + 1)) - 1, starts.length);
+                    for (int i = from; i < to && starts[i] <= toMinute; i++) {
+                        if (ends[i] >= fromMinute) {
+                            result = append(result, count++, ordinals[i]);
+                        }
+                    }
+                } else if (leftDone == 0) {
+                    stack[top++] = node;
+                    stack[top++] = level;
+                    stack[top++] = 1;
+                    // 左子节点可能超出数组（右侧不满的子树），此时不能用最大结束时间剪枝
+                    int left = node - (1 << (level - 1));
+                    if (left >= starts.length || maxEnds[left] >= fromMinute) {
+                        stack[top++] = left;
+                        stack[top++] = level - 1;
+                        stack[top++] = 0;
+                    }
+                } else if (node < starts.length && starts[node] <= toMinute) {
+                    if (ends[node] >= fromMinute) {
+                        result = append(result, count++, ordinals[node]);
+                    }
+                    stack[top++] = node + (1 << (level - 1));
+                    stack[top++] = level - 1;
+                    stack[top++] = 0;
+                }
+            }
+        }
+        for (int i = 0; i < floatingOrdinals.length; i++) {
+            if (floatingOverlaps(floatingStarts[i], floatingEnds[i], fromMinute, toMinute)) {
+                result = append(result, count++, floatingOrdinals[i]);
+            }
+        }
+        return sorted(result, count);
+    }
+
+    /**
+     * 在某一时刻进行中的任务
+     *
+     * @param minute 绝对分钟数
+     * @return 存储位置（升序）
+     */
+    public int[] at(int minute) {
+        return overlapping(minute, minute);
+    }
+
+    /**
+     * 完全落在区间内的有日期任务（没有时间的按整天计算）
+     *
+     * @param fromMinute 区间开始（绝对分钟数，含）
+     * @param toMinute   区间结束（绝对分钟数，含）
+     * @return 存储位置（升序）
+     */
+    public int[] containedIn(int fromMinute, int toMinute) {
+        int[] result = new int[16];
+        int count = 0;
+        for (int i = lowerBound(fromMinute); i < starts.length && starts[i] <= toMinute; i++) {
+            if (ends[i] <= toMinute) {
+                result = append(result, count++, ordinals[i]);
+            }
+        }
+        return sorted(result, count);
+    }
+
+    /**
+     * 开始时间在区间内的有日期任务，如即将开始需要提醒的任务
+     *
+     * @param fromMinute 区间开始（绝对分钟数，含）
+     * @param toMinute   区间结束（绝对分钟数，含）
+     * @return 存储位置（按开始时间排序）
+     */
+    public int[] startingBetween(int fromMinute, int toMinute) {
+        int from = lowerBound(fromMinute);
+        int to = lowerBound(toMinute + 1);
+        return to > from ? Arrays.copyOfRange(ordinals, from, to) : new int[0];
+    }
+
+    // 自底向上计算每个节点子树的最大结束时间，返回根的层数
+    private int buildMaxEnds() {
+        int n = starts.length;
+        if (n == 0) {
+            return 0;
+        }
+        int lastIndex = 0;
+        int last = 0;
+        for (int i = 0; i < n; i += 2) {
+            lastIndex = i;
+            last = maxEnds[i] = ends[i];
+        }
+        int level = 1;
+        for (; 1 << level <= n; level++) {
+            int half = 1 << (level - 1);
+            int first = (half << 1) - 1;
+            int step = half << 2;
+            for (int i = first; i < n; i += step) {
+                int leftEnd = maxEnds[i - half];
+                // 右子树超出数组时用当前最右侧子树的值
+                int rightEnd = i + half < n ? maxEnds[i + half] : last;
+                maxEnds[i] = Math.max(ends[i], Math.max(leftEnd, rightEnd));
+            }
+            lastIndex = (lastIndex >> level & 1) != 0 ? lastIndex - half : lastIndex + half;
+            if (lastIndex < n && maxEnds[lastIndex] > last) {
+                last = maxEnds[lastIndex];
+            }
+        }
+        return level - 1;
+    }
+
+    // 第一个开始时间不早于 minute 的位置
+    private int lowerBound(int minute) {
+        int low = 0;
+        int high = starts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] < minute) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // 没有日期的任务：没有时间时总是重叠，否则看查询区间是否覆盖到某一天的这个时间段
+    private static boolean floatingOverlaps(int start, int end, int fromMinute, int toMinute) {
+        if (start < 0 || toMinute - fromMinute >= MINUTES_PER_DAY - 1) {
+            return true;
+        }
+        int from = Math.floorMod(fromMinute, MINUTES_PER_DAY);
+        int to = from + (toMinute - fromMinute);
+        return (start <= to && end >= from) || (start + MINUTES_PER_DAY <= to && end + MINUTES_PER_DAY >= from);
+    }
+
+    private static int startOf(TaskStore store, int ordinal) {
+        return startOf(store.getEpochDay(ordinal), store.getStartMinute(ordinal));
+    }
+
+    private static int endOf(TaskStore store, int ordinal) {
+        return endOf(store.getEpochDay(ordinal), store.getStartMinute(ordinal), store.getEndMinute(ordinal));
+    }
+
+    private static int startOf(int epochDay, int startMinute) {
+        return minuteOf(epochDay, startMinute >= 0 ? startMinute : 0);
+    }
+
+    // 结束时间为 24:00 的任务算到当天最后一分钟，不与第二天重叠
+    private static int endOf(int epochDay, int startMinute, int endMinute) {
+        int end = startMinute >= 0 ? Math.min(endMinute, MINUTES_PER_DAY - 1) : MINUTES_PER_DAY - 1;
+        return minuteOf(epochDay, end);
+    }
+
+    private static int[] append(int[] array, int index, int value) {
+        if (index == array.length) {
+            array = Arrays.copyOf(array, index * 2);
+        }
+        array[index] = value;
+        return array;
+    }
+
+    private static int[] sorted(int[] array, int count) {
+        int[] result = Arrays.copyOf(array, count);
+        Arrays.sort(result);
+        return result;
+    }
+}
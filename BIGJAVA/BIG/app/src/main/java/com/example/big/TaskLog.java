@@ -0,0 +1,499 @@
+package com.example.big;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * 只追加的任务修改日志
+ *
+ * 文件结构：文件头(魔数4字节 + 版本4字节) + 若干条目，
+ * 每个条目为 长度(4字节) + CRC32(4字节) + 操作(1字节) + 内容：
+ * 写入用 TaskRecordCodec 编码的任务记录，删除为8字节的任务ID。
+ *
+ * 追加只写入内存缓冲区并返回序号，由后台提交线程把积累的所有条目一次写入并 fsync（组提交），
+ * 连续快速的修改共用一次 fsync。打开时顺序重放所有条目，末尾写了一半的条目（如断电）会被截掉；
+ * 长度和 CRC 都正确、但本版本无法识别的条目（由更新版本的应用写入）跳过并保留在文件中，不截断，
+ * 此时也不压缩日志，以免丢掉这些条目。
+ * 由日志生成的其他文件保存生成时日志的标记（Stamp），用于判断是否已过期
+ */
+final class TaskLog implements Closeable {
+    static final byte OP_PUT = 1;
+    static final byte OP_DELETE = 2;
+
+    private static final int MAGIC = 0x544C4F47; // "TLOG"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8;
+    private static final int ENTRY_HEADER_SIZE = 8;
+
+    // 重放时接收每个有效条目
+    interface Replayer {
+        void put(TaskRecord record);
+
+        void delete(long id);
+    }
+
+    /**
+     * 日志内容的标记：文件长度、依次累计各条目 CRC 的校验和，以及最后一个条目的位置和 CRC。
+     * 压缩或截掉损坏条目后长度恰好相同的日志，校验和也不同
+     */
+    static final class Stamp {
+        final long length;
+        final int checksum;
+        // 最后一个条目的位置，没有条目时为 0
+        final int lastEntryOffset;
+        final int lastEntryCrc;
+
+        Stamp(long length, int checksum, int lastEntryOffset, int lastEntryCrc) {
+            this.length = length;
+            this.checksum = checksum;
+            this.lastEntryOffset = lastEntryOffset;
+            this.lastEntryCrc = lastEntryCrc;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Stamp)) {
+                return false;
+            }
+            Stamp other = (Stamp) o;
+            return length == other.length && checksum == other.checksum
+                    && lastEntryOffset == other.lastEntryOffset && lastEntryCrc == other.lastEntryCrc;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(length) + checksum;
+        }
+    }
+
+    private final File file;
+    private RandomAccessFile raf;
+    private FileChannel channel;
+
+    private final Object lock = new Object();
+    // 等待提交的条目，提交线程与追加方交换使用两个缓冲区
+    private ByteBuffer pending = ByteBuffer.allocate(4096);
+    private ByteBuffer writing = ByteBuffer.allocate(4096);
+    private long appendedSequence;
+    private long committedSequence;
+    private int entryCount;
+    // 重放时跳过的无法识别的条目数
+    private final int unknownEntryCount;
+    // 包含所有已追加条目时的文件长度
+    private long length;
+    // 依次累计各条目的 CRC，以及最后一个条目的位置和 CRC，见 Stamp
+    private CRC32 chain;
+    private int lastEntryOffset;
+    private int lastEntryCrc;
+    // 正在追加的条目在 pending 中的起始位置
+    private int entryStart;
+    private IOException failure;
+    private boolean closed;
+    private final CRC32 crc = new CRC32();
+    private final Thread committer;
+
+    private TaskLog(File file, int entryCount, int unknownEntryCount, CRC32 chain, int lastEntryOffset,
+                    int lastEntryCrc) throws IOException {
+        this.file = file;
+        this.entryCount = entryCount;
+        this.unknownEntryCount = unknownEntryCount;
+        this.chain = chain;
+        this.lastEntryOffset = lastEntryOffset;
+        this.lastEntryCrc = lastEntryCrc;
+        openChannel();
+        length = channel.size();
+        committer = new Thread(this::commitLoop, "TaskLog-commit");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * 打开日志文件并重放其中的条目（文件不存在时创建）
+     *
+     * @param file     日志文件
+     * @param replayer 接收重放条目
+     * @return 日志
+     * @throws IOException 读写失败或文件不是任务日志时
+     */
+    static TaskLog open(File file, Replayer replayer) throws IOException {
+        CRC32 chain = new CRC32();
+        // 条目数、最后一个条目的位置和 CRC、无法识别的条目数
+        int[] tail = new int[4];
+        try (RandomAccessFile in = new RandomAccessFile(file, "rw")) {
+            long length = in.length();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("任务日志过大: " + length);
+            }
+            if (length < FILE_HEADER_SIZE) {
+                // 新文件，或文件头都没写完
+                in.setLength(0);
+                in.writeInt(MAGIC);
+                in.writeInt(VERSION);
+                in.getFD().sync();
+            } else {
+                byte[] bytes = new byte[(int) length];
+                in.readFully(bytes);
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                    throw new IOException("不是任务日志或版本不支持: " + file);
+                }
+                int validEnd = replay(buffer, replayer, chain, tail);
+                if (validEnd < length) {
+                    in.setLength(validEnd);
+                    in.getFD().sync();
+                }
+            }
+        }
+        return new TaskLog(file, tail[0], tail[3], chain, tail[1], tail[2]);
+    }
+
+    /**
+     * 不打开日志，只根据文件长度和最后一个条目检查日志是否仍与标记一致，
+     * 用于仓库打开前判断由日志生成的文件是否可用
+     *
+     * @param file  日志文件
+     * @param stamp 生成文件时日志的标记
+     * @return 长度相同且最后一个条目的 CRC 相同时返回 true
+     */
+    static boolean tailMatches(File file, Stamp stamp) {
+        if (file.length() != stamp.length) {
+            return false;
+        }
+        if (stamp.lastEntryOffset == 0) {
+            return stamp.length == FILE_HEADER_SIZE;
+        }
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            in.seek(stamp.lastEntryOffset);
+            int size = in.readInt();
+            int crc = in.readInt();
+            return stamp.lastEntryOffset + ENTRY_HEADER_SIZE + (long) size == stamp.length
+                    && crc == stamp.lastEntryCrc;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // 返回最后一个完整条目之后的位置；tail 中依次记录条目数、最后一个条目的位置和 CRC、无法识别的条目数。
+    // 只有长度或 CRC 不对（写了一半）时才停止，之后的内容会被截掉
+    private static int replay(ByteBuffer buffer, Replayer replayer, CRC32 chain, int[] tail) {
+        CRC32 crc = new CRC32();
+        TaskRecord record = new TaskRecord();
+        byte[] bytes = buffer.array();
+        int limit = buffer.limit();
+        int position = FILE_HEADER_SIZE;
+        while (position + ENTRY_HEADER_SIZE <= limit) {
+            int size = buffer.getInt(position);
+            int body = position + ENTRY_HEADER_SIZE;
+            if (size <= 0 || size > limit - body) {
+                break;
+            }
+            crc.reset();
+            crc.update(bytes, body, size);
+            int entryCrc = (int) crc.getValue();
+            if (entryCrc != buffer.getInt(position + 4)) {
+                break;
+            }
+            // 条目完整，内容无法识别时（更新的记录格式或操作）跳过，不截断
+            byte op = bytes[body];
+            boolean known = false;
+            if (op == OP_PUT) {
+                try {
+                    known = record.wrap(buffer, body + 1);
+                } catch (IOException e) {
+                    // CRC 正确但记录无法解析，同样跳过
+                }
+                if (known) {
+                    replayer.put(record);
+                }
+            } else if (op == OP_DELETE && size == 9) {
+                known = true;
+                replayer.delete(buffer.getLong(body + 1));
+            }
+            if (!known) {
+                tail[3]++;
+            }
+            tail[0]++;
+            tail[1] = position;
+            tail[2] = entryCrc;
+            updateChain(chain, entryCrc);
+            position = body + size;
+        }
+        return position;
+    }
+
+    /**
+     * 追加任务的新内容
+     *
+     * @param task 任务
+     * @return 条目序号
+     * @throws IOException 之前的提交已经失败时
+     */
+    long appendPut(Task task) throws IOException {
+        byte[] record = TaskRecordCodec.encode(task);
+        synchronized (lock) {
+            ByteBuffer out = beginEntry(1 + record.length);
+            out.put(OP_PUT);
+            out.put(record);
+            return endEntry(out);
+        }
+    }
+
+    /**
+     * 追加任务的删除
+     *
+     * @param id 任务ID
+     * @return 条目序号
+     * @throws IOException 之前的提交已经失败时
+     */
+    long appendDelete(long id) throws IOException {
+        synchronized (lock) {
+            ByteBuffer out = beginEntry(9);
+            out.put(OP_DELETE);
+            out.putLong(id);
+            return endEntry(out);
+        }
+    }
+
+    /**
+     * 等待指定序号及之前的条目都已写入磁盘
+     *
+     * @param sequence 条目序号
+     * @throws IOException          提交失败时
+     * @throws InterruptedException 等待被中断时
+     */
+    void awaitCommitted(long sequence) throws IOException, InterruptedException {
+        synchronized (lock) {
+            while (committedSequence < sequence) {
+                if (failure != null) {
+                    throw failure;
+                }
+                lock.wait();
+            }
+        }
+    }
+
+    // 最后追加的条目序号
+    long lastSequence() {
+        synchronized (lock) {
+            return appendedSequence;
+        }
+    }
+
+    // 已追加的条目全部落盘后的文件长度，可用于判断由日志生成的其他文件是否过期
+    long length() {
+        synchronized (lock) {
+            return length;
+        }
+    }
+
+    // 已追加的条目全部落盘后日志的标记
+    Stamp stamp() {
+        synchronized (lock) {
+            return new Stamp(length, (int) chain.getValue(), lastEntryOffset, lastEntryCrc);
+        }
+    }
+
+    // 文件中的条目数（含已被覆盖或删除的旧条目）
+    int entryCount() {
+        synchronized (lock) {
+            return entryCount;
+        }
+    }
+
+    // 重放时跳过的无法识别的条目数，不为 0 时不应压缩
+    int unknownEntryCount() {
+        return unknownEntryCount;
+    }
+
+    /**
+     * 用当前全部任务重写日志，丢弃已被覆盖或删除的旧条目
+     * 新文件写完并 fsync 后才替换旧文件，中途失败不影响旧日志。
+     * 调用方需保证重写期间没有新的追加，并且 snapshot 包含已追加的全部修改
+     *
+     * @param snapshot 当前全部任务
+     * @throws IOException          读写失败时
+     * @throws InterruptedException 等待未提交条目时被中断
+     */
+    void compact(TaskSnapshot snapshot) throws IOException, InterruptedException {
+        synchronized (lock) {
+            // 先等已追加的条目落盘，提交线程随后空闲，不会再使用旧文件
+            while (committedSequence < appendedSequence) {
+                if (failure != null) {
+                    throw failure;
+                }
+                lock.wait();
+            }
+            File temp = new File(file.getPath() + ".tmp");
+            // 新文件的标记（最后一个条目的位置和 CRC），替换成功后才生效
+            CRC32 newChain = new CRC32();
+            int[] newTail = new int[2];
+            try (RandomAccessFile out = new RandomAccessFile(temp, "rw")) {
+                out.setLength(0);
+                FileChannel tempChannel = out.getChannel();
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION).flip();
+                writeFully(tempChannel, header);
+                IOException[] error = new IOException[1];
+                snapshot.forEach(version -> {
+                    if (error[0] != null) {
+                        return;
+                    }
+                    try {
+                        byte[] record = TaskRecordCodec.encode(version.toTask());
+                        ByteBuffer entry = ByteBuffer.allocate(ENTRY_HEADER_SIZE + 1 + record.length);
+                        entry.putInt(1 + record.length).putInt(0).put(OP_PUT).put(record);
+                        int entryCrc = checksum(entry.array(), ENTRY_HEADER_SIZE, 1 + record.length);
+                        entry.putInt(4, entryCrc);
+                        entry.flip();
+                        newTail[0] = (int) tempChannel.position();
+                        newTail[1] = entryCrc;
+                        updateChain(newChain, entryCrc);
+                        writeFully(tempChannel, entry);
+                    } catch (IOException e) {
+                        error[0] = e;
+                    }
+                });
+                if (error[0] != null) {
+                    throw error[0];
+                }
+                tempChannel.force(true);
+            }
+            channel.close();
+            raf.close();
+            if (!temp.renameTo(file)) {
+                openChannel();
+                throw new IOException("无法替换任务日志: " + file);
+            }
+            openChannel();
+            length = channel.size();
+            entryCount = snapshot.size();
+            chain = newChain;
+            lastEntryOffset = newTail[0];
+            lastEntryCrc = newTail[1];
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        raf.close();
+    }
+
+    private void openChannel() throws IOException {
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+        channel.position(channel.size());
+    }
+
+    // 在 pending 中预留条目头，返回写入内容用的缓冲区
+    private ByteBuffer beginEntry(int size) throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        if (closed) {
+            throw new IOException("任务日志已关闭");
+        }
+        int required = ENTRY_HEADER_SIZE + size;
+        if (pending.remaining() < required) {
+            int capacity = Math.max(pending.capacity() * 2, pending.position() + required);
+            ByteBuffer larger = ByteBuffer.allocate(capacity);
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+        entryStart = pending.position();
+        pending.putInt(size);
+        pending.putInt(0); // CRC 在 endEntry 中回填
+        return pending;
+    }
+
+    private long endEntry(ByteBuffer out) {
+        int body = entryStart + ENTRY_HEADER_SIZE;
+        int entryCrc = checksum(out.array(), body, out.position() - body);
+        out.putInt(entryStart + 4, entryCrc);
+        lastEntryOffset = (int) length;
+        lastEntryCrc = entryCrc;
+        updateChain(chain, entryCrc);
+        length += out.position() - entryStart;
+        entryCount++;
+        appendedSequence++;
+        lock.notifyAll();
+        return appendedSequence;
+    }
+
+    private int checksum(byte[] bytes, int offset, int length) {
+        crc.reset();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    // 把条目的 CRC 累计到校验和中
+    private static void updateChain(CRC32 chain, int entryCrc) {
+        chain.update(entryCrc >>> 24);
+        chain.update(entryCrc >>> 16);
+        chain.update(entryCrc >>> 8);
+        chain.update(entryCrc);
+    }
+
+    // 后台提交线程：每轮取走所有待提交的条目，一次写入并 fsync
+    private void commitLoop() {
+        while (true) {
+            long target;
+            synchronized (lock) {
+                while (pending.position() == 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.position() == 0) {
+                    return; // 已关闭且没有剩余条目
+                }
+                ByteBuffer batch = pending;
+                pending = writing;
+                pending.clear();
+                writing = batch;
+                target = appendedSequence;
+            }
+            try {
+                writing.flip();
+                writeFully(channel, writing);
+                channel.force(false);
+                synchronized (lock) {
+                    committedSequence = target;
+                    lock.notifyAll();
+                }
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
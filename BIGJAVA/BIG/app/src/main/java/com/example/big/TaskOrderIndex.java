@@ -0,0 +1,469 @@
+package com.example.big;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按时间排列的任务索引，键为 (日期, 开始时间, 任务ID)
+ *
+ * 顺序与 TaskDayIndex.DAY_ORDER 相同：按天，同一天内按开始时间，没有时间的排在当天最后，
+ * 没有日期的任务排在所有日期之后。新增、修改、删除都是 O(log n)，
+ * 按时间列出、读取某几天、读取接下来的若干个任务都直接按顺序遍历，不需要排序。
+ *
+ * 任务存放在不可变的平衡二叉树（AVL）中，修改时只复制从根到修改位置的节点并发布新的根，
+ * 因此 frozen 可以 O(1) 得到某一时刻的只读视图，之后的修改不影响它（如 TaskFeed 在刷新之间读取的内容）。
+ * 读取可以与写入并发进行；写入需由调用方保证串行（如在仓库的写锁内或监听者中）
+ */
+public final class TaskOrderIndex {
+    // 索引中的顺序
+    public static final Comparator<TaskVersion> ORDER = (a, b) -> Key.of(a).compareTo(Key.of(b));
+
+    private volatile Node root;
+    // 任务ID -> 当前的键，修改时间后据此删除旧位置；只读视图中为 null
+    private final Map<Long, Key> keysById;
+
+    // 排序键，没有日期和没有时间分别用最大值表示，排在最后
+    private static final class Key implements Comparable<Key> {
+        final int day;
+        final int start;
+        final long id;
+
+        Key(int day, int start, long id) {
+            this.day = day;
+            this.start = start;
+            this.id = id;
+        }
+
+        static Key of(TaskVersion version) {
+            int day = version.hasDate() ? DateKernel.epochDay(version.getDateMillis()) : Integer.MAX_VALUE;
+            int start = version.hasTimeRange() ? version.getStartMinuteOfDay() : Integer.MAX_VALUE;
+            return new Key(day, start, version.getId());
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            if (day != other.day) {
+                return Integer.compare(day, other.day);
+            }
+            if (start != other.start) {
+                return Integer.compare(start, other.start);
+            }
+            return Long.compare(id, other.id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return day == other.day && start == other.start && id == other.id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * day + start) + Long.hashCode(id);
+        }
+    }
+
+    // 不可变的树节点，记录高度和子树中的任务数
+    private static final class Node {
+        final Key key;
+        final TaskVersion value;
+        final Node left;
+        final Node right;
+        final int height;
+        final int size;
+
+        Node(Key key, TaskVersion value, Node left, Node right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(heightOf(left), heightOf(right)) + 1;
+            this.size = sizeOf(left) + sizeOf(right) + 1;
+        }
+    }
+
+    public TaskOrderIndex() {
+        this.keysById = new ConcurrentHashMap<>();
+    }
+
+    private TaskOrderIndex(Node root) {
+        this.root = root;
+        this.keysById = null;
+    }
+
+    /**
+     * 当前内容的只读视图，之后对本索引的修改不影响它
+     *
+     * @return 只读的索引
+     */
+    public TaskOrderIndex frozen() {
+        return keysById == null ? this : new TaskOrderIndex(root);
+    }
+
+    /**
+     * 添加或更新任务，时间变化时移动到新位置
+     *
+     * @param version 任务的最新版本
+     */
+    public void put(TaskVersion version) {
+        checkWritable();
+        Key key = Key.of(version);
+        Key old = keysById.put(version.getId(), key);
+        Node next = root;
+        if (old != null && !old.equals(key)) {
+            next = delete(next, old);
+        }
+        root = insert(next, key, version);
+    }
+
+    /**
+     * 删除任务
+     *
+     * @param id 任务ID
+     */
+    public void remove(long id) {
+        checkWritable();
+        Key old = keysById.remove(id);
+        if (old != null) {
+            root = delete(root, old);
+        }
+    }
+
+    public int size() {
+        return sizeOf(root);
+    }
+
+    /**
+     * 全部任务（按时间顺序）
+     *
+     * @return 新的列表
+     */
+    public List<TaskVersion> toList() {
+        Node node = root;
+        List<TaskVersion> result = new ArrayList<>(sizeOf(node));
+        for (InOrder it = new InOrder(node, null, true); it.hasNext(); ) {
+            result.add(it.next().value);
+        }
+        return result;
+    }
+
+    /**
+     * 键集分页：排在某个任务之后的若干个任务
+     *
+     * @param last  上一页的最后一个任务，为 null 时从头开始；该任务之后被修改或删除也不影响位置
+     * @param limit 最多返回的个数
+     * @return 新的列表（按时间顺序）
+     */
+    public List<TaskVersion> after(TaskVersion last, int limit) {
+        List<TaskVersion> result = new ArrayList<>(Math.min(limit, 64));
+        InOrder it = new InOrder(root, last != null ? Key.of(last) : null, false);
+        while (it.hasNext() && result.size() < limit) {
+            result.add(it.next().value);
+        }
+        return result;
+    }
+
+    /**
+     * 若干天内的任务（按时间顺序，不含没有日期的任务）
+     *
+     * @param fromDay 开始天数（含）
+     * @param toDay   结束天数（含）
+     * @return 新的列表
+     */
+    public List<TaskVersion> between(int fromDay, int toDay) {
+        if (fromDay > toDay) {
+            return new ArrayList<>();
+        }
+        List<TaskVersion> result = new ArrayList<>();
+        InOrder it = new InOrder(root, new Key(fromDay, Integer.MIN_VALUE, Long.MIN_VALUE), true);
+        while (it.hasNext()) {
+            Node node = it.next();
+            if (node.key.day > toDay) {
+                break;
+            }
+            result.add(node.value);
+        }
+        return result;
+    }
+
+    /**
+     * 从某一时刻起接下来的任务（按时间顺序，不含没有日期的任务）
+     *
+     * @param epochDay      天数
+     * @param minuteOfDay   当天分钟数，开始时间不早于此时的任务（及当天没有时间的任务）计入
+     * @param limit         最多返回的个数
+     * @param importantOnly 是否只要重要任务
+     * @return 新的列表
+     */
+    public List<TaskVersion> upcoming(int epochDay, int minuteOfDay, int limit, boolean importantOnly) {
+        List<TaskVersion> result = new ArrayList<>(Math.min(limit, 16));
+        InOrder it = new InOrder(root, new Key(epochDay, minuteOfDay, Long.MIN_VALUE), true);
+        while (it.hasNext() && result.size() < limit) {
+            Node node = it.next();
+            if (node.key.day == Integer.MAX_VALUE) {
+                break;
+            }
+            if (!importantOnly || node.value.isImportant()) {
+                result.add(node.value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 转换为 Task 列表
+     *
+     * @param versions 任务版本
+     * @return 新的任务列表（顺序不变）
+     */
+    public static List<Task> toTasks(List<TaskVersion> versions) {
+        List<Task> tasks = new ArrayList<>(versions.size());
+        for (TaskVersion version : versions) {
+            tasks.add(version.toTask());
+        }
+        return tasks;
+    }
+
+    /**
+     * 排在某个任务之前的任务数，即该任务在索引中的位置（不在索引中时为插入位置）
+     *
+     * @param version 任务版本，按其日期、时间和ID定位
+     * @return 位置
+     */
+    public int rank(TaskVersion version) {
+        Key key = Key.of(version);
+        int rank = 0;
+        Node node = root;
+        while (node != null) {
+            int c = key.compareTo(node.key);
+            if (c <= 0) {
+                node = node.left;
+            } else {
+                rank += sizeOf(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * 比较同一个索引先后的两个视图，按时间顺序列出其间的修改（修改前, 修改后）：
+     * 只在旧视图中的为 (旧版本, null)，只在新视图中的为 (null, 新版本)，键相同而版本不同的为 (旧版本, 新版本)；
+     * 时间改变的任务按一次删除和一次新增列出。
+     * 两个视图共用的子树直接跳过，耗时取决于修改的多少，与任务总数无关
+     *
+     * @param older 旧视图
+     * @param newer 新视图
+     * @param limit 最多列出的修改数
+     * @return 新的列表，修改多于 limit 时为 null
+     */
+    public static List<TaskVersion[]> diff(TaskOrderIndex older, TaskOrderIndex newer, int limit) {
+        List<TaskVersion[]> changes = new ArrayList<>();
+        Pending a = new Pending(older.root);
+        Pending b = new Pending(newer.root);
+        while (!a.isEmpty() || !b.isEmpty()) {
+            if (changes.size() > limit) {
+                return null;
+            }
+            if (a.isEmpty() || b.isEmpty()) {
+                Pending rest = a.isEmpty() ? b : a;
+                if (!rest.expandTop()) {
+                    Node node = rest.pop();
+                    changes.add(rest == a ? new TaskVersion[]{node.value, null} : new TaskVersion[]{null, node.value});
+                }
+                continue;
+            }
+            Node x = a.peek();
+            Node y = b.peek();
+            if (x == y && !a.topIsEntry() && !b.topIsEntry()) {
+                // 同一棵子树
+                a.pop();
+                b.pop();
+                continue;
+            }
+            // 先展开较高的子树，使两侧共用的子树对齐
+            if (!a.topIsEntry() && (b.topIsEntry() || x.height >= y.height)) {
+                a.expandTop();
+                continue;
+            }
+            if (!b.topIsEntry()) {
+                b.expandTop();
+                continue;
+            }
+            int c = x.key.compareTo(y.key);
+            if (c < 0) {
+                changes.add(new TaskVersion[]{a.pop().value, null});
+            } else if (c > 0) {
+                changes.add(new TaskVersion[]{null, b.pop().value});
+            } else {
+                a.pop();
+                b.pop();
+                if (x.value != y.value) {
+                    changes.add(new TaskVersion[]{x.value, y.value});
+                }
+            }
+        }
+        return changes.size() > limit ? null : changes;
+    }
+
+    private void checkWritable() {
+        if (keysById == null) {
+            throw new UnsupportedOperationException("只读的索引");
+        }
+    }
+
+    // 按顺序遍历键不早于（inclusive）或晚于 from 的节点，from 为 null 时从头开始
+    private static final class InOrder {
+        private final ArrayDeque<Node> stack = new ArrayDeque<>();
+
+        InOrder(Node root, Key from, boolean inclusive) {
+            Node node = root;
+            while (node != null) {
+                int c = from == null ? 1 : node.key.compareTo(from);
+                if (c > 0 || (c == 0 && inclusive)) {
+                    stack.push(node);
+                    node = node.left;
+                } else {
+                    node = node.right;
+                }
+            }
+        }
+
+        boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        Node next() {
+            Node node = stack.pop();
+            for (Node child = node.right; child != null; child = child.left) {
+                stack.push(child);
+            }
+            return node;
+        }
+    }
+
+    // 比较两个视图时待处理的内容，栈顶是按顺序的下一部分：整棵子树，或只是某个节点本身（entry）
+    private static final class Pending {
+        private final ArrayDeque<Node> nodes = new ArrayDeque<>();
+        private final ArrayDeque<Boolean> entries = new ArrayDeque<>();
+
+        Pending(Node root) {
+            push(root, false);
+        }
+
+        boolean isEmpty() {
+            return nodes.isEmpty();
+        }
+
+        Node peek() {
+            return nodes.peek();
+        }
+
+        boolean topIsEntry() {
+            return entries.peek();
+        }
+
+        Node pop() {
+            entries.pop();
+            return nodes.pop();
+        }
+
+        // 栈顶是子树时换成 左子树、节点本身、右子树，返回 false 表示栈顶已是单个节点
+        boolean expandTop() {
+            if (entries.peek()) {
+                return false;
+            }
+            Node node = pop();
+            push(node.right, false);
+            push(node, true);
+            push(node.left, false);
+            return true;
+        }
+
+        private void push(Node node, boolean entry) {
+            if (node != null) {
+                nodes.push(node);
+                entries.push(entry);
+            }
+        }
+    }
+
+    private static Node insert(Node node, Key key, TaskVersion value) {
+        if (node == null) {
+            return new Node(key, value, null, null);
+        }
+        int c = key.compareTo(node.key);
+        if (c == 0) {
+            return new Node(key, value, node.left, node.right);
+        }
+        return c < 0
+                ? balance(node.key, node.value, insert(node.left, key, value), node.right)
+                : balance(node.key, node.value, node.left, insert(node.right, key, value));
+    }
+
+    private static Node delete(Node node, Key key) {
+        if (node == null) {
+            return null;
+        }
+        int c = key.compareTo(node.key);
+        if (c < 0) {
+            return balance(node.key, node.value, delete(node.left, key), node.right);
+        }
+        if (c > 0) {
+            return balance(node.key, node.value, node.left, delete(node.right, key));
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        // 用右子树中最小的节点代替
+        Node min = node.right;
+        while (min.left != null) {
+            min = min.left;
+        }
+        return balance(min.key, min.value, node.left, delete(node.right, min.key));
+    }
+
+    // 左右子树高度差超过 1 时旋转
+    private static Node balance(Key key, TaskVersion value, Node left, Node right) {
+        int diff = heightOf(left) - heightOf(right);
+        if (diff > 1) {
+            if (heightOf(left.left) < heightOf(left.right)) {
+                left = rotateLeft(left.key, left.value, left.left, left.right);
+            }
+            return rotateRight(key, value, left, right);
+        }
+        if (diff < -1) {
+            if (heightOf(right.right) < heightOf(right.left)) {
+                right = rotateRight(right.key, right.value, right.left, right.right);
+            }
+            return rotateLeft(key, value, left, right);
+        }
+        return new Node(key, value, left, right);
+    }
+
+    private static Node rotateRight(Key key, TaskVersion value, Node left, Node right) {
+        return new Node(left.key, left.value, left.left, new Node(key, value, left.right, right));
+    }
+
+    private static Node rotateLeft(Key key, TaskVersion value, Node left, Node right) {
+        return new Node(right.key, right.value, new Node(key, value, left, right.left), right.right);
+    }
+
+    private static int heightOf(Node node) {
+        return node != null ? node.height : 0;
+    }
+
+    private static int sizeOf(Node node) {
+        return node != null ? node.size : 0;
+    }
+}
@@ -0,0 +1,387 @@
+package com.example.big;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 任务时间重叠的索引：每个任务与多少个任务重叠（Task.layers）、重叠的任务组、时间冲突查询
+ *
+ * 只考虑有日期和时间的任务，时间段按 [开始, 结束) 计算，首尾相接的任务不算重叠。
+ * 任务不跨天，重叠只发生在同一天内，因此按天分组保存：每天的任务按开始时间排序，
+ * 对开始、结束事件做一次扫描线，得到重叠组（扫描时同时进行的任务数从 0 变为正数到回到 0 的一段，
+ * 即互相通过重叠连在一起的最大任务集合）和组内最多同时进行的任务数；
+ * 每个任务的重叠个数 = 开始早于它结束的任务数 - 结束不晚于它开始的任务数 - 1，
+ * 两者都在排好序的数组上二分得到，一天 k 个任务共 O(k log k)。
+ * 新增、修改、删除任务时只重新计算修改前后所在的一两天，其余的天不变。
+ *
+ * 所有方法都是同步的，可以在任意线程使用
+ */
+public final class TaskOverlapIndex {
+    // 任务 ID -> 时间段
+    private final Map<Long, Interval> intervals = new HashMap<>();
+    // 天数 -> 这一天的计算结果，按天排列以便查询一段日期
+    private final TreeMap<Integer, Day> days = new TreeMap<>();
+
+    private static final class Interval {
+        final long id;
+        final int epochDay;
+        final int start;
+        final int end;
+
+        Interval(long id, int epochDay, int start, int end) {
+            this.id = id;
+            this.epochDay = epochDay;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    // 一天中的任务（按开始时间排列）和扫描结果
+    private static final class Day {
+        final List<Interval> members = new ArrayList<>();
+        Interval[] sorted;
+        // 与 sorted 对应的重叠个数
+        int[] layers;
+        final Map<Long, Integer> positions = new HashMap<>();
+        List<Group> groups;
+    }
+
+    /**
+     * 一组互相通过重叠连在一起的任务
+     */
+    public static final class Group {
+        private final int epochDay;
+        private final int startMinute;
+        private final int endMinute;
+        private final long[] taskIds;
+        private final int maxConcurrent;
+
+        Group(int epochDay, int startMinute, int endMinute, long[] taskIds, int maxConcurrent) {
+            this.epochDay = epochDay;
+            this.startMinute = startMinute;
+            this.endMinute = endMinute;
+            this.taskIds = taskIds;
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public int getEpochDay() {
+            return epochDay;
+        }
+
+        public int getStartMinute() {
+            return startMinute;
+        }
+
+        public int getEndMinute() {
+            return endMinute;
+        }
+
+        /**
+         * 组中的任务
+         *
+         * @return 任务ID（按开始时间排列，不要修改）
+         */
+        public long[] getTaskIds() {
+            return taskIds;
+        }
+
+        /**
+         * 组内同一时刻最多同时进行的任务数（并排显示需要的列数）
+         *
+         * @return 任务数
+         */
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+    }
+
+    /**
+     * 为一组任务生成索引
+     *
+     * @param tasks 任务
+     * @return 新的索引
+     */
+    public static TaskOverlapIndex of(Iterable<Task> tasks) {
+        TaskOverlapIndex index = new TaskOverlapIndex();
+        for (Task task : tasks) {
+            index.add(intervalOf(task.getId(), DateKernel.epochDay(task.getDate()),
+                    task.hasTimeRange(), task.getStartMinuteOfDay(), task.getEndMinuteOfDay()));
+        }
+        index.recomputeAll();
+        return index;
+    }
+
+    /**
+     * 为快照中的全部任务生成索引
+     *
+     * @param snapshot 快照
+     * @return 新的索引
+     */
+    public static TaskOverlapIndex of(TaskSnapshot snapshot) {
+        TaskOverlapIndex index = new TaskOverlapIndex();
+        snapshot.forEach(version -> index.add(intervalOf(version)));
+        index.recomputeAll();
+        return index;
+    }
+
+    /**
+     * 新增或更新任务，只重新计算修改前后所在的天
+     *
+     * @param version 任务的新版本
+     */
+    public synchronized void put(TaskVersion version) {
+        Interval before = removeInterval(version.getId());
+        Interval after = intervalOf(version);
+        add(after);
+        if (before != null) {
+            recompute(before.epochDay);
+        }
+        if (after != null && (before == null || after.epochDay != before.epochDay)) {
+            recompute(after.epochDay);
+        }
+    }
+
+    /**
+     * 删除任务
+     *
+     * @param id 任务ID
+     */
+    public synchronized void remove(long id) {
+        Interval before = removeInterval(id);
+        if (before != null) {
+            recompute(before.epochDay);
+        }
+    }
+
+    /**
+     * 任务与多少个其他任务时间重叠
+     *
+     * @param id 任务ID
+     * @return 重叠个数，任务不在索引中或没有时间时为 0
+     */
+    public synchronized int layersOf(long id) {
+        Interval interval = intervals.get(id);
+        if (interval == null) {
+            return 0;
+        }
+        Day day = days.get(interval.epochDay);
+        return day.layers[day.positions.get(id)];
+    }
+
+    /**
+     * 把索引中的重叠个数写入各任务的 layers
+     *
+     * @param tasks 任务
+     */
+    public synchronized void applyLayers(List<Task> tasks) {
+        for (Task task : tasks) {
+            task.setLayers(layersOf(task.getId()));
+        }
+    }
+
+    /**
+     * 一段日期中的重叠组，只有一个任务的组不返回
+     *
+     * @param fromDay 开始天数（含）
+     * @param toDay   结束天数（含）
+     * @return 新的列表（按日期、开始时间排列）
+     */
+    public synchronized List<Group> groupsBetween(int fromDay, int toDay) {
+        List<Group> result = new ArrayList<>();
+        if (fromDay > toDay) {
+            return result;
+        }
+        for (Day day : days.subMap(fromDay, true, toDay, true).values()) {
+            for (Group group : day.groups) {
+                if (group.taskIds.length > 1) {
+                    result.add(group);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 与任务的（可能尚未保存的）时间冲突的其他任务
+     *
+     * @param task 任务
+     * @return 冲突的任务ID（按开始时间排列）；任务没有日期或时间时为空
+     */
+    public long[] conflictsWith(Task task) {
+        if (!task.hasTimeRange()) {
+            return new long[0];
+        }
+        return conflictsWith(task.getId(), DateKernel.epochDay(task.getDate()),
+                task.getStartMinuteOfDay(), task.getEndMinuteOfDay());
+    }
+
+    /**
+     * 与某天某个时间段冲突的任务，供编辑界面在调整时间时使用
+     *
+     * @param id          正在编辑的任务ID（不算与自己冲突），新任务可以传任意不存在的ID
+     * @param epochDay    天数
+     * @param startMinute 当天开始分钟数
+     * @param endMinute   当天结束分钟数
+     * @return 冲突的任务ID（按开始时间排列）
+     */
+    public synchronized long[] conflictsWith(long id, int epochDay, int startMinute, int endMinute) {
+        Interval probe = intervalOf(id, epochDay, true, startMinute, endMinute);
+        Day day = probe != null ? days.get(epochDay) : null;
+        if (day == null) {
+            return new long[0];
+        }
+        // 开始时间早于查询结束的任务在 sorted 的前缀中，其中结束晚于查询开始的就是冲突
+        int limit = firstStartAtOrAfter(day.sorted, probe.end);
+        long[] result = new long[limit];
+        int count = 0;
+        for (int i = 0; i < limit; i++) {
+            Interval other = day.sorted[i];
+            if (other.end > probe.start && other.id != id) {
+                result[count++] = other.id;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private void add(Interval interval) {
+        if (interval == null) {
+            return;
+        }
+        intervals.put(interval.id, interval);
+        Day day = days.get(interval.epochDay);
+        if (day == null) {
+            day = new Day();
+            days.put(interval.epochDay, day);
+        }
+        day.members.add(interval);
+    }
+
+    private Interval removeInterval(long id) {
+        Interval interval = intervals.remove(id);
+        if (interval != null) {
+            days.get(interval.epochDay).members.remove(interval);
+        }
+        return interval;
+    }
+
+    private void recomputeAll() {
+        for (Integer epochDay : new ArrayList<>(days.keySet())) {
+            recompute(epochDay);
+        }
+    }
+
+    // 对一天的任务重新排序并扫描
+    private void recompute(int epochDay) {
+        Day day = days.get(epochDay);
+        if (day.members.isEmpty()) {
+            days.remove(epochDay);
+            return;
+        }
+        Interval[] sorted = day.members.toArray(new Interval[0]);
+        Arrays.sort(sorted, (a, b) -> a.start != b.start
+                ? Integer.compare(a.start, b.start)
+                : Long.compare(a.id, b.id));
+        int size = sorted.length;
+        int[] starts = new int[size];
+        int[] ends = new int[size];
+        for (int i = 0; i < size; i++) {
+            starts[i] = sorted[i].start;
+            ends[i] = sorted[i].end;
+        }
+        Arrays.sort(ends);
+
+        int[] layers = new int[size];
+        day.positions.clear();
+        for (int i = 0; i < size; i++) {
+            Interval interval = sorted[i];
+            layers[i] = upperBound(starts, interval.end - 1) - upperBound(ends, interval.start) - 1;
+            day.positions.put(interval.id, i);
+        }
+
+        // 扫描线：按时间处理开始和结束事件，同一时刻先结束后开始（首尾相接不算重叠）
+        List<Group> groups = new ArrayList<>();
+        int groupFrom = 0;
+        int groupEnd = Integer.MIN_VALUE;
+        int active = 0;
+        int maxActive = 0;
+        int nextEnd = 0;
+        for (int i = 0; i < size; i++) {
+            int start = starts[i];
+            while (nextEnd < size && ends[nextEnd] <= start) {
+                nextEnd++;
+                active--;
+            }
+            if (active == 0 && i > groupFrom) {
+                groups.add(groupOf(epochDay, sorted, groupFrom, i, groupEnd, maxActive));
+                groupFrom = i;
+                maxActive = 0;
+            }
+            active++;
+            maxActive = Math.max(maxActive, active);
+            groupEnd = Math.max(groupEnd, sorted[i].end);
+        }
+        groups.add(groupOf(epochDay, sorted, groupFrom, size, groupEnd, maxActive));
+
+        day.sorted = sorted;
+        day.layers = layers;
+        day.groups = Collections.unmodifiableList(groups);
+    }
+
+    private static Group groupOf(int epochDay, Interval[] sorted, int from, int to, int end, int maxConcurrent) {
+        long[] ids = new long[to - from];
+        for (int i = from; i < to; i++) {
+            ids[i - from] = sorted[i].id;
+        }
+        return new Group(epochDay, sorted[from].start, end, ids, maxConcurrent);
+    }
+
+    // 值不超过 value 的元素个数
+    private static int upperBound(int[] sortedValues, int value) {
+        int low = 0;
+        int high = sortedValues.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedValues[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int firstStartAtOrAfter(Interval[] sorted, int minute) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid].start < minute) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static Interval intervalOf(TaskVersion version) {
+        if (version == null) {
+            return null;
+        }
+        return intervalOf(version.getId(), version.getEpochDay(), version.hasTimeRange(),
+                version.getStartMinuteOfDay(), version.getEndMinuteOfDay());
+    }
+
+    // 没有日期或时间的任务不参与；结束不晚于开始时按一分钟计算
+    private static Interval intervalOf(long id, int epochDay, boolean hasTime, int startMinute, int endMinute) {
+        if (epochDay == DateKernel.NO_DAY || !hasTime || startMinute < 0) {
+            return null;
+        }
+        return new Interval(id, epochDay, startMinute, Math.max(endMinute, startMinute + 1));
+    }
+}
@@ -0,0 +1,625 @@
+package com.example.big;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 可组合的任务查询（多个条件取交集），在 TaskStore 上执行
+ *
+ * 查询对象不可变，每次添加条件返回新的查询，同类条件（如类别）后加的替换先加的，
+ * 因此可以在界面线程上逐步组合，再交给后台线程执行。
+ *
+ * 执行时由简单的查询计划决定顺序：有索引的条件（标记和类别位图、时间区间索引）
+ * 先按位图元素数从少到多求交集，再减去需要排除的位图（如已完成），得到候选位置；
+ * 没有索引的条件（日期范围等）按检查代价从低到高逐个检查候选，遇到不满足的立即跳过。
+ * 组合条件只需几次按块的位图运算加上与候选数成正比的检查，不再对整个列表扫描多遍；
+ * 只有索引条件时计数（包括按类别分面计数）直接由位图得到，不生成任务
+ *
+ * 查询也可以逐个判断任务版本（matches），供智能列表按修改增量维护；
+ * toSpec / fromSpec 把查询转换为文字以便保存。相对今天的日期条件（daysFromToday、thisWeek）
+ * 保存的是相对范围，每次检查时按当天的日期计算
+ */
+public final class TaskQuery {
+    private static final TaskQuery ALL = new TaskQuery(Collections.emptyList());
+
+    // 条件种类，同种条件只保留一个
+    enum Kind {
+        UNFINISHED, IMPORTANT, CATEGORY, DAYS, RELATIVE_DAYS, WEEK, TIME, TITLE
+    }
+
+    // 查询条件
+    abstract static class Clause {
+        final Kind kind;
+        // 条件的参数（保存查询时使用），没有参数时为 null
+        final String argument;
+
+        Clause(Kind kind, String argument) {
+            this.kind = kind;
+            this.argument = argument;
+        }
+
+        // 检查一个任务的相对代价，没有索引的条件按代价从低到高检查
+        int cost() {
+            return 1;
+        }
+
+        // 是否可以由索引直接得到满足条件的位置
+        boolean isIndexed() {
+            return false;
+        }
+
+        // 满足条件的位置，excludes 为 true 时为需要排除的位置；
+        // 有索引的条件直接读取索引，其他条件默认逐个检查全部任务
+        OrdinalBitmap bitmap(TaskStore store) {
+            int size = store.size();
+            int[] ordinals = new int[size];
+            int count = 0;
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                if (matches(store, ordinal)) {
+                    ordinals[count++] = ordinal;
+                }
+            }
+            return OrdinalBitmap.of(Arrays.copyOf(ordinals, count));
+        }
+
+        boolean excludes() {
+            return false;
+        }
+
+        abstract boolean matches(TaskStore store, int ordinal);
+
+        abstract boolean matches(TaskVersion task);
+    }
+
+    private final List<Clause> clauses;
+
+    private TaskQuery(List<Clause> clauses) {
+        this.clauses = clauses;
+    }
+
+    /**
+     * 不带条件的查询（返回全部任务）
+     *
+     * @return 查询
+     */
+    public static TaskQuery all() {
+        return ALL;
+    }
+
+    public boolean isEmpty() {
+        return clauses.isEmpty();
+    }
+
+    /**
+     * 未完成的任务
+     *
+     * @return 新的查询
+     */
+    public TaskQuery unfinished() {
+        return with(new Clause(Kind.UNFINISHED, null) {
+            @Override
+            boolean isIndexed() {
+                return true;
+            }
+
+            @Override
+            OrdinalBitmap bitmap(TaskStore store) {
+                return store.finishedBitmap();
+            }
+
+            @Override
+            boolean excludes() {
+                return true;
+            }
+
+            @Override
+            boolean matches(TaskStore store, int ordinal) {
+                return !store.isFinished(ordinal);
+            }
+
+            @Override
+            boolean matches(TaskVersion task) {
+                return !task.isFinished();
+            }
+        });
+    }
+
+    /**
+     * 重要的任务
+     *
+     * @return 新的查询
+     */
+    public TaskQuery important() {
+        return with(new Clause(Kind.IMPORTANT, null) {
+            @Override
+            boolean isIndexed() {
+                return true;
+            }
+
+            @Override
+            OrdinalBitmap bitmap(TaskStore store) {
+                return store.importantBitmap();
+            }
+
+            @Override
+            boolean matches(TaskStore store, int ordinal) {
+                return store.isImportant(ordinal);
+            }
+
+            @Override
+            boolean matches(TaskVersion task) {
+                return task.isImportant();
+            }
+        });
+    }
+
+    /**
+     * 指定类别的任务
+     * 类别编码在执行时才查找，创建查询时还没有任务使用的类别，之后添加了任务也能匹配
+     *
+     * @param category 类别
+     * @return 新的查询
+     */
+    public TaskQuery inCategory(String category) {
+        return with(new Clause(Kind.CATEGORY, category) {
+            // 找到后缓存的编码；字典中的编码不会改变，多个线程同时查找结果相同
+            private int code = StringDictionary.NULL_CODE;
+
+            @Override
+            boolean isIndexed() {
+                return true;
+            }
+
+            @Override
+            OrdinalBitmap bitmap(TaskStore store) {
+                return store.categoryBitmap(code());
+            }
+
+            @Override
+            boolean matches(TaskStore store, int ordinal) {
+                int code = code();
+                return code != StringDictionary.NULL_CODE && store.getCategoryCode(ordinal) == code;
+            }
+
+            @Override
+            boolean matches(TaskVersion task) {
+                int code = code();
+                return code != StringDictionary.NULL_CODE && task.getCategoryCode() == code;
+            }
+
+            private int code() {
+                if (code == StringDictionary.NULL_CODE) {
+                    code = StringDictionary.CATEGORIES.codeOf(category);
+                }
+                return code;
+            }
+        });
+    }
+
+    /**
+     * 日期在某几天内的任务（不含没有日期的任务）
+     *
+     * @param fromDay 开始天数（含）
+     * @param toDay   结束天数（含）
+     * @return 新的查询
+     */
+    public TaskQuery betweenDays(int fromDay, int toDay) {
+        return with(new Clause(Kind.DAYS, fromDay + "," + toDay) {
+            @Override
+            boolean matches(TaskStore store, int ordinal) {
+                return inDays(store.getEpochDay(ordinal));
+            }
+
+            @Override
+            boolean matches(TaskVersion task) {
+                return inDays(task.getEpochDay());
+            }
+
+            private boolean inDays(int day) {
+                return day != DateKernel.NO_DAY && day >= fromDay && day <= toDay;
+            }
+        });
+    }
+
+    /**
+     * 日期在相对今天的某几天内的任务（不含没有日期的任务），如 0, 6 为从今天起的七天
+     *
+     * @param fromOffset 开始天数相对今天的偏移（含）
+     * @param toOffset   结束天数相对今天的偏移（含）
+     * @return 新的查询
+     */
+    public TaskQuery daysFromToday(int fromOffset, int toOffset) {
+        return with(new Clause(Kind.RELATIVE_DAYS, fromOffset + "," + toOffset) {
+            @Override
+            boolean matches(TaskStore store, int ordinal) {
+                return inDays(store.getEpochDay(ordinal));
+            }
+
+            @Override
+            boolean matches(TaskVersion task) {
+                return inDays(task.getEpochDay());
+            }
+
+            private boolean inDays(int day) {
+                int today = DateKernel.today();
+                return day != DateKernel.NO_DAY && day >= today + fromOffset && day <= today + toOffset;
+            }
+        });
+    }
+
+    /**
+     * 本周（周一到周日）的任务，按检查时的日期计算，保存后每周对应新的一周
+     *
+     * @return 新的查询
+     */
+    public TaskQuery thisWeek() {
+        return with(new Clause(Kind.WEEK, null) {
+            @Override
+            boolean matches(TaskStore store, int ordinal) {
+                return inWeek(store.getEpochDay(ordinal));
+            }
+
+            @Override
+            boolean matches(TaskVersion task) {
+                return inWeek(task.getEpochDay());
+            }
+
+            private boolean inWeek(int day) {
+                int today = DateKernel.today();
+                // 1970-01-01 是周四，(天数 + 3) 对 7 取模即为周一起算的星期
+                int monday = today - Math.floorMod(today + 3, 7);
+                return day != DateKernel.NO_DAY && day >= monday && day <= monday + 6;
+            }
+        });
+    }
+
+    /**
+     * 是否含有相对今天的日期条件，满足查询的任务会随日期改变
+     *
+     * @return 是否与今天有关
+     */
+    public boolean dependsOnToday() {
+        for (Clause clause : clauses) {
+            if (clause.kind == Kind.RELATIVE_DAYS || clause.kind == Kind.WEEK) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 与时间区间重叠的任务，使用存储的区间索引（规则见 TaskIntervalIndex）
+     *
+     * @param fromMinute 区间开始（绝对分钟数，含），见 TaskIntervalIndex.minuteOf
+     * @param toMinute   区间结束（绝对分钟数，含）
+     * @return 新的查询
+     */
+    public TaskQuery overlapping(int fromMinute, int toMinute) {
+        return with(new Clause(Kind.TIME, fromMinute + "," + toMinute) {
+            @Override
+            boolean isIndexed() {
+                return true;
+            }
+
+            @Override
+            OrdinalBitmap bitmap(TaskStore store) {
+                return OrdinalBitmap.of(store.intervalIndex().overlapping(fromMinute, toMinute));
+            }
+
+            @Override
+            boolean matches(TaskStore store, int ordinal) {
+                return TaskIntervalIndex.overlaps(store, ordinal, fromMinute, toMinute);
+            }
+
+            @Override
+            boolean matches(TaskVersion task) {
+                return TaskIntervalIndex.overlaps(task.getEpochDay(), task.getStartMinuteOfDay(),
+                        task.getEndMinuteOfDay(), fromMinute, toMinute);
+            }
+        });
+    }
+
+    /**
+     * 标题包含指定文字的任务（忽略大小写），逐个比较标题；
+     * 按相关程度的搜索使用 FullTextIndex / FuzzyTitleIndex
+     *
+     * @param text 文字
+     * @return 新的查询
+     */
+    public TaskQuery titleContains(String text) {
+        String normalized = text.toLowerCase().trim();
+        return with(new Clause(Kind.TITLE, text) {
+            @Override
+            int cost() {
+                return 8;
+            }
+
+            @Override
+            boolean matches(TaskStore store, int ordinal) {
+                String title = store.getTitle(ordinal);
+                return title != null && title.toLowerCase().contains(normalized);
+            }
+
+            @Override
+            boolean matches(TaskVersion task) {
+                return task.getTitle() != null && task.getTitle().toLowerCase().contains(normalized);
+            }
+        });
+    }
+
+    /**
+     * 判断一个任务是否满足全部条件
+     *
+     * @param task 任务版本
+     * @return 是否满足
+     */
+    public boolean matches(TaskVersion task) {
+        for (Clause clause : clauses) {
+            if (!clause.matches(task)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 转换为文字，每行一个条件：种类，有参数时后接“=参数”
+     *
+     * @return 文字，不带条件时为空串
+     */
+    public String toSpec() {
+        StringBuilder spec = new StringBuilder();
+        for (Clause clause : clauses) {
+            if (spec.length() > 0) {
+                spec.append('\n');
+            }
+            spec.append(clause.kind.name());
+            if (clause.argument != null) {
+                spec.append('=').append(clause.argument);
+            }
+        }
+        return spec.toString();
+    }
+
+    /**
+     * 由 toSpec 的结果还原查询
+     *
+     * @param spec 文字
+     * @return 查询
+     * @throws IllegalArgumentException 文字格式不正确
+     */
+    public static TaskQuery fromSpec(String spec) {
+        TaskQuery query = ALL;
+        if (spec == null || spec.isEmpty()) {
+            return query;
+        }
+        for (String line : spec.split("\n")) {
+            int separator = line.indexOf('=');
+            String argument = separator >= 0 ? line.substring(separator + 1) : null;
+            Kind kind = Kind.valueOf(separator >= 0 ? line.substring(0, separator) : line);
+            switch (kind) {
+                case UNFINISHED:
+                    query = query.unfinished();
+                    break;
+                case IMPORTANT:
+                    query = query.important();
+                    break;
+                case CATEGORY:
+                    query = query.inCategory(argument);
+                    break;
+                case DAYS:
+                    int[] days = parsePair(argument);
+                    query = query.betweenDays(days[0], days[1]);
+                    break;
+                case RELATIVE_DAYS:
+                    int[] offsets = parsePair(argument);
+                    query = query.daysFromToday(offsets[0], offsets[1]);
+                    break;
+                case WEEK:
+                    query = query.thisWeek();
+                    break;
+                case TIME:
+                    int[] minutes = parsePair(argument);
+                    query = query.overlapping(minutes[0], minutes[1]);
+                    break;
+                case TITLE:
+                    query = query.titleContains(argument);
+                    break;
+            }
+        }
+        return query;
+    }
+
+    private static int[] parsePair(String argument) {
+        String[] parts = argument == null ? new String[0] : argument.split(",");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("条件参数格式不正确: " + argument);
+        }
+        return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+    }
+
+    /**
+     * 执行查询
+     *
+     * @param store 任务存储
+     * @return 满足全部条件的存储位置（升序）
+     */
+    public int[] select(TaskStore store) {
+        OrdinalBitmap indexed = indexedCandidates(store);
+        Clause[] filters = sortedFilters();
+        if (filters.length == 0) {
+            return indexed != null ? indexed.toArray() : OrdinalBitmap.range(store.size()).toArray();
+        }
+
+        int[] candidates = indexed != null ? indexed.toArray() : null;
+        int candidateCount = candidates != null ? candidates.length : store.size();
+        int[] result = new int[candidateCount];
+        int resultCount = 0;
+        for (int i = 0; i < candidateCount; i++) {
+            int ordinal = candidates != null ? candidates[i] : i;
+            boolean matches = true;
+            for (Clause filter : filters) {
+                if (!filter.matches(store, ordinal)) {
+                    matches = false;
+                    break;
+                }
+            }
+            if (matches) {
+                result[resultCount++] = ordinal;
+            }
+        }
+        return resultCount == result.length ? result : Arrays.copyOf(result, resultCount);
+    }
+
+    /**
+     * 满足查询的任务数，只有索引条件时不读取任务
+     *
+     * @param store 任务存储
+     * @return 任务数
+     */
+    public int count(TaskStore store) {
+        if (hasFilters()) {
+            return select(store).length;
+        }
+        OrdinalBitmap indexed = indexedCandidates(store);
+        return indexed != null ? indexed.cardinality() : store.size();
+    }
+
+    /**
+     * 按类别分面计数：在其余条件下每个类别各有多少任务（忽略查询中的类别条件）
+     *
+     * @param store 任务存储
+     * @return 以类别编码为下标的任务数
+     */
+    public int[] countByCategory(TaskStore store) {
+        int[] counts = new int[StringDictionary.CATEGORIES.size()];
+        TaskQuery others = without(Kind.CATEGORY);
+        if (others.hasFilters()) {
+            for (int ordinal : others.select(store)) {
+                int code = store.getCategoryCode(ordinal);
+                if (code >= 0 && code < counts.length) {
+                    counts[code]++;
+                }
+            }
+            return counts;
+        }
+        OrdinalBitmap indexed = others.indexedCandidates(store);
+        for (int code = 0; code < counts.length; code++) {
+            OrdinalBitmap category = store.categoryBitmap(code);
+            counts[code] = indexed != null ? OrdinalBitmap.andCardinality(indexed, category) : category.cardinality();
+        }
+        return counts;
+    }
+
+    /**
+     * 在不属于存储的少量任务上按类别分面计数，规则与 countByCategory(TaskStore) 相同
+     *
+     * @param versions 任务版本
+     * @return 以类别编码为下标的任务数
+     */
+    public int[] countByCategory(List<TaskVersion> versions) {
+        int[] counts = new int[StringDictionary.CATEGORIES.size()];
+        TaskQuery others = without(Kind.CATEGORY);
+        for (TaskVersion version : versions) {
+            int code = version.getCategoryCode();
+            if (code >= 0 && code < counts.length && others.matches(version)) {
+                counts[code]++;
+            }
+        }
+        return counts;
+    }
+
+    // 所有索引条件组合后的位图，没有索引条件时返回 null
+    private OrdinalBitmap indexedCandidates(TaskStore store) {
+        List<OrdinalBitmap> includes = new ArrayList<>();
+        List<OrdinalBitmap> excludes = new ArrayList<>();
+        for (Clause clause : clauses) {
+            if (clause.isIndexed()) {
+                (clause.excludes() ? excludes : includes).add(clause.bitmap(store));
+            }
+        }
+        if (includes.isEmpty() && excludes.isEmpty()) {
+            return null;
+        }
+        // 从元素最少的位图开始求交，中间结果尽快变小
+        Collections.sort(includes, (a, b) -> Integer.compare(a.cardinality(), b.cardinality()));
+        OrdinalBitmap result = includes.isEmpty() ? OrdinalBitmap.range(store.size()) : includes.get(0);
+        for (int i = 1; i < includes.size() && !result.isEmpty(); i++) {
+            result = OrdinalBitmap.and(result, includes.get(i));
+        }
+        for (OrdinalBitmap exclude : excludes) {
+            result = OrdinalBitmap.andNot(result, exclude);
+        }
+        return result;
+    }
+
+    // 没有索引的条件，按检查代价从低到高排列
+    private Clause[] sortedFilters() {
+        List<Clause> filters = new ArrayList<>();
+        for (Clause clause : clauses) {
+            if (!clause.isIndexed()) {
+                filters.add(clause);
+            }
+        }
+        Collections.sort(filters, (a, b) -> Integer.compare(a.cost(), b.cost()));
+        return filters.toArray(new Clause[0]);
+    }
+
+    private boolean hasFilters() {
+        for (Clause clause : clauses) {
+            if (!clause.isIndexed()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 执行查询并生成任务视图
+     *
+     * @param store 任务存储
+     * @return 任务列表（按存储顺序）
+     */
+    public List<Task> run(TaskStore store) {
+        return store.views(select(store));
+    }
+
+    /**
+     * 在不属于存储的少量任务（如页面的示例任务）上逐个检查条件
+     *
+     * @param versions 任务版本
+     * @return 新的任务列表（按原顺序）
+     */
+    public List<Task> run(List<TaskVersion> versions) {
+        List<Task> tasks = new ArrayList<>();
+        for (TaskVersion version : versions) {
+            if (matches(version)) {
+                tasks.add(version.toTask());
+            }
+        }
+        return tasks;
+    }
+
+    private TaskQuery without(Kind kind) {
+        List<Clause> remaining = new ArrayList<>(clauses.size());
+        for (Clause clause : clauses) {
+            if (clause.kind != kind) {
+                remaining.add(clause);
+            }
+        }
+        return remaining.size() == clauses.size() ? this : new TaskQuery(Collections.unmodifiableList(remaining));
+    }
+
+    private TaskQuery with(Clause clause) {
+        List<Clause> combined = new ArrayList<>(clauses.size() + 1);
+        for (Clause existing : clauses) {
+            if (existing.kind != clause.kind) {
+                combined.add(existing);
+            }
+        }
+        combined.add(clause);
+        return new TaskQuery(Collections.unmodifiableList(combined));
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.big;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * 直接读取 ByteBuffer 中一条任务记录的视图（可重复使用）
+ * wrap 时只扫描一遍字段标签并记下各字段的位置，读取字段时才从缓冲区解码，
+ * 数值字段不产生任何对象，字符串字段在调用对应的 get 方法时才创建
+ */
+public final class TaskRecord {
+    private static final long MINUTE_MILLIS = 60 * 1000L;
+
+    private ByteBuffer buffer;
+    private int offset;
+    private int length;
+    // 每个已知字段的值在缓冲区中的位置，-1 表示记录中没有该字段
+    private final int[] fieldPositions = new int[TaskRecordCodec.MAX_FIELD + 1];
+    private final int[] cursor = new int[1];
+
+    /**
+     * 指向缓冲区中的一条记录（不改变缓冲区的位置）
+     *
+     * @param buffer 缓冲区
+     * @param offset 记录起始位置
+     * @return 记录格式版本不支持时返回 false
+     * @throws IOException 记录损坏时（长度为负或超出缓冲区、varint 过长、未知的字段类型）
+     */
+    public boolean wrap(ByteBuffer buffer, int offset) throws IOException {
+        this.buffer = buffer;
+        this.offset = offset;
+        Arrays.fill(fieldPositions, -1);
+        length = 0;
+        int limit = buffer.limit();
+        if (offset < 0 || offset >= limit || buffer.get(offset) != TaskRecordCodec.FORMAT_VERSION) {
+            return false;
+        }
+        try {
+            long bodySize = TaskRecordCodec.readVarint(buffer, offset + 1, limit, cursor);
+            int position = cursor[0];
+            if (bodySize < 0 || bodySize > limit - position) {
+                throw new IOException("任务记录长度越界: " + bodySize);
+            }
+            int end = position + (int) bodySize;
+
+            while (position < end) {
+                int tag = (int) TaskRecordCodec.readVarint(buffer, position, end, cursor);
+                int field = tag >>> 3;
+                int valuePosition = cursor[0];
+                switch (tag & 7) {
+                    case TaskRecordCodec.TYPE_VARINT:
+                        TaskRecordCodec.readVarint(buffer, valuePosition, end, cursor);
+                        position = cursor[0];
+                        break;
+                    case TaskRecordCodec.TYPE_BYTE:
+                        if (valuePosition >= end) {
+                            throw new IOException("任务记录字段越界");
+                        }
+                        position = valuePosition + 1;
+                        break;
+                    case TaskRecordCodec.TYPE_BYTES:
+                        // 长度为负时位置会后退，必须拒绝，否则会反复扫描同一段
+                        long size = TaskRecordCodec.readVarint(buffer, valuePosition, end, cursor);
+                        if (size < 0 || size > end - cursor[0]) {
+                            throw new IOException("任务记录字段长度越界: " + size);
+                        }
+                        position = cursor[0] + (int) size;
+                        break;
+                    default:
+                        throw new IOException("未知的字段类型: " + (tag & 7));
+                }
+                // 不认识的字段（新版本添加的）直接跳过
+                if (field <= TaskRecordCodec.MAX_FIELD) {
+                    fieldPositions[field] = valuePosition;
+                }
+            }
+            length = end - offset;
+            return true;
+        } catch (IllegalArgumentException e) {
+            // varint 越界或过长
+            Arrays.fill(fieldPositions, -1);
+            throw new IOException("任务记录损坏", e);
+        } catch (IOException e) {
+            Arrays.fill(fieldPositions, -1);
+            throw e;
+        }
+    }
+
+    // 整条记录（含头部）的字节数
+    public int length() {
+        return length;
+    }
+
+    public long getId() {
+        return TaskRecordCodec.unZigZag(varint(TaskRecordCodec.FIELD_ID, 0));
+    }
+
+    // 有完整时间戳时按当前时区换算，旧记录只有写入时的天数
+    public int getEpochDay() {
+        if (fieldPositions[TaskRecordCodec.FIELD_DATE_MILLIS] >= 0) {
+            return DateKernel.epochDay(getDateMillis());
+        }
+        if (fieldPositions[TaskRecordCodec.FIELD_EPOCH_DAY] < 0) {
+            return DateKernel.NO_DAY;
+        }
+        return (int) TaskRecordCodec.unZigZag(varint(TaskRecordCodec.FIELD_EPOCH_DAY, 0));
+    }
+
+    public Date getDate() {
+        if (fieldPositions[TaskRecordCodec.FIELD_DATE_MILLIS] >= 0) {
+            return new Date(getDateMillis());
+        }
+        // 旧记录只保存了天数，取当天开始的时刻
+        return DateKernel.toDate(getEpochDay());
+    }
+
+    private long getDateMillis() {
+        return TaskRecordCodec.unZigZag(varint(TaskRecordCodec.FIELD_DATE_MILLIS, 0));
+    }
+
+    // 时间段文字：有原文时返回原文，否则由开始/结束时间格式化
+    public String getTimeRange() {
+        if (fieldPositions[TaskRecordCodec.FIELD_TIME_RANGE_TEXT] >= 0) {
+            return string(TaskRecordCodec.FIELD_TIME_RANGE_TEXT);
+        }
+        return hasTimeRange()
+                ? TimeRangeCodec.format(getStartMinute(), getEndMinute())
+                : TimeRangeCodec.UNSET_TEXT;
+    }
+
+    public int getUserId() {
+        return (int) TaskRecordCodec.unZigZag(varint(TaskRecordCodec.FIELD_USER_ID, 0));
+    }
+
+    public boolean hasTimeRange() {
+        return fieldPositions[TaskRecordCodec.FIELD_START_MINUTE] >= 0;
+    }
+
+    public int getStartMinute() {
+        return (int) varint(TaskRecordCodec.FIELD_START_MINUTE, -1);
+    }
+
+    public int getEndMinute() {
+        return (int) varint(TaskRecordCodec.FIELD_END_MINUTE, -1);
+    }
+
+    public int getDurationMinutes() {
+        return (int) TaskRecordCodec.unZigZag(varint(TaskRecordCodec.FIELD_DURATION, 0));
+    }
+
+    public boolean isImportant() {
+        return (flags() & TaskRecordCodec.FLAG_IMPORTANT) != 0;
+    }
+
+    public boolean isFinished() {
+        return (flags() & TaskRecordCodec.FLAG_FINISHED) != 0;
+    }
+
+    public boolean isDelayed() {
+        return (flags() & TaskRecordCodec.FLAG_DELAYED) != 0;
+    }
+
+    // 类别在全局字典中的编码；用户自定义类别会在第一次读取时登记到字典
+    public int getCategoryCode() {
+        if (fieldPositions[TaskRecordCodec.FIELD_CATEGORY_REF] >= 0) {
+            return (int) varint(TaskRecordCodec.FIELD_CATEGORY_REF, StringDictionary.NULL_CODE);
+        }
+        return StringDictionary.CATEGORIES.encode(string(TaskRecordCodec.FIELD_CATEGORY));
+    }
+
+    public String getTitle() {
+        return string(TaskRecordCodec.FIELD_TITLE);
+    }
+
+    public String getDescription() {
+        return string(TaskRecordCodec.FIELD_DESCRIPTION);
+    }
+
+    public String getPlace() {
+        return string(TaskRecordCodec.FIELD_PLACE);
+    }
+
+    public Date getDueDate() {
+        if (fieldPositions[TaskRecordCodec.FIELD_DUE_MINUTE] < 0) {
+            return null;
+        }
+        return new Date(TaskRecordCodec.unZigZag(varint(TaskRecordCodec.FIELD_DUE_MINUTE, 0)) * MINUTE_MILLIS
+                + varint(TaskRecordCodec.FIELD_DUE_EXTRA_MILLIS, 0));
+    }
+
+    /**
+     * 解码为完整的 Task 对象
+     *
+     * @return 新的 Task 对象
+     */
+    public Task toTask() {
+        Task task = new Task(getId(), getTitle(), getTimeRange(), getDate(),
+                getDurationMinutes(), isImportant(), getDescription(), getPlace(), getDueDate());
+        task.setCategoryCode(getCategoryCode());
+        task.setFinished(isFinished());
+        task.setDelayed(isDelayed());
+        task.setUserId(getUserId());
+        return task;
+    }
+
+    private long varint(int field, long defaultValue) {
+        int position = fieldPositions[field];
+        if (position < 0) {
+            return defaultValue;
+        }
+        return TaskRecordCodec.readVarint(buffer, position, offset + length, null);
+    }
+
+    private int flags() {
+        int position = fieldPositions[TaskRecordCodec.FIELD_FLAGS];
+        return position < 0 ? 0 : buffer.get(position) & 0xFF;
+    }
+
+    private String string(int field) {
+        int position = fieldPositions[field];
+        if (position < 0) {
+            return null;
+        }
+        int size = (int) TaskRecordCodec.readVarint(buffer, position, offset + length, cursor);
+        int start = cursor[0];
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + start, size, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
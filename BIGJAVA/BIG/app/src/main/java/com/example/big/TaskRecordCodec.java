@@ -0,0 +1,313 @@
+package com.example.big;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * 任务的二进制记录格式
+ *
+ * 记录结构：格式版本(1字节) + 正文长度(varint) + 若干字段
+ * 每个字段以 varint 标签开头（字段号 << 3 | 类型），类型决定后面的内容：
+ * 0 = varint，1 = 单字节，2 = 长度前缀的 UTF-8 字符串。
+ * 读取时跳过不认识的字段，缺少的字段取默认值，因此新增字段后旧记录仍然可读。
+ * 编码后再解码得到的任务与原任务相同：日期保存完整的时间戳（同时保留天数字段供旧版本读取），
+ * 截止时间在分钟之外另存不足一分钟的毫秒数，时间段文字无法由开始/结束时间还原时（如格式错误）保存原文
+ */
+public final class TaskRecordCodec {
+    // 格式版本，只有不兼容的修改才需要增加
+    public static final int FORMAT_VERSION = 1;
+
+    // 字段类型
+    static final int TYPE_VARINT = 0;
+    static final int TYPE_BYTE = 1;
+    static final int TYPE_BYTES = 2;
+
+    // 字段号（已发布的字段号不能改变含义）
+    static final int FIELD_ID = 1;
+    static final int FIELD_EPOCH_DAY = 2;
+    static final int FIELD_START_MINUTE = 3;
+    static final int FIELD_END_MINUTE = 4;
+    static final int FIELD_DURATION = 5;
+    static final int FIELD_FLAGS = 6;
+    static final int FIELD_CATEGORY_REF = 7;
+    static final int FIELD_CATEGORY = 8;
+    static final int FIELD_TITLE = 9;
+    static final int FIELD_DESCRIPTION = 10;
+    static final int FIELD_PLACE = 11;
+    static final int FIELD_DUE_MINUTE = 12;
+    static final int FIELD_USER_ID = 13;
+    static final int FIELD_DATE_MILLIS = 14;
+    // 截止时间中不足一分钟的毫秒数，为 0 时不写
+    static final int FIELD_DUE_EXTRA_MILLIS = 15;
+    // 时间段的原文，只在与开始/结束时间格式化的结果不同时写入
+    static final int FIELD_TIME_RANGE_TEXT = 16;
+    // 目前最大的字段号
+    static final int MAX_FIELD = 16;
+
+    // 标记字节中的各位
+    static final int FLAG_IMPORTANT = 1;
+    static final int FLAG_FINISHED = 1 << 1;
+    static final int FLAG_DELAYED = 1 << 2;
+
+    // 预置类别（编码固定）直接写字典编码，其他类别写字符串
+    private static final int PRESET_CATEGORY_COUNT = 4;
+
+    private static final long MINUTE_MILLIS = 60 * 1000L;
+
+    private TaskRecordCodec() {
+    }
+
+    /**
+     * 将任务编码为一条记录
+     *
+     * @param task 任务
+     * @return 记录字节
+     */
+    public static byte[] encode(Task task) {
+        Encoder encoder = new Encoder(task);
+        ByteBuffer buffer = ByteBuffer.allocate(encoder.recordSize());
+        encoder.writeTo(buffer);
+        return buffer.array();
+    }
+
+    /**
+     * 将任务编码后写入缓冲区当前位置
+     *
+     * @param task 任务
+     * @param out  输出缓冲区
+     * @return 写入的字节数
+     * @throws BufferOverflowException 剩余空间不足时
+     */
+    public static int encode(Task task, ByteBuffer out) {
+        Encoder encoder = new Encoder(task);
+        int size = encoder.recordSize();
+        if (out.remaining() < size) {
+            throw new BufferOverflowException();
+        }
+        encoder.writeTo(out);
+        return size;
+    }
+
+    /**
+     * 从缓冲区当前位置解码一条记录，并将位置移到记录之后
+     *
+     * @param in 输入缓冲区
+     * @return 任务
+     * @throws IOException 记录格式版本不支持或记录损坏时
+     */
+    public static Task decode(ByteBuffer in) throws IOException {
+        TaskRecord record = new TaskRecord();
+        if (!record.wrap(in, in.position())) {
+            throw new IOException("不支持的任务记录格式");
+        }
+        in.position(in.position() + record.length());
+        return record.toTask();
+    }
+
+    // 计算长度和写入共用的编码中间状态
+    private static final class Encoder {
+        private final Task task;
+        private final byte[] title;
+        private final byte[] description;
+        private final byte[] place;
+        private final byte[] category;
+        private final byte[] timeRangeText;
+        private final int epochDay;
+        private final long dueMinute;
+        private final long dueExtraMillis;
+        private final int bodySize;
+
+        Encoder(Task task) {
+            this.task = task;
+            title = utf8(task.getTitle());
+            description = utf8(task.getDescription());
+            place = utf8(task.getPlace());
+            int categoryCode = task.getCategoryCode();
+            category = categoryCode >= PRESET_CATEGORY_COUNT ? utf8(task.getCategory()) : null;
+            epochDay = DateKernel.epochDay(task.getDate());
+            Date due = task.getDueDate();
+            dueMinute = due == null ? Long.MIN_VALUE : Math.floorDiv(due.getTime(), MINUTE_MILLIS);
+            dueExtraMillis = due == null ? 0 : Math.floorMod(due.getTime(), MINUTE_MILLIS);
+            String text = task.getTimeRange();
+            timeRangeText = text != null && !text.equals(canonicalTimeRange(task)) ? utf8(text) : null;
+
+            int size = fieldSize(FIELD_ID, zigZag(task.getId()));
+            if (epochDay != DateKernel.NO_DAY) {
+                size += fieldSize(FIELD_EPOCH_DAY, zigZag(epochDay));
+            }
+            if (task.hasTimeRange()) {
+                size += fieldSize(FIELD_START_MINUTE, task.getStartMinuteOfDay());
+                size += fieldSize(FIELD_END_MINUTE, task.getEndMinuteOfDay());
+            }
+            size += fieldSize(FIELD_DURATION, zigZag(task.getDurationMinutes()));
+            size += 2; // 标记字节字段
+            if (categoryCode >= 0 && categoryCode < PRESET_CATEGORY_COUNT) {
+                size += fieldSize(FIELD_CATEGORY_REF, categoryCode);
+            }
+            size += bytesFieldSize(FIELD_CATEGORY, category);
+            size += bytesFieldSize(FIELD_TITLE, title);
+            size += bytesFieldSize(FIELD_DESCRIPTION, description);
+            size += bytesFieldSize(FIELD_PLACE, place);
+            if (due != null) {
+                size += fieldSize(FIELD_DUE_MINUTE, zigZag(dueMinute));
+            }
+            if (dueExtraMillis != 0) {
+                size += fieldSize(FIELD_DUE_EXTRA_MILLIS, dueExtraMillis);
+            }
+            if (task.getUserId() != 0) {
+                size += fieldSize(FIELD_USER_ID, zigZag(task.getUserId()));
+            }
+            if (task.getDate() != null) {
+                size += fieldSize(FIELD_DATE_MILLIS, zigZag(task.getDate().getTime()));
+            }
+            size += bytesFieldSize(FIELD_TIME_RANGE_TEXT, timeRangeText);
+            bodySize = size;
+        }
+
+        int recordSize() {
+            return 1 + varintSize(bodySize) + bodySize;
+        }
+
+        void writeTo(ByteBuffer out) {
+            out.put((byte) FORMAT_VERSION);
+            writeVarint(out, bodySize);
+            writeVarintField(out, FIELD_ID, zigZag(task.getId()));
+            if (epochDay != DateKernel.NO_DAY) {
+                writeVarintField(out, FIELD_EPOCH_DAY, zigZag(epochDay));
+            }
+            if (task.hasTimeRange()) {
+                writeVarintField(out, FIELD_START_MINUTE, task.getStartMinuteOfDay());
+                writeVarintField(out, FIELD_END_MINUTE, task.getEndMinuteOfDay());
+            }
+            writeVarintField(out, FIELD_DURATION, zigZag(task.getDurationMinutes()));
+            int flags = (task.isImportant() ? FLAG_IMPORTANT : 0)
+                    | (task.isFinished() ? FLAG_FINISHED : 0)
+                    | (task.isDelayed() ? FLAG_DELAYED : 0);
+            writeVarint(out, tag(FIELD_FLAGS, TYPE_BYTE));
+            out.put((byte) flags);
+            int categoryCode = task.getCategoryCode();
+            if (categoryCode >= 0 && categoryCode < PRESET_CATEGORY_COUNT) {
+                writeVarintField(out, FIELD_CATEGORY_REF, categoryCode);
+            }
+            writeBytesField(out, FIELD_CATEGORY, category);
+            writeBytesField(out, FIELD_TITLE, title);
+            writeBytesField(out, FIELD_DESCRIPTION, description);
+            writeBytesField(out, FIELD_PLACE, place);
+            if (dueMinute != Long.MIN_VALUE) {
+                writeVarintField(out, FIELD_DUE_MINUTE, zigZag(dueMinute));
+            }
+            if (dueExtraMillis != 0) {
+                writeVarintField(out, FIELD_DUE_EXTRA_MILLIS, dueExtraMillis);
+            }
+            if (task.getUserId() != 0) {
+                writeVarintField(out, FIELD_USER_ID, zigZag(task.getUserId()));
+            }
+            if (task.getDate() != null) {
+                writeVarintField(out, FIELD_DATE_MILLIS, zigZag(task.getDate().getTime()));
+            }
+            writeBytesField(out, FIELD_TIME_RANGE_TEXT, timeRangeText);
+        }
+    }
+
+    /**
+     * 没有保存时间段原文时，由开始/结束时间还原的文字
+     *
+     * @param task 任务
+     * @return 格式化的时间段，没有可用时间时为 {@link TimeRangeCodec#UNSET_TEXT}
+     */
+    static String canonicalTimeRange(Task task) {
+        return task.hasTimeRange()
+                ? TimeRangeCodec.format(task.getStartMinuteOfDay(), task.getEndMinuteOfDay())
+                : TimeRangeCodec.UNSET_TEXT;
+    }
+
+    static int tag(int field, int type) {
+        return (field << 3) | type;
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    static void writeVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * 读取 varint
+     *
+     * @param in       输入缓冲区（不改变其位置）
+     * @param position 起始位置
+     * @param limit    可读取的上限
+     * @param end      若不为空，end[0] 返回 varint 之后的位置
+     * @return 值
+     */
+    static long readVarint(ByteBuffer in, int position, int limit, int[] end) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            if (position >= limit || shift > 63) {
+                throw new IllegalArgumentException("varint 越界");
+            }
+            byte b = in.get(position++);
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+            shift += 7;
+        }
+        if (end != null) {
+            end[0] = position;
+        }
+        return value;
+    }
+
+    private static int fieldSize(int field, long value) {
+        return varintSize(tag(field, TYPE_VARINT)) + varintSize(value);
+    }
+
+    private static int bytesFieldSize(int field, byte[] bytes) {
+        if (bytes == null) {
+            return 0;
+        }
+        return varintSize(tag(field, TYPE_BYTES)) + varintSize(bytes.length) + bytes.length;
+    }
+
+    private static void writeVarintField(ByteBuffer out, int field, long value) {
+        writeVarint(out, tag(field, TYPE_VARINT));
+        writeVarint(out, value);
+    }
+
+    private static void writeBytesField(ByteBuffer out, int field, byte[] bytes) {
+        if (bytes == null) {
+            return;
+        }
+        writeVarint(out, tag(field, TYPE_BYTES));
+        writeVarint(out, bytes.length);
+        out.put(bytes);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+}
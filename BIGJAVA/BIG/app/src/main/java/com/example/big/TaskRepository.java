@@ -0,0 +1,562 @@
+package com.example.big;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 任务仓库：持久化的任务修改日志 + 内存中的主索引（任务ID到最新版本的不可变快照）
+ *
+ * 写入时把修改追加到日志缓冲区并更新内存快照，由日志的后台线程组提交落盘，界面线程不会等待 fsync；
+ * 需要确认已落盘的写入（如保存按钮）传入 SaveCallback，落盘后在主线程回调，
+ * 其他情况（如批量导入完成后）可以在后台线程调用 flush。启动时重放日志重建主索引。
+ * 监听者在写锁释放后按修改顺序调用，监听者中的耗时操作不会阻塞其他线程的写入
+ *
+ * 另外在后台维护按天排列的内存映射索引文件（TaskDayIndex），
+ * 启动时按天读取任务（如今天的重要任务）直接使用该文件，不需要重放整个日志；
+ * 索引文件在修改停止一段时间后才重新生成（最长不超过 INDEX_REBUILD_MAX_DELAY_MS），
+ * 连续的修改只重写一次，期间按天读取使用内存中的有序索引；
+ * 内存中同时维护按时间排列的平衡树（TaskOrderIndex），按时间读取时不需要排序，
+ * 以及供筛选和计数使用的列式存储（TaskStore），各页面共用，不需要各自生成
+ */
+public class TaskRepository {
+    private static final String LOG_FILE_NAME = "tasks.log";
+    private static final String INDEX_FILE_NAME = "tasks.idx";
+    // 日志中的旧条目超过有效任务数的这个倍数时，打开时重写日志
+    private static final int COMPACT_RATIO = 2;
+    private static final int COMPACT_MIN_ENTRIES = 1000;
+    // 最后一次修改之后等待多久再重新生成按天索引
+    private static final long INDEX_REBUILD_DELAY_MS = 2000;
+    // 修改一直不停时，第一次修改之后最多等待多久
+    private static final long INDEX_REBUILD_MAX_DELAY_MS = 30000;
+
+    private static File directory;
+    private static volatile TaskRepository instance;
+    // 在后台打开仓库（重放日志），见 open
+    private static final ExecutorService opener = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TaskRepository-open");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // 仓库打开前按天读取使用的索引
+    private static volatile TaskDayIndex coldIndex;
+
+    private final TaskSnapshotPublisher snapshots;
+    // 按时间排列的全部任务，在写锁内与快照一起更新
+    private final TaskOrderIndex order = new TaskOrderIndex();
+    // 任务之间的时间重叠，同样在写锁内更新
+    private final TaskOverlapIndex overlaps;
+    // 全部任务的列式存储，在写锁内更新；读写都锁住存储本身
+    private final TaskStore store;
+    private final TaskLog log;
+    // 保证内存快照和日志中的修改顺序一致
+    private final Object writeLock = new Object();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    // 已写入但尚未通知监听者的修改（修改前、修改后），在写锁内按顺序加入
+    private final ArrayDeque<TaskVersion[]> pendingChanges = new ArrayDeque<>();
+    // 保证监听者按修改顺序、一次一个地收到通知
+    private final Object dispatchLock = new Object();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // 等待组提交落盘后回调 SaveCallback
+    private final ExecutorService commitWaiter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TaskRepository-commit-wait");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final File indexFile;
+    // 最近生成的按天索引，只有其记录的日志标记与当前日志一致时才使用
+    private volatile TaskDayIndex dayIndex;
+    private final ScheduledExecutorService indexExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TaskDayIndex-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean indexRebuildPending = new AtomicBoolean();
+    // 最近一次修改、以及尚未写入索引的第一次修改的时刻（System.nanoTime）
+    private volatile long lastChangeNanos;
+    private volatile long firstPendingChangeNanos;
+
+    // 任务变化的监听者，在写入线程上、写锁释放后按修改顺序调用，应尽快返回
+    public interface Listener {
+        /**
+         * @param before 修改前的版本，新增时为 null
+         * @param after  修改后的版本，删除时为 null
+         */
+        void onTaskChanged(TaskVersion before, TaskVersion after);
+    }
+
+    // 在共享的列式存储上读取，见 readStore
+    public interface StoreReader<R> {
+        R read(TaskStore store);
+    }
+
+    // 仓库打开后在主线程回调，见 open
+    public interface OpenCallback {
+        void onOpen(TaskRepository repository);
+    }
+
+    // 写入的结果，在主线程回调
+    public interface SaveCallback {
+        /**
+         * @param saved 修改是否已写入磁盘；为 false 时内存中可能已经有这次修改，但重启后会丢失
+         */
+        void onSaved(boolean saved);
+    }
+
+    TaskRepository(File logFile, File indexFile) throws IOException {
+        this.indexFile = indexFile;
+        TaskSnapshot[] replayed = {TaskSnapshot.empty()};
+        TaskLog opened = TaskLog.open(logFile, new TaskLog.Replayer() {
+            @Override
+            public void put(TaskRecord record) {
+                replayed[0] = replayed[0].with(TaskVersion.of(record.toTask()));
+            }
+
+            @Override
+            public void delete(long id) {
+                replayed[0] = replayed[0].without(id);
+            }
+        });
+        snapshots = new TaskSnapshotPublisher(replayed[0]);
+        replayed[0].forEach(order::put);
+        overlaps = TaskOverlapIndex.of(replayed[0]);
+        store = TaskStore.of(replayed[0]);
+        log = opened;
+
+        // 有更新版本写入的条目时不压缩，压缩会丢掉这些条目
+        if (log.unknownEntryCount() == 0 && log.entryCount() > COMPACT_MIN_ENTRIES
+                && log.entryCount() > replayed[0].size() * COMPACT_RATIO) {
+            try {
+                log.compact(replayed[0]);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        dayIndex = TaskDayIndex.openIfFresh(indexFile, log.stamp());
+        if (dayIndex == null) {
+            scheduleIndexRebuild();
+        }
+    }
+
+    /**
+     * 记录应用的数据目录，在 Application.onCreate 中调用
+     *
+     * @param context 上下文
+     */
+    public static void init(Context context) {
+        directory = context.getApplicationContext().getFilesDir();
+        // 提前在后台打开，页面需要时通常已经打开
+        opener.execute(TaskRepository::getInstance);
+    }
+
+    /**
+     * 在后台线程打开仓库（第一次时重放日志），打开后在主线程回调；已打开时直接回调。
+     * 页面在 onCreate 中应使用它而不是 getInstance，日志很大时也不会阻塞主线程
+     *
+     * @param callback 打开后调用
+     */
+    public static void open(OpenCallback callback) {
+        TaskRepository repository = instance;
+        if (repository != null) {
+            callback.onOpen(repository);
+            return;
+        }
+        Handler handler = new Handler(Looper.getMainLooper());
+        opener.execute(() -> {
+            TaskRepository opened = getInstance();
+            handler.post(() -> callback.onOpen(opened));
+        });
+    }
+
+    /**
+     * 获取仓库实例，第一次调用时打开日志并重放；尚未打开时会阻塞，主线程上应使用 open
+     *
+     * @return 仓库
+     * @throws IllegalStateException 未调用 init 或日志无法打开时
+     */
+    public static TaskRepository getInstance() {
+        TaskRepository repository = instance;
+        if (repository == null) {
+            synchronized (TaskRepository.class) {
+                repository = instance;
+                if (repository == null) {
+                    if (directory == null) {
+                        throw new IllegalStateException("TaskRepository 尚未初始化");
+                    }
+                    try {
+                        repository = new TaskRepository(new File(directory, LOG_FILE_NAME),
+                                new File(directory, INDEX_FILE_NAME));
+                    } catch (IOException e) {
+                        throw new IllegalStateException("无法打开任务日志", e);
+                    }
+                    instance = repository;
+                }
+            }
+        }
+        return repository;
+    }
+
+    /**
+     * 读取某天的任务
+     *
+     * @param epochDay 天数
+     * @return 新的任务列表（按开始时间排序）
+     */
+    public static List<Task> tasksOn(int epochDay) {
+        return tasksBetween(epochDay, epochDay);
+    }
+
+    /**
+     * 读取若干天内的任务；仓库尚未打开且索引文件有效时直接读取索引文件，不打开日志。
+     * 仓库打开后读取的任务带有重叠个数（layers），直接读取索引文件时为 0
+     *
+     * @param fromDay 开始天数（含）
+     * @param toDay   结束天数（含）
+     * @return 新的任务列表（按天、开始时间排序）
+     */
+    public static List<Task> tasksBetween(int fromDay, int toDay) {
+        TaskRepository repository = instance;
+        if (repository == null) {
+            TaskDayIndex index = coldIndex;
+            if (index == null && directory != null) {
+                // 不打开日志，只检查日志长度和最后一个条目是否与索引记录的一致
+                index = TaskDayIndex.open(new File(directory, INDEX_FILE_NAME));
+                if (index != null && !TaskLog.tailMatches(new File(directory, LOG_FILE_NAME), index.getLogStamp())) {
+                    index = null;
+                }
+                coldIndex = index;
+            }
+            if (index != null) {
+                try {
+                    return index.tasksBetween(fromDay, toDay);
+                } catch (IOException e) {
+                    // 索引文件损坏，打开仓库后重新生成
+                    coldIndex = null;
+                }
+            }
+            repository = getInstance();
+        }
+        return repository.readDays(fromDay, toDay);
+    }
+
+    /**
+     * 当前所有任务的快照
+     *
+     * @return 快照
+     */
+    public TaskSnapshot snapshot() {
+        return snapshots.current();
+    }
+
+    /**
+     * 按ID查找任务
+     *
+     * @param id 任务ID
+     * @return 最新版本，不存在时返回 null
+     */
+    public TaskVersion get(long id) {
+        return snapshots.current().get(id);
+    }
+
+    /**
+     * 按时间排列的全部任务的索引，供分页读取；只能读取，由仓库在写入时更新
+     *
+     * @return 索引
+     */
+    public TaskOrderIndex orderIndex() {
+        return order;
+    }
+
+    /**
+     * 任务之间时间重叠的索引，供查询重叠组和编辑时的冲突；只能读取，由仓库在写入时更新
+     *
+     * @return 索引
+     */
+    public TaskOverlapIndex overlapIndex() {
+        return overlaps;
+    }
+
+    /**
+     * 读取全部任务的列式存储，如执行 TaskQuery；读取期间的写入会等待，reader 应尽快返回，
+     * 存储位置在写入后可能改变，不要在 reader 之外使用
+     *
+     * @param reader 读取存储
+     * @param <R>    结果类型
+     * @return reader 的结果
+     */
+    public <R> R readStore(StoreReader<R> reader) {
+        synchronized (store) {
+            return reader.read(store);
+        }
+    }
+
+    /**
+     * 全部任务（按日期、开始时间排列，没有日期的排在最后）
+     *
+     * @return 新的任务列表
+     */
+    public List<Task> inOrder() {
+        return TaskOrderIndex.toTasks(order.toList());
+    }
+
+    /**
+     * 从现在起接下来的任务（按时间顺序）
+     *
+     * @param limit         最多返回的个数
+     * @param importantOnly 是否只要重要任务
+     * @return 新的任务列表
+     */
+    public List<Task> upcoming(int limit, boolean importantOnly) {
+        long now = System.currentTimeMillis();
+        return TaskOrderIndex.toTasks(
+                order.upcoming(DateKernel.epochDay(now), DateKernel.minuteOfDay(now), limit, importantOnly));
+    }
+
+    /**
+     * 保存任务（新增或覆盖），不等待落盘
+     *
+     * @param task 任务
+     * @return 是否已写入日志缓冲区（日志写入失败过时返回 false）
+     */
+    public boolean put(Task task) {
+        long sequence = append(task);
+        dispatchChanges();
+        return sequence >= 0;
+    }
+
+    /**
+     * 保存任务（新增或覆盖），写入磁盘后在主线程回调
+     *
+     * @param task     任务
+     * @param callback 落盘或失败后调用
+     */
+    public void put(Task task, SaveCallback callback) {
+        long sequence = append(task);
+        dispatchChanges();
+        notifyWhenCommitted(sequence, callback);
+    }
+
+    /**
+     * 批量保存任务，所有条目共用组提交，不等待落盘
+     *
+     * @param tasks 任务
+     * @return 是否全部写入日志缓冲区
+     */
+    public boolean putAll(Collection<Task> tasks) {
+        for (Task task : tasks) {
+            if (!put(task)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 删除任务，不等待落盘
+     *
+     * @param id 任务ID
+     * @return 是否成功（任务本来就不存在时也返回 true）
+     */
+    public boolean remove(long id) {
+        long sequence = appendDelete(id);
+        dispatchChanges();
+        return sequence >= 0;
+    }
+
+    /**
+     * 删除任务，写入磁盘后在主线程回调（任务本来就不存在时回调成功）
+     *
+     * @param id       任务ID
+     * @param callback 落盘或失败后调用
+     */
+    public void remove(long id, SaveCallback callback) {
+        long sequence = appendDelete(id);
+        dispatchChanges();
+        notifyWhenCommitted(sequence, callback);
+    }
+
+    /**
+     * 等待此前的所有修改写入磁盘，会阻塞，不要在主线程调用
+     *
+     * @throws IOException          写入失败时
+     * @throws InterruptedException 等待被中断时
+     */
+    public void flush() throws IOException, InterruptedException {
+        log.awaitCommitted(log.lastSequence());
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // 追加到日志并更新内存索引，返回日志序号，写入失败时返回 -1
+    private long append(Task task) {
+        synchronized (writeLock) {
+            long sequence;
+            try {
+                sequence = log.appendPut(task);
+            } catch (IOException e) {
+                return -1;
+            }
+            TaskVersion before = snapshots.current().get(task.getId());
+            TaskVersion after = snapshots.put(task).get(task.getId());
+            order.put(after);
+            overlaps.put(after);
+            synchronized (store) {
+                store.put(after);
+            }
+            pendingChanges.add(new TaskVersion[]{before, after});
+            scheduleIndexRebuild();
+            return sequence;
+        }
+    }
+
+    private long appendDelete(long id) {
+        synchronized (writeLock) {
+            TaskVersion before = snapshots.current().get(id);
+            if (before == null) {
+                // 没有需要写入的内容，等此前的修改落盘即可
+                return log.lastSequence();
+            }
+            long sequence;
+            try {
+                sequence = log.appendDelete(id);
+            } catch (IOException e) {
+                return -1;
+            }
+            snapshots.remove(id);
+            order.remove(id);
+            overlaps.remove(id);
+            synchronized (store) {
+                store.remove(id);
+            }
+            pendingChanges.add(new TaskVersion[]{before, null});
+            scheduleIndexRebuild();
+            return sequence;
+        }
+    }
+
+    // 在后台等待序号对应的条目落盘，再在主线程回调；序号为 -1 表示已经失败
+    private void notifyWhenCommitted(long sequence, SaveCallback callback) {
+        if (sequence < 0) {
+            mainHandler.post(() -> callback.onSaved(false));
+            return;
+        }
+        commitWaiter.execute(() -> {
+            boolean saved;
+            try {
+                log.awaitCommitted(sequence);
+                saved = true;
+            } catch (IOException e) {
+                saved = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                saved = false;
+            }
+            boolean result = saved;
+            mainHandler.post(() -> callback.onSaved(result));
+        });
+    }
+
+    private List<Task> readDays(int fromDay, int toDay) {
+        TaskDayIndex index = dayIndex;
+        List<Task> tasks = null;
+        if (index != null && index.getLogStamp().equals(log.stamp())) {
+            try {
+                tasks = index.tasksBetween(fromDay, toDay);
+            } catch (IOException e) {
+                // 索引文件损坏，丢弃后重新生成
+                dayIndex = null;
+                scheduleIndexRebuild();
+            }
+        }
+        if (tasks == null) {
+            // 索引文件还没追上最近的修改或已损坏，读取内存中的有序索引（顺序相同）
+            tasks = TaskOrderIndex.toTasks(order.between(fromDay, toDay));
+        }
+        overlaps.applyLayers(tasks);
+        return tasks;
+    }
+
+    // 连续的修改只触发一次重建，在修改停止 INDEX_REBUILD_DELAY_MS 后进行
+    private void scheduleIndexRebuild() {
+        long now = System.nanoTime();
+        lastChangeNanos = now;
+        if (indexRebuildPending.compareAndSet(false, true)) {
+            firstPendingChangeNanos = now;
+            indexExecutor.schedule(this::rebuildIndex, INDEX_REBUILD_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void rebuildIndex() {
+        long now = System.nanoTime();
+        long quietMillis = TimeUnit.NANOSECONDS.toMillis(now - lastChangeNanos);
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(now - firstPendingChangeNanos);
+        if (quietMillis < INDEX_REBUILD_DELAY_MS && waitedMillis < INDEX_REBUILD_MAX_DELAY_MS) {
+            // 等待期间又有修改，推迟到修改停止之后
+            long delay = Math.min(INDEX_REBUILD_DELAY_MS - quietMillis, INDEX_REBUILD_MAX_DELAY_MS - waitedMillis);
+            indexExecutor.schedule(this::rebuildIndex, delay, TimeUnit.MILLISECONDS);
+            return;
+        }
+        indexRebuildPending.set(false);
+        TaskSnapshot snapshot;
+        TaskLog.Stamp stamp;
+        long sequence;
+        synchronized (writeLock) {
+            snapshot = snapshots.current();
+            stamp = log.stamp();
+            sequence = log.lastSequence();
+        }
+        TaskDayIndex current = dayIndex;
+        if (current != null && current.getLogStamp().equals(stamp)) {
+            return;
+        }
+        try {
+            // 索引对应的日志内容落盘后才写索引
+            log.awaitCommitted(sequence);
+            TaskDayIndex.write(indexFile, snapshot, stamp);
+            dayIndex = TaskDayIndex.openIfFresh(indexFile, stamp);
+        } catch (IOException e) {
+            // 索引只是日志的副本，写入失败时查询会回退到扫描快照
+            dayIndex = null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // 在写锁之外通知监听者；多个线程同时写入时，由先拿到 dispatchLock 的线程按顺序发出全部修改
+    private void dispatchChanges() {
+        synchronized (dispatchLock) {
+            while (true) {
+                TaskVersion[] change;
+                synchronized (writeLock) {
+                    change = pendingChanges.poll();
+                }
+                if (change == null) {
+                    return;
+                }
+                for (Listener listener : listeners) {
+                    listener.onTaskChanged(change[0], change[1]);
+                }
+            }
+        }
+    }
+}
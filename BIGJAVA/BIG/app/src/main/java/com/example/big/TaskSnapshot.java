@@ -0,0 +1,250 @@
+package com.example.big;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 不可变的任务快照（按任务ID索引的持久化哈希前缀树）
+ * 每次修改只复制从根到目标叶子路径上的节点（最多13个，每个最多32个槽位），
+ * 其余节点在新旧快照之间共享。快照一旦生成就不会再变，读取时无需加锁
+ */
+public final class TaskSnapshot {
+    // 每层使用哈希的5位
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    // 全局递增的版本号，保证后生成的快照版本号更大
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private static final TaskSnapshot EMPTY = new TaskSnapshot(new Node(0, new Object[0]), 0);
+
+    private final Node root;
+    private final int size;
+    private final long version;
+
+    private TaskSnapshot(Node root, int size) {
+        this.root = root;
+        this.size = size;
+        this.version = VERSIONS.incrementAndGet();
+    }
+
+    public static TaskSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 由任务列表构建快照
+     *
+     * @param tasks 任务列表
+     * @return 快照
+     */
+    public static TaskSnapshot of(List<Task> tasks) {
+        TaskSnapshot snapshot = EMPTY;
+        for (Task task : tasks) {
+            snapshot = snapshot.with(TaskVersion.of(task));
+        }
+        return snapshot;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // 版本号，可用于判断后台结果是否已过期
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 查找任务
+     *
+     * @param id 任务ID
+     * @return 任务版本，不存在时返回 null
+     */
+    public TaskVersion get(long id) {
+        long hash = hash(id);
+        Node node = root;
+        for (int shift = 0; ; shift += BITS) {
+            int bit = 1 << ((int) (hash >>> shift) & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = node.slots[Integer.bitCount(node.bitmap & (bit - 1))];
+            if (slot instanceof Node) {
+                node = (Node) slot;
+            } else {
+                TaskVersion task = (TaskVersion) slot;
+                return task.getId() == id ? task : null;
+            }
+        }
+    }
+
+    /**
+     * 添加或替换任务，返回新快照（当前快照不变）
+     *
+     * @param task 任务版本
+     * @return 新快照
+     */
+    public TaskSnapshot with(TaskVersion task) {
+        boolean[] added = new boolean[1];
+        Node newRoot = put(root, task, hash(task.getId()), 0, added);
+        return new TaskSnapshot(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * 删除任务，返回新快照（当前快照不变）
+     *
+     * @param id 任务ID
+     * @return 新快照，任务不存在时返回当前快照
+     */
+    public TaskSnapshot without(long id) {
+        Object newRoot = remove(root, id, hash(id), 0);
+        if (newRoot == root) {
+            return this;
+        }
+        Node node;
+        if (newRoot == null) {
+            node = EMPTY.root;
+        } else if (newRoot instanceof Node) {
+            node = (Node) newRoot;
+        } else {
+            // 根节点只剩一个任务时也保持为节点
+            int bit = 1 << ((int) hash(((TaskVersion) newRoot).getId()) & MASK);
+            node = new Node(bit, new Object[]{newRoot});
+        }
+        return new TaskSnapshot(node, size - 1);
+    }
+
+    /**
+     * 遍历所有任务（顺序不固定）
+     *
+     * @param visitor 访问者
+     */
+    public void forEach(Visitor visitor) {
+        visit(root, visitor);
+    }
+
+    /**
+     * 转为列表（顺序不固定）
+     *
+     * @return 新的列表
+     */
+    public List<TaskVersion> toList() {
+        List<TaskVersion> list = new ArrayList<>(size);
+        forEach(list::add);
+        return list;
+    }
+
+    public interface Visitor {
+        void visit(TaskVersion task);
+    }
+
+    private static void visit(Node node, Visitor visitor) {
+        for (Object slot : node.slots) {
+            if (slot instanceof Node) {
+                visit((Node) slot, visitor);
+            } else {
+                visitor.visit((TaskVersion) slot);
+            }
+        }
+    }
+
+    private static Node put(Node node, TaskVersion task, long hash, int shift, boolean[] added) {
+        int bit = 1 << ((int) (hash >>> shift) & MASK);
+        int index = Integer.bitCount(node.bitmap & (bit - 1));
+        if ((node.bitmap & bit) == 0) {
+            added[0] = true;
+            Object[] slots = new Object[node.slots.length + 1];
+            System.arraycopy(node.slots, 0, slots, 0, index);
+            slots[index] = task;
+            System.arraycopy(node.slots, index, slots, index + 1, node.slots.length - index);
+            return new Node(node.bitmap | bit, slots);
+        }
+        Object slot = node.slots[index];
+        Object replacement;
+        if (slot instanceof Node) {
+            replacement = put((Node) slot, task, hash, shift + BITS, added);
+        } else {
+            TaskVersion existing = (TaskVersion) slot;
+            if (existing.getId() == task.getId()) {
+                replacement = task;
+            } else {
+                // 两个任务在这一层冲突，下推一层
+                added[0] = true;
+                replacement = split(existing, hash(existing.getId()), task, hash, shift + BITS);
+            }
+        }
+        Object[] slots = node.slots.clone();
+        slots[index] = replacement;
+        return new Node(node.bitmap, slots);
+    }
+
+    // 哈希是ID的双射，两个不同ID的哈希一定在某一层不同
+    private static Node split(TaskVersion a, long hashA, TaskVersion b, long hashB, int shift) {
+        int indexA = (int) (hashA >>> shift) & MASK;
+        int indexB = (int) (hashB >>> shift) & MASK;
+        if (indexA == indexB) {
+            return new Node(1 << indexA, new Object[]{split(a, hashA, b, hashB, shift + BITS)});
+        }
+        Object[] slots = indexA < indexB ? new Object[]{a, b} : new Object[]{b, a};
+        return new Node((1 << indexA) | (1 << indexB), slots);
+    }
+
+    // 返回替换后的节点；节点只剩一个任务时返回该任务以便上层内联，删空时返回 null
+    private static Object remove(Node node, long id, long hash, int shift) {
+        int bit = 1 << ((int) (hash >>> shift) & MASK);
+        if ((node.bitmap & bit) == 0) {
+            return node;
+        }
+        int index = Integer.bitCount(node.bitmap & (bit - 1));
+        Object slot = node.slots[index];
+        Object replacement;
+        if (slot instanceof Node) {
+            replacement = remove((Node) slot, id, hash, shift + BITS);
+            if (replacement == slot) {
+                return node;
+            }
+        } else {
+            if (((TaskVersion) slot).getId() != id) {
+                return node;
+            }
+            replacement = null;
+        }
+
+        if (replacement != null) {
+            Object[] slots = node.slots.clone();
+            slots[index] = replacement;
+            if (slots.length == 1 && !(replacement instanceof Node)) {
+                return replacement;
+            }
+            return new Node(node.bitmap, slots);
+        }
+        if (node.slots.length == 1) {
+            return null;
+        }
+        Object[] slots = new Object[node.slots.length - 1];
+        System.arraycopy(node.slots, 0, slots, 0, index);
+        System.arraycopy(node.slots, index + 1, slots, index, slots.length - index);
+        if (slots.length == 1 && !(slots[0] instanceof Node)) {
+            return slots[0];
+        }
+        return new Node(node.bitmap & ~bit, slots);
+    }
+
+    // 乘以奇数在 2^64 下是双射，异或右移也是双射，不会产生哈希冲突
+    private static long hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    private static final class Node {
+        final int bitmap;
+        final Object[] slots;
+
+        Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.big;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 任务快照的发布点（写时复制）
+ * 读者通过 current() 拿到某一时刻完整一致的快照后即可在任意线程读取；
+ * 写者基于当前快照生成新快照并用 CAS 原子替换，冲突时基于最新快照重试
+ */
+public class TaskSnapshotPublisher {
+    private final AtomicReference<TaskSnapshot> current;
+
+    public TaskSnapshotPublisher() {
+        this(TaskSnapshot.empty());
+    }
+
+    public TaskSnapshotPublisher(TaskSnapshot initial) {
+        current = new AtomicReference<>(initial);
+    }
+
+    public interface Update {
+        TaskSnapshot apply(TaskSnapshot snapshot);
+    }
+
+    /**
+     * 获取当前快照
+     *
+     * @return 当前快照
+     */
+    public TaskSnapshot current() {
+        return current.get();
+    }
+
+    /**
+     * 原子地发布修改，update 可能因并发写入被调用多次，必须没有副作用
+     *
+     * @param update 由旧快照生成新快照的函数
+     * @return 发布后的快照
+     */
+    public TaskSnapshot publish(Update update) {
+        while (true) {
+            TaskSnapshot before = current.get();
+            TaskSnapshot after = update.apply(before);
+            if (after == before || current.compareAndSet(before, after)) {
+                return after;
+            }
+        }
+    }
+
+    /**
+     * 整体替换快照
+     *
+     * @param snapshot 新快照
+     */
+    public void reset(TaskSnapshot snapshot) {
+        current.set(snapshot);
+    }
+
+    /**
+     * 发布任务的新内容（不存在时添加）
+     *
+     * @param task 编辑后的任务
+     * @return 发布后的快照
+     */
+    public TaskSnapshot put(Task task) {
+        return publish(snapshot -> {
+            TaskVersion existing = snapshot.get(task.getId());
+            TaskVersion next = existing == null ? TaskVersion.of(task) : existing.withContent(task);
+            return snapshot.with(next);
+        });
+    }
+
+    /**
+     * 发布任务的删除
+     *
+     * @param id 任务ID
+     * @return 发布后的快照
+     */
+    public TaskSnapshot remove(long id) {
+        return publish(snapshot -> snapshot.without(id));
+    }
+}
@@ -0,0 +1,422 @@
+package com.example.big;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 列式任务存储
+ * 每个字段保存在各自的基本类型数组中（结构数组），
+ * 类别和地点保存全局字典（StringDictionary.CATEGORIES / PLACES）中的编码。
+ * 重要/完成/拖延三个标记和每个类别另外维护压缩位图（OrdinalBitmap）作为二级索引，
+ * 修改时增量更新，按这些条件筛选和计数不需要扫描任务。
+ * 筛选时只读取需要的列或位图，需要展示时再按位置生成 Task 视图。
+ * 时间段的区间索引在第一次按时间查询时生成，只有日期或时间改变、任务删除时才标记为需要重新生成，
+ * 修改标题、完成状态等不影响它
+ *
+ * 存储本身不是线程安全的；仓库中的共享存储通过 TaskRepository.readStore 读取
+ */
+public class TaskStore {
+    // 截止时间为空时 dueAts 中的值
+    private static final long NO_DUE = Long.MIN_VALUE;
+
+    private int size;
+    private long[] ids;
+    private int[] epochDays;
+    private short[] startMinutes;
+    private short[] endMinutes;
+    private int[] durations;
+    private int[] categoryCodes;
+    private int[] placeCodes;
+    private long[] dueAts;
+    private String[] titles;
+    private String[] descriptions;
+
+    // 标记位图，保存标记为真的任务的存储位置
+    private final OrdinalBitmap importantBitmap = new OrdinalBitmap();
+    private final OrdinalBitmap finishedBitmap = new OrdinalBitmap();
+    private final OrdinalBitmap delayedBitmap = new OrdinalBitmap();
+    // 类别编码 -> 该类别任务的存储位置
+    private OrdinalBitmap[] categoryBitmaps = new OrdinalBitmap[0];
+
+    // 时间段的区间索引，第一次按时间查询时生成
+    private TaskIntervalIndex intervalIndex;
+    // 生成区间索引后有任务的日期、时间或存储位置改变
+    private boolean intervalIndexDirty = true;
+
+    // 任务ID -> 存储位置
+    private final LongIntHashMap ordinalsById;
+
+    public TaskStore() {
+        this(16);
+    }
+
+    public TaskStore(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        ids = new long[capacity];
+        epochDays = new int[capacity];
+        startMinutes = new short[capacity];
+        endMinutes = new short[capacity];
+        durations = new int[capacity];
+        categoryCodes = new int[capacity];
+        placeCodes = new int[capacity];
+        dueAts = new long[capacity];
+        titles = new String[capacity];
+        descriptions = new String[capacity];
+        ordinalsById = new LongIntHashMap(capacity);
+    }
+
+    /**
+     * 由任务列表构建存储
+     *
+     * @param tasks 任务列表
+     * @return 新的存储
+     */
+    public static TaskStore of(List<Task> tasks) {
+        TaskStore store = new TaskStore(tasks.size());
+        for (Task task : tasks) {
+            store.put(task);
+        }
+        return store;
+    }
+
+    /**
+     * 由快照中的任务版本构建存储，不生成 Task 对象
+     *
+     * @param snapshot 快照
+     * @return 新的存储
+     */
+    public static TaskStore of(TaskSnapshot snapshot) {
+        TaskStore store = new TaskStore(snapshot.size());
+        snapshot.forEach(store::put);
+        return store;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 添加或覆盖任务（按ID）
+     *
+     * @param task 任务
+     * @return 任务的存储位置
+     */
+    public int put(Task task) {
+        return put(TaskVersion.of(task));
+    }
+
+    /**
+     * 添加或覆盖任务版本（按ID）
+     *
+     * @param version 任务版本
+     * @return 任务的存储位置
+     */
+    public int put(TaskVersion version) {
+        int ordinal = ordinalsById.get(version.getId());
+        if (ordinal == LongIntHashMap.MISSING) {
+            ensureCapacity(size + 1);
+            ordinal = size++;
+            ordinalsById.put(version.getId(), ordinal);
+            intervalIndexDirty = true;
+        } else {
+            setCategory(categoryCodes[ordinal], ordinal, false);
+            if (epochDays[ordinal] != version.getEpochDay()
+                    || startMinutes[ordinal] != (short) version.getStartMinuteOfDay()
+                    || endMinutes[ordinal] != (short) version.getEndMinuteOfDay()) {
+                intervalIndexDirty = true;
+            }
+        }
+        write(ordinal, version);
+        return ordinal;
+    }
+
+    /**
+     * 删除任务，最后一个任务会移动到被删除的位置
+     *
+     * @param id 任务ID
+     * @return 是否删除成功
+     */
+    public boolean remove(long id) {
+        int ordinal = ordinalsById.remove(id);
+        if (ordinal == LongIntHashMap.MISSING) {
+            return false;
+        }
+        setCategory(categoryCodes[ordinal], ordinal, false);
+        int last = --size;
+        if (ordinal != last) {
+            move(last, ordinal);
+            ordinalsById.put(ids[ordinal], ordinal);
+        }
+        titles[last] = null;
+        descriptions[last] = null;
+        importantBitmap.remove(last);
+        finishedBitmap.remove(last);
+        delayedBitmap.remove(last);
+        intervalIndexDirty = true;
+        return true;
+    }
+
+    /**
+     * 根据任务ID查找存储位置
+     *
+     * @param id 任务ID
+     * @return 存储位置，不存在时返回 -1
+     */
+    public int ordinalOf(long id) {
+        return ordinalsById.get(id);
+    }
+
+    // 按列读取
+    public long getId(int ordinal) {
+        return ids[ordinal];
+    }
+
+    public int getEpochDay(int ordinal) {
+        return epochDays[ordinal];
+    }
+
+    public int getStartMinute(int ordinal) {
+        return startMinutes[ordinal];
+    }
+
+    public int getEndMinute(int ordinal) {
+        return endMinutes[ordinal];
+    }
+
+    public int getDurationMinutes(int ordinal) {
+        return durations[ordinal];
+    }
+
+    public String getTitle(int ordinal) {
+        return titles[ordinal];
+    }
+
+    public int getCategoryCode(int ordinal) {
+        return categoryCodes[ordinal];
+    }
+
+    public int getPlaceCode(int ordinal) {
+        return placeCodes[ordinal];
+    }
+
+    public boolean isImportant(int ordinal) {
+        return importantBitmap.contains(ordinal);
+    }
+
+    public boolean isFinished(int ordinal) {
+        return finishedBitmap.contains(ordinal);
+    }
+
+    public boolean isDelayed(int ordinal) {
+        return delayedBitmap.contains(ordinal);
+    }
+
+    // 二级索引位图，由存储维护，调用方只读
+    public OrdinalBitmap importantBitmap() {
+        return importantBitmap;
+    }
+
+    public OrdinalBitmap finishedBitmap() {
+        return finishedBitmap;
+    }
+
+    public OrdinalBitmap delayedBitmap() {
+        return delayedBitmap;
+    }
+
+    /**
+     * 某个类别的任务位图
+     *
+     * @param categoryCode 类别编码
+     * @return 位图（调用方只读），没有该类别的任务时为空位图
+     */
+    public OrdinalBitmap categoryBitmap(int categoryCode) {
+        if (categoryCode < 0 || categoryCode >= categoryBitmaps.length || categoryBitmaps[categoryCode] == null) {
+            return new OrdinalBitmap();
+        }
+        return categoryBitmaps[categoryCode];
+    }
+
+    /**
+     * 时间段的区间索引，任务的日期、时间改变或有任务删除后第一次调用时重新生成
+     *
+     * @return 区间索引
+     */
+    public TaskIntervalIndex intervalIndex() {
+        if (intervalIndexDirty) {
+            intervalIndex = TaskIntervalIndex.of(this);
+            intervalIndexDirty = false;
+        }
+        return intervalIndex;
+    }
+
+    // 各类任务的数量，直接读取位图的元素数，不扫描任务
+    public int countImportant() {
+        return importantBitmap.cardinality();
+    }
+
+    public int countUnfinished() {
+        return size - finishedBitmap.cardinality();
+    }
+
+    public int countCategory(int categoryCode) {
+        return categoryBitmap(categoryCode).cardinality();
+    }
+
+    /**
+     * 生成指定位置的任务视图
+     *
+     * @param ordinal 存储位置
+     * @return 新的 Task 对象
+     */
+    public Task get(int ordinal) {
+        int start = startMinutes[ordinal];
+        String timeRange = start >= 0
+                ? TimeRangeCodec.format(start, endMinutes[ordinal])
+                : TimeRangeCodec.UNSET_TEXT;
+        Date dueDate = dueAts[ordinal] == NO_DUE ? null : new Date(dueAts[ordinal]);
+        Task task = new Task(ids[ordinal], titles[ordinal], timeRange, DateKernel.toDate(epochDays[ordinal]),
+                durations[ordinal], isImportant(ordinal), descriptions[ordinal], null, dueDate);
+        task.setPlaceCode(placeCodes[ordinal]);
+        task.setCategoryCode(categoryCodes[ordinal]);
+        task.setFinished(isFinished(ordinal));
+        task.setDelayed(isDelayed(ordinal));
+        return task;
+    }
+
+    /**
+     * 批量生成任务视图
+     *
+     * @param ordinals 存储位置
+     * @return 任务列表
+     */
+    public List<Task> views(int[] ordinals) {
+        List<Task> tasks = new ArrayList<>(ordinals.length);
+        for (int ordinal : ordinals) {
+            tasks.add(get(ordinal));
+        }
+        return tasks;
+    }
+
+    /**
+     * 筛选未完成的任务（全部任务减去完成位图）
+     *
+     * @return 存储位置
+     */
+    public int[] selectUnfinished() {
+        return OrdinalBitmap.andNot(OrdinalBitmap.range(size), finishedBitmap).toArray();
+    }
+
+    /**
+     * 筛选重要任务
+     *
+     * @return 存储位置
+     */
+    public int[] selectImportant() {
+        return importantBitmap.toArray();
+    }
+
+    /**
+     * 按类别筛选（读取类别位图）
+     *
+     * @param category 类别
+     * @return 存储位置
+     */
+    public int[] selectCategory(String category) {
+        int code = StringDictionary.CATEGORIES.codeOf(category);
+        if (code == StringDictionary.NULL_CODE) {
+            return new int[0];
+        }
+        return selectCategory(code);
+    }
+
+    /**
+     * 按类别编码筛选
+     *
+     * @param categoryCode 类别编码
+     * @return 存储位置
+     */
+    public int[] selectCategory(int categoryCode) {
+        return categoryBitmap(categoryCode).toArray();
+    }
+
+    /**
+     * 筛选某一天中与时间段重叠的任务（没有日期或时间的任务视为匹配）
+     *
+     * @param epochDay    日期
+     * @param startMinute 开始时间（当天分钟数）
+     * @param endMinute   结束时间（当天分钟数）
+     * @return 存储位置
+     */
+    public int[] selectOverlapping(int epochDay, int startMinute, int endMinute) {
+        return intervalIndex().overlapping(TaskIntervalIndex.minuteOf(epochDay, startMinute),
+                TaskIntervalIndex.minuteOf(epochDay, endMinute));
+    }
+
+    private void write(int ordinal, TaskVersion task) {
+        ids[ordinal] = task.getId();
+        epochDays[ordinal] = task.getEpochDay();
+        startMinutes[ordinal] = (short) task.getStartMinuteOfDay();
+        endMinutes[ordinal] = (short) task.getEndMinuteOfDay();
+        durations[ordinal] = task.getDurationMinutes();
+        categoryCodes[ordinal] = task.getCategoryCode();
+        placeCodes[ordinal] = task.getPlaceCode();
+        dueAts[ordinal] = task.getDueMillis();
+        titles[ordinal] = task.getTitle();
+        descriptions[ordinal] = task.getDescription();
+        importantBitmap.set(ordinal, task.isImportant());
+        finishedBitmap.set(ordinal, task.isFinished());
+        delayedBitmap.set(ordinal, task.isDelayed());
+        setCategory(categoryCodes[ordinal], ordinal, true);
+    }
+
+    private void move(int from, int to) {
+        ids[to] = ids[from];
+        epochDays[to] = epochDays[from];
+        startMinutes[to] = startMinutes[from];
+        endMinutes[to] = endMinutes[from];
+        durations[to] = durations[from];
+        categoryCodes[to] = categoryCodes[from];
+        placeCodes[to] = placeCodes[from];
+        dueAts[to] = dueAts[from];
+        titles[to] = titles[from];
+        descriptions[to] = descriptions[from];
+        importantBitmap.set(to, importantBitmap.contains(from));
+        finishedBitmap.set(to, finishedBitmap.contains(from));
+        delayedBitmap.set(to, delayedBitmap.contains(from));
+        setCategory(categoryCodes[from], from, false);
+        setCategory(categoryCodes[from], to, true);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(required, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        startMinutes = Arrays.copyOf(startMinutes, capacity);
+        endMinutes = Arrays.copyOf(endMinutes, capacity);
+        durations = Arrays.copyOf(durations, capacity);
+        categoryCodes = Arrays.copyOf(categoryCodes, capacity);
+        placeCodes = Arrays.copyOf(placeCodes, capacity);
+        dueAts = Arrays.copyOf(dueAts, capacity);
+        titles = Arrays.copyOf(titles, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+    }
+
+    private void setCategory(int categoryCode, int ordinal, boolean present) {
+        if (categoryCode == StringDictionary.NULL_CODE) {
+            return;
+        }
+        if (categoryCode >= categoryBitmaps.length) {
+            categoryBitmaps = Arrays.copyOf(categoryBitmaps, Math.max(categoryCode + 1, categoryBitmaps.length * 2));
+        }
+        if (categoryBitmaps[categoryCode] == null) {
+            categoryBitmaps[categoryCode] = new OrdinalBitmap();
+        }
+        categoryBitmaps[categoryCode].set(ordinal, present);
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.big;
+
+import java.util.Date;
+
+/**
+ * 任务的不可变版本
+ * 所有字段在构造后不再改变，可以在后台线程安全读取；修改通过 with* 方法生成新版本
+ */
+public final class TaskVersion {
+    // 日期为空时的毫秒值
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private final long id;
+    private final int revision;
+    private final String title;
+    private final String timeRange;
+    private final long dateMillis;
+    private final int durationMinutes;
+    private final boolean important;
+    private final String description;
+    private final long dueMillis;
+    private final int placeCode;
+    private final boolean finished;
+    private final boolean delayed;
+    private final int categoryCode;
+    private final int startMinuteOfDay;
+    private final int endMinuteOfDay;
+    private final int userId;
+
+    private TaskVersion(long id, int revision, String title, String timeRange, long dateMillis,
+                        int durationMinutes, boolean important, String description, long dueMillis,
+                        int placeCode, boolean finished, boolean delayed, int categoryCode,
+                        int startMinuteOfDay, int endMinuteOfDay, int userId) {
+        this.id = id;
+        this.revision = revision;
+        this.title = title;
+        this.timeRange = timeRange;
+        this.dateMillis = dateMillis;
+        this.durationMinutes = durationMinutes;
+        this.important = important;
+        this.description = description;
+        this.dueMillis = dueMillis;
+        this.placeCode = placeCode;
+        this.finished = finished;
+        this.delayed = delayed;
+        this.categoryCode = categoryCode;
+        this.startMinuteOfDay = startMinuteOfDay;
+        this.endMinuteOfDay = endMinuteOfDay;
+        this.userId = userId;
+    }
+
+    /**
+     * 从可变的 Task 复制出不可变版本
+     *
+     * @param task 任务
+     * @return 第 0 个版本
+     */
+    public static TaskVersion of(Task task) {
+        return new TaskVersion(task.getId(), 0, task.getTitle(), task.getTimeRange(), toMillis(task.getDate()),
+                task.getDurationMinutes(), task.isImportant(), task.getDescription(), toMillis(task.getDueDate()),
+                task.getPlaceCode(), task.isFinished(), task.isDelayed(), task.getCategoryCode(),
+                task.getStartMinuteOfDay(), task.getEndMinuteOfDay(), task.getUserId());
+    }
+
+    /**
+     * 生成可变的 Task 副本（供编辑页面等使用）
+     *
+     * @return 新的 Task 对象
+     */
+    public Task toTask() {
+        Task task = new Task(id, title, timeRange, getDate(), durationMinutes, important, description, null, getDueDate());
+        task.setPlaceCode(placeCode);
+        task.setCategoryCode(categoryCode);
+        task.setFinished(finished);
+        task.setDelayed(delayed);
+        task.setUserId(userId);
+        return task;
+    }
+
+    /**
+     * 以 Task 的当前内容生成下一个版本
+     *
+     * @param task 编辑后的任务（ID 必须相同）
+     * @return 新版本
+     */
+    public TaskVersion withContent(Task task) {
+        if (task.getId() != id) {
+            throw new IllegalArgumentException("任务ID不一致: " + task.getId() + " != " + id);
+        }
+        TaskVersion next = of(task);
+        return new TaskVersion(id, revision + 1, next.title, next.timeRange, next.dateMillis,
+                next.durationMinutes, next.important, next.description, next.dueMillis,
+                next.placeCode, next.finished, next.delayed, next.categoryCode,
+                next.startMinuteOfDay, next.endMinuteOfDay, next.userId);
+    }
+
+    public TaskVersion withFinished(boolean finished) {
+        if (finished == this.finished) {
+            return this;
+        }
+        return new TaskVersion(id, revision + 1, title, timeRange, dateMillis, durationMinutes, important,
+                description, dueMillis, placeCode, finished, delayed, categoryCode, startMinuteOfDay, endMinuteOfDay,
+                userId);
+    }
+
+    public TaskVersion withDelayed(boolean delayed) {
+        if (delayed == this.delayed) {
+            return this;
+        }
+        return new TaskVersion(id, revision + 1, title, timeRange, dateMillis, durationMinutes, important,
+                description, dueMillis, placeCode, finished, delayed, categoryCode, startMinuteOfDay, endMinuteOfDay,
+                userId);
+    }
+
+    public TaskVersion withCategory(String category) {
+        int categoryCode = StringDictionary.CATEGORIES.encode(category);
+        if (categoryCode == this.categoryCode) {
+            return this;
+        }
+        return new TaskVersion(id, revision + 1, title, timeRange, dateMillis, durationMinutes, important,
+                description, dueMillis, placeCode, finished, delayed, categoryCode, startMinuteOfDay, endMinuteOfDay,
+                userId);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    // 每次修改加一，用于判断同一任务的内容是否变化
+    public int getRevision() {
+        return revision;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getTimeRange() {
+        return timeRange;
+    }
+
+    // 返回副本，避免调用方修改
+    public Date getDate() {
+        return dateMillis == NO_TIME ? null : new Date(dateMillis);
+    }
+
+    public boolean hasDate() {
+        return dateMillis != NO_TIME;
+    }
+
+    public long getDateMillis() {
+        return dateMillis;
+    }
+
+    // 没有日期时返回 DateKernel.NO_DAY
+    public int getEpochDay() {
+        return dateMillis == NO_TIME ? DateKernel.NO_DAY : DateKernel.epochDay(dateMillis);
+    }
+
+    public int getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    public boolean isImportant() {
+        return important;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Date getDueDate() {
+        return dueMillis == NO_TIME ? null : new Date(dueMillis);
+    }
+
+    // 没有截止时间时返回 Long.MIN_VALUE
+    public long getDueMillis() {
+        return dueMillis;
+    }
+
+    public String getPlace() {
+        return StringDictionary.PLACES.decode(placeCode);
+    }
+
+    public int getPlaceCode() {
+        return placeCode;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public boolean isDelayed() {
+        return delayed;
+    }
+
+    public String getCategory() {
+        return StringDictionary.CATEGORIES.decode(categoryCode);
+    }
+
+    public int getCategoryCode() {
+        return categoryCode;
+    }
+
+    public int getStartMinuteOfDay() {
+        return startMinuteOfDay;
+    }
+
+    public int getEndMinuteOfDay() {
+        return endMinuteOfDay;
+    }
+
+    public boolean hasTimeRange() {
+        return startMinuteOfDay >= 0;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    private static long toMillis(Date date) {
+        return date == null ? NO_TIME : date.getTime();
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.big;
+
+/**
+ * 任务时间范围的编解码器
+ * 同时兼容 "HH : MM -- HH : MM"（添加/编辑页面）和 "HH:MM - HH:MM"（看板/今日视图）两种格式，
+ * 解析结果为当天的分钟数（0 - 1440），供适配器和筛选直接比较整数
+ */
+public final class TimeRangeCodec {
+    // 未设定时间时显示的文本
+    public static final String UNSET_TEXT = "未设定时间";
+
+    // 解析结果：没有时间范围（null、空串或“未设定时间”）
+    public static final int UNSET = -1;
+    // 解析结果：格式错误
+    public static final int MALFORMED = -2;
+
+    // 一天的分钟数，结束时间允许为 24 : 00
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private TimeRangeCodec() {
+    }
+
+    /**
+     * 解析时间范围字符串
+     *
+     * @param timeRange 时间范围字符串
+     * @return 打包后的结果（高16位为开始分钟，低16位为结束分钟），或 {@link #UNSET} / {@link #MALFORMED}
+     */
+    public static int parse(String timeRange) {
+        if (timeRange == null) {
+            return UNSET;
+        }
+        int len = timeRange.length();
+        int pos = skipSpaces(timeRange, 0, len);
+        if (pos == len || timeRange.startsWith(UNSET_TEXT, pos)) {
+            return UNSET;
+        }
+
+        // 开始时间
+        int clock = parseClock(timeRange, pos, len);
+        if (clock < 0) {
+            return MALFORMED;
+        }
+        int start = clock & CLOCK_MASK;
+        pos = clock >>> CLOCK_BITS;
+
+        // 分隔符：" -- " 或 " - "
+        pos = skipSpaces(timeRange, pos, len);
+        int dashes = 0;
+        while (pos < len && timeRange.charAt(pos) == '-') {
+            dashes++;
+            pos++;
+        }
+        if (dashes == 0 || dashes > 2) {
+            return MALFORMED;
+        }
+
+        // 结束时间
+        clock = parseClock(timeRange, skipSpaces(timeRange, pos, len), len);
+        if (clock < 0 || skipSpaces(timeRange, clock >>> CLOCK_BITS, len) != len) {
+            return MALFORMED;
+        }
+        int end = clock & CLOCK_MASK;
+        if (start >= MINUTES_PER_DAY || end < start) {
+            return MALFORMED;
+        }
+        return pack(start, end);
+    }
+
+    public static int pack(int startMinute, int endMinute) {
+        return (startMinute << 16) | endMinute;
+    }
+
+    public static boolean isValid(int packed) {
+        return packed >= 0;
+    }
+
+    public static int startOf(int packed) {
+        return packed >>> 16;
+    }
+
+    public static int endOf(int packed) {
+        return packed & 0xFFFF;
+    }
+
+    /**
+     * 按添加/编辑页面的格式输出时间范围
+     *
+     * @param startMinute 开始时间（当天分钟数）
+     * @param endMinute   结束时间（当天分钟数）
+     * @return "HH : MM -- HH : MM"
+     */
+    public static String format(int startMinute, int endMinute) {
+        StringBuilder sb = new StringBuilder(18);
+        appendClock(sb, startMinute, " : ");
+        sb.append(" -- ");
+        appendClock(sb, endMinute, " : ");
+        return sb.toString();
+    }
+
+    /**
+     * 按看板/今日视图的格式输出时间范围
+     *
+     * @param startMinute 开始时间（当天分钟数）
+     * @param endMinute   结束时间（当天分钟数）
+     * @return "HH:MM - HH:MM"
+     */
+    public static String formatCompact(int startMinute, int endMinute) {
+        StringBuilder sb = new StringBuilder(13);
+        appendClock(sb, startMinute, ":");
+        sb.append(" - ");
+        appendClock(sb, endMinute, ":");
+        return sb.toString();
+    }
+
+    private static void appendClock(StringBuilder sb, int minuteOfDay, String separator) {
+        int hour = minuteOfDay / 60;
+        int minute = minuteOfDay % 60;
+        sb.append((char) ('0' + hour / 10)).append((char) ('0' + hour % 10));
+        sb.append(separator);
+        sb.append((char) ('0' + minute / 10)).append((char) ('0' + minute % 10));
+    }
+
+    // parseClock 的返回值：低位为当天分钟数，高位为解析结束的位置
+    private static final int CLOCK_BITS = 11;
+    private static final int CLOCK_MASK = (1 << CLOCK_BITS) - 1;
+
+    // 解析 "H:MM" / "HH : MM"，失败返回 -1
+    private static int parseClock(String s, int pos, int len) {
+        int hour = 0;
+        int digits = 0;
+        while (pos < len && digits < 2 && isDigit(s.charAt(pos))) {
+            hour = hour * 10 + (s.charAt(pos) - '0');
+            pos++;
+            digits++;
+        }
+        if (digits == 0) {
+            return -1;
+        }
+        pos = skipSpaces(s, pos, len);
+        if (pos >= len || (s.charAt(pos) != ':' && s.charAt(pos) != '：')) {
+            return -1;
+        }
+        pos = skipSpaces(s, pos + 1, len);
+        if (pos + 2 > len || !isDigit(s.charAt(pos)) || !isDigit(s.charAt(pos + 1))) {
+            return -1;
+        }
+        int minute = (s.charAt(pos) - '0') * 10 + (s.charAt(pos + 1) - '0');
+        if (hour > 24 || minute > 59 || (hour == 24 && minute != 0)) {
+            return -1;
+        }
+        return ((pos + 2) << CLOCK_BITS) | (hour * 60 + minute);
+    }
+
+    private static int skipSpaces(String s, int pos, int len) {
+        while (pos < len && s.charAt(pos) == ' ') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
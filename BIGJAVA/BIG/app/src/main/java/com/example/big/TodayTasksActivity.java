@@ -30,6 +30,14 @@ public class TodayTasksActivity extends AppCompatActivity {
     private RecyclerView completedTasksRecyclerView;
 
     private List<Task> allTasks;
+    // 尚未保存过的示例任务，筛选时逐个检查；已保存的任务在仓库共享的列式存储中筛选
+    private List<TaskVersion> sampleVersions;
+    // 显示的这一天
+    private int todayEpochDay;
+    // 仓库已打开、任务已读取
+    private boolean loaded;
+    // 当前的筛选条件，菜单中的筛选依次叠加，选择“全部”时清除
+    private TaskQuery activeFilter = TaskQuery.all();
     private List<Task> importantTasks;
     private List<Task> otherTasks;
     private List<Task> completedTasks;
@@ -75,10 +83,10 @@ public class TodayTasksActivity extends AppCompatActivity {
             startActivity(intent);
         });
 
-        // 初始化任务数据
-        initTaskData();
-
-        // 设置任务列表
+        // 设置任务列表，任务在 onResume 中读取
+        allTasks = new ArrayList<>();
+        sampleVersions = new ArrayList<>();
+        categorizeTasksForDisplay();
         setupTaskLists();
     }
 
@@ -93,6 +101,10 @@ public class TodayTasksActivity extends AppCompatActivity {
     }
 
     private void showFilterMenu(View view) {
+        if (!loaded) {
+            // 各项计数需要已打开的仓库
+            return;
+        }
         PopupMenu popup = new PopupMenu(this, view);
         popup.getMenuInflater().inflate(R.menu.filter_menu, popup.getMenu());
 
@@ -122,7 +134,7 @@ public class TodayTasksActivity extends AppCompatActivity {
 
     private void initTaskData() {
         // 创建一些示例任务数据
-        allTasks = new ArrayList<>();
+        List<Task> samples = new ArrayList<>();
 
         Calendar cal = Calendar.getInstance();
         cal.set(Calendar.HOUR_OF_DAY, 0);
@@ -131,43 +143,62 @@ public class TodayTasksActivity extends AppCompatActivity {
         cal.set(Calendar.MILLISECOND, 0);
         Date today = cal.getTime();
 
-        // 使用8位数ID
+        // 使用8位数ID，与列表页的示例任务（12345xxx）不同
 
         // 重要任务
-        Task task1 = new Task(12345001, "完成项目报告", "09 : 00 -- 11 : 00", today, 120, true, "需要提交给经理审核");
+        Task task1 = new Task(12346001, "完成项目报告", "09 : 00 -- 11 : 00", today, 120, true, "需要提交给经理审核");
         task1.setPlace("办公室");
         task1.setCategory("工作");
 
-        Task task2 = new Task(12345002, "客户会议", "14 : 00 -- 15 : 30", today, 90, true, "讨论新产品方案");
+        Task task2 = new Task(12346002, "客户会议", "14 : 00 -- 15 : 30", today, 90, true, "讨论新产品方案");
         task2.setPlace("会议室A");
         task2.setCategory("工作");
 
         // 其他任务
-        Task task3 = new Task(12345003, "午餐", "12 : 00 -- 13 : 00", today, 60, false, "与同事共进午餐");
+        Task task3 = new Task(12346003, "午餐", "12 : 00 -- 13 : 00", today, 60, false, "与同事共进午餐");
         task3.setCategory("生活");
 
-        Task task4 = new Task(12345004, "整理邮件", "16 : 00 -- 17 : 00", today, 60, false, "回复重要客户邮件");
+        Task task4 = new Task(12346004, "整理邮件", "16 : 00 -- 17 : 00", today, 60, false, "回复重要客户邮件");
         task4.setCategory("工作");
 
         // 已完成任务
-        Task task5 = new Task(12345005, "晨会", "08 : 30 -- 09 : 00", today, 30, false, "每日工作安排");
+        Task task5 = new Task(12346005, "晨会", "08 : 30 -- 09 : 00", today, 30, false, "每日工作安排");
         task5.setFinished(true);
         task5.setCategory("工作");
 
-        Task task6 = new Task(12345006, "回复客户邮件", "10 : 00 -- 10 : 30", today, 30, false, "处理紧急问题");
+        Task task6 = new Task(12346006, "回复客户邮件", "10 : 00 -- 10 : 30", today, 30, false, "处理紧急问题");
         task6.setFinished(true);
         task6.setCategory("工作");
 
         // 添加到列表
-        allTasks.add(task1);
-        allTasks.add(task2);
-        allTasks.add(task3);
-        allTasks.add(task4);
-        allTasks.add(task5);
-        allTasks.add(task6);
-
-        // 分类
-        categorizeTasksForDisplay();
+        samples.add(task1);
+        samples.add(task2);
+        samples.add(task3);
+        samples.add(task4);
+        samples.add(task5);
+        samples.add(task6);
+        todayEpochDay = DateKernel.epochDay(today);
+
+        // 仓库在后台打开（第一次时重放日志），打开后读取今天保存的任务并按当前筛选显示
+        TaskRepository.open(repository -> {
+            if (isDestroyed()) {
+                return;
+            }
+            // 已保存过的示例任务以仓库中的版本为准，不再作为示例显示，同一ID不会出现两次
+            TaskSnapshot saved = repository.snapshot();
+            allTasks = new ArrayList<>();
+            sampleVersions = new ArrayList<>();
+            for (Task task : samples) {
+                if (saved.get(task.getId()) == null) {
+                    allTasks.add(task);
+                    sampleVersions.add(TaskVersion.of(task));
+                }
+            }
+            // 今天保存的任务
+            allTasks.addAll(TaskRepository.tasksOn(todayEpochDay));
+            loaded = true;
+            applyFilter(activeFilter);
+        });
     }
 
     private void categorizeTasksForDisplay() {
@@ -196,26 +227,51 @@ public class TodayTasksActivity extends AppCompatActivity {
         completedTasksRecyclerView.setAdapter(completedTasksAdapter);
     }
 
+    /**
+     * 设置筛选条件并显示结果
+     *
+     * @param filter 筛选条件
+     * @return 筛选出的任务
+     */
+    private List<Task> applyFilter(TaskQuery filter) {
+        activeFilter = filter;
+        if (!loaded) {
+            // 仓库打开后按 activeFilter 显示
+            return new ArrayList<>();
+        }
+        List<Task> tasks = filter.isEmpty() ? allTasks : runFilter(filter);
+        updateAllTaskLists(tasks);
+        return tasks;
+    }
+
+    // 在示例任务和仓库共享的列式存储（只取今天的任务）上执行筛选，示例任务在前
+    private List<Task> runFilter(TaskQuery filter) {
+        List<Task> tasks = filter.run(sampleVersions);
+        TaskQuery onToday = filter.betweenDays(todayEpochDay, todayEpochDay);
+        tasks.addAll(TaskRepository.getInstance().readStore(onToday::run));
+        return tasks;
+    }
+
+    // 示例任务和今天已保存任务按类别分面计数之和
+    private int[] countByCategory(TaskQuery filter) {
+        int[] samples = filter.countByCategory(sampleVersions);
+        // 类别字典只增不减，后取的计数不会更短
+        TaskQuery onToday = filter.betweenDays(todayEpochDay, todayEpochDay);
+        int[] counts = TaskRepository.getInstance().readStore(onToday::countByCategory);
+        for (int code = 0; code < samples.length; code++) {
+            counts[code] += samples[code];
+        }
+        return counts;
+    }
+
     // 筛选未完成的任务
     private void filterUnfinishedTasks() {
-        List<Task> unfinishedTasks = new ArrayList<>();
-        for (Task task : allTasks) {
-            if (!task.isFinished()) {
-                unfinishedTasks.add(task);
-            }
-        }
-        updateAllTaskLists(unfinishedTasks);
+        applyFilter(activeFilter.unfinished());
     }
 
     // 筛选重要任务
     private void filterImportantTasks() {
-        List<Task> filteredTasks = new ArrayList<>();
-        for (Task task : allTasks) {
-            if (task.isImportant()) {
-                filteredTasks.add(task);
-            }
-        }
-        updateAllTaskLists(filteredTasks);
+        applyFilter(activeFilter.important());
     }
 
     // 按时间筛选
@@ -380,52 +436,19 @@ public class TodayTasksActivity extends AppCompatActivity {
         int endMinuteIndex = endMinutePicker.getValue();
         int endMinute = endMinuteIndex * 5;
 
-        // 格式化时间范围
-        @SuppressLint("DefaultLocale") String startTimeStr = String.format("%02d : %02d", startHour, startMinute);
-        @SuppressLint("DefaultLocale") String endTimeStr = String.format("%02d : %02d", endHour, endMinute);
-        String timeRange = startTimeStr + " -- " + endTimeStr;
+        // 筛选时间范围（当天分钟数）
+        int filterStart = startHour * 60 + startMinute;
+        int filterEnd = endHour * 60 + endMinute;
 
         // 创建日期对象
         Calendar cal = Calendar.getInstance();
         cal.set(year, month, day, 0, 0, 0);
         cal.set(Calendar.MILLISECOND, 0);
-        Date filterDate = cal.getTime();
-
-        // 筛选任务
-        List<Task> filteredTasks = new ArrayList<>();
-        for (Task task : allTasks) {
-            // 检查日期匹配
-            boolean dateMatches = true;
-            if (task.getDate() != null) {
-                Calendar taskCal = Calendar.getInstance();
-                taskCal.setTime(task.getDate());
-
-                int taskYear = taskCal.get(Calendar.YEAR);
-                int taskMonth = taskCal.get(Calendar.MONTH);
-                int taskDay = taskCal.get(Calendar.DAY_OF_MONTH);
+        int filterDay = DateKernel.epochDay(cal.getTime());
 
-                dateMatches = (taskYear == year && taskMonth == month && taskDay == day);
-            }
-
-            // 检查时间范围匹配
-            boolean timeMatches = true;
-            if (task.getTimeRange() != null && !task.getTimeRange().isEmpty() && !task.getTimeRange().equals("未设定时间")) {
-                // 简单字符串比较（实际应用中可能需要更复杂的时间解析）
-                String taskStart = task.getTimeRange().split(" -- ")[0].trim();
-                String taskEnd = task.getTimeRange().split(" -- ")[1].trim();
-
-                // 时间重叠检查
-                timeMatches = !(taskEnd.compareTo(startTimeStr) < 0 || taskStart.compareTo(endTimeStr) > 0);
-            }
-
-            // 只有两个条件都匹配才添加到结果中
-            if (dateMatches && timeMatches) {
-                filteredTasks.add(task);
-            }
-        }
-
-        // 更新列表
-        updateAllTaskLists(filteredTasks);
+        // 筛选任务：日期相同（或未设定日期）且时间范围重叠
+        List<Task> filteredTasks = applyFilter(activeFilter.overlapping(
+                TaskIntervalIndex.minuteOf(filterDay, filterStart), TaskIntervalIndex.minuteOf(filterDay, filterEnd)));
 
         // 反馈筛选结果
         if (filteredTasks.isEmpty()) {
@@ -450,6 +473,13 @@ public class TodayTasksActivity extends AppCompatActivity {
         Button resetButton = dialog.findViewById(R.id.reset_button);
         Button confirmButton = dialog.findViewById(R.id.confirm_button);
 
+        // 按钮上显示当前筛选条件下各类别的事项数
+        int[] counts = countByCategory(activeFilter);
+        studyButton.setText(categoryLabel("学习", counts));
+        workButton.setText(categoryLabel("工作", counts));
+        lifeButton.setText(categoryLabel("生活", counts));
+        otherButton.setText(categoryLabel("其他", counts));
+
         // 设置类别按钮点击事件
         studyButton.setOnClickListener(v -> categoryEditText.setText("学习"));
         workButton.setOnClickListener(v -> categoryEditText.setText("工作"));
@@ -472,15 +502,12 @@ public class TodayTasksActivity extends AppCompatActivity {
         dialog.show();
     }
 
-    private void filterTasksByCategory(String category) {
-        List<Task> filteredTasks = new ArrayList<>();
-        for (Task task : allTasks) {
-            if (task.getCategory() != null && task.getCategory().equals(category)) {
-                filteredTasks.add(task);
-            }
-        }
+    private String categoryLabel(String category, int[] counts) {
+        return category + " (" + counts[StringDictionary.CATEGORIES.codeOf(category)] + ")";
+    }
 
-        updateAllTaskLists(filteredTasks);
+    private void filterTasksByCategory(String category) {
+        List<Task> filteredTasks = applyFilter(activeFilter.inCategory(category));
 
         // 反馈筛选结果
         if (filteredTasks.isEmpty()) {
@@ -491,7 +518,7 @@ public class TodayTasksActivity extends AppCompatActivity {
     }
 
     private void filterNone() {
-        updateAllTaskLists(allTasks);
+        applyFilter(TaskQuery.all());
     }
 
     @SuppressLint("NotifyDataSetChanged")
@@ -512,17 +539,17 @@ public class TodayTasksActivity extends AppCompatActivity {
             }
         }
 
-        // 通知适配器数据已更改
-        importantTasksAdapter.notifyDataSetChanged();
-        otherTasksAdapter.notifyDataSetChanged();
-        completedTasksAdapter.notifyDataSetChanged();
+        // 只刷新变化的行
+        importantTasksAdapter.submitList(importantTasks);
+        otherTasksAdapter.submitList(otherTasks);
+        completedTasksAdapter.submitList(completedTasks);
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-        // 刷新数据（实际应用中，这里应该从数据库重新加载数据）
+        DateKernel.refreshTimeZone();
+        // 刷新数据：重新读取今天的任务并应用当前筛选，筛选使用仓库中随修改更新的存储
         initTaskData();
-        setupTaskLists();
     }
 }
\ No newline at end of file
@@ -9,16 +9,16 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.Calendar;
-import java.util.Date;
-import java.util.List;
 import java.util.Locale;
 
 public class TodayTimelineAdapter extends RecyclerView.Adapter<TodayTimelineAdapter.TimelineViewHolder> {
 
     private Context context;
-    private List<Task> tasks;
-    private Date selectedDate;
+    // 按小时分桶的任务片段，在后台生成后通过 setTimeline 设置
+    private DayTimeline timeline;
+    private final float minuteHeight;
+    // 所有小时行共用的任务卡片
+    private final TaskCardPool cardPool;
     private TodayTimelineAdapter.OnTaskClickListener listener;
 
     // Hours to display (from 7 AM to 23 PM)
@@ -32,10 +32,26 @@ public class TodayTimelineAdapter extends RecyclerView.Adapter<TodayTimelineAdap
         void onTaskClick(Task task);
     }
 
-    public TodayTimelineAdapter(Context context, List<Task> tasks, Date selectedDate) {
+    public TodayTimelineAdapter(Context context, DayTimeline timeline) {
         this.context = context;
-        this.tasks = tasks;
-        this.selectedDate = selectedDate;
+        this.timeline = timeline;
+        this.minuteHeight = context.getResources().getDimension(R.dimen.minute_height);
+        this.cardPool = new TaskCardPool(context, v -> {
+            Task task = TaskCardPool.cardOf(v).task;
+            if (listener != null && task != null) {
+                listener.onTaskClick(task);
+            }
+        });
+    }
+
+    /**
+     * 更换时间轴（如后台生成完成后），在主线程调用
+     *
+     * @param timeline 时间轴
+     */
+    public void setTimeline(DayTimeline timeline) {
+        this.timeline = timeline;
+        notifyDataSetChanged();
     }
 
     public void setOnTaskClickListener(OnTaskClickListener listener) {
@@ -54,115 +70,42 @@ public class TodayTimelineAdapter extends RecyclerView.Adapter<TodayTimelineAdap
         int hour = position + START_HOUR;
         holder.hourText.setText(String.format(Locale.getDefault(), "%02d", hour));
 
-        // Clear existing task views
-        holder.clearTaskViews();
-
-        // Find tasks for this hour
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(selectedDate);
-        cal.set(Calendar.HOUR_OF_DAY, hour);
-        cal.set(Calendar.MINUTE, 0);
-        cal.set(Calendar.SECOND, 0);
-        cal.set(Calendar.MILLISECOND, 0);
-
-        Date hourStart = cal.getTime();
-        cal.add(Calendar.HOUR_OF_DAY, 1);
-        Date hourEnd = cal.getTime();
-
-        for (Task task : tasks) {
-            // Parse task start and end time
-            String[] timeParts = task.getTimeRange().split(" - ");
-            String[] startTimeParts = timeParts[0].split(":");
-
-            Calendar taskStartCal = Calendar.getInstance();
-            taskStartCal.setTime(task.getDate());
-            taskStartCal.set(Calendar.HOUR_OF_DAY, Integer.parseInt(startTimeParts[0]));
-            taskStartCal.set(Calendar.MINUTE, Integer.parseInt(startTimeParts[1]));
-
-            // Determine if task occurs during this hour
-            boolean taskInThisHour = isSameDay(taskStartCal.getTime(), selectedDate) &&
-                    (taskStartCal.get(Calendar.HOUR_OF_DAY) == hour ||
-                            (task.getDurationMinutes() > 60 &&
-                                    taskStartCal.get(Calendar.HOUR_OF_DAY) < hour &&
-                                    taskStartCal.get(Calendar.HOUR_OF_DAY) + (task.getDurationMinutes() / 60) > hour));
-
-            if (taskInThisHour) {
-                // Create task view
-                View taskView = LayoutInflater.from(context).inflate(R.layout.item_today_task, null);
-                TextView taskTitle = taskView.findViewById(R.id.task_title);
-                TextView taskTime = taskView.findViewById(R.id.task_time);
-
-                taskTitle.setText(task.getTitle());
-                taskTime.setText(task.getTimeRange());
-
-                // Calculate top position based on start time
-                int topMargin = 0;
-                if (taskStartCal.get(Calendar.HOUR_OF_DAY) == hour) {
-                    topMargin = (int) (taskStartCal.get(Calendar.MINUTE) * context.getResources().getDimension(R.dimen.minute_height));
-                }
+        // Return existing task views to the pool
+        holder.clearTaskViews(cardPool);
 
-                // Calculate height based on duration
-                int height = (int) (Math.min(60, getTaskDurationInThisHour(task, hour)) *
-                        context.getResources().getDimension(R.dimen.minute_height));
-
-                // Set background based on importance
-                if (task.isImportant()) {
-                    taskView.setBackgroundResource(R.drawable.important_task_background);
-                    holder.addTaskView(taskView, 0, topMargin, height);
-                } else {
-                    taskView.setBackgroundResource(R.drawable.normal_task_background);
-                    // Find first available column
-                    int column = holder.findAvailableColumn(topMargin, height);
-                    holder.addTaskView(taskView, column, topMargin, height);
-                }
+        // Only this hour's segments, already filtered to the selected day
+        for (DayTimeline.Segment segment : timeline.segmentsAt(hour)) {
+            Task task = segment.task;
 
-                // Set click listener
-                taskView.setOnClickListener(v -> {
-                    if (listener != null) {
-                        listener.onTaskClick(task);
-                    }
-                });
+            // Reuse a pooled task view (text, background and click target set by the pool)
+            View taskView = cardPool.acquire(task);
+
+            // Calculate top position based on start time
+            int topMargin = segment.starts ? (int) (segment.minuteInHour * minuteHeight) : 0;
+
+            // Calculate height based on duration
+            int height = (int) (segment.minutes * minuteHeight);
+
+            // Important tasks go to their own column
+            if (task.isImportant()) {
+                holder.addTaskView(taskView, 0, topMargin, height);
+            } else {
+                // Find first available column
+                int column = holder.findAvailableColumn(topMargin, height);
+                holder.addTaskView(taskView, column, topMargin, height);
             }
         }
     }
 
     @Override
-    public int getItemCount() {
-        return END_HOUR - START_HOUR + 1;
-    }
-
-    private boolean isSameDay(Date date1, Date date2) {
-        Calendar cal1 = Calendar.getInstance();
-        Calendar cal2 = Calendar.getInstance();
-        cal1.setTime(date1);
-        cal2.setTime(date2);
-        return cal1.get(Calendar.YEAR) == cal2.get(Calendar.YEAR) &&
-                cal1.get(Calendar.DAY_OF_YEAR) == cal2.get(Calendar.DAY_OF_YEAR);
+    public void onViewRecycled(@NonNull TimelineViewHolder holder) {
+        // Rows waiting in the RecyclerView pool don't keep their task views
+        holder.clearTaskViews(cardPool);
     }
 
-    private int getTaskDurationInThisHour(Task task, int hour) {
-        // Parse task start time
-        String[] timeParts = task.getTimeRange().split(" - ");
-        String[] startTimeParts = timeParts[0].split(":");
-
-        Calendar taskStartCal = Calendar.getInstance();
-        taskStartCal.setTime(task.getDate());
-        taskStartCal.set(Calendar.HOUR_OF_DAY, Integer.parseInt(startTimeParts[0]));
-        taskStartCal.set(Calendar.MINUTE, Integer.parseInt(startTimeParts[1]));
-
-        if (taskStartCal.get(Calendar.HOUR_OF_DAY) == hour) {
-            // Task starts in this hour
-            int minutesLeft = 60 - taskStartCal.get(Calendar.MINUTE);
-            return Math.min(minutesLeft, task.getDurationMinutes());
-        } else if (taskStartCal.get(Calendar.HOUR_OF_DAY) < hour) {
-            // Task started in previous hour
-            int hoursElapsed = hour - taskStartCal.get(Calendar.HOUR_OF_DAY);
-            int minutesElapsed = hoursElapsed * 60 - taskStartCal.get(Calendar.MINUTE);
-            int minutesLeft = task.getDurationMinutes() - minutesElapsed;
-            return Math.min(60, minutesLeft);
-        }
-
-        return 0;
+    @Override
+    public int getItemCount() {
+        return END_HOUR - START_HOUR + 1;
     }
 
     static class TimelineViewHolder extends RecyclerView.ViewHolder {
@@ -186,9 +129,9 @@ public class TodayTimelineAdapter extends RecyclerView.Adapter<TodayTimelineAdap
             timeSlotOccupied = new boolean[5][60];
         }
 
-        void clearTaskViews() {
+        void clearTaskViews(TaskCardPool cardPool) {
             for (ViewGroup column : taskColumns) {
-                column.removeAllViews();
+                cardPool.releaseAll(column);
             }
 
             // Reset time slot tracking
@@ -228,8 +171,14 @@ public class TodayTimelineAdapter extends RecyclerView.Adapter<TodayTimelineAdap
         }
 
         void addTaskView(View taskView, int column, int topMargin, int height) {
-            ViewGroup.MarginLayoutParams params = new ViewGroup.MarginLayoutParams(
-                    ViewGroup.LayoutParams.MATCH_PARENT, height);
+            // Pooled views keep their layout params from the previous bind
+            ViewGroup.MarginLayoutParams params;
+            if (taskView.getLayoutParams() instanceof ViewGroup.MarginLayoutParams) {
+                params = (ViewGroup.MarginLayoutParams) taskView.getLayoutParams();
+                params.height = height;
+            } else {
+                params = new ViewGroup.MarginLayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, height);
+            }
             params.topMargin = topMargin;
             params.leftMargin = 2;
             params.rightMargin = 2;
@@ -14,6 +14,8 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class TodayViewActivity extends AppCompatActivity {
 
@@ -21,6 +23,13 @@ public class TodayViewActivity extends AppCompatActivity {
     private RecyclerView timelineRecyclerView;
     private Date selectedDate;
     private List<Task> taskList;
+    private TodayTimelineAdapter timelineAdapter;
+    // 在后台生成当天的时间轴
+    private final ExecutorService timelineExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "DayTimeline");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -30,6 +39,8 @@ public class TodayViewActivity extends AppCompatActivity {
         dateTitle = findViewById(R.id.date_title);
         timelineRecyclerView = findViewById(R.id.today_timeline_recycler_view);
 
+        DateKernel.refreshTimeZone();
+
         // Get selected date from intent
         long selectedDateMillis = getIntent().getLongExtra("selected_date", System.currentTimeMillis());
         selectedDate = new Date(selectedDateMillis);
@@ -51,14 +62,32 @@ public class TodayViewActivity extends AppCompatActivity {
     }
 
     private void setupTimelineView() {
-        TodayTimelineAdapter adapter = new TodayTimelineAdapter(this, taskList, selectedDate);
-        timelineRecyclerView.setAdapter(adapter);
+        int epochDay = DateKernel.epochDay(selectedDate);
+        // 先显示空的时间轴，生成完成后再填入任务
+        timelineAdapter = new TodayTimelineAdapter(this, DayTimeline.empty(epochDay));
+        timelineRecyclerView.setAdapter(timelineAdapter);
 
-        adapter.setOnTaskClickListener(task -> {
+        timelineAdapter.setOnTaskClickListener(task -> {
             Intent intent = new Intent(TodayViewActivity.this, EditTaskActivity.class);
             intent.putExtra("task_id", task.getId());
             startActivity(intent);
         });
+
+        List<Task> tasks = new ArrayList<>(taskList);
+        timelineExecutor.execute(() -> {
+            DayTimeline timeline = DayTimeline.build(tasks, epochDay);
+            runOnUiThread(() -> {
+                if (!isDestroyed()) {
+                    timelineAdapter.setTimeline(timeline);
+                }
+            });
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        timelineExecutor.shutdownNow();
     }
 
     private void initializeTaskList() {
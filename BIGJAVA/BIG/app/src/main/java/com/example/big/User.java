@@ -30,6 +30,49 @@ public class User {
         CONTACTS // 联系人权限
     }
 
+    // 用户字段，key 与 getUserInfo() 中的键一致
+    public enum Field {
+        ID("id"),
+        USERNAME("username"),
+        NICKNAME("nickname"),
+        EMAIL("email"),
+        PHONE_NUMBER("phoneNumber"),
+        STATUS("status"),
+        CREATED_DATE("createdDate"),
+        LAST_LOGIN_DATE("lastLoginDate"),
+        PERMISSIONS("permissions"),
+        PREFERENCES("preferences");
+
+        public final String key;
+
+        Field(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * 按类型访问用户字段，不创建 Map 也不装箱
+     */
+    public interface FieldVisitor {
+        default void visitInt(Field field, int value) {
+        }
+
+        default void visitString(Field field, String value) {
+        }
+
+        default void visitStatus(Field field, UserStatus value) {
+        }
+
+        default void visitDate(Field field, Date value) {
+        }
+
+        default void visitPermissions(Field field, Map<PermissionType, Boolean> value) {
+        }
+
+        default void visitPreferences(Field field, Map<String, Object> value) {
+        }
+    }
+
     // 基本用户信息
     private final int id; // 用户ID
     private final String username; // 用户名
@@ -53,8 +96,8 @@ public class User {
     private final Map<PermissionType, Boolean> permissions; // 权限设置
     private final Map<String, Object> preferences; // 其他用户偏好
 
-    // 用户绑定的任务
-    private ArrayList<Integer> task_id;
+    // 用户绑定的任务（任务ID为 64 位）
+    private ArrayList<Long> task_id;
 
     /**
      * 基本构造函数
@@ -264,22 +307,61 @@ public class User {
     }
 
     /**
-     * 获取用户完整信息的Map
+     * 按 Field 的声明顺序依次访问所有字段
+     * 
+     * @param visitor 访问者
+     */
+    public void accept(FieldVisitor visitor) {
+        visitor.visitInt(Field.ID, id);
+        visitor.visitString(Field.USERNAME, username);
+        visitor.visitString(Field.NICKNAME, nickname);
+        visitor.visitString(Field.EMAIL, email);
+        visitor.visitString(Field.PHONE_NUMBER, phoneNumber);
+        visitor.visitStatus(Field.STATUS, status);
+        visitor.visitDate(Field.CREATED_DATE, createdDate);
+        visitor.visitDate(Field.LAST_LOGIN_DATE, lastLoginDate);
+        visitor.visitPermissions(Field.PERMISSIONS, permissions);
+        visitor.visitPreferences(Field.PREFERENCES, preferences);
+    }
+
+    /**
+     * 获取用户完整信息的Map（会创建 Map 并装箱，批量处理时请使用 accept）
      * 
      * @return 用户信息Map
      */
     public Map<String, Object> getUserInfo() {
         Map<String, Object> userInfo = new HashMap<>();
-        userInfo.put("id", id);
-        userInfo.put("username", username);
-        userInfo.put("nickname", nickname);
-        userInfo.put("email", email);
-        userInfo.put("phoneNumber", phoneNumber);
-        userInfo.put("status", status);
-        userInfo.put("createdDate", createdDate);
-        userInfo.put("lastLoginDate", lastLoginDate);
-        userInfo.put("permissions", permissions);
-        userInfo.put("preferences", preferences);
+        accept(new FieldVisitor() {
+            @Override
+            public void visitInt(Field field, int value) {
+                userInfo.put(field.key, value);
+            }
+
+            @Override
+            public void visitString(Field field, String value) {
+                userInfo.put(field.key, value);
+            }
+
+            @Override
+            public void visitStatus(Field field, UserStatus value) {
+                userInfo.put(field.key, value);
+            }
+
+            @Override
+            public void visitDate(Field field, Date value) {
+                userInfo.put(field.key, value);
+            }
+
+            @Override
+            public void visitPermissions(Field field, Map<PermissionType, Boolean> value) {
+                userInfo.put(field.key, value);
+            }
+
+            @Override
+            public void visitPreferences(Field field, Map<String, Object> value) {
+                userInfo.put(field.key, value);
+            }
+        });
         return userInfo;
     }
 
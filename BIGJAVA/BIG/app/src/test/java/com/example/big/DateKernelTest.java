@@ -0,0 +1,128 @@
+package com.example.big;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * DateKernel 与 java.time 在有夏令时、历史偏移变化和固定偏移的时区中的对比
+ */
+public class DateKernelTest {
+    private static final String[] ZONES = {
+            "America/New_York", "Europe/London", "Australia/Lord_Howe", "Asia/Gaza",
+            "America/Sao_Paulo", "Asia/Shanghai", "Pacific/Apia", "UTC", "GMT+08:00"
+    };
+    private static final long DAY_MILLIS = DateKernel.DAY_MILLIS;
+    // 1940-01-01 ~ 2037-01-01；之后 java.util.TimeZone 只按最后的规则推算，与 java.time 的完整规则不一定一致
+    private static final int FROM_DAY = (int) LocalDate.of(1940, 1, 1).toEpochDay();
+    private static final int TO_DAY = (int) LocalDate.of(2037, 1, 1).toEpochDay();
+
+    private TimeZone originalZone;
+
+    @Before
+    public void saveZone() {
+        originalZone = TimeZone.getDefault();
+    }
+
+    @After
+    public void restoreZone() {
+        TimeZone.setDefault(originalZone);
+        DateKernel.refreshTimeZone();
+    }
+
+    @Test
+    public void epochDayAndMinuteMatchJavaTimeAtRandomInstants() {
+        Random random = new Random(7);
+        for (String id : ZONES) {
+            useZone(id);
+            ZoneId zoneId = ZoneId.of(id);
+            for (int i = 0; i < 20000; i++) {
+                long millis = FROM_DAY * DAY_MILLIS + (long) (random.nextDouble() * (TO_DAY - FROM_DAY) * DAY_MILLIS);
+                assertMatches(zoneId, millis);
+            }
+        }
+    }
+
+    @Test
+    public void epochDayAndMinuteMatchJavaTimeAroundTransitions() {
+        for (String id : ZONES) {
+            useZone(id);
+            ZoneId zoneId = ZoneId.of(id);
+            for (ZoneOffsetTransition transition : zoneId.getRules().getTransitions()) {
+                long at = transition.getInstant().toEpochMilli();
+                if (at < FROM_DAY * DAY_MILLIS || at > TO_DAY * DAY_MILLIS) {
+                    continue;
+                }
+                for (long delta : new long[]{-DAY_MILLIS, -60_000, -1, 0, 1, 60_000, DAY_MILLIS}) {
+                    assertMatches(zoneId, at + delta);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void startOfDayMatchesJavaTime() {
+        for (String id : ZONES) {
+            useZone(id);
+            ZoneId zoneId = ZoneId.of(id);
+            for (int day = FROM_DAY; day < TO_DAY; day++) {
+                long expected = LocalDate.ofEpochDay(day).atStartOfDay(zoneId).toInstant().toEpochMilli();
+                assertEquals(id + " day " + day, expected, DateKernel.startOfDay(day));
+                if (Instant.ofEpochMilli(expected).atZone(zoneId).toLocalDate().toEpochDay() == day) {
+                    assertEquals(id + " day " + day, day, DateKernel.epochDay(DateKernel.startOfDay(day)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void startOfDayIsFirstMidnightWhenMidnightRepeats() {
+        useZone("Asia/Gaza");
+        ZoneId gaza = ZoneId.of("Asia/Gaza");
+        for (int day : new int[]{18559, 18929}) {
+            long first = LocalDate.ofEpochDay(day).atStartOfDay(gaza).toInstant().toEpochMilli();
+            assertEquals(first, DateKernel.startOfDay(day));
+            // 一小时后当地时间再次是零点，仍是同一天
+            assertEquals(day, DateKernel.epochDay(first + 60 * DateKernel.MINUTE_MILLIS));
+            assertEquals(0, DateKernel.minuteOfDay(first + 60 * DateKernel.MINUTE_MILLIS));
+        }
+    }
+
+    @Test
+    public void fixedOffsetZoneWorksOutsideTable() {
+        useZone("GMT+08:00");
+        ZoneId zoneId = ZoneId.of("GMT+08:00");
+        for (int year : new int[]{1700, 1850, 2150, 2400}) {
+            long millis = LocalDate.of(year, 6, 1).atStartOfDay(zoneId).toInstant().toEpochMilli() + 12345678;
+            assertMatches(zoneId, millis);
+        }
+    }
+
+    @Test
+    public void nullDateHasNoDay() {
+        assertEquals(DateKernel.NO_DAY, DateKernel.epochDay((java.util.Date) null));
+        assertEquals(null, DateKernel.toDate(DateKernel.NO_DAY));
+    }
+
+    private static void useZone(String id) {
+        TimeZone.setDefault(TimeZone.getTimeZone(id));
+        DateKernel.refreshTimeZone();
+    }
+
+    private static void assertMatches(ZoneId zoneId, long millis) {
+        ZonedDateTime expected = Instant.ofEpochMilli(millis).atZone(zoneId);
+        String message = zoneId + " at " + millis;
+        assertEquals(message, expected.toLocalDate().toEpochDay(), DateKernel.epochDay(millis));
+        assertEquals(message, expected.getHour() * 60 + expected.getMinute(), DateKernel.minuteOfDay(millis));
+    }
+}
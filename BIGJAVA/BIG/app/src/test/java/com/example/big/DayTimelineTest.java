@@ -0,0 +1,62 @@
+package com.example.big;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * DayTimeline 按开始和结束时间分到各小时的片段
+ */
+public class DayTimelineTest {
+    private static final int DAY = 20000;
+
+    @Test
+    public void everyHourTheTaskSpansHasASegment() {
+        // 09:30 - 12:00：开始的小时半小时，之后两个整小时，结束的 12 点不显示
+        Task task = task(1, "09:30 - 12:00", 150);
+        DayTimeline timeline = DayTimeline.build(Arrays.asList(task), DAY);
+        assertSegment(timeline, 9, true, 30, 30);
+        assertSegment(timeline, 10, false, 0, 60);
+        assertSegment(timeline, 11, false, 0, 60);
+        assertEquals(0, timeline.segmentsAt(12).length);
+
+        // 09:30 - 11:30：最后一个小时只有半小时
+        DayTimeline shorter = DayTimeline.build(Arrays.asList(task(2, "09:30 - 11:30", 120)), DAY);
+        assertSegment(shorter, 11, false, 0, 30);
+        assertEquals(0, shorter.segmentsAt(12).length);
+    }
+
+    @Test
+    public void shortTaskStaysInItsStartHour() {
+        Task task = task(2, "14:50 - 15:00", 10);
+        DayTimeline timeline = DayTimeline.build(Arrays.asList(task), DAY);
+        assertSegment(timeline, 14, true, 50, 10);
+        assertEquals(0, timeline.segmentsAt(15).length);
+    }
+
+    @Test
+    public void tasksOnOtherDaysOrWithoutTimeAreSkipped() {
+        Task otherDay = new Task(3, "三", "09:00 - 10:00", DateKernel.toDate(DAY + 1), 60, false);
+        Task noTime = new Task(4, "四", TimeRangeCodec.UNSET_TEXT, DateKernel.toDate(DAY), 60, false);
+        DayTimeline timeline = DayTimeline.build(Arrays.asList(otherDay, noTime), DAY);
+        for (int hour = 0; hour < DayTimeline.HOURS; hour++) {
+            assertEquals(0, timeline.segmentsAt(hour).length);
+        }
+    }
+
+    private static void assertSegment(DayTimeline timeline, int hour, boolean starts, int minuteInHour, int minutes) {
+        DayTimeline.Segment[] segments = timeline.segmentsAt(hour);
+        assertEquals(1, segments.length);
+        assertEquals(starts, segments[0].starts);
+        assertEquals(minuteInHour, segments[0].minuteInHour);
+        assertEquals(minutes, segments[0].minutes);
+    }
+
+    private static Task task(long id, String timeRange, int durationMinutes) {
+        Date date = DateKernel.toDate(DAY);
+        return new Task(id, "任务" + id, timeRange, date, durationMinutes, false);
+    }
+}
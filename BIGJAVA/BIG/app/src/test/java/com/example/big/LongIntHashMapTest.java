@@ -0,0 +1,79 @@
+package com.example.big;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * LongIntHashMap 与 HashMap 对照：覆盖、删除留下的墓碑、扩容和清空
+ */
+public class LongIntHashMapTest {
+
+    @Test
+    public void randomOperationsMatchHashMap() {
+        Random random = new Random(8);
+        LongIntHashMap map = new LongIntHashMap(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        long[] keys = new long[2000];
+        for (int i = 0; i < keys.length; i++) {
+            // 包括 0、负数和雪花ID那样的大数
+            keys[i] = i % 2 == 0 ? i - 1000 : random.nextLong();
+        }
+        for (int step = 0; step < 100000; step++) {
+            long key = keys[random.nextInt(keys.length)];
+            if (random.nextInt(5) < 2) {
+                Integer old = expected.remove(key);
+                assertEquals(old != null ? old : LongIntHashMap.MISSING, map.remove(key));
+            } else {
+                int value = random.nextInt(Integer.MAX_VALUE);
+                expected.put(key, value);
+                map.put(key, value);
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (long key : keys) {
+            Integer value = expected.get(key);
+            assertEquals(value != null ? value : LongIntHashMap.MISSING, map.get(key));
+        }
+    }
+
+    @Test
+    public void repeatedInsertAndRemoveReusesSlots() {
+        // 同一组键反复增删，墓碑不应让表无限变大或查找失败
+        LongIntHashMap map = new LongIntHashMap(16);
+        for (int round = 0; round < 1000; round++) {
+            for (long key = 0; key < 10; key++) {
+                map.put(key * 1_000_003L + round, (int) key);
+            }
+            for (long key = 0; key < 10; key++) {
+                assertEquals((int) key, map.remove(key * 1_000_003L + round));
+            }
+            assertEquals(0, map.size());
+        }
+        map.put(7, 70);
+        assertEquals(70, map.get(7));
+    }
+
+    @Test
+    public void clearRemovesEverything() {
+        LongIntHashMap map = new LongIntHashMap(0);
+        for (int i = 0; i < 500; i++) {
+            map.put(i, i * 2);
+        }
+        map.put(10, 11);
+        assertEquals(500, map.size());
+        assertEquals(11, map.get(10));
+        map.clear();
+        assertEquals(0, map.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(LongIntHashMap.MISSING, map.get(i));
+        }
+        map.put(3, 4);
+        assertEquals(4, map.get(3));
+        assertEquals(1, map.size());
+    }
+}
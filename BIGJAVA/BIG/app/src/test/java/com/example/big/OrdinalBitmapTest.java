@@ -0,0 +1,116 @@
+package com.example.big;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * OrdinalBitmap 与 TreeSet 对照：增删、数组块与位图块之间的转换、交并差
+ */
+public class OrdinalBitmapTest {
+
+    @Test
+    public void addRemoveMatchesTreeSet() {
+        Random random = new Random(14);
+        OrdinalBitmap bitmap = new OrdinalBitmap();
+        TreeSet<Integer> expected = new TreeSet<>();
+        // 第一块先变稠密（超过 4096 个元素）再变稀疏，第二块始终稀疏
+        for (int i = 0; i < 20000; i++) {
+            int value = random.nextInt(8000);
+            assertEquals(expected.add(value), bitmap.add(value));
+            int other = (1 << 16) + random.nextInt(1 << 16);
+            assertEquals(expected.add(other), bitmap.add(other));
+        }
+        assertContents(expected, bitmap);
+        for (int i = 0; i < 30000; i++) {
+            int value = random.nextInt(8000);
+            assertEquals(expected.remove(value), bitmap.remove(value));
+        }
+        assertContents(expected, bitmap);
+        assertFalse(bitmap.contains(-1));
+        assertFalse(bitmap.remove(1 << 20));
+    }
+
+    @Test
+    public void setOperationsMatchTreeSet() {
+        Random random = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            // 稠密度不同的两组，覆盖 数组-数组、数组-位图、位图-位图 的组合
+            TreeSet<Integer> a = randomSet(random, round % 2 == 0 ? 6000 : 300, 3 << 16);
+            TreeSet<Integer> b = randomSet(random, round % 3 == 0 ? 9000 : 500, 3 << 16);
+            OrdinalBitmap bitmapA = OrdinalBitmap.of(toArray(a));
+            OrdinalBitmap bitmapB = OrdinalBitmap.of(toArray(b));
+
+            TreeSet<Integer> and = new TreeSet<>(a);
+            and.retainAll(b);
+            TreeSet<Integer> or = new TreeSet<>(a);
+            or.addAll(b);
+            TreeSet<Integer> andNot = new TreeSet<>(a);
+            andNot.removeAll(b);
+
+            assertContents(and, OrdinalBitmap.and(bitmapA, bitmapB));
+            assertContents(or, OrdinalBitmap.or(bitmapA, bitmapB));
+            assertContents(andNot, OrdinalBitmap.andNot(bitmapA, bitmapB));
+            assertEquals(and.size(), OrdinalBitmap.andCardinality(bitmapA, bitmapB));
+            // 运算不修改参数
+            assertContents(a, bitmapA);
+            assertContents(b, bitmapB);
+        }
+    }
+
+    @Test
+    public void rangeAndCopy() {
+        for (int size : new int[]{0, 1, 63, 64, 4096, 4097, 65536, 70000}) {
+            OrdinalBitmap range = OrdinalBitmap.range(size);
+            assertEquals(size, range.cardinality());
+            assertEquals(size == 0, range.isEmpty());
+            int[] values = range.toArray();
+            for (int i = 0; i < size; i++) {
+                assertEquals(i, values[i]);
+            }
+            assertFalse(range.contains(size));
+        }
+
+        OrdinalBitmap original = OrdinalBitmap.range(5000);
+        OrdinalBitmap copy = original.copy();
+        copy.remove(10);
+        copy.set(9000, true);
+        assertTrue(original.contains(10));
+        assertFalse(original.contains(9000));
+        assertEquals(5000, original.cardinality());
+        assertEquals(5000, copy.cardinality());
+    }
+
+    private static void assertContents(TreeSet<Integer> expected, OrdinalBitmap bitmap) {
+        assertEquals(expected.size(), bitmap.cardinality());
+        assertEquals(expected.isEmpty(), bitmap.isEmpty());
+        assertArrayEquals(toArray(expected), bitmap.toArray());
+        for (int value : expected) {
+            assertTrue(bitmap.contains(value));
+        }
+    }
+
+    private static TreeSet<Integer> randomSet(Random random, int count, int bound) {
+        TreeSet<Integer> set = new TreeSet<>();
+        for (int i = 0; i < count; i++) {
+            // 集中在前两块，使部分块超过数组块的上限
+            set.add(random.nextInt(random.nextBoolean() ? 1 << 16 : bound));
+        }
+        return set;
+    }
+
+    private static int[] toArray(TreeSet<Integer> set) {
+        int[] values = new int[set.size()];
+        int i = 0;
+        for (int value : set) {
+            values[i++] = value;
+        }
+        return values;
+    }
+}
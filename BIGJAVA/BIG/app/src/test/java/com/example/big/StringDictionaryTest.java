@@ -0,0 +1,50 @@
+package com.example.big;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * StringDictionary 的编码分配：预置编码、编码稳定、null 与无效编码
+ */
+public class StringDictionaryTest {
+
+    @Test
+    public void presetCategoriesHaveFixedCodes() {
+        assertEquals(0, StringDictionary.CATEGORIES.codeOf("学习"));
+        assertEquals(1, StringDictionary.CATEGORIES.codeOf("工作"));
+        assertEquals(2, StringDictionary.CATEGORIES.codeOf("生活"));
+        assertEquals(3, StringDictionary.CATEGORIES.codeOf("其他"));
+    }
+
+    @Test
+    public void codesAreStableAcrossGrowth() {
+        StringDictionary dictionary = new StringDictionary("甲", "乙");
+        // 超过初始容量 8，数组需要扩容
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i + 2, dictionary.encode("值" + i));
+        }
+        assertEquals(102, dictionary.size());
+        assertEquals(0, dictionary.encode("甲"));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i + 2, dictionary.encode("值" + i));
+            assertEquals("值" + i, dictionary.decode(i + 2));
+        }
+        assertEquals(102, dictionary.size());
+    }
+
+    @Test
+    public void nullAndUnknownValues() {
+        StringDictionary dictionary = new StringDictionary("甲");
+        assertEquals(StringDictionary.NULL_CODE, dictionary.encode(null));
+        assertEquals(StringDictionary.NULL_CODE, dictionary.codeOf(null));
+        assertNull(dictionary.decode(StringDictionary.NULL_CODE));
+
+        // codeOf 不分配新编码
+        assertEquals(StringDictionary.NULL_CODE, dictionary.codeOf("乙"));
+        assertEquals(1, dictionary.size());
+        assertNull(dictionary.decode(1));
+        assertNull(dictionary.decode(-5));
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.big;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * TaskFeed 的分页读取，以及索引改变后在刷新前后读到的内容
+ */
+public class TaskFeedTest {
+    private static final long BASE = DateKernel.startOfDay(20000);
+
+    @Test
+    public void readsAllSourcesInOrder() {
+        TaskOrderIndex saved = index(0, 120, 2);
+        TaskOrderIndex samples = index(1, 120, 2);
+        TaskFeed feed = new TaskFeed(saved, samples);
+        assertEquals(120, feed.size());
+        for (int position = 0; position < feed.size(); position++) {
+            assertEquals(position, feed.get(position).getId());
+        }
+        // 倒序读取时从已知的游标逐页向后找
+        TaskFeed backwards = new TaskFeed(saved, samples);
+        for (int position = backwards.size() - 1; position >= 0; position--) {
+            assertEquals(position, backwards.get(position).getId());
+        }
+    }
+
+    @Test
+    public void refreshAfterDeletesHasNoRepeatedRows() {
+        TaskOrderIndex index = index(0, 200, 1);
+        TaskFeed feed = new TaskFeed(index);
+        assertEquals(199, feed.get(199).getId());
+        for (long id = 0; id < 200; id += 3) {
+            index.remove(id);
+        }
+        feed.refresh();
+        assertEquals(index.size(), feed.size());
+        Set<Long> ids = new HashSet<>();
+        for (int position = 0; position < feed.size(); position++) {
+            Task task = feed.get(position);
+            assertNotNull(task);
+            assertTrue(task.getId() % 3 != 0);
+            assertTrue(ids.add(task.getId()));
+        }
+    }
+
+    @Test
+    public void readsFrozenViewUntilRefresh() {
+        TaskOrderIndex index = index(0, 60, 1);
+        TaskFeed feed = new TaskFeed(index);
+        // 其他线程删除了末尾的任务、在开头插入了新任务，尚未刷新
+        for (long id = 50; id < 60; id++) {
+            index.remove(id);
+        }
+        index.put(TaskVersion.of(new Task(1000, "新任务", "00:00 - 01:00", new Date(BASE - DateKernel.DAY_MILLIS),
+                60, false)));
+        assertEquals(60, feed.size());
+        for (int position = 0; position < 60; position++) {
+            assertEquals(position, feed.get(position).getId());
+        }
+
+        feed.refresh();
+        assertEquals(51, feed.size());
+        assertEquals(1000, feed.get(0).getId());
+        assertEquals(49, feed.get(50).getId());
+    }
+
+    @Test
+    public void refreshReportsOnlyChangedRows() {
+        TaskOrderIndex saved = index(0, 600, 2);
+        TaskOrderIndex samples = index(1, 600, 2);
+        TaskFeed feed = new TaskFeed(saved, samples);
+        List<Long> shown = new ArrayList<>();
+        for (Task task : feed) {
+            shown.add(task.getId());
+        }
+        // 删除、改标题、改时间（移动位置）、新增，分布在两个索引中
+        saved.remove(10);
+        saved.remove(598);
+        samples.remove(1);
+        saved.put(TaskVersion.of(new Task(20, "新标题", "00:20 - 01:20", new Date(BASE), 60, false)));
+        samples.put(TaskVersion.of(new Task(33, "任务33", "08:00 - 09:00", new Date(BASE), 60, false)));
+        saved.put(TaskVersion.of(new Task(700, "新任务", "00:05 - 01:05", new Date(BASE), 60, false)));
+        samples.put(TaskVersion.of(new Task(701, "新任务", "23:00 - 23:30", new Date(BASE), 60, false)));
+
+        List<Integer> changed = new ArrayList<>();
+        assertTrue(feed.refresh(100, new TaskFeed.Updates() {
+            @Override
+            public void removed(int position) {
+                shown.remove(position);
+            }
+
+            @Override
+            public void inserted(int position) {
+                shown.add(position, feed.get(position).getId());
+            }
+
+            @Override
+            public void changed(int position) {
+                changed.add(position);
+            }
+        }));
+        assertEquals(feed.size(), shown.size());
+        for (int position = 0; position < feed.size(); position++) {
+            assertEquals(shown.get(position), Long.valueOf(feed.get(position).getId()));
+        }
+        assertEquals(1, changed.size());
+        assertEquals("新标题", feed.get(changed.get(0)).getTitle());
+    }
+
+    @Test
+    public void refreshWithTooManyChangesAsksForFullRefresh() {
+        TaskOrderIndex index = index(0, 100, 1);
+        TaskFeed feed = new TaskFeed(index);
+        for (long id = 0; id < 20; id++) {
+            index.remove(id);
+        }
+        assertFalse(feed.refresh(10, new TaskFeed.Updates() {
+            @Override
+            public void removed(int position) {
+                fail();
+            }
+
+            @Override
+            public void inserted(int position) {
+                fail();
+            }
+
+            @Override
+            public void changed(int position) {
+                fail();
+            }
+        }));
+        assertEquals(80, feed.size());
+        assertEquals(20, feed.get(0).getId());
+    }
+
+    // ID 从 first 开始、间隔为 step 的任务，第 i 个任务在第 i 分钟开始
+    private static TaskOrderIndex index(long first, int end, int step) {
+        TaskOrderIndex index = new TaskOrderIndex();
+        for (long id = first; id < end; id += step) {
+            int minute = (int) id;
+            String time = String.format("%02d:%02d - %02d:%02d", minute / 60, minute % 60,
+                    minute / 60 + 1, minute % 60);
+            index.put(TaskVersion.of(new Task(id, "任务" + id, time, new Date(BASE), 60, false)));
+        }
+        return index;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.big;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * TaskIdGenerator 生成的ID递增，并能从已使用的ID之后继续（时钟回拨时）
+ */
+public class TaskIdGeneratorTest {
+
+    @Test
+    public void idsIncreaseAndDoNotRepeat() {
+        TaskIdGenerator generator = new TaskIdGenerator(5);
+        Set<Long> ids = new HashSet<>();
+        long last = 0;
+        for (int i = 0; i < 20000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > last);
+            assertTrue(ids.add(id));
+            last = id;
+        }
+    }
+
+    @Test
+    public void continuesAfterIdsIssuedBeforeClockMovedBack() {
+        // 上次运行时时钟快了一小时，生成过这个ID
+        TaskIdGenerator previous = new TaskIdGenerator(5);
+        previous.advancePast(new TaskIdGenerator(5).nextId() + (3_600_000L << 22));
+        long issued = previous.nextId();
+
+        TaskIdGenerator generator = new TaskIdGenerator(5);
+        generator.advancePast(issued);
+        long next = generator.nextId();
+        assertTrue(next > issued);
+        assertTrue(TaskIdGenerator.timestampOf(next) >= TaskIdGenerator.timestampOf(issued));
+
+        // 旧的小ID和负数ID不影响生成
+        TaskIdGenerator fresh = new TaskIdGenerator(5);
+        fresh.advancePast(12345001);
+        fresh.advancePast(-7);
+        assertTrue(TaskIdGenerator.timestampOf(fresh.nextId()) > System.currentTimeMillis() - 60_000);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.big;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * TaskIntervalIndex 的各种查询与逐个判断的结果对照
+ */
+public class TaskIntervalIndexTest {
+    private static final int DAY = 20000;
+    private static final int MINUTES = TaskIntervalIndex.MINUTES_PER_DAY;
+
+    @Test
+    public void queriesMatchBruteForce() {
+        Random random = new Random(15);
+        // 不同大小的存储，覆盖隐式树右侧不满的情况
+        for (int size : new int[]{0, 1, 2, 3, 7, 8, 9, 31, 33, 100, 257, 1000}) {
+            TaskStore store = new TaskStore();
+            for (int i = 0; i < size; i++) {
+                store.put(randomTask(random, i));
+            }
+            TaskIntervalIndex index = TaskIntervalIndex.of(store);
+            for (int query = 0; query < 200; query++) {
+                int from = TaskIntervalIndex.minuteOf(DAY - 1, random.nextInt(12 * MINUTES));
+                int to = from + (random.nextInt(4) == 0 ? random.nextInt(3 * MINUTES) : random.nextInt(180));
+                assertArrayEquals(overlappingBrute(store, from, to), index.overlapping(from, to));
+                assertArrayEquals(overlappingBrute(store, from, from), index.at(from));
+                assertArrayEquals(containedBrute(store, from, to), index.containedIn(from, to));
+                assertArrayEquals(startingBrute(store, from, to), index.startingBetween(from, to));
+            }
+        }
+    }
+
+    @Test
+    public void tasksWithoutDateRepeatEveryDay() {
+        // 没有日期的 00:05 - 00:20 与跨过午夜的查询重叠，23:00 - 23:30 不重叠
+        int from = TaskIntervalIndex.minuteOf(DAY, 23 * 60 + 50);
+        int to = TaskIntervalIndex.minuteOf(DAY + 1, 10);
+        assertTrue(TaskIntervalIndex.overlaps(DateKernel.NO_DAY, 5, 20, from, to));
+        assertFalse(TaskIntervalIndex.overlaps(DateKernel.NO_DAY, 23 * 60, 23 * 60 + 30, from, to));
+        // 没有时间的总是重叠，查询覆盖整天时有时间的也重叠
+        assertTrue(TaskIntervalIndex.overlaps(DateKernel.NO_DAY, -1, -1, from, from));
+        assertTrue(TaskIntervalIndex.overlaps(DateKernel.NO_DAY, 600, 660, from, from + MINUTES - 1));
+    }
+
+    @Test
+    public void midnightEndStaysOnItsDay() {
+        // 结束时间为 24:00 的任务不与第二天 00:00 重叠，没有时间的任务占满当天
+        assertTrue(TaskIntervalIndex.overlaps(DAY, 23 * 60, MINUTES, TaskIntervalIndex.minuteOf(DAY, MINUTES - 1),
+                TaskIntervalIndex.minuteOf(DAY, MINUTES - 1)));
+        assertFalse(TaskIntervalIndex.overlaps(DAY, 23 * 60, MINUTES, TaskIntervalIndex.minuteOf(DAY + 1, 0),
+                TaskIntervalIndex.minuteOf(DAY + 1, 0)));
+        assertTrue(TaskIntervalIndex.overlaps(DAY, -1, -1, TaskIntervalIndex.minuteOf(DAY, 0),
+                TaskIntervalIndex.minuteOf(DAY, 0)));
+        assertFalse(TaskIntervalIndex.overlaps(DAY, -1, -1, TaskIntervalIndex.minuteOf(DAY + 1, 0),
+                TaskIntervalIndex.minuteOf(DAY + 1, 0)));
+    }
+
+    private static int[] overlappingBrute(TaskStore store, int from, int to) {
+        List<Integer> result = new ArrayList<>();
+        for (int ordinal = 0; ordinal < store.size(); ordinal++) {
+            if (TaskIntervalIndex.overlaps(store, ordinal, from, to)) {
+                result.add(ordinal);
+            }
+        }
+        return toArray(result);
+    }
+
+    private static int[] containedBrute(TaskStore store, int from, int to) {
+        List<Integer> result = new ArrayList<>();
+        for (int ordinal = 0; ordinal < store.size(); ordinal++) {
+            if (store.getEpochDay(ordinal) != DateKernel.NO_DAY
+                    && startOf(store, ordinal) >= from && endOf(store, ordinal) <= to) {
+                result.add(ordinal);
+            }
+        }
+        return toArray(result);
+    }
+
+    private static int[] startingBrute(TaskStore store, int from, int to) {
+        List<long[]> keyed = new ArrayList<>();
+        for (int ordinal = 0; ordinal < store.size(); ordinal++) {
+            int start = startOf(store, ordinal);
+            if (store.getEpochDay(ordinal) != DateKernel.NO_DAY && start >= from && start <= to) {
+                keyed.add(new long[]{start, ordinal});
+            }
+        }
+        keyed.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        int[] result = new int[keyed.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (int) keyed.get(i)[1];
+        }
+        return result;
+    }
+
+    private static int startOf(TaskStore store, int ordinal) {
+        return TaskIntervalIndex.minuteOf(store.getEpochDay(ordinal), Math.max(store.getStartMinute(ordinal), 0));
+    }
+
+    private static int endOf(TaskStore store, int ordinal) {
+        int end = store.getStartMinute(ordinal) >= 0
+                ? Math.min(store.getEndMinute(ordinal), MINUTES - 1) : MINUTES - 1;
+        return TaskIntervalIndex.minuteOf(store.getEpochDay(ordinal), end);
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = list.get(i);
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    // 大部分任务有日期和时间，少数没有日期或没有时间
+    private static Task randomTask(Random random, long id) {
+        int kind = random.nextInt(10);
+        String timeRange = TimeRangeCodec.UNSET_TEXT;
+        if (kind != 0) {
+            int start = random.nextInt(MINUTES);
+            int end = Math.min(MINUTES, start + random.nextInt(240));
+            timeRange = TimeRangeCodec.formatCompact(start, end);
+        }
+        int day = DAY + random.nextInt(10);
+        return new Task(id, "任务" + id, timeRange, kind == 1 ? null : DateKernel.toDate(day), 60, false);
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.big;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * TaskLog 的追加、组提交、重放，以及末尾写了一半、损坏或由更新版本写入的条目
+ */
+public class TaskLogTest {
+    private File file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = File.createTempFile("tasks", ".log");
+        assertTrue(file.delete());
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+        new File(file.getPath() + ".tmp").delete();
+    }
+
+    @Test
+    public void replaysCommittedPutsAndDeletes() throws Exception {
+        try (TaskLog log = TaskLog.open(file, new Recorder())) {
+            log.appendPut(task(1, "一"));
+            log.appendPut(task(2, "二"));
+            log.appendDelete(1);
+            long last = log.appendPut(task(2, "二（修改）"));
+            log.awaitCommitted(last);
+            assertEquals(file.length(), log.length());
+            assertEquals(4, log.entryCount());
+        }
+
+        Recorder recorder = new Recorder();
+        try (TaskLog log = TaskLog.open(file, recorder)) {
+            assertEquals(4, log.entryCount());
+        }
+        assertEquals("put 1 一, put 2 二, delete 1, put 2 二（修改）", recorder.toString());
+    }
+
+    @Test
+    public void tornTailIsTruncatedAndAppendingContinues() throws Exception {
+        long intact;
+        try (TaskLog log = TaskLog.open(file, new Recorder())) {
+            log.awaitCommitted(log.appendPut(task(1, "完整")));
+            intact = file.length();
+            log.awaitCommitted(log.appendPut(task(2, "写了一半")));
+        }
+        // 模拟断电：最后一个条目只写了一部分
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 5);
+        }
+
+        Recorder recorder = new Recorder();
+        try (TaskLog log = TaskLog.open(file, recorder)) {
+            assertEquals("put 1 完整", recorder.toString());
+            assertEquals(intact, file.length());
+            assertEquals(1, log.entryCount());
+            log.awaitCommitted(log.appendPut(task(3, "之后")));
+        }
+
+        Recorder reopened = new Recorder();
+        try (TaskLog log = TaskLog.open(file, reopened)) {
+            assertEquals("put 1 完整, put 3 之后", reopened.toString());
+            assertEquals(2, log.entryCount());
+        }
+    }
+
+    @Test
+    public void entryWithBadChecksumEndsReplay() throws Exception {
+        long intact;
+        try (TaskLog log = TaskLog.open(file, new Recorder())) {
+            log.awaitCommitted(log.appendPut(task(1, "完整")));
+            intact = file.length();
+            log.awaitCommitted(log.appendPut(task(2, "损坏")));
+            log.awaitCommitted(log.appendPut(task(3, "损坏之后")));
+        }
+        // 改动第二个条目内容中的一个字节
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(intact + 12);
+            int value = raf.read();
+            raf.seek(intact + 12);
+            raf.write(value ^ 0xFF);
+        }
+
+        Recorder recorder = new Recorder();
+        try (TaskLog log = TaskLog.open(file, recorder)) {
+            assertEquals("put 1 完整", recorder.toString());
+            assertEquals(1, log.entryCount());
+        }
+        assertEquals(intact, file.length());
+    }
+
+    @Test
+    public void entryFromNewerVersionIsSkippedNotTruncated() throws Exception {
+        try (TaskLog log = TaskLog.open(file, new Recorder())) {
+            log.awaitCommitted(log.appendPut(task(1, "之前")));
+        }
+        // 更新版本的应用写入的完整条目：长度和 CRC 正确，记录格式版本更高
+        byte[] body = {TaskLog.OP_PUT, (byte) (TaskRecordCodec.FORMAT_VERSION + 1), 3, 1, 2, 3};
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length());
+            raf.writeInt(body.length);
+            raf.writeInt((int) crc.getValue());
+            raf.write(body);
+        }
+        long withNewer = file.length();
+
+        Recorder recorder = new Recorder();
+        try (TaskLog log = TaskLog.open(file, recorder)) {
+            assertEquals("put 1 之前", recorder.toString());
+            assertEquals(withNewer, file.length());
+            assertEquals(2, log.entryCount());
+            assertEquals(1, log.unknownEntryCount());
+            log.awaitCommitted(log.appendPut(task(2, "之后")));
+        }
+
+        Recorder reopened = new Recorder();
+        try (TaskLog log = TaskLog.open(file, reopened)) {
+            assertEquals("put 1 之前, put 2 之后", reopened.toString());
+            assertEquals(3, log.entryCount());
+        }
+        assertTrue(file.length() > withNewer);
+    }
+
+    @Test
+    public void headerOnlyFileOpensEmpty() throws Exception {
+        try (TaskLog log = TaskLog.open(file, new Recorder())) {
+            assertEquals(8, file.length());
+            assertEquals(0, log.entryCount());
+        }
+        // 文件头都没写完时重新创建
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(3);
+        }
+        Recorder recorder = new Recorder();
+        try (TaskLog log = TaskLog.open(file, recorder)) {
+            assertEquals(0, log.entryCount());
+        }
+        assertEquals("", recorder.toString());
+        assertEquals(8, file.length());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsFileThatIsNotATaskLog() throws Exception {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.writeLong(0x1234567890L);
+        }
+        TaskLog.open(file, new Recorder()).close();
+    }
+
+    @Test
+    public void compactKeepsOnlyLatestVersions() throws Exception {
+        TaskSnapshot snapshot = TaskSnapshot.empty();
+        try (TaskLog log = TaskLog.open(file, new Recorder())) {
+            for (int i = 0; i < 10; i++) {
+                Task task = task(i % 3, "版本" + i);
+                log.appendPut(task);
+                snapshot = snapshot.with(TaskVersion.of(task));
+            }
+            log.appendDelete(0);
+            snapshot = snapshot.without(0);
+            log.compact(snapshot);
+            assertEquals(2, log.entryCount());
+            assertEquals(file.length(), log.length());
+            log.awaitCommitted(log.appendPut(task(5, "压缩之后")));
+        }
+
+        Recorder recorder = new Recorder();
+        try (TaskLog log = TaskLog.open(file, recorder)) {
+            assertEquals(3, recorder.events.size());
+            assertEquals(3, log.entryCount());
+        }
+        assertTrue(recorder.events.contains("put 1 版本7"));
+        assertTrue(recorder.events.contains("put 2 版本8"));
+        assertEquals("put 5 压缩之后", recorder.events.get(2));
+    }
+
+    @Test
+    public void dayIndexIsStaleForCompactedLogOfSameLength() throws Exception {
+        File indexFile = new File(file.getPath() + ".idx");
+        try (TaskLog log = TaskLog.open(file, new Recorder())) {
+            log.appendPut(task(1, "甲"));
+            log.awaitCommitted(log.appendPut(task(1, "乙")));
+            TaskLog.Stamp before = log.stamp();
+            TaskSnapshot snapshot = TaskSnapshot.empty().with(TaskVersion.of(task(1, "乙")));
+            TaskDayIndex.write(indexFile, snapshot, before);
+            assertNotNull(TaskDayIndex.openIfFresh(indexFile, before));
+            assertTrue(TaskLog.tailMatches(file, before));
+
+            // 压缩后再追加一个同样大小的条目，日志长度与原来相同，内容不同
+            log.compact(snapshot);
+            log.awaitCommitted(log.appendPut(task(1, "甲")));
+            TaskLog.Stamp after = log.stamp();
+            assertEquals(before.length, after.length);
+            assertEquals(file.length(), after.length);
+            assertNotEquals(before, after);
+            assertNull(TaskDayIndex.openIfFresh(indexFile, after));
+            assertFalse(TaskLog.tailMatches(file, before));
+            assertTrue(TaskLog.tailMatches(file, after));
+        } finally {
+            indexFile.delete();
+        }
+
+        // 重新打开时重放得到的标记与写入时一致
+        TaskLog.Stamp written;
+        try (TaskLog log = TaskLog.open(file, new Recorder())) {
+            written = log.stamp();
+            log.awaitCommitted(log.appendPut(task(2, "丙")));
+            assertNotEquals(written, log.stamp());
+            written = log.stamp();
+        }
+        try (TaskLog log = TaskLog.open(file, new Recorder())) {
+            assertEquals(written, log.stamp());
+        }
+    }
+
+    private static Task task(long id, String title) {
+        return new Task(id, title, "09:00 - 10:00", new Date(1700000000000L), 60, false);
+    }
+
+    // 按顺序记录重放的条目
+    private static final class Recorder implements TaskLog.Replayer {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void put(TaskRecord record) {
+            events.add("put " + record.getId() + " " + record.getTitle());
+        }
+
+        @Override
+        public void delete(long id) {
+            events.add("delete " + id);
+        }
+
+        @Override
+        public String toString() {
+            return String.join(", ", events);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.big;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * TaskOrderIndex 与 TreeMap 对照：增删改后的顺序、按键集分页、按天读取，只读视图不随修改改变，以及视图间的比较
+ */
+public class TaskOrderIndexTest {
+    private static final int DAY = 20000;
+
+    @Test
+    public void randomChangesMatchTreeMapAndFrozenViewsStayIntact() {
+        Random random = new Random(19);
+        TaskOrderIndex index = new TaskOrderIndex();
+        Map<Long, TaskVersion> current = new HashMap<>();
+        List<TaskOrderIndex> views = new ArrayList<>();
+        List<List<Long>> viewIds = new ArrayList<>();
+        for (int step = 0; step < 5000; step++) {
+            long id = random.nextInt(400);
+            if (random.nextInt(4) == 0) {
+                index.remove(id);
+                current.remove(id);
+            } else {
+                // 修改时常常改变日期或时间，任务移动到新位置
+                TaskVersion version = TaskVersion.of(randomTask(random, id));
+                index.put(version);
+                current.put(id, version);
+            }
+            if (step % 500 == 0) {
+                views.add(index.frozen());
+                viewIds.add(ids(expectedOrder(current)));
+            }
+        }
+        List<TaskVersion> expected = expectedOrder(current);
+        assertEquals(expected.size(), index.size());
+        assertEquals(ids(expected), ids(index.toList()));
+        for (int i = 0; i < views.size(); i++) {
+            assertEquals(viewIds.get(i).size(), views.get(i).size());
+            assertEquals(viewIds.get(i), ids(views.get(i).toList()));
+        }
+
+        // 键集分页逐页读完与整体顺序相同
+        List<TaskVersion> paged = new ArrayList<>();
+        TaskVersion last = null;
+        List<TaskVersion> page;
+        while (!(page = index.after(last, 7)).isEmpty()) {
+            paged.addAll(page);
+            last = page.get(page.size() - 1);
+        }
+        assertEquals(ids(expected), ids(paged));
+
+        List<TaskVersion> days = new ArrayList<>();
+        for (TaskVersion version : expected) {
+            int day = version.hasDate() ? DateKernel.epochDay(version.getDateMillis()) : Integer.MAX_VALUE;
+            if (day >= DAY + 1 && day <= DAY + 2) {
+                days.add(version);
+            }
+        }
+        assertEquals(ids(days), ids(index.between(DAY + 1, DAY + 2)));
+    }
+
+    @Test
+    public void diffOfViewsMatchesChangesAndRankGivesPositions() {
+        Random random = new Random(24);
+        TaskOrderIndex index = new TaskOrderIndex();
+        for (long id = 0; id < 2000; id++) {
+            index.put(TaskVersion.of(randomTask(random, id)));
+        }
+        TaskOrderIndex older = index.frozen();
+        assertTrue(TaskOrderIndex.diff(older, index.frozen(), 0).isEmpty());
+
+        Map<Long, TaskVersion> removed = new HashMap<>();
+        Map<Long, TaskVersion> current = new HashMap<>();
+        for (TaskVersion version : older.toList()) {
+            current.put(version.getId(), version);
+        }
+        for (int step = 0; step < 30; step++) {
+            long id = random.nextInt(2100);
+            TaskVersion before = current.get(id);
+            if (before != null && !removed.containsKey(id)) {
+                removed.put(id, before);
+            }
+            if (random.nextBoolean()) {
+                index.remove(id);
+                current.remove(id);
+            } else {
+                TaskVersion version = TaskVersion.of(randomTask(random, id));
+                index.put(version);
+                current.put(id, version);
+            }
+        }
+        TaskOrderIndex newer = index.frozen();
+        List<TaskVersion[]> changes = TaskOrderIndex.diff(older, newer, 100);
+        // 按修改和 rank 给出的位置在旧的顺序上删除、插入，得到新的顺序
+        List<Long> ids = ids(older.toList());
+        List<Integer> removedPositions = new ArrayList<>();
+        List<TaskVersion> added = new ArrayList<>();
+        for (TaskVersion[] change : changes) {
+            if (change[1] == null) {
+                assertSame(removed.get(change[0].getId()), change[0]);
+                removedPositions.add(older.rank(change[0]));
+            } else {
+                assertSame(current.get(change[1].getId()), change[1]);
+                if (change[0] == null) {
+                    added.add(change[1]);
+                } else {
+                    assertEquals(0, TaskOrderIndex.ORDER.compare(change[0], change[1]));
+                }
+            }
+        }
+        removedPositions.sort(Collections.reverseOrder());
+        for (int position : removedPositions) {
+            ids.remove(position);
+        }
+        for (TaskVersion version : added) {
+            ids.add(newer.rank(version), version.getId());
+        }
+        assertEquals(ids(newer.toList()), ids);
+        assertTrue(changes.size() <= 60);
+        assertNull(TaskOrderIndex.diff(older, newer, changes.size() - 1));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void frozenViewIsReadOnly() {
+        TaskOrderIndex index = new TaskOrderIndex();
+        index.frozen().put(TaskVersion.of(randomTask(new Random(1), 1)));
+    }
+
+    private static List<TaskVersion> expectedOrder(Map<Long, TaskVersion> current) {
+        TreeMap<String, TaskVersion> sorted = new TreeMap<>();
+        for (TaskVersion version : current.values()) {
+            long day = version.hasDate() ? DateKernel.epochDay(version.getDateMillis()) : Integer.MAX_VALUE;
+            long start = version.hasTimeRange() ? version.getStartMinuteOfDay() : Integer.MAX_VALUE;
+            sorted.put(String.format("%011d %011d %06d", day, start, version.getId()), version);
+        }
+        return new ArrayList<>(sorted.values());
+    }
+
+    private static List<Long> ids(List<TaskVersion> versions) {
+        List<Long> ids = new ArrayList<>(versions.size());
+        for (TaskVersion version : versions) {
+            ids.add(version.getId());
+        }
+        return ids;
+    }
+
+    // 三天内的任务，少数没有日期或没有时间
+    private static Task randomTask(Random random, long id) {
+        int kind = random.nextInt(10);
+        Date date = kind == 0 ? null : DateKernel.toDate(DAY + random.nextInt(3));
+        String timeRange = TimeRangeCodec.UNSET_TEXT;
+        if (kind != 1) {
+            int start = random.nextInt(24) * 60;
+            timeRange = TimeRangeCodec.formatCompact(start, start + 30);
+        }
+        return new Task(id, "任务" + id, timeRange, date, 30, false);
+    }
+}
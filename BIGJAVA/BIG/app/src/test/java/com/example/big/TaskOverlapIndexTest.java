@@ -0,0 +1,208 @@
+package com.example.big;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * TaskOverlapIndex 的重叠个数、重叠组和冲突查询与两两比较的结果对照，
+ * 以及增量修改后与重新生成的索引一致
+ */
+public class TaskOverlapIndexTest {
+    private static final int DAY = 20000;
+
+    @Test
+    public void incrementalChangesMatchBruteForce() {
+        Random random = new Random(25);
+        TaskOverlapIndex index = TaskOverlapIndex.of(TaskSnapshot.empty());
+        Map<Long, Task> tasks = new HashMap<>();
+        for (int step = 0; step < 3000; step++) {
+            long id = random.nextInt(120);
+            if (tasks.containsKey(id) && random.nextInt(4) == 0) {
+                tasks.remove(id);
+                index.remove(id);
+            } else {
+                // 更新时可能换到另一天
+                Task task = randomTask(random, id);
+                tasks.put(id, task);
+                index.put(TaskVersion.of(task));
+            }
+            if (step % 100 == 0) {
+                assertMatches(tasks, index);
+            }
+        }
+        assertMatches(tasks, index);
+        assertMatches(tasks, TaskOverlapIndex.of(new ArrayList<>(tasks.values())));
+    }
+
+    @Test
+    public void touchingTasksDoNotOverlap() {
+        Task first = task(1, DAY, "09:00 - 10:00");
+        Task second = task(2, DAY, "10:00 - 11:00");
+        Task inside = task(3, DAY, "10:30 - 10:45");
+        Task otherDay = task(4, DAY + 1, "09:30 - 10:30");
+        Task noTime = task(5, DAY, TimeRangeCodec.UNSET_TEXT);
+        TaskOverlapIndex index = TaskOverlapIndex.of(Arrays.asList(first, second, inside, otherDay, noTime));
+
+        assertEquals(0, index.layersOf(1));
+        assertEquals(1, index.layersOf(2));
+        assertEquals(1, index.layersOf(3));
+        assertEquals(0, index.layersOf(4));
+        assertEquals(0, index.layersOf(5));
+
+        List<TaskOverlapIndex.Group> groups = index.groupsBetween(DAY, DAY + 1);
+        assertEquals(1, groups.size());
+        assertArrayEquals(new long[]{2, 3}, groups.get(0).getTaskIds());
+        assertEquals(600, groups.get(0).getStartMinute());
+        assertEquals(660, groups.get(0).getEndMinute());
+        assertEquals(2, groups.get(0).getMaxConcurrent());
+
+        assertArrayEquals(new long[]{1, 2}, index.conflictsWith(99, DAY, 9 * 60 + 30, 10 * 60 + 15));
+        assertArrayEquals(new long[0], index.conflictsWith(noTime));
+    }
+
+    private static void assertMatches(Map<Long, Task> tasks, TaskOverlapIndex index) {
+        List<Task> timed = new ArrayList<>();
+        for (Task task : tasks.values()) {
+            if (task.hasTimeRange() && task.getDate() != null) {
+                timed.add(task);
+            }
+        }
+        for (Task task : tasks.values()) {
+            int expected = 0;
+            if (timed.contains(task)) {
+                for (Task other : timed) {
+                    if (other != task && overlaps(task, other)) {
+                        expected++;
+                    }
+                }
+            }
+            assertEquals(expected, index.layersOf(task.getId()));
+        }
+
+        List<String> expectedGroups = new ArrayList<>();
+        for (List<Task> group : components(timed)) {
+            if (group.size() > 1) {
+                expectedGroups.add(describe(group));
+            }
+        }
+        Collections.sort(expectedGroups);
+        List<String> actualGroups = new ArrayList<>();
+        for (TaskOverlapIndex.Group group : index.groupsBetween(DAY, DAY + 3)) {
+            long[] ids = group.getTaskIds().clone();
+            Arrays.sort(ids);
+            actualGroups.add(group.getEpochDay() + "|" + group.getStartMinute() + "|" + group.getEndMinute()
+                    + "|" + group.getMaxConcurrent() + Arrays.toString(ids));
+        }
+        Collections.sort(actualGroups);
+        assertEquals(expectedGroups, actualGroups);
+
+        for (int probe = 0; probe < 20; probe++) {
+            int start = probe * 70;
+            int end = start + 45;
+            List<Long> expected = new ArrayList<>();
+            for (Task other : timed) {
+                if (epochDay(other) == DAY && other.getId() != 7
+                        && other.getStartMinuteOfDay() < end && endOf(other) > start) {
+                    expected.add(other.getId());
+                }
+            }
+            long[] actual = index.conflictsWith(7, DAY, start, end).clone();
+            Arrays.sort(actual);
+            Collections.sort(expected);
+            assertEquals(expected.toString(), Arrays.toString(actual));
+        }
+    }
+
+    // 两两比较求连通的任务组
+    private static List<List<Task>> components(List<Task> timed) {
+        int[] parent = new int[timed.size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        for (int i = 0; i < timed.size(); i++) {
+            for (int j = i + 1; j < timed.size(); j++) {
+                if (overlaps(timed.get(i), timed.get(j))) {
+                    parent[find(parent, i)] = find(parent, j);
+                }
+            }
+        }
+        Map<Integer, List<Task>> groups = new HashMap<>();
+        for (int i = 0; i < timed.size(); i++) {
+            groups.computeIfAbsent(find(parent, i), key -> new ArrayList<>()).add(timed.get(i));
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            i = parent[i];
+        }
+        return i;
+    }
+
+    // 天数|开始|结束|最多同时进行的任务数[排好序的ID]
+    private static String describe(List<Task> group) {
+        int start = Integer.MAX_VALUE;
+        int end = Integer.MIN_VALUE;
+        int maxConcurrent = 0;
+        long[] ids = new long[group.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Task task = group.get(i);
+            ids[i] = task.getId();
+            start = Math.min(start, task.getStartMinuteOfDay());
+            end = Math.max(end, endOf(task));
+            int concurrent = 0;
+            for (Task other : group) {
+                if (other.getStartMinuteOfDay() <= task.getStartMinuteOfDay()
+                        && endOf(other) > task.getStartMinuteOfDay()) {
+                    concurrent++;
+                }
+            }
+            maxConcurrent = Math.max(maxConcurrent, concurrent);
+        }
+        Arrays.sort(ids);
+        return epochDay(group.get(0)) + "|" + start + "|" + end + "|" + maxConcurrent + Arrays.toString(ids);
+    }
+
+    private static boolean overlaps(Task a, Task b) {
+        return epochDay(a) == epochDay(b)
+                && a.getStartMinuteOfDay() < endOf(b) && b.getStartMinuteOfDay() < endOf(a);
+    }
+
+    // 结束不晚于开始时按一分钟计算
+    private static int endOf(Task task) {
+        return Math.max(task.getEndMinuteOfDay(), task.getStartMinuteOfDay() + 1);
+    }
+
+    private static int epochDay(Task task) {
+        return DateKernel.epochDay(task.getDate());
+    }
+
+    private static Task randomTask(Random random, long id) {
+        int kind = random.nextInt(10);
+        if (kind == 0) {
+            return task(id, DAY, TimeRangeCodec.UNSET_TEXT);
+        }
+        if (kind == 1) {
+            return new Task(id, "任务" + id, "09:00 - 10:00", null, 60, false);
+        }
+        int start = random.nextInt(24 * 60);
+        // 少数任务开始和结束相同
+        int end = kind == 2 ? start : Math.min(24 * 60, start + 15 + random.nextInt(180));
+        return task(id, DAY + random.nextInt(3), TimeRangeCodec.formatCompact(start, end));
+    }
+
+    private static Task task(long id, int epochDay, String timeRange) {
+        return new Task(id, "任务" + id, timeRange, DateKernel.toDate(epochDay), 60, false);
+    }
+}
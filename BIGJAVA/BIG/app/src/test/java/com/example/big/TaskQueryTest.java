@@ -0,0 +1,91 @@
+package com.example.big;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * TaskQuery 的组合条件、类别编码的查找时机和保存还原
+ */
+public class TaskQueryTest {
+    private static final long BASE = DateKernel.startOfDay(20000);
+
+    @Test
+    public void categoryCreatedAfterQueryStillMatches() {
+        String category = "查询之后才出现的类别";
+        TaskQuery query = TaskQuery.all().inCategory(category);
+        TaskStore store = new TaskStore();
+        store.put(task(1, category, false, false));
+        store.put(task(2, "工作", false, false));
+
+        assertArrayEquals(new int[]{store.ordinalOf(1)}, query.select(store));
+        assertEquals(1, query.count(store));
+        assertTrue(query.matches(TaskVersion.of(task(3, category, true, true))));
+        assertFalse(query.matches(TaskVersion.of(task(4, "工作", true, true))));
+    }
+
+    @Test
+    public void restoredCategoryQueryResolvesLazily() {
+        String category = "还原之后才出现的类别";
+        TaskQuery query = TaskQuery.fromSpec(TaskQuery.all().important().inCategory(category).toSpec());
+        TaskStore store = TaskStore.of(List.of(task(1, category, true, false), task(2, category, false, false)));
+        assertArrayEquals(new int[]{store.ordinalOf(1)}, query.select(store));
+    }
+
+    @Test
+    public void indexedAndScannedClausesAgree() {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Task task = new Task(i, "任务" + i, "09:00 - 10:00", new Date(BASE + (i % 10) * DateKernel.DAY_MILLIS),
+                    60, i % 2 == 0);
+            task.setCategory(i % 3 == 0 ? "工作" : "生活");
+            task.setFinished(i % 5 == 0);
+            tasks.add(task);
+        }
+        TaskStore store = TaskStore.of(tasks);
+        TaskQuery query = TaskQuery.all().unfinished().important().inCategory("工作").betweenDays(20002, 20006);
+        int expected = 0;
+        for (Task task : tasks) {
+            if (query.matches(TaskVersion.of(task))) {
+                expected++;
+            }
+        }
+        assertEquals(expected, query.select(store).length);
+        assertEquals(expected, query.run(store).size());
+        assertEquals(expected, TaskQuery.fromSpec(query.toSpec()).count(store));
+    }
+
+    @Test
+    public void relativeRangesAreResolvedAgainstToday() {
+        int today = DateKernel.today();
+        TaskQuery week = TaskQuery.fromSpec(TaskQuery.all().thisWeek().toSpec());
+        TaskQuery nextDays = TaskQuery.fromSpec(TaskQuery.all().daysFromToday(1, 3).toSpec());
+        assertTrue(week.dependsOnToday());
+        assertTrue(nextDays.dependsOnToday());
+        assertFalse(TaskQuery.all().betweenDays(today, today).dependsOnToday());
+
+        int monday = today - Math.floorMod(today + 3, 7);
+        for (int day = monday - 7; day < monday + 14; day++) {
+            TaskVersion version = TaskVersion.of(new Task(day, "任务", "09:00 - 10:00",
+                    DateKernel.toDate(day), 60, false));
+            assertEquals(day >= monday && day <= monday + 6, week.matches(version));
+            assertEquals(day >= today + 1 && day <= today + 3, nextDays.matches(version));
+        }
+        // 1970-01-05 是周一
+        assertEquals(0, Math.floorMod(4 + 3, 7));
+    }
+
+    private static Task task(long id, String category, boolean important, boolean finished) {
+        Task task = new Task(id, "任务" + id, "09:00 - 10:00", new Date(BASE), 60, important);
+        task.setCategory(category);
+        task.setFinished(finished);
+        return task;
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.big;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * TaskRecordCodec 编码后再解码不丢失内容，以及损坏记录的拒绝
+ */
+public class TaskRecordCodecTest {
+    private static final long BASE = DateKernel.startOfDay(20000);
+
+    @Test
+    public void roundTripKeepsEveryField() throws IOException {
+        // 日期和截止时间都不在整天、整分钟上
+        Task task = new Task(-42, "开会", "09:30 - 11:00", new Date(BASE + 9 * 3600_000L + 1234), 90, true,
+                "周例会", "三楼会议室", new Date(BASE + 86_400_000L + 61_234));
+        task.setCategory("工作");
+        task.setFinished(true);
+        task.setDelayed(true);
+        task.setUserId(7);
+        assertSameContent(task, decode(TaskRecordCodec.encode(task)));
+
+        // 自定义类别写字符串
+        task.setCategory("编码测试类别");
+        assertSameContent(task, decode(TaskRecordCodec.encode(task)));
+    }
+
+    @Test
+    public void roundTripKeepsTimeRangeText() throws IOException {
+        String[] texts = {"明天下午", "09:00-10:30", TimeRangeCodec.UNSET_TEXT, "", "25:00 - 26:00"};
+        for (String text : texts) {
+            Task task = new Task(1, "任务", text, new Date(BASE), 60, false);
+            Task decoded = decode(TaskRecordCodec.encode(task));
+            assertEquals(text, decoded.getTimeRange());
+            assertEquals(task.isTimeRangeMalformed(), decoded.isTimeRangeMalformed());
+            assertEquals(task.getStartMinuteOfDay(), decoded.getStartMinuteOfDay());
+        }
+        // 已是格式化结果的文字不重复保存
+        Task canonical = new Task(1, "任务", TimeRangeCodec.format(540, 600), new Date(BASE), 60, false);
+        Task malformed = new Task(1, "任务", "明天下午", new Date(BASE), 60, false);
+        assertTrue(TaskRecordCodec.encode(canonical).length < TaskRecordCodec.encode(malformed).length);
+    }
+
+    @Test
+    public void missingFieldsDecodeToDefaults() throws IOException {
+        Task task = new Task(3, null, null, null, 0, false, null, null, null);
+        Task decoded = decode(TaskRecordCodec.encode(task));
+        assertEquals(3, decoded.getId());
+        assertNull(decoded.getTitle());
+        assertNull(decoded.getDate());
+        assertNull(decoded.getDueDate());
+        assertEquals(TimeRangeCodec.UNSET_TEXT, decoded.getTimeRange());
+        assertEquals(0, decoded.getUserId());
+    }
+
+    @Test
+    public void unknownFieldsAreSkipped() throws IOException {
+        byte[] known = TaskRecordCodec.encode(new Task(5, "五", "08:00 - 09:00", new Date(BASE), 60, false));
+        // 在正文末尾追加一个新版本才有的字段
+        int[] end = new int[1];
+        int body = (int) TaskRecordCodec.readVarint(ByteBuffer.wrap(known), 1, known.length, end);
+        int unknownTag = TaskRecordCodec.tag(40, TaskRecordCodec.TYPE_BYTES);
+        ByteBuffer extended = ByteBuffer.allocate(known.length + 16);
+        extended.put((byte) TaskRecordCodec.FORMAT_VERSION);
+        TaskRecordCodec.writeVarint(extended, body + TaskRecordCodec.varintSize(unknownTag) + 3);
+        extended.put(known, end[0], body);
+        TaskRecordCodec.writeVarint(extended, unknownTag);
+        TaskRecordCodec.writeVarint(extended, 2);
+        extended.put((byte) 1).put((byte) 2);
+        extended.flip();
+        Task decoded = TaskRecordCodec.decode(extended);
+        assertEquals("五", decoded.getTitle());
+        assertEquals(480, decoded.getStartMinuteOfDay());
+        assertFalse(extended.hasRemaining());
+    }
+
+    @Test
+    public void negativeFieldLengthIsRejected() {
+        ByteBuffer record = ByteBuffer.allocate(32);
+        record.put((byte) TaskRecordCodec.FORMAT_VERSION);
+        // 正文：标题字段，长度为 -3（会让读取位置后退）
+        TaskRecordCodec.writeVarint(record, 1 + 10);
+        TaskRecordCodec.writeVarint(record, TaskRecordCodec.tag(TaskRecordCodec.FIELD_TITLE, TaskRecordCodec.TYPE_BYTES));
+        TaskRecordCodec.writeVarint(record, -3L);
+        record.flip();
+        assertRejected(record);
+    }
+
+    @Test
+    public void lengthsPastTheBufferAreRejected() {
+        ByteBuffer body = ByteBuffer.allocate(32);
+        body.put((byte) TaskRecordCodec.FORMAT_VERSION);
+        TaskRecordCodec.writeVarint(body, 1000);
+        body.flip();
+        assertRejected(body);
+
+        ByteBuffer field = ByteBuffer.allocate(32);
+        field.put((byte) TaskRecordCodec.FORMAT_VERSION);
+        TaskRecordCodec.writeVarint(field, 3);
+        TaskRecordCodec.writeVarint(field, TaskRecordCodec.tag(TaskRecordCodec.FIELD_TITLE, TaskRecordCodec.TYPE_BYTES));
+        TaskRecordCodec.writeVarint(field, 50);
+        field.put((byte) 'x');
+        field.flip();
+        assertRejected(field);
+
+        ByteBuffer negativeBody = ByteBuffer.allocate(32);
+        negativeBody.put((byte) TaskRecordCodec.FORMAT_VERSION);
+        TaskRecordCodec.writeVarint(negativeBody, -1L);
+        negativeBody.flip();
+        assertRejected(negativeBody);
+    }
+
+    @Test
+    public void unsupportedVersionIsNotWrapped() throws IOException {
+        ByteBuffer record = ByteBuffer.wrap(new byte[]{(byte) (TaskRecordCodec.FORMAT_VERSION + 1), 0});
+        assertFalse(new TaskRecord().wrap(record, 0));
+    }
+
+    private static void assertRejected(ByteBuffer record) {
+        try {
+            new TaskRecord().wrap(record, 0);
+            fail("损坏的记录应被拒绝");
+        } catch (IOException expected) {
+            // 预期的异常
+        }
+    }
+
+    private static Task decode(byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        Task task = TaskRecordCodec.decode(buffer);
+        assertFalse(buffer.hasRemaining());
+        return task;
+    }
+
+    private static void assertSameContent(Task expected, Task actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getTimeRange(), actual.getTimeRange());
+        assertEquals(expected.getDate(), actual.getDate());
+        assertEquals(expected.getDurationMinutes(), actual.getDurationMinutes());
+        assertEquals(expected.isImportant(), actual.isImportant());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getPlace(), actual.getPlace());
+        assertEquals(expected.getDueDate(), actual.getDueDate());
+        assertEquals(expected.getCategory(), actual.getCategory());
+        assertEquals(expected.isFinished(), actual.isFinished());
+        assertEquals(expected.isDelayed(), actual.isDelayed());
+        assertEquals(expected.getUserId(), actual.getUserId());
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.big;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * TaskSnapshot 与 HashMap 对照，以及旧快照在修改后保持不变
+ */
+public class TaskSnapshotTest {
+
+    @Test
+    public void randomChangesMatchHashMapAndOldSnapshotsStayIntact() {
+        Random random = new Random(4);
+        TaskSnapshot snapshot = TaskSnapshot.empty();
+        Map<Long, TaskVersion> expected = new HashMap<>();
+        List<TaskSnapshot> history = new ArrayList<>();
+        List<Map<Long, TaskVersion>> historyExpected = new ArrayList<>();
+        long[] ids = new long[3000];
+        for (int i = 0; i < ids.length; i++) {
+            // 小的连续ID、负数和 64 位的大ID
+            ids[i] = i % 3 == 0 ? i : i % 3 == 1 ? -i : random.nextLong();
+        }
+        for (int step = 0; step < 20000; step++) {
+            long id = ids[random.nextInt(ids.length)];
+            if (random.nextInt(3) == 0) {
+                snapshot = snapshot.without(id);
+                expected.remove(id);
+            } else {
+                TaskVersion version = version(id, "步骤" + step);
+                snapshot = snapshot.with(version);
+                expected.put(id, version);
+            }
+            if (step % 2000 == 0) {
+                history.add(snapshot);
+                historyExpected.add(new HashMap<>(expected));
+            }
+        }
+        assertMatches(expected, snapshot);
+        for (int i = 0; i < history.size(); i++) {
+            assertMatches(historyExpected.get(i), history.get(i));
+        }
+    }
+
+    @Test
+    public void removingEverythingLeavesAnEmptySnapshot() {
+        TaskSnapshot snapshot = TaskSnapshot.empty();
+        for (long id = 0; id < 500; id++) {
+            snapshot = snapshot.with(version(id, "任务" + id));
+        }
+        for (long id = 0; id < 500; id++) {
+            snapshot = snapshot.without(id);
+            assertNull(snapshot.get(id));
+            if (id + 1 < 500) {
+                assertEquals("任务" + (id + 1), snapshot.get(id + 1).getTitle());
+            }
+        }
+        assertEquals(0, snapshot.size());
+        assertTrue(snapshot.toList().isEmpty());
+        assertSame(snapshot, snapshot.without(1));
+    }
+
+    @Test
+    public void versionsAreImmutableAndCountRevisions() {
+        Task task = new Task(9, "原标题", "09:00 - 10:00", null, 60, false);
+        TaskVersion first = TaskVersion.of(task);
+        task.setFinished(true);
+        assertEquals(false, first.isFinished());
+
+        TaskVersion finished = first.withFinished(true);
+        assertEquals(1, finished.getRevision());
+        assertSame(finished, finished.withFinished(true));
+        Task changed = new Task(9, "新标题", "10:00 - 11:00", null, 60, false);
+        TaskVersion edited = finished.withContent(changed);
+        assertEquals(2, edited.getRevision());
+        assertEquals("新标题", edited.getTitle());
+        assertEquals("原标题", finished.getTitle());
+        assertEquals(600, edited.getStartMinuteOfDay());
+    }
+
+    private static void assertMatches(Map<Long, TaskVersion> expected, TaskSnapshot snapshot) {
+        assertEquals(expected.size(), snapshot.size());
+        for (Map.Entry<Long, TaskVersion> entry : expected.entrySet()) {
+            assertSame(entry.getValue(), snapshot.get(entry.getKey()));
+        }
+        Set<Long> seen = new HashSet<>();
+        snapshot.forEach(version -> {
+            assertTrue(seen.add(version.getId()));
+            assertSame(expected.get(version.getId()), version);
+        });
+        assertEquals(expected.size(), seen.size());
+    }
+
+    private static TaskVersion version(long id, String title) {
+        return TaskVersion.of(new Task(id, title, "09:00 - 10:00", null, 60, false));
+    }
+}
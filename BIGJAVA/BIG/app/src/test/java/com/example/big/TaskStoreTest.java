@@ -0,0 +1,177 @@
+package com.example.big;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * TaskStore 的增删、位图二级索引和区间索引的重新生成
+ */
+public class TaskStoreTest {
+    private static final long DAY = DateKernel.DAY_MILLIS;
+    private static final long BASE = DateKernel.startOfDay(20000);
+
+    @Test
+    public void putOverwritesAndRemoveMovesLastTask() {
+        TaskStore store = new TaskStore();
+        store.put(task(1, "一", 0, "09:00 - 10:00", "工作", true, false));
+        store.put(task(2, "二", 0, "10:00 - 11:00", "生活", false, true));
+        store.put(task(3, "三", 1, "08:00 - 09:00", "工作", true, true));
+        assertEquals(3, store.size());
+
+        store.put(task(1, "一（修改）", 0, "09:00 - 10:00", "学习", false, false));
+        assertEquals(3, store.size());
+        assertEquals("一（修改）", store.getTitle(store.ordinalOf(1)));
+        assertEquals(0, store.countImportant() - 1);
+
+        assertTrue(store.remove(1));
+        assertFalse(store.remove(1));
+        assertEquals(2, store.size());
+        assertEquals(-1, store.ordinalOf(1));
+        // 最后一个任务移到了被删除的位置，标记和类别随之移动
+        int moved = store.ordinalOf(3);
+        assertEquals(0, moved);
+        assertTrue(store.isImportant(moved));
+        assertTrue(store.isFinished(moved));
+        assertEquals("三", store.get(moved).getTitle());
+        assertEquals(1, store.countCategory(StringDictionary.CATEGORIES.codeOf("工作")));
+        assertEquals(0, store.countCategory(StringDictionary.CATEGORIES.codeOf("学习")));
+    }
+
+    @Test
+    public void bitmapsMatchColumnsAfterRandomChanges() {
+        Random random = new Random(14);
+        String[] categories = {"工作", "生活", "学习", "其他"};
+        TaskStore store = new TaskStore();
+        List<Long> live = new ArrayList<>();
+        for (int step = 0; step < 5000; step++) {
+            if (!live.isEmpty() && random.nextInt(4) == 0) {
+                Long id = live.remove(random.nextInt(live.size()));
+                assertTrue(store.remove(id));
+            } else {
+                long id = random.nextInt(800);
+                store.put(task(id, "任务" + id, random.nextInt(10), "09:00 - 10:00",
+                        categories[random.nextInt(categories.length)], random.nextBoolean(), random.nextBoolean()));
+                if (!live.contains(id)) {
+                    live.add(id);
+                }
+            }
+        }
+        assertEquals(live.size(), store.size());
+        int important = 0;
+        int unfinished = 0;
+        int[] perCategory = new int[StringDictionary.CATEGORIES.size()];
+        for (int ordinal = 0; ordinal < store.size(); ordinal++) {
+            Task task = store.get(ordinal);
+            assertEquals(ordinal, store.ordinalOf(task.getId()));
+            important += task.isImportant() ? 1 : 0;
+            unfinished += task.isFinished() ? 0 : 1;
+            perCategory[store.getCategoryCode(ordinal)]++;
+        }
+        assertEquals(important, store.countImportant());
+        assertEquals(unfinished, store.countUnfinished());
+        assertEquals(important, store.selectImportant().length);
+        assertEquals(unfinished, store.selectUnfinished().length);
+        for (String category : categories) {
+            int code = StringDictionary.CATEGORIES.codeOf(category);
+            assertEquals(perCategory[code], store.countCategory(code));
+            assertEquals(perCategory[code], store.selectCategory(category).length);
+        }
+    }
+
+    @Test
+    public void buildsFromSnapshotLikeFromTasks() {
+        List<Task> tasks = new ArrayList<>();
+        TaskSnapshot snapshot = TaskSnapshot.empty();
+        for (int i = 0; i < 100; i++) {
+            Task task = task(i, "任务" + i, i % 7, i % 3 == 0 ? "" : "1" + (i % 10) + ":00 - 1" + (i % 10) + ":30",
+                    i % 2 == 0 ? "工作" : "生活", i % 5 == 0, i % 4 == 0);
+            tasks.add(task);
+            snapshot = snapshot.with(TaskVersion.of(task));
+        }
+        TaskStore fromTasks = TaskStore.of(tasks);
+        TaskStore fromSnapshot = TaskStore.of(snapshot);
+        assertEquals(fromTasks.size(), fromSnapshot.size());
+        for (Task task : tasks) {
+            Task a = fromTasks.get(fromTasks.ordinalOf(task.getId()));
+            Task b = fromSnapshot.get(fromSnapshot.ordinalOf(task.getId()));
+            assertEquals(a.getTitle(), b.getTitle());
+            assertEquals(a.getDate(), b.getDate());
+            assertEquals(a.getStartMinuteOfDay(), b.getStartMinuteOfDay());
+            assertEquals(a.getEndMinuteOfDay(), b.getEndMinuteOfDay());
+            assertEquals(a.getDueDate(), b.getDueDate());
+            assertEquals(a.getCategoryCode(), b.getCategoryCode());
+            assertEquals(a.isImportant(), b.isImportant());
+            assertEquals(a.isFinished(), b.isFinished());
+        }
+    }
+
+    @Test
+    public void intervalIndexIsRebuiltOnlyWhenTimesOrPositionsChange() {
+        TaskStore store = new TaskStore();
+        store.put(task(1, "一", 0, "09:00 - 10:00", "工作", false, false));
+        store.put(task(2, "二", 0, "11:00 - 12:00", "工作", false, false));
+        TaskIntervalIndex index = store.intervalIndex();
+        assertSame(index, store.intervalIndex());
+
+        // 只修改标题和完成状态，索引仍然有效
+        store.put(task(1, "一（完成）", 0, "09:00 - 10:00", "工作", false, true));
+        assertSame(index, store.intervalIndex());
+
+        // 修改时间后重新生成
+        store.put(task(1, "一（完成）", 0, "13:00 - 14:00", "工作", false, true));
+        assertNotSame(index, store.intervalIndex());
+        assertArrayEquals(new int[]{store.ordinalOf(1)}, store.selectOverlapping(20000, 13 * 60, 13 * 60 + 30));
+
+        // 删除会移动存储位置，同样重新生成
+        index = store.intervalIndex();
+        store.remove(1);
+        assertNotSame(index, store.intervalIndex());
+        assertArrayEquals(new int[]{store.ordinalOf(2)}, store.selectOverlapping(20000, 8 * 60, 23 * 60));
+
+        // 新增任务
+        index = store.intervalIndex();
+        store.put(task(3, "三", 0, "11:30 - 12:30", "工作", false, false));
+        assertNotSame(index, store.intervalIndex());
+        int[] expected = {store.ordinalOf(2), store.ordinalOf(3)};
+        Arrays.sort(expected);
+        assertArrayEquals(expected, store.selectOverlapping(20000, 11 * 60 + 45, 11 * 60 + 50));
+    }
+
+    @Test
+    public void queryOnVersionsMatchesQueryOnStore() {
+        List<Task> tasks = new ArrayList<>();
+        List<TaskVersion> versions = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            Task task = task(i, "任务" + i, i % 3, "0" + (i % 10) + ":00 - 0" + (i % 10) + ":45",
+                    i % 3 == 0 ? "工作" : "学习", i % 2 == 0, i % 5 == 0);
+            tasks.add(task);
+            versions.add(TaskVersion.of(task));
+        }
+        TaskStore store = TaskStore.of(tasks);
+        TaskQuery query = TaskQuery.all().unfinished().important().betweenDays(20000, 20001);
+        assertEquals(query.run(store).size(), query.run(versions).size());
+        assertArrayEquals(query.countByCategory(store), query.countByCategory(versions));
+    }
+
+    private static Task task(long id, String title, int dayOffset, String timeRange, String category,
+                             boolean important, boolean finished) {
+        Date date = new Date(BASE + dayOffset * DAY);
+        Task task = new Task(id, title, timeRange, date, 60, important, "", "",
+                new Date(BASE + dayOffset * DAY + 12345678));
+        task.setCategory(category);
+        task.setFinished(finished);
+        return task;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.big;
+
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Task.getAll 中各字段的键和装箱类型
+ */
+public class TaskTest {
+
+    @Test
+    public void getAllBoxesIdAsLongAndKeepsEveryKey() {
+        long id = (1L << 40) + 5;
+        Task task = new Task(id, "任务", "09:00 - 10:00", new Date(0), 60, true);
+        task.setUserId(3);
+        Map<String, Object> all = task.getAll();
+
+        assertEquals(Task.Field.values().length, all.size());
+        assertEquals(Long.class, all.get("id").getClass());
+        assertEquals(id, ((Number) all.get("id")).longValue());
+        assertEquals(Integer.class, all.get("user_id").getClass());
+        assertEquals(3, all.get("user_id"));
+        assertEquals(60, all.get("durationMinutes"));
+        assertEquals(Boolean.TRUE, all.get("important"));
+    }
+}
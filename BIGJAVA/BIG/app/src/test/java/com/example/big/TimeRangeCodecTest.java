@@ -0,0 +1,57 @@
+package com.example.big;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * TimeRangeCodec 对两种时间格式的解析、格式化和打包
+ */
+public class TimeRangeCodecTest {
+
+    @Test
+    public void bothFormatsRoundTrip() {
+        for (int start = 0; start < TimeRangeCodec.MINUTES_PER_DAY; start += 7) {
+            for (int end = start; end <= TimeRangeCodec.MINUTES_PER_DAY; end += 13) {
+                int packed = TimeRangeCodec.pack(start, end);
+                assertEquals(packed, TimeRangeCodec.parse(TimeRangeCodec.format(start, end)));
+                assertEquals(packed, TimeRangeCodec.parse(TimeRangeCodec.formatCompact(start, end)));
+                assertEquals(start, TimeRangeCodec.startOf(packed));
+                assertEquals(end, TimeRangeCodec.endOf(packed));
+                assertTrue(TimeRangeCodec.isValid(packed));
+            }
+        }
+        assertEquals("09 : 05 -- 24 : 00", TimeRangeCodec.format(545, 1440));
+        assertEquals("00:00 - 10:30", TimeRangeCodec.formatCompact(0, 630));
+    }
+
+    @Test
+    public void looseSpacingIsAccepted() {
+        int expected = TimeRangeCodec.pack(9 * 60, 10 * 60 + 30);
+        assertEquals(expected, TimeRangeCodec.parse("9:00-10:30"));
+        assertEquals(expected, TimeRangeCodec.parse("  09 : 00 -- 10 : 30  "));
+        assertEquals(expected, TimeRangeCodec.parse("09：00 - 10：30"));
+    }
+
+    @Test
+    public void unsetAndMalformedInputs() {
+        assertEquals(TimeRangeCodec.UNSET, TimeRangeCodec.parse(null));
+        assertEquals(TimeRangeCodec.UNSET, TimeRangeCodec.parse(""));
+        assertEquals(TimeRangeCodec.UNSET, TimeRangeCodec.parse("   "));
+        assertEquals(TimeRangeCodec.UNSET, TimeRangeCodec.parse(TimeRangeCodec.UNSET_TEXT));
+
+        String[] malformed = {
+                "明天下午", "09:00", "09:00 --- 10:00", "09:00 10:00", "10:00 - 09:00",
+                "25:00 - 26:00", "24:00 - 24:00", "09:60 - 10:00", "09:00 - 24:01",
+                "09:0 - 10:00", "09:00 - 10:00 以后", "123:00 - 124:00"
+        };
+        for (String text : malformed) {
+            int parsed = TimeRangeCodec.parse(text);
+            assertEquals(text, TimeRangeCodec.MALFORMED, parsed);
+            assertFalse(TimeRangeCodec.isValid(parsed));
+        }
+        assertFalse(TimeRangeCodec.isValid(TimeRangeCodec.UNSET));
+    }
+}